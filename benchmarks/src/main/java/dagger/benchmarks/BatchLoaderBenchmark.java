@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.benchmarks;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import dagger.producers.BatchLoader;
+import dagger.producers.Producer;
+import dagger.producers.internal.AbstractProducer;
+import dagger.producers.internal.Producers;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how coalescing lookups with a {@link BatchLoader} affects production components that
+ * each fetch single items from the same backend. Each operation starts {@link #components}
+ * instances of a graph in which {@link #keysPerComponent} producers each fetch one item, drawn
+ * from {@link #distinctKeys}, and waits for all of them. The producers mirror the generated code.
+ *
+ * <p>The backend is a local stand-in that serves one call at a time per thread of a pool of
+ * {@link #backendThreads}, and that takes {@link #callMillis} per call whatever the number of keys.
+ * In the {@code single} mode every producer makes its own call, while in the {@code batched} mode
+ * producers load through a {@link BatchLoader} shared by all of the components.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class BatchLoaderBenchmark {
+  @Param({"single", "batched"})
+  String mode;
+
+  @Param({"1000"})
+  int components;
+
+  @Param({"4"})
+  int keysPerComponent;
+
+  @Param({"500"})
+  int distinctKeys;
+
+  @Param({"1"})
+  int callMillis;
+
+  @Param({"8"})
+  int backendThreads;
+
+  @Param({"100"})
+  int maxBatchSize;
+
+  private ExecutorService backend;
+  private ExecutorService producerExecutor;
+  private BatchLoader<Integer, String> loader;
+
+  @Setup
+  public void createExecutors() {
+    backend = Executors.newFixedThreadPool(backendThreads);
+    producerExecutor = Executors.newFixedThreadPool(4);
+    loader = new BatchLoader<Integer, String>(producerExecutor, maxBatchSize) {
+      @Override protected ListenableFuture<Map<Integer, String>> loadAll(Set<Integer> keys) {
+        return fetch(keys);
+      }
+    };
+  }
+
+  @TearDown
+  public void shutDownExecutors() {
+    backend.shutdown();
+    producerExecutor.shutdown();
+  }
+
+  /** Looks up {@code keys} on the stand-in backend in one call. */
+  private ListenableFuture<Map<Integer, String>> fetch(final Set<Integer> keys) {
+    return Producers.submitToExecutor(new Callable<Map<Integer, String>>() {
+      @Override public Map<Integer, String> call() throws InterruptedException {
+        Thread.sleep(callMillis);
+        Map<Integer, String> values = new HashMap<Integer, String>();
+        for (Integer key : keys) {
+          values.put(key, "item" + key);
+        }
+        return values;
+      }
+    }, backend);
+  }
+
+  private Producer<String> item(final int key) {
+    return new AbstractProducer<String>() {
+      @Override protected ListenableFuture<String> compute() {
+        if (mode.equals("batched")) {
+          return loader.load(key);
+        }
+        return Futures.transform(fetch(Collections.singleton(key)),
+            new Function<Map<Integer, String>, String>() {
+              @Override public String apply(Map<Integer, String> values) {
+                return values.get(key);
+              }
+            });
+      }
+    };
+  }
+
+  @Benchmark
+  public List<String> run() throws ExecutionException, InterruptedException {
+    List<ListenableFuture<String>> results =
+        new ArrayList<ListenableFuture<String>>(components * keysPerComponent);
+    int next = 0;
+    for (int i = 0; i < components; i++) {
+      for (int j = 0; j < keysPerComponent; j++) {
+        results.add(item(next++ % distinctKeys).get());
+      }
+    }
+    return Futures.allAsList(results).get();
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the latency of the first call to an entry point of a freshly built component, which is
+ * when scoped instances are created.  A new component is built before each invocation (outside of
+ * the measurement), so for the smallest graphs the numbers include some harness overhead.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@State(Scope.Thread)
+public class ComponentFirstGetBenchmark {
+  @Param({"100", "1000", "10000"})
+  int bindings;
+
+  private SyntheticGraph graph;
+  private Object component;
+
+  @Setup(Level.Trial)
+  public void compileGraph() throws IOException {
+    graph = SyntheticGraphs.compile(bindings);
+  }
+
+  @Setup(Level.Invocation)
+  public void buildComponent() {
+    component = graph.newComponent();
+  }
+
+  @Benchmark
+  public Object firstGet() {
+    return graph.entryPoint(component);
+  }
+
+  @Benchmark
+  public Object firstGetAllEntryPoints() {
+    return graph.allEntryPoints(component);
+  }
+}
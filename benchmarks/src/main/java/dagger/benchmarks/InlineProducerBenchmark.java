@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.benchmarks;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import dagger.producers.Producer;
+import dagger.producers.internal.AbstractProducer;
+import dagger.producers.internal.FutureCombiner;
+import dagger.producers.internal.Producers;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the latency of a graph of trivially cheap producers, each of which depends on the one
+ * before it. The producers mirror the code generated for {@code @Produces} methods: in
+ * {@link #executor} every node hops to the component's executor, while in {@link #inline} every
+ * node is marked {@code @Produces(inline = true)} and runs on the thread that completes its input.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class InlineProducerBenchmark {
+  @Param({"50"})
+  int nodes;
+
+  private ExecutorService executorService;
+
+  @Setup
+  public void createExecutor() {
+    executorService = Executors.newSingleThreadExecutor();
+  }
+
+  @TearDown
+  public void shutDownExecutor() {
+    executorService.shutdown();
+  }
+
+  private static final FutureCombiner.Callback1<Integer, Integer> INCREMENT =
+      new FutureCombiner.Callback1<Integer, Integer>() {
+        @Override public ListenableFuture<Integer> combine(Integer value) {
+          return Futures.immediateFuture(value + 1);
+        }
+      };
+
+  private static Producer<Integer> root(final Executor executor) {
+    return new AbstractProducer<Integer>() {
+      @Override protected ListenableFuture<Integer> compute() {
+        return Producers.submitToExecutor(new Callable<Integer>() {
+          @Override public Integer call() {
+            return 0;
+          }
+        }, executor);
+      }
+    };
+  }
+
+  private static Producer<Integer> executorNode(
+      final Producer<Integer> input, final Executor executor) {
+    return new AbstractProducer<Integer>() {
+      @Override protected ListenableFuture<Integer> compute() {
+        return FutureCombiner.combine(input.get(), INCREMENT, executor);
+      }
+    };
+  }
+
+  private static Producer<Integer> inlineNode(final Producer<Integer> input) {
+    return new AbstractProducer<Integer>() {
+      @Override protected ListenableFuture<Integer> compute() {
+        return FutureCombiner.combine(input.get(), INCREMENT, MoreExecutors.directExecutor());
+      }
+    };
+  }
+
+  @Benchmark
+  public Integer executor() throws ExecutionException, InterruptedException {
+    Producer<Integer> producer = root(executorService);
+    for (int i = 1; i < nodes; i++) {
+      producer = executorNode(producer, executorService);
+    }
+    return producer.get().get();
+  }
+
+  @Benchmark
+  public Integer inline() throws ExecutionException, InterruptedException {
+    Producer<Integer> producer = root(MoreExecutors.directExecutor());
+    for (int i = 1; i < nodes; i++) {
+      producer = inlineNode(producer);
+    }
+    return producer.get().get();
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.benchmarks;
+
+import dagger.internal.Factory;
+import dagger.internal.MapFactory;
+import dagger.internal.MapProviderFactory;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Provider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the steady-state throughput of {@link MapFactory#get} and of looking up a single entry
+ * in the map returned by {@link MapProviderFactory#get}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class MapFactoryBenchmark {
+  @Param({"1", "10", "200"})
+  int entries;
+
+  private Provider<Map<String, Provider<Integer>>> mapProviderFactory;
+  private Provider<Map<String, Integer>> mapFactory;
+  private String lastKey;
+
+  @Setup
+  public void createFactories() {
+    MapProviderFactory.Builder<String, Integer> builder = MapProviderFactory.builder(entries);
+    for (int i = 0; i < entries; i++) {
+      builder.put("key" + i, integerFactory(i));
+    }
+    mapProviderFactory = builder.build();
+    mapFactory = MapFactory.create(mapProviderFactory);
+    lastKey = "key" + (entries - 1);
+  }
+
+  private static Factory<Integer> integerFactory(final int value) {
+    return new Factory<Integer>() {
+      @Override public Integer get() {
+        return value;
+      }
+    };
+  }
+
+  @Benchmark
+  public Map<String, Integer> get() {
+    return mapFactory.get();
+  }
+
+  @Benchmark
+  public Integer lookUpProvider() {
+    return mapProviderFactory.get().get(lastKey).get();
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.benchmarks;
+
+import dagger.internal.DoubleCheck;
+import dagger.internal.Factory;
+import dagger.internal.LockFreeScopedProvider;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Provider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares {@link DoubleCheck} and {@link LockFreeScopedProvider} when many threads request
+ * the same cold scoped bindings at once, as happens right after a server starts taking traffic.
+ * Every iteration creates {@link #PROVIDERS} uninitialized providers and all threads walk through
+ * them in the same order, so each one is contended by every thread the first time it is read.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Threads(16)
+@Warmup(iterations = 10, batchSize = ScopedProviderContentionBenchmark.PROVIDERS)
+@Measurement(iterations = 20, batchSize = ScopedProviderContentionBenchmark.PROVIDERS)
+@State(Scope.Benchmark)
+public class ScopedProviderContentionBenchmark {
+  static final int PROVIDERS = 4096;
+
+  @Param({"DoubleCheck", "LockFreeScopedProvider"})
+  private String implementation;
+
+  private Provider<?>[] providers;
+
+  @Setup(Level.Iteration)
+  public void createProviders() {
+    Factory<Object> factory = new Factory<Object>() {
+      @Override public Object get() {
+        Blackhole.consumeCPU(100);
+        return new Object();
+      }
+    };
+    providers = new Provider<?>[PROVIDERS];
+    for (int i = 0; i < PROVIDERS; i++) {
+      providers[i] = implementation.equals("DoubleCheck")
+          ? DoubleCheck.provider(factory)
+          : LockFreeScopedProvider.create(factory);
+    }
+  }
+
+  /** The position of each thread in {@link #providers}. */
+  @State(Scope.Thread)
+  public static class Cursor {
+    int index;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      index = 0;
+    }
+  }
+
+  @Benchmark
+  public Object coldGet(Cursor cursor) {
+    return providers[cursor.index++].get();
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.benchmarks;
+
+import dagger.internal.Factory;
+import dagger.internal.SetFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Provider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the steady-state throughput of {@link SetFactory#get} for sets whose contributions each
+ * come from a {@code @Provides(type = SET)} method, which is the common case.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class SetFactoryBenchmark {
+  @Param({"1", "10", "200"})
+  int contributions;
+
+  private Provider<Set<Integer>> setFactory;
+
+  @Setup
+  @SuppressWarnings("unchecked") // generic array creation
+  public void createFactory() {
+    Provider<Set<Integer>>[] providers = new Provider[contributions];
+    for (int i = 0; i < contributions; i++) {
+      providers[i] = singletonSetFactory(i);
+    }
+    setFactory = SetFactory.create(providers[0],
+        Arrays.copyOfRange(providers, 1, providers.length));
+  }
+
+  /** Mirrors the factories generated for {@code @Provides(type = SET)} methods. */
+  private static Factory<Set<Integer>> singletonSetFactory(final int value) {
+    return new Factory<Set<Integer>>() {
+      @Override public Set<Integer> get() {
+        return Collections.singleton(value);
+      }
+    };
+  }
+
+  @Benchmark
+  public Set<Integer> get() {
+    return setFactory.get();
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how long the {@link dagger.internal.codegen.ComponentProcessor} takes to compile
+ * {@link #components} components that all include the same {@link #modules} modules, which shows
+ * how much of each component's cost goes into re-deriving the modules' bindings.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class SharedModulesBenchmark {
+  @Param({"50"})
+  int components;
+
+  @Param({"200"})
+  int modules;
+
+  private File sourceDirectory;
+  private File classesDirectory;
+
+  @Setup
+  public void writeSources() throws IOException {
+    File workingDirectory = Files.createTempDir();
+    sourceDirectory = new File(workingDirectory, "src");
+    classesDirectory = new File(workingDirectory, "classes");
+    SyntheticGraphs.writeSharedModuleSources(components, modules, sourceDirectory);
+  }
+
+  @Benchmark
+  public void compile() throws IOException {
+    SyntheticGraphs.runCompiler(sourceDirectory, classesDirectory, ImmutableList.<String>of());
+  }
+}
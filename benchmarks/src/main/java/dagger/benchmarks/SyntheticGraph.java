@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.benchmarks;
+
+/**
+ * A handle to a component that was generated by {@link SyntheticGraphs} and compiled at benchmark
+ * setup time. The methods are implemented by generated code so that calling them from a benchmark
+ * does not involve reflection.
+ */
+public interface SyntheticGraph {
+  /** Returns a new component instance, as created by {@code DaggerSyntheticComponent.create()}. */
+  Object newComponent();
+
+  /** Calls a single entry point on the given component, returning the provided instance. */
+  Object entryPoint(Object component);
+
+  /** Calls every entry point on the given component, returning the last provided instance. */
+  Object allEntryPoints(Object component);
+}
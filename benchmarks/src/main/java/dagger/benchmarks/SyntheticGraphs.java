@@ -0,0 +1,337 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.benchmarks;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import dagger.internal.codegen.ComponentProcessor;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Generates, compiles and loads synthetic components so that benchmarks can measure the code that
+ * the Dagger compiler actually emits for graphs of a given size.
+ *
+ * <p>The bindings form a layered graph of {@code @Inject} constructors: each binding depends on up
+ * to three bindings in the previous layer, and every other layer is {@code @Singleton} so that the
+ * number of instances created per entry point stays linear in the size of the graph. The component
+ * exposes every binding in the last layer as an entry point.
+ */
+public final class SyntheticGraphs {
+  static final String PACKAGE_NAME = "synthetic";
+  static final String COMPONENT_NAME = "SyntheticComponent";
+  static final String GRAPH_IMPL_NAME = "SyntheticGraphImpl";
+  static final String DIAMOND_COMPONENT_NAME = "DiamondComponent";
+
+  /**
+   * Generates a graph with {@code bindingCount} bindings, runs the {@link ComponentProcessor} over
+   * it with the given processor options (e.g. {@code -Adagger.foo=bar}) and loads the result.
+   */
+  public static SyntheticGraph compile(int bindingCount, String... processorOptions)
+      throws IOException {
+    File workingDirectory = Files.createTempDir();
+    File sourceDirectory = new File(workingDirectory, "src");
+    File classesDirectory = new File(workingDirectory, "classes");
+    writeSources(bindingCount, sourceDirectory);
+    runCompiler(sourceDirectory, classesDirectory, ImmutableList.copyOf(processorOptions));
+    URLClassLoader classLoader = new URLClassLoader(
+        new URL[] {classesDirectory.toURI().toURL()}, SyntheticGraphs.class.getClassLoader());
+    try {
+      return (SyntheticGraph) classLoader
+          .loadClass(PACKAGE_NAME + "." + GRAPH_IMPL_NAME)
+          .newInstance();
+    } catch (ClassNotFoundException e) {
+      throw new IllegalStateException(e);
+    } catch (InstantiationException e) {
+      throw new IllegalStateException(e);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** Writes the sources for a graph of {@code bindingCount} bindings into {@code directory}. */
+  static void writeSources(int bindingCount, File directory) throws IOException {
+    checkArgument(bindingCount > 0, "bindingCount must be positive: %s", bindingCount);
+    File packageDirectory = new File(directory, PACKAGE_NAME);
+    checkState(packageDirectory.isDirectory() || packageDirectory.mkdirs(),
+        "could not create %s", packageDirectory);
+    int width = layerWidth(bindingCount);
+    int layers = bindingCount / width;
+
+    StringBuilder component = new StringBuilder()
+        .append("package ").append(PACKAGE_NAME).append(";\n\n")
+        .append("import dagger.Component;\n")
+        .append("import javax.inject.Inject;\n")
+        .append("import javax.inject.Singleton;\n\n")
+        .append("@Singleton\n")
+        .append("@Component\n")
+        .append("interface ").append(COMPONENT_NAME).append(" {\n");
+    for (int position = 0; position < width; position++) {
+      String name = nodeName(layers - 1, width, position);
+      component.append("  ").append(name).append(' ').append(methodName(name)).append("();\n");
+    }
+    component.append("}\n");
+
+    for (int layer = 0; layer < layers; layer++) {
+      for (int position = 0; position < width; position++) {
+        appendNode(component, layer, width, position);
+      }
+    }
+    Files.write(component, new File(packageDirectory, COMPONENT_NAME + ".java"), UTF_8);
+
+    StringBuilder graph = new StringBuilder()
+        .append("package ").append(PACKAGE_NAME).append(";\n\n")
+        .append("public final class ").append(GRAPH_IMPL_NAME)
+        .append(" implements ").append(SyntheticGraph.class.getCanonicalName()).append(" {\n")
+        .append("  @Override public Object newComponent() {\n")
+        .append("    return Dagger").append(COMPONENT_NAME).append(".create();\n")
+        .append("  }\n\n")
+        .append("  @Override public Object entryPoint(Object component) {\n")
+        .append("    return ((").append(COMPONENT_NAME).append(") component).")
+        .append(methodName(nodeName(layers - 1, width, 0))).append("();\n")
+        .append("  }\n\n")
+        .append("  @Override public Object allEntryPoints(Object component) {\n")
+        .append("    ").append(COMPONENT_NAME).append(" c = (").append(COMPONENT_NAME)
+        .append(") component;\n")
+        .append("    Object result = null;\n");
+    for (int position = 0; position < width; position++) {
+      graph.append("    result = c.").append(methodName(nodeName(layers - 1, width, position)))
+          .append("();\n");
+    }
+    graph.append("    return result;\n")
+        .append("  }\n")
+        .append("}\n");
+    Files.write(graph, new File(packageDirectory, GRAPH_IMPL_NAME + ".java"), UTF_8);
+  }
+
+  /**
+   * Writes a component into {@code directory} whose single entry point sits on top of a chain of
+   * {@code diamonds} diamonds: {@code Top0} depends on {@code Left0} and {@code Right0}, which both
+   * depend on {@code Top1}, and so on. The graph has {@code 3 * diamonds + 1} bindings but
+   * {@code 2^diamonds} distinct paths from the entry point to its deepest binding, which makes it a
+   * worst case for any graph traversal that doesn't remember where it has already been.
+   */
+  static void writeDiamondSources(int diamonds, File directory) throws IOException {
+    checkArgument(diamonds > 0, "diamonds must be positive: %s", diamonds);
+    File packageDirectory = new File(directory, PACKAGE_NAME);
+    checkState(packageDirectory.isDirectory() || packageDirectory.mkdirs(),
+        "could not create %s", packageDirectory);
+    StringBuilder component = new StringBuilder()
+        .append("package ").append(PACKAGE_NAME).append(";\n\n")
+        .append("import dagger.Component;\n")
+        .append("import javax.inject.Inject;\n\n")
+        .append("@Component\n")
+        .append("interface ").append(DIAMOND_COMPONENT_NAME).append(" {\n")
+        .append("  Top0 top0();\n")
+        .append("}\n");
+    for (int i = 0; i < diamonds; i++) {
+      String next = "Top" + (i + 1);
+      appendInjectable(component, "Top" + i, "Left" + i, "Right" + i);
+      appendInjectable(component, "Left" + i, next);
+      appendInjectable(component, "Right" + i, next);
+    }
+    appendInjectable(component, "Top" + diamonds);
+    Files.write(component, new File(packageDirectory, DIAMOND_COMPONENT_NAME + ".java"), UTF_8);
+  }
+
+  /**
+   * Writes {@code components} components into {@code directory} that each include the same
+   * {@code modules} modules. Module {@code i} provides {@code Value<i>} from {@code Value<i - 1>},
+   * and each component's entry point requires the last of them, so every component resolves every
+   * module's binding.
+   */
+  static void writeSharedModuleSources(int components, int modules, File directory)
+      throws IOException {
+    checkArgument(components > 0, "components must be positive: %s", components);
+    checkArgument(modules > 0, "modules must be positive: %s", modules);
+    File packageDirectory = new File(directory, PACKAGE_NAME);
+    checkState(packageDirectory.isDirectory() || packageDirectory.mkdirs(),
+        "could not create %s", packageDirectory);
+    List<String> moduleNames = Lists.newArrayListWithCapacity(modules);
+    for (int i = 0; i < modules; i++) {
+      String value = "Value" + i;
+      Files.write("package " + PACKAGE_NAME + ";\n\nfinal class " + value + " {}\n",
+          new File(packageDirectory, value + ".java"), UTF_8);
+      StringBuilder module = new StringBuilder()
+          .append("package ").append(PACKAGE_NAME).append(";\n\n")
+          .append("import dagger.Module;\n")
+          .append("import dagger.Provides;\n\n")
+          .append("@Module\n")
+          .append("final class SharedModule").append(i).append(" {\n")
+          .append("  @Provides ").append(value).append(' ').append(methodName(value)).append('(')
+          .append(i == 0 ? "" : "Value" + (i - 1) + " previous")
+          .append(") {\n")
+          .append("    return new ").append(value).append("();\n")
+          .append("  }\n")
+          .append("}\n");
+      Files.write(module, new File(packageDirectory, "SharedModule" + i + ".java"), UTF_8);
+      moduleNames.add("SharedModule" + i + ".class");
+    }
+    String lastValue = "Value" + (modules - 1);
+    for (int i = 0; i < components; i++) {
+      StringBuilder component = new StringBuilder()
+          .append("package ").append(PACKAGE_NAME).append(";\n\n")
+          .append("import dagger.Component;\n\n")
+          .append("@Component(modules = {\n    ")
+          .append(Joiner.on(",\n    ").join(moduleNames))
+          .append("})\n")
+          .append("interface SharedModulesComponent").append(i).append(" {\n")
+          .append("  ").append(lastValue).append(' ').append(methodName(lastValue)).append("();\n")
+          .append("}\n");
+      Files.write(component,
+          new File(packageDirectory, "SharedModulesComponent" + i + ".java"), UTF_8);
+    }
+  }
+
+  private static void appendInjectable(
+      StringBuilder source, String name, String... dependencies) {
+    List<String> parameters = Lists.newArrayListWithCapacity(dependencies.length);
+    for (int i = 0; i < dependencies.length; i++) {
+      parameters.add(dependencies[i] + " dep" + i);
+    }
+    source.append("\nfinal class ").append(name).append(" {\n")
+        .append("  @Inject ").append(name).append('(')
+        .append(Joiner.on(", ").join(parameters)).append(") {}\n")
+        .append("}\n");
+  }
+
+  private static void appendNode(StringBuilder source, int layer, int width, int position) {
+    String name = nodeName(layer, width, position);
+    List<String> dependencies = ImmutableList.of();
+    if (layer > 0) {
+      // p, p + 1 and p + 7 cover every binding in the previous layer at least once
+      Set<String> dependencyNames = Sets.newLinkedHashSet();
+      for (int offset : new int[] {0, 1, 7}) {
+        dependencyNames.add(nodeName(layer - 1, width, (position + offset) % width));
+      }
+      dependencies = ImmutableList.copyOf(dependencyNames);
+    }
+    source.append('\n');
+    if (layer % 2 == 0) {
+      source.append("@Singleton\n");
+    }
+    source.append("final class ").append(name).append(" {\n");
+    List<String> parameters = Lists.newArrayListWithCapacity(dependencies.size());
+    for (int i = 0; i < dependencies.size(); i++) {
+      source.append("  final ").append(dependencies.get(i)).append(" dep").append(i).append(";\n");
+      parameters.add(dependencies.get(i) + " dep" + i);
+    }
+    source.append("\n  @Inject ").append(name).append('(')
+        .append(Joiner.on(", ").join(parameters)).append(") {\n");
+    for (int i = 0; i < dependencies.size(); i++) {
+      source.append("    this.dep").append(i).append(" = dep").append(i).append(";\n");
+    }
+    source.append("  }\n}\n");
+  }
+
+  /**
+   * Compiles every source under {@code sourceDirectory} into {@code classesDirectory} using the
+   * {@link ComponentProcessor}, with the current class path.
+   *
+   * @throws IllegalStateException if compilation fails
+   */
+  static void runCompiler(File sourceDirectory, File classesDirectory,
+      Iterable<String> processorOptions) throws IOException {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    checkState(compiler != null, "the benchmarks must be run on a JDK, not a JRE");
+    File generatedSourcesDirectory = new File(classesDirectory.getParentFile(), "generated");
+    for (File directory : ImmutableList.of(classesDirectory, generatedSourcesDirectory)) {
+      checkState(directory.isDirectory() || directory.mkdirs(), "could not create %s", directory);
+    }
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+    StandardJavaFileManager fileManager =
+        compiler.getStandardFileManager(diagnostics, Locale.getDefault(), UTF_8);
+    try {
+      fileManager.setLocation(
+          StandardLocation.CLASS_OUTPUT, ImmutableList.of(classesDirectory));
+      fileManager.setLocation(
+          StandardLocation.SOURCE_OUTPUT, ImmutableList.of(generatedSourcesDirectory));
+      List<String> options = ImmutableList.<String>builder()
+          .add("-classpath", System.getProperty("java.class.path"))
+          .addAll(processorOptions)
+          .build();
+      JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options,
+          null, fileManager.getJavaFileObjectsFromFiles(javaFilesIn(sourceDirectory)));
+      task.setProcessors(ImmutableList.of(new ComponentProcessor()));
+      if (!task.call()) {
+        StringBuilder message = new StringBuilder("compilation failed:");
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+          message.append('\n').append(diagnostic);
+        }
+        throw new IllegalStateException(message.toString());
+      }
+    } finally {
+      fileManager.close();
+    }
+  }
+
+  private static List<File> javaFilesIn(File directory) {
+    ImmutableList.Builder<File> files = ImmutableList.builder();
+    File[] children = directory.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        if (child.isDirectory()) {
+          files.addAll(javaFilesIn(child));
+        } else if (child.getName().endsWith(".java")) {
+          files.add(child);
+        }
+      }
+    }
+    return files.build();
+  }
+
+  /**
+   * Returns the largest divisor of {@code bindingCount} that is no larger than its square root, so
+   * that the graph is roughly as deep as it is wide.
+   */
+  private static int layerWidth(int bindingCount) {
+    for (int width = (int) Math.sqrt(bindingCount); width > 1; width--) {
+      if (bindingCount % width == 0) {
+        return width;
+      }
+    }
+    return 1;
+  }
+
+  private static String nodeName(int layer, int width, int position) {
+    return "Node" + (layer * width + position);
+  }
+
+  private static String methodName(String nodeName) {
+    return Character.toLowerCase(nodeName.charAt(0)) + nodeName.substring(1);
+  }
+
+  private SyntheticGraphs() {}
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.benchmarks;
+
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import dagger.producers.Producer;
+import dagger.producers.ProductionExecutors;
+import dagger.producers.internal.AbstractProducer;
+import dagger.producers.internal.Producers;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how many production components whose producers block can run at once. Each operation
+ * starts {@link #components} instances of a graph in which a root producer and the
+ * {@link #depth} producers chained after it each sleep for {@link #blockMillis}, and waits for all
+ * of them. The producers mirror the generated code. In the {@code fixed} mode they share a pool of
+ * {@link #poolSize} platform threads, while in the {@code virtual} mode each runs on a virtual
+ * thread from {@link ProductionExecutors#virtualThreadPerTask}. That mode requires Java 21 or
+ * later.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class VirtualThreadProducerBenchmark {
+  @Param({"fixed", "virtual"})
+  String mode;
+
+  @Param({"10000"})
+  int components;
+
+  @Param({"3"})
+  int depth;
+
+  @Param({"1"})
+  int blockMillis;
+
+  @Param({"200"})
+  int poolSize;
+
+  private ExecutorService pool;
+  private Executor executor;
+
+  @Setup
+  public void createExecutor() {
+    if (mode.equals("virtual")) {
+      executor = ProductionExecutors.virtualThreadPerTask();
+    } else {
+      pool = Executors.newFixedThreadPool(poolSize);
+      executor = pool;
+    }
+  }
+
+  @TearDown
+  public void shutDownExecutor() {
+    if (pool != null) {
+      pool.shutdown();
+    }
+  }
+
+  private void block() {
+    try {
+      Thread.sleep(blockMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private Producer<Integer> root() {
+    return new AbstractProducer<Integer>() {
+      @Override protected ListenableFuture<Integer> compute() {
+        return Producers.submitToExecutor(new Callable<Integer>() {
+          @Override public Integer call() {
+            block();
+            return 0;
+          }
+        }, executor);
+      }
+    };
+  }
+
+  private Producer<Integer> node(final Producer<Integer> input) {
+    return new AbstractProducer<Integer>() {
+      @Override protected ListenableFuture<Integer> compute() {
+        return Futures.transform(input.get(), new AsyncFunction<Integer, Integer>() {
+          @Override public ListenableFuture<Integer> apply(Integer value) {
+            block();
+            return Futures.immediateFuture(value + 1);
+          }
+        }, executor);
+      }
+    };
+  }
+
+  @Benchmark
+  public List<Integer> run() throws ExecutionException, InterruptedException {
+    List<ListenableFuture<Integer>> results = new ArrayList<ListenableFuture<Integer>>(components);
+    for (int i = 0; i < components; i++) {
+      Producer<Integer> producer = root();
+      for (int j = 0; j < depth; j++) {
+        producer = node(producer);
+      }
+      results.add(producer.get());
+    }
+    return Futures.allAsList(results).get();
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Tests components generated with {@code -Adagger.lazyFrameworkFields=enabled}. */
+@RunWith(JUnit4.class)
+public class LazyFrameworkFieldsTest {
+  private static final int THREADS = 8;
+
+  private static ScopedComponent newComponent(CountingModule module) {
+    return DaggerScopedComponent.builder().countingModule(module).build();
+  }
+
+  private static ScopedComponent newComponent() {
+    return newComponent(new CountingModule(new CountDownLatch(0)));
+  }
+
+  @Test public void scopedInstanceIsShared() {
+    ScopedComponent component = newComponent();
+    ScopedType scopedType = component.scopedType();
+    assertThat(component.scopedType()).isSameAs(scopedType);
+    assertThat(component.scopedTypeProvider().get()).isSameAs(scopedType);
+    assertThat(component.lazyScopedType().get()).isSameAs(scopedType);
+    assertThat(component.unscopedType().scopedType).isSameAs(scopedType);
+  }
+
+  @Test public void scopedInstanceIsPerComponent() {
+    assertThat(newComponent().scopedType()).isNotSameAs(newComponent().scopedType());
+  }
+
+  @Test public void unscopedInstanceIsNotShared() {
+    ScopedComponent component = newComponent();
+    assertThat(component.unscopedType()).isNotSameAs(component.unscopedType());
+  }
+
+  @Test public void subcomponentSharesScopedInstance() {
+    ScopedComponent component = newComponent();
+    ChildComponent child = component.childComponent();
+    assertThat(child.scopedType()).isSameAs(component.scopedType());
+    assertThat(child.unscopedType().scopedType).isSameAs(component.scopedType());
+  }
+
+  @Test public void cycleThroughProvider() {
+    CycleA a = newComponent().cycleA();
+    assertThat(a.b.aProvider.get()).isSameAs(a);
+  }
+
+  @Test public void moduleIsUsedAfterConstruction() {
+    CountingModule module = new CountingModule(new CountDownLatch(0));
+    ScopedComponent component = newComponent(module);
+    assertThat(module.provisions.get()).isEqualTo(0);
+    assertThat(component.counted().number).isEqualTo(1);
+    assertThat(component.counted().number).isEqualTo(1);
+    assertThat(module.provisions.get()).isEqualTo(1);
+  }
+
+  @Test public void concurrentFirstAccess() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    CountingModule module = new CountingModule(release);
+    final ScopedComponent component = newComponent(module);
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<Counted>> futures = new ArrayList<Future<Counted>>();
+      for (int i = 0; i < THREADS; i++) {
+        futures.add(executor.submit(new Callable<Counted>() {
+          @Override public Counted call() {
+            return component.counted();
+          }
+        }));
+      }
+      release.countDown();
+      Counted first = futures.get(0).get();
+      for (Future<Counted> future : futures) {
+        assertThat(future.get()).isSameAs(first);
+      }
+      assertThat(module.provisions.get()).isEqualTo(1);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -75,6 +75,12 @@ abstract class BindingGraph {
   abstract ImmutableMap<BindingKey, ResolvedBindings> resolvedBindings();
   abstract ImmutableMap<ExecutableElement, BindingGraph> subgraphs();
 
+  /**
+   * The priority of each production binding key, as computed by {@link ProducerPriorities}. Empty
+   * unless this is the graph of a production component.
+   */
+  abstract ImmutableMap<BindingKey, Integer> producerPriorities();
+
   @AutoValue
   abstract static class ResolvedBindings {
     abstract BindingKey bindingKey();
@@ -237,11 +243,16 @@ abstract class BindingGraph {
             create(Optional.of(requestResolver), subcomponentEntry.getValue()));
       }
 
+      ImmutableMap<BindingKey, ResolvedBindings> resolvedBindings =
+          requestResolver.getResolvedBindings();
       return new AutoValue_BindingGraph(
           componentDescriptor,
           transitiveModules.build(),
-          requestResolver.getResolvedBindings(),
-          subgraphsBuilder.build());
+          resolvedBindings,
+          subgraphsBuilder.build(),
+          componentDescriptor.kind().equals(PRODUCTION_COMPONENT)
+              ? ProducerPriorities.compute(resolvedBindings)
+              : ImmutableMap.<BindingKey, Integer>of());
     }
 
     private <B extends ContributionBinding> ImmutableSetMultimap<Key, B> explicitBindingsByKey(
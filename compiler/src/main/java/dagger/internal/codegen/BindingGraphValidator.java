@@ -118,11 +118,13 @@ public class BindingGraphValidator implements Validator<BindingGraph> {
     validateComponentScope(subject, reportBuilder, resolvedBindings);
     validateDependencyScopes(subject, reportBuilder);
 
+    Set<BindingKey> validKeys = Sets.newHashSet();
     for (ComponentMethodDescriptor componentMethod :
         subject.componentDescriptor().componentMethods()) {
       Optional<DependencyRequest> entryPoint = componentMethod.dependencyRequest();
       if (entryPoint.isPresent()) {
-        traverseRequest(entryPoint.get(), new ArrayDeque<ResolvedRequest>(), subject,
+        traverseRequest(entryPoint.get(), new ArrayDeque<ResolvedRequest>(),
+            Sets.<BindingKey>newHashSet(), Sets.<BindingKey>newHashSet(), validKeys, subject,
             reportBuilder);
       }
     }
@@ -132,29 +134,58 @@ public class BindingGraphValidator implements Validator<BindingGraph> {
     return reportBuilder.build();
   }
 
-  private void traverseRequest(
+  /**
+   * Validates {@code request} against the path that led to it and traverses the requests of its
+   * bindings, returning true if nothing was reported for any of them.
+   *
+   * <p>Each key is traversed at most once per entry point, and keys in {@code validKeys}, whose
+   * dependencies were all found to be valid from an earlier request, aren't traversed again at
+   * all. Validating a graph without errors therefore traverses each key once, however many paths
+   * its diamonds create, while errors are still reported from every entry point that reaches them.
+   * A depth-first traversal finds a request back to a key in {@code keysInPath} in every strongly
+   * connected component that contains a cycle, so each such component is reported, with the full
+   * path around it.
+   */
+  private boolean traverseRequest(
       DependencyRequest request,
       Deque<ResolvedRequest> bindingPath,
+      Set<BindingKey> keysInPath,
+      Set<BindingKey> traversedKeys,
+      Set<BindingKey> validKeys,
       BindingGraph graph,
       ValidationReport.Builder<BindingGraph> reportBuilder) {
     BindingKey requestKey = request.bindingKey();
-    for (ResolvedRequest pathElement : bindingPath) {
-      if (pathElement.request().bindingKey().equals(requestKey)) {
-        reportCycle(request, bindingPath, reportBuilder);
-        return;
-      }
+    if (keysInPath.contains(requestKey)) {
+      reportCycle(request, bindingPath, reportBuilder);
+      return false;
     }
 
     ResolvedRequest resolvedRequest = ResolvedRequest.create(request, graph);
     bindingPath.push(resolvedRequest);
-    validateResolvedBinding(bindingPath, resolvedRequest.binding(), reportBuilder);
-
-    for (Binding binding : resolvedRequest.binding().bindings()) {
-      for (DependencyRequest nextRequest : binding.implicitDependencies()) {
-        traverseRequest(nextRequest, bindingPath, graph, reportBuilder);
+    boolean valid = validateResolvedBinding(bindingPath, resolvedRequest.binding(), reportBuilder);
+
+    if (!validKeys.contains(requestKey)) {
+      if (traversedKeys.add(requestKey)) {
+        keysInPath.add(requestKey);
+        boolean dependenciesValid = true;
+        for (Binding binding : resolvedRequest.binding().bindings()) {
+          for (DependencyRequest nextRequest : binding.implicitDependencies()) {
+            dependenciesValid &= traverseRequest(nextRequest, bindingPath, keysInPath,
+                traversedKeys, validKeys, graph, reportBuilder);
+          }
+        }
+        keysInPath.remove(requestKey);
+        if (dependenciesValid) {
+          validKeys.add(requestKey);
+        }
+        valid &= dependenciesValid;
+      } else {
+        // already traversed from this entry point, and something below it was reported
+        valid = false;
       }
     }
     bindingPath.poll();
+    return valid;
   }
 
   private void validateSubcomponents(BindingGraph graph,
@@ -24,12 +24,13 @@ import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
-import com.google.common.util.concurrent.ListenableFuture;
 import dagger.Component;
 import dagger.Lazy;
 import dagger.MembersInjector;
 import dagger.Subcomponent;
+import dagger.producers.Deadline;
 import dagger.producers.ProductionComponent;
+import dagger.producers.monitoring.ProductionComponentMonitor;
 import java.lang.annotation.Annotation;
 import java.util.Iterator;
 import java.util.List;
@@ -107,6 +108,18 @@ abstract class ComponentDescriptor {
    */
   abstract Optional<TypeElement> executorDependency();
 
+  /**
+   * The element representing {@link ProductionComponentMonitor}, if it should be an optional
+   * dependency of this component.
+   */
+  abstract Optional<TypeElement> monitorDependency();
+
+  /**
+   * The element representing {@link Deadline}, if it should be an optional dependency of this
+   * component.
+   */
+  abstract Optional<TypeElement> deadlineDependency();
+
   /**
    * An optional annotation constraining the scope of this component.
    */
@@ -185,6 +198,15 @@ abstract class ComponentDescriptor {
           kind.equals(Kind.PRODUCTION_COMPONENT)
               ? Optional.of(elements.getTypeElement(Executor.class.getCanonicalName()))
               : Optional.<TypeElement>absent();
+      Optional<TypeElement> monitorDependency =
+          kind.equals(Kind.PRODUCTION_COMPONENT)
+              ? Optional.of(elements.getTypeElement(
+                  ProductionComponentMonitor.class.getCanonicalName()))
+              : Optional.<TypeElement>absent();
+      Optional<TypeElement> deadlineDependency =
+          kind.equals(Kind.PRODUCTION_COMPONENT)
+              ? Optional.of(elements.getTypeElement(Deadline.class.getCanonicalName()))
+              : Optional.<TypeElement>absent();
 
       ImmutableSet<ExecutableElement> unimplementedMethods =
           getUnimplementedMethods(elements, componentDefinitionType);
@@ -213,6 +235,8 @@ abstract class ComponentDescriptor {
           componentDependencyTypes,
           dependencyMethodIndex.build(),
           executorDependency,
+          monitorDependency,
+          deadlineDependency,
           wrapOptionalInEquivalence(AnnotationMirrors.equivalence(), scope),
           subcomponentDescriptors.build(),
           componentMethodsBuilder.build());
@@ -294,7 +318,7 @@ abstract class ComponentDescriptor {
 
   static boolean isComponentProductionMethod(Elements elements, ExecutableElement method) {
     return isComponentContributionMethod(elements, method)
-        && MoreTypes.isTypeOf(ListenableFuture.class, method.getReturnType());
+        && Util.isProducerFuture(method.getReturnType());
   }
 
   /*
@@ -24,6 +24,7 @@ import com.google.common.base.Function;
 import com.google.common.base.Functions;
 import com.google.common.base.Joiner;
 import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
@@ -34,16 +35,20 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Sets.SetView;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import dagger.Component;
 import dagger.MapKey;
 import dagger.MembersInjector;
+import dagger.internal.DoubleCheck;
 import dagger.internal.Factory;
 import dagger.internal.InstanceFactory;
+import dagger.internal.LockFreeScopedProvider;
 import dagger.internal.MapFactory;
 import dagger.internal.MapProviderFactory;
 import dagger.internal.MembersInjectors;
-import dagger.internal.ScopedProvider;
+import dagger.internal.ScopedInstanceTable;
 import dagger.internal.SetFactory;
 import dagger.internal.codegen.BindingGraph.ResolvedBindings;
 import dagger.internal.codegen.ComponentDescriptor.ComponentMethodDescriptor;
@@ -55,14 +60,17 @@ import dagger.internal.codegen.writer.FieldWriter;
 import dagger.internal.codegen.writer.JavaWriter;
 import dagger.internal.codegen.writer.MethodWriter;
 import dagger.internal.codegen.writer.ParameterizedTypeName;
+import dagger.internal.codegen.writer.PrimitiveName;
 import dagger.internal.codegen.writer.Snippet;
 import dagger.internal.codegen.writer.StringLiteral;
 import dagger.internal.codegen.writer.TypeName;
 import dagger.internal.codegen.writer.TypeNames;
 import dagger.internal.codegen.writer.TypeWriter;
 import dagger.internal.codegen.writer.VoidName;
+import dagger.producers.Deadline;
 import dagger.producers.Producer;
 import dagger.producers.internal.Producers;
+import dagger.producers.internal.ResettableComponent;
 import dagger.producers.internal.SetProducer;
 import java.util.Collection;
 import java.util.EnumSet;
@@ -93,6 +101,7 @@ import javax.tools.Diagnostic;
 
 import static com.google.auto.common.MoreTypes.asDeclared;
 import static com.google.common.base.CaseFormat.LOWER_CAMEL;
+import static com.google.common.base.CaseFormat.UPPER_CAMEL;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Verify.verify;
 import static dagger.internal.codegen.Binding.bindingPackageFor;
@@ -100,17 +109,22 @@ import static dagger.internal.codegen.ConfigurationAnnotations.getMapKeys;
 import static dagger.internal.codegen.ErrorMessages.CANNOT_RETURN_NULL_FROM_NON_NULLABLE_COMPONENT_METHOD;
 import static dagger.internal.codegen.MembersInjectionBinding.Strategy.NO_OP;
 import static dagger.internal.codegen.ProvisionBinding.FactoryCreationStrategy.ENUM_INSTANCE;
+import static dagger.internal.codegen.ProvisionBinding.Kind.INJECTION;
 import static dagger.internal.codegen.ProvisionBinding.Kind.PROVISION;
 import static dagger.internal.codegen.SourceFiles.factoryNameForProductionBinding;
 import static dagger.internal.codegen.SourceFiles.factoryNameForProvisionBinding;
 import static dagger.internal.codegen.SourceFiles.frameworkTypeUsageStatement;
 import static dagger.internal.codegen.SourceFiles.membersInjectorNameForMembersInjectionBinding;
 import static dagger.internal.codegen.Util.componentCanMakeNewInstances;
+import static javax.lang.model.element.ElementKind.ENUM;
+import static javax.lang.model.element.ElementKind.ENUM_CONSTANT;
 import static javax.lang.model.element.Modifier.ABSTRACT;
 import static javax.lang.model.element.Modifier.FINAL;
 import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PROTECTED;
 import static javax.lang.model.element.Modifier.PUBLIC;
 import static javax.lang.model.element.Modifier.STATIC;
+import static javax.lang.model.element.Modifier.VOLATILE;
 import static javax.lang.model.type.TypeKind.VOID;
 
 /**
@@ -122,11 +136,22 @@ import static javax.lang.model.type.TypeKind.VOID;
 final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
   private final Types types;
   private final Diagnostic.Kind nullableValidationType;
-
-  ComponentGenerator(Filer filer, Types types, Diagnostic.Kind nullableValidationType) {
-    super(filer);
+  private final FeatureStatus lockFreeScopedProviders;
+  private final FeatureStatus scopedInstanceTables;
+  private final FeatureStatus inlineUnscopedProvisions;
+  private final FeatureStatus lazyFrameworkFields;
+
+  ComponentGenerator(Filer filer, ProcessorStatistics statistics, Types types,
+      Diagnostic.Kind nullableValidationType, FeatureStatus lockFreeScopedProviders,
+      FeatureStatus scopedInstanceTables, FeatureStatus inlineUnscopedProvisions,
+      FeatureStatus lazyFrameworkFields) {
+    super(filer, statistics);
     this.types = types;
     this.nullableValidationType = nullableValidationType;
+    this.lockFreeScopedProviders = lockFreeScopedProviders;
+    this.scopedInstanceTables = scopedInstanceTables;
+    this.inlineUnscopedProvisions = inlineUnscopedProvisions;
+    this.lazyFrameworkFields = lazyFrameworkFields;
   }
 
   @Override
@@ -140,7 +165,29 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
 
   @Override
   Iterable<? extends Element> getOriginatingElements(BindingGraph input) {
-    return ImmutableSet.of(input.componentDescriptor().componentDefinitionType());
+    ImmutableSet.Builder<Element> originatingElements = ImmutableSet.builder();
+    addOriginatingElements(input, originatingElements);
+    return originatingElements.build();
+  }
+
+  /**
+   * Adds every type whose declaration the component implementation for {@code graph} depends on,
+   * so that incremental compilers regenerate the component when any of them changes, and only
+   * then.
+   */
+  private static void addOriginatingElements(
+      BindingGraph graph, ImmutableSet.Builder<Element> originatingElements) {
+    originatingElements.add(graph.componentDescriptor().componentDefinitionType());
+    originatingElements.addAll(graph.componentDescriptor().dependencies());
+    originatingElements.addAll(graph.transitiveModules().keySet());
+    for (ResolvedBindings resolvedBindings : graph.resolvedBindings().values()) {
+      for (Binding binding : resolvedBindings.ownedBindings()) {
+        originatingElements.add(binding.bindingTypeElement());
+      }
+    }
+    for (BindingGraph subgraph : graph.subgraphs().values()) {
+      addOriginatingElements(subgraph, originatingElements);
+    }
   }
 
   @Override
@@ -158,21 +205,41 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
     }
   }
 
+  @AutoValue
+  static abstract class LazyFieldAccessor {
+    abstract FieldWriter field();
+    abstract MethodWriter accessor();
+
+    static LazyFieldAccessor create(FieldWriter field, MethodWriter accessor) {
+      return new AutoValue_ComponentGenerator_LazyFieldAccessor(field, accessor);
+    }
+  }
+
   @AutoValue static abstract class MemberSelect {
     static MemberSelect instanceSelect(ClassName owningClass, Snippet snippet) {
       return new AutoValue_ComponentGenerator_MemberSelect(
-          Optional.<TypeName> absent(), owningClass, false, snippet);
+          Optional.<TypeName> absent(), owningClass, false, snippet, Optional.<Snippet>absent());
     }
 
     static MemberSelect staticSelect(ClassName owningClass, Snippet snippet) {
       return new AutoValue_ComponentGenerator_MemberSelect(
-          Optional.<TypeName> absent(), owningClass, true, snippet);
+          Optional.<TypeName> absent(), owningClass, true, snippet, Optional.<Snippet>absent());
     }
 
     static MemberSelect staticMethodInvocationWithCast(
         ClassName owningClass, Snippet snippet, TypeName castType) {
       return new AutoValue_ComponentGenerator_MemberSelect(
-          Optional.of(castType), owningClass, true, snippet);
+          Optional.of(castType), owningClass, true, snippet, Optional.<Snippet>absent());
+    }
+
+    /**
+     * Selects a provider with {@code snippet}, and the instance that it provides with
+     * {@code instanceSnippet}, for bindings whose instances can be read without a provider.
+     */
+    static MemberSelect instanceSelectWithDirectInstance(
+        ClassName owningClass, Snippet snippet, Snippet instanceSnippet) {
+      return new AutoValue_ComponentGenerator_MemberSelect(
+          Optional.<TypeName> absent(), owningClass, false, snippet, Optional.of(instanceSnippet));
     }
 
     /**
@@ -183,11 +250,16 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
     abstract ClassName owningClass();
     abstract boolean staticMember();
     abstract Snippet snippet();
+    abstract Optional<Snippet> instanceSnippet();
 
     private Snippet qualifiedSelectSnippet() {
+      return qualify(snippet());
+    }
+
+    private Snippet qualify(Snippet snippet) {
       return Snippet.format(
           "%s" + (staticMember() ? "" : ".this") + ".%s",
-          owningClass(), snippet());
+          owningClass(), snippet);
     }
 
     Snippet getSnippetWithRawTypeCastFor(ClassName usingClass) {
@@ -202,6 +274,120 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
           ? snippet()
           : qualifiedSelectSnippet();
     }
+
+    /** Returns the snippet that reads the instance directly, if there is one. */
+    Optional<Snippet> getInstanceSnippetFor(ClassName usingClass) {
+      if (!instanceSnippet().isPresent()) {
+        return Optional.absent();
+      }
+      return Optional.of(owningClass().equals(usingClass)
+          ? instanceSnippet().get()
+          : qualify(instanceSnippet().get()));
+    }
+  }
+
+  /**
+   * The slots of the {@link ScopedInstanceTable} that holds the scoped instances of a component
+   * when they are not each memoized by a provider of their own.
+   */
+  private static final class ScopedInstanceSlots {
+    private static final int SLOTS_PER_METHOD = 100;
+
+    private final ClassWriter tableWriter;
+    private final FieldWriter tableField;
+    /** The snippet that creates the instance of each slot, or null for a slot not yet filled. */
+    private final List<Snippet> instanceSnippets = Lists.newArrayList();
+    private final Map<BindingKey, Integer> reservedSlots = Maps.newHashMap();
+
+    ScopedInstanceSlots(ClassWriter tableWriter, FieldWriter tableField) {
+      this.tableWriter = tableWriter;
+      this.tableField = tableField;
+    }
+
+    /**
+     * Assigns a slot to the instance provided by {@code factorySnippet} and returns a snippet for
+     * the provider of that slot.
+     */
+    Snippet addSlot(Snippet factorySnippet) {
+      int slot = instanceSnippets.size();
+      instanceSnippets.add(Snippet.format("%s.get()", factorySnippet));
+      return Snippet.format("%s.provider(%d)", tableField.name(), slot);
+    }
+
+    /**
+     * Assigns a slot to the binding for {@code bindingKey} before its factory is known, and returns
+     * the member select that reads the slot: its {@linkplain MemberSelect#instanceSnippet instance}
+     * directly, or a provider for it only where one is requested. The slot is filled by
+     * {@link #fillReservedSlot}.
+     */
+    MemberSelect reserveSlot(ClassName componentName, BindingKey bindingKey) {
+      int slot = instanceSnippets.size();
+      instanceSnippets.add(null);
+      reservedSlots.put(bindingKey, slot);
+      TypeName instanceType = TypeNames.forTypeMirror(bindingKey.key().type());
+      return MemberSelect.instanceSelectWithDirectInstance(componentName,
+          Snippet.format("%s.<%s>provider(%d)", tableField.name(), instanceType, slot),
+          Snippet.format("%s.<%s>get(%d)", tableField.name(), instanceType, slot));
+    }
+
+    ImmutableSet<BindingKey> reservedKeys() {
+      return ImmutableSet.copyOf(reservedSlots.keySet());
+    }
+
+    /** Fills the slot reserved for {@code bindingKey} with the instance of a factory. */
+    void fillReservedSlot(BindingKey bindingKey, Snippet factorySnippet) {
+      instanceSnippets.set(reservedSlots.get(bindingKey),
+          Snippet.format("%s.get()", factorySnippet));
+    }
+
+    /**
+     * Writes the constructor and the {@code create} method once every slot has been added. Like
+     * {@code initialize}, the cases are split into methods of at most {@link #SLOTS_PER_METHOD}
+     * slots each, so that large components don't exceed the size limit of a single method.
+     */
+    void writeTable() {
+      checkState(!instanceSnippets.contains(null), "unfilled slots in %s", reservedSlots);
+      tableWriter.addConstructor().body().addSnippet("super(%d);", instanceSnippets.size());
+      MethodWriter createMethod = tableWriter.addMethod(Object.class, "create");
+      createMethod.annotate(Override.class);
+      createMethod.addModifiers(PROTECTED);
+      createMethod.addParameter(PrimitiveName.INT, "slot");
+      List<List<Snippet>> partitions = Lists.partition(instanceSnippets, SLOTS_PER_METHOD);
+      if (partitions.size() <= 1) {
+        writeSwitch(createMethod, 0, instanceSnippets);
+        return;
+      }
+      createMethod.body().addSnippet("switch (slot / %d) {", SLOTS_PER_METHOD);
+      for (int i = 0; i < partitions.size(); i++) {
+        MethodWriter partitionMethod = tableWriter.addMethod(Object.class, "create" + i);
+        partitionMethod.addModifiers(PRIVATE);
+        partitionMethod.addParameter(PrimitiveName.INT, "slot");
+        writeSwitch(partitionMethod, i * SLOTS_PER_METHOD, partitions.get(i));
+        createMethod.body()
+            .addSnippet("  case %d:", i)
+            .addSnippet("    return %s(slot);", partitionMethod.name());
+      }
+      writeDefaultCase(createMethod);
+    }
+
+    private static void writeSwitch(
+        MethodWriter method, int firstSlot, List<Snippet> instanceSnippets) {
+      method.body().addSnippet("switch (slot) {");
+      for (int i = 0; i < instanceSnippets.size(); i++) {
+        method.body()
+            .addSnippet("  case %d:", firstSlot + i)
+            .addSnippet("    return %s;", instanceSnippets.get(i));
+      }
+      writeDefaultCase(method);
+    }
+
+    private static void writeDefaultCase(MethodWriter method) {
+      method.body()
+          .addSnippet("  default:")
+          .addSnippet("    throw new %s(String.valueOf(slot));",
+              ClassName.fromClass(IllegalArgumentException.class))
+          .addSnippet("}");
+    }
   }
 
   @Override
@@ -226,6 +412,9 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
       default:
         throw new IllegalStateException();
     }
+    if (input.componentDescriptor().kind().equals(ComponentDescriptor.Kind.PRODUCTION_COMPONENT)) {
+      componentWriter.addImplementedType(ClassName.fromClass(ResettableComponent.class));
+    }
 
     Set<JavaWriter> javaWriters = Sets.newHashSet();
     javaWriters.add(writer);
@@ -248,11 +437,13 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
     // the full set of types that calling code uses to construct a component instance
     ImmutableMap<TypeElement, String> componentContributionNames =
         ImmutableMap.copyOf(Maps.asMap(
-            Sets.union(
-                Sets.union(
-                    input.transitiveModules().keySet(),
-                    input.componentDescriptor().dependencies()),
-                input.componentDescriptor().executorDependency().asSet()),
+            ImmutableSet.<TypeElement>builder()
+                .addAll(input.transitiveModules().keySet())
+                .addAll(input.componentDescriptor().dependencies())
+                .addAll(input.componentDescriptor().executorDependency().asSet())
+                .addAll(input.componentDescriptor().monitorDependency().asSet())
+                .addAll(input.componentDescriptor().deadlineDependency().asSet())
+                .build(),
             Functions.compose(
                 CaseFormat.UPPER_CAMEL.converterTo(LOWER_CAMEL),
                 new Function<TypeElement, String>() {
@@ -290,7 +481,21 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
           .addSnippet("}")
           .addSnippet("this.%s = %s;", builderField.name(), contributionName)
           .addSnippet("return this;");
-      if (componentCanMakeNewInstances(contributionElement)) {
+      if (input.componentDescriptor().monitorDependency().asSet().contains(contributionElement)) {
+        // monitoring is optional, and costs next to nothing when it is off
+        buildMethod.body()
+            .addSnippet("if (%s == null) {", builderField.name())
+            .addSnippet("  this.%s = %s.noOp();",
+                builderField.name(), ClassName.fromTypeElement(contributionElement))
+            .addSnippet("}");
+      } else if (input.componentDescriptor().deadlineDependency().asSet()
+          .contains(contributionElement)) {
+        buildMethod.body()
+            .addSnippet("if (%s == null) {", builderField.name())
+            .addSnippet("  this.%s = %s.none();",
+                builderField.name(), ClassName.fromTypeElement(contributionElement))
+            .addSnippet("}");
+      } else if (componentCanMakeNewInstances(contributionElement)) {
         buildMethod.body()
             .addSnippet("if (%s == null) {", builderField.name())
             .addSnippet("  this.%s = new %s();",
@@ -316,9 +521,27 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
     Map<BindingKey, MemberSelect> memberSelectSnippetsBuilder = Maps.newHashMap();
     Map<ContributionBinding, Snippet> multibindingContributionSnippetsBuilder = Maps.newHashMap();
     ImmutableSet.Builder<BindingKey> enumBindingKeysBuilder = ImmutableSet.builder();
+    Map<BindingKey, LazyFieldAccessor> lazyFieldAccessorsBuilder = Maps.newLinkedHashMap();
+    List<Snippet> producerFieldSnippets = Lists.newArrayList();
 
     Map<String, ProxyClassAndField> packageProxies = Maps.newHashMap();
 
+    Optional<ScopedInstanceSlots> scopedInstanceSlots =
+        scopedInstanceSlotsFor(input, componentWriter);
+    if (scopedInstanceSlots.isPresent() || lazyFrameworkFields.equals(FeatureStatus.ENABLED)) {
+      // framework types may be created after the constructor returns, so keep the modules around,
+      // but not the builder, which the caller may go on to use
+      for (Entry<TypeElement, String> entry : componentContributionNames.entrySet()) {
+        FieldWriter contributionField =
+            componentWriter.addField(entry.getKey(), entry.getValue());
+        contributionField.addModifiers(PRIVATE, FINAL);
+        constructorWriter.body().addSnippet("this.%s = builder.%s;",
+            contributionField.name(), entry.getValue());
+        componentContributionFields.put(entry.getKey(), MemberSelect.instanceSelect(
+            componentWriter.name(), Snippet.format("%s", contributionField.name())));
+      }
+    }
+
     writeFields(input,
         componentWriter,
         proxyWriters,
@@ -326,7 +549,10 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
         ImmutableMap.<ContributionBinding, Snippet>of(),
         multibindingContributionSnippetsBuilder,
         enumBindingKeysBuilder,
-        packageProxies);
+        lazyFieldAccessorsBuilder,
+        producerFieldSnippets,
+        packageProxies,
+        scopedInstanceSlots);
 
     buildMethod.body().addSnippet("return new %s(this);", componentWriter.name());
 
@@ -343,10 +569,19 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
         componentContributionFields,
         memberSelectSnippets,
         ImmutableMap.<ContributionBinding, Snippet>of(),
-        multibindingContributionSnippets);
+        multibindingContributionSnippets,
+        ImmutableMap.copyOf(lazyFieldAccessorsBuilder),
+        scopedInstanceSlots);
+    if (scopedInstanceSlots.isPresent()) {
+      scopedInstanceSlots.get().writeTable();
+    }
 
     writeInterfaceMethods(input, componentWriter, memberSelectSnippets, enumBindingKeys);
 
+    if (input.componentDescriptor().kind().equals(ComponentDescriptor.Kind.PRODUCTION_COMPONENT)) {
+      writeResetMethod(componentWriter, producerFieldSnippets);
+    }
+
     for (Entry<ExecutableElement, BindingGraph> subgraphEntry : input.subgraphs().entrySet()) {
       writeSubcomponent(componentWriter,
           proxyWriters,
@@ -444,9 +679,15 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
 
     Map<ContributionBinding, Snippet> multibindingContributionSnippetsBuilder = Maps.newHashMap();
     ImmutableSet.Builder<BindingKey> enumBindingKeysBuilder = ImmutableSet.builder();
+    Map<BindingKey, LazyFieldAccessor> lazyFieldAccessorsBuilder = Maps.newLinkedHashMap();
+    // subcomponents are never production components, so they have no producers to reset
+    List<Snippet> producerFieldSnippets = Lists.newArrayList();
 
     Map<String, ProxyClassAndField> packageProxies = Maps.newHashMap();
 
+    Optional<ScopedInstanceSlots> scopedInstanceSlots =
+        scopedInstanceSlotsFor(subgraph, subcomponentWriter);
+
     writeFields(subgraph,
         subcomponentWriter,
         proxyWriters,
@@ -454,7 +695,10 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
         parentMultibindingContributionSnippets,
         multibindingContributionSnippetsBuilder,
         enumBindingKeysBuilder,
-        packageProxies);
+        lazyFieldAccessorsBuilder,
+        producerFieldSnippets,
+        packageProxies,
+        scopedInstanceSlots);
 
     for (Entry<BindingKey, MemberSelect> parentBindingEntry :
         parentMemberSelectSnippets.entrySet()) {
@@ -476,7 +720,12 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
         componentContributionFields,
         memberSelectSnippets,
         parentMultibindingContributionSnippets,
-        multibindingContributionSnippets);
+        multibindingContributionSnippets,
+        ImmutableMap.copyOf(lazyFieldAccessorsBuilder),
+        scopedInstanceSlots);
+    if (scopedInstanceSlots.isPresent()) {
+      scopedInstanceSlots.get().writeTable();
+    }
 
     writeInterfaceMethods(subgraph, subcomponentWriter, memberSelectSnippets, enumBindingKeys);
 
@@ -494,6 +743,36 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
     }
   }
 
+  /**
+   * Adds the {@link ScopedInstanceTable} for the scoped bindings owned by a component, if the
+   * component has any and tables are enabled.
+   */
+  private Optional<ScopedInstanceSlots> scopedInstanceSlotsFor(BindingGraph input,
+      ClassWriter componentWriter) {
+    if (!scopedInstanceTables.equals(FeatureStatus.ENABLED) || !hasOwnedScopedBindings(input)) {
+      return Optional.absent();
+    }
+    ClassWriter tableWriter = componentWriter.addNestedClass("ScopedInstances");
+    tableWriter.addModifiers(PRIVATE, FINAL);
+    tableWriter.setSuperType(ClassName.fromClass(ScopedInstanceTable.class));
+    FieldWriter tableField = componentWriter.addField(tableWriter.name(), "scopedInstances");
+    tableField.addModifiers(PRIVATE, FINAL);
+    tableField.setInitializer("new %s()", tableWriter.name());
+    return Optional.of(new ScopedInstanceSlots(tableWriter, tableField));
+  }
+
+  private static boolean hasOwnedScopedBindings(BindingGraph input) {
+    for (ResolvedBindings resolvedBindings : input.resolvedBindings().values()) {
+      for (ContributionBinding binding : resolvedBindings.ownedContributionBindings()) {
+        if (binding instanceof ProvisionBinding
+            && ((ProvisionBinding) binding).scope().isPresent()) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
   private void writeFields(BindingGraph input,
       ClassWriter componentWriter,
       Set<JavaWriter> proxyWriters,
@@ -501,7 +780,16 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
       Map<ContributionBinding, Snippet> parentMultibindingContributionSnippetsBuilder,
       Map<ContributionBinding, Snippet> multibindingContributionSnippetsBuilder,
       ImmutableSet.Builder<BindingKey> enumBindingKeysBuilder,
-      Map<String, ProxyClassAndField> packageProxies) {
+      Map<BindingKey, LazyFieldAccessor> lazyFieldAccessorsBuilder,
+      List<Snippet> producerFieldSnippets,
+      Map<String, ProxyClassAndField> packageProxies,
+      Optional<ScopedInstanceSlots> scopedInstanceSlots) {
+    // component methods, and then each lazy field accessor as it is named
+    Set<String> takenMethodNames = Sets.newHashSet();
+    for (ComponentMethodDescriptor componentMethod :
+        input.componentDescriptor().componentMethods()) {
+      takenMethodNames.add(componentMethod.methodElement().getSimpleName().toString());
+    }
     for (ResolvedBindings resolvedBindings : input.resolvedBindings().values()) {
       writeField(
           componentWriter,
@@ -510,7 +798,11 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
           parentMultibindingContributionSnippetsBuilder,
           multibindingContributionSnippetsBuilder,
           enumBindingKeysBuilder,
+          lazyFieldAccessorsBuilder,
+          producerFieldSnippets,
+          takenMethodNames,
           packageProxies,
+          scopedInstanceSlots,
           resolvedBindings);
     }
   }
@@ -522,7 +814,12 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
       Map<ContributionBinding, Snippet> parentMultibindingContributionSnippetsBuilder,
       Map<ContributionBinding, Snippet> multibindingContributionSnippetsBuilder,
       ImmutableSet.Builder<BindingKey> enumBindingKeysBuilder,
-      Map<String, ProxyClassAndField> packageProxies, ResolvedBindings resolvedBindings) {
+      Map<BindingKey, LazyFieldAccessor> lazyFieldAccessorsBuilder,
+      List<Snippet> producerFieldSnippets,
+      Set<String> takenMethodNames,
+      Map<String, ProxyClassAndField> packageProxies,
+      Optional<ScopedInstanceSlots> scopedInstanceSlots,
+      ResolvedBindings resolvedBindings) {
     BindingKey bindingKey = resolvedBindings.bindingKey();
 
     if (bindingKey.kind().equals(BindingKey.Kind.CONTRIBUTION)
@@ -569,6 +866,15 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
     String bindingPackage = bindingPackageFor(resolvedBindings.bindings())
         .or(componentWriter.name().packageName());
 
+    if (scopedInstanceSlots.isPresent()
+        && bindingPackage.equals(componentWriter.name().packageName())
+        && isTableSlotBinding(resolvedBindings)) {
+      // no field: the table holds the instance, and providers are only created where requested
+      memberSelectSnippetsBuilder.put(bindingKey,
+          scopedInstanceSlots.get().reserveSlot(componentWriter.name(), bindingKey));
+      return;
+    }
+
     final Optional<String> proxySelector;
     final TypeWriter classWithFields;
     final Set<Modifier> fieldModifiers;
@@ -632,6 +938,9 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
                   .build();
               multibindingContributionSnippetsBuilder.put(contributionBinding,
                   Snippet.memberSelectSnippet(contributionSelectTokens));
+              if (contributionBinding.frameworkClass().equals(Producer.class)) {
+                producerFieldSnippets.add(Snippet.memberSelectSnippet(contributionSelectTokens));
+              }
             }
           }
         }
@@ -642,6 +951,30 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
     FieldWriter frameworkField =
         classWithFields.addField(bindingField.frameworkType(), bindingField.name());
     frameworkField.addModifiers(fieldModifiers);
+    if (frameworkClassForResolvedBindings(resolvedBindings).equals(Producer.class)) {
+      // reset the field itself, so that lazily initialized producers aren't created to be reset
+      producerFieldSnippets.add(Snippet.memberSelectSnippet(new ImmutableList.Builder<String>()
+          .addAll(proxySelector.asSet())
+          .add(frameworkField.name())
+          .build()));
+    }
+
+    if (!proxySelector.isPresent()
+        && lazyFrameworkFields.equals(FeatureStatus.ENABLED)
+        && isUniqueBinding(resolvedBindings)) {
+      frameworkField.addModifiers(VOLATILE);
+      String preferredAccessorName = "get" + LOWER_CAMEL.to(UPPER_CAMEL, frameworkField.name());
+      String accessorName = preferredAccessorName;
+      for (int i = 2; !takenMethodNames.add(accessorName); i++) {
+        accessorName = preferredAccessorName + i;
+      }
+      MethodWriter accessor = componentWriter.addMethod(frameworkField.type(), accessorName);
+      accessor.addModifiers(PRIVATE);
+      lazyFieldAccessorsBuilder.put(bindingKey, LazyFieldAccessor.create(frameworkField, accessor));
+      memberSelectSnippetsBuilder.put(bindingKey, MemberSelect.instanceSelect(
+          componentWriter.name(), Snippet.format("%s()", accessor.name())));
+      return;
+    }
 
     ImmutableList<String> memberSelectTokens = new ImmutableList.Builder<String>()
         .addAll(proxySelector.asSet())
@@ -652,6 +985,61 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
         Snippet.memberSelectSnippet(memberSelectTokens)));
   }
 
+  /**
+   * Writes the {@link ResettableComponent#reset} method of a production component, which forgets
+   * the futures memoized by each of the producers in {@code producerFieldSnippets} and hands them
+   * the next request's deadline.
+   */
+  private void writeResetMethod(ClassWriter componentWriter, List<Snippet> producerFieldSnippets) {
+    MethodWriter resetMethod = componentWriter.addMethod(VoidName.VOID, "reset");
+    resetMethod.annotate(Override.class);
+    resetMethod.addModifiers(PUBLIC);
+    resetMethod.addParameter(Deadline.class, "deadline");
+    for (Snippet producerFieldSnippet : producerFieldSnippets) {
+      resetMethod.body().addSnippet("%s.reset(%s, deadline);",
+          ClassName.fromClass(Producers.class), producerFieldSnippet);
+    }
+  }
+
+  /**
+   * Returns true if {@code resolvedBindings} are initialized by a single framework type that does
+   * not share any fields with other bindings.
+   */
+  private static boolean isUniqueBinding(ResolvedBindings resolvedBindings) {
+    switch (resolvedBindings.bindingKey().kind()) {
+      case CONTRIBUTION:
+        return ContributionBinding.bindingTypeFor(resolvedBindings.contributionBindings())
+            .equals(BindingType.UNIQUE);
+      case MEMBERS_INJECTION:
+        return true;
+      default:
+        throw new AssertionError();
+    }
+  }
+
+  /**
+   * Returns true if {@code resolvedBindings} are a single scoped {@code @Inject} constructor or
+   * {@code @Provides} method owned by the component, whose instance can live in a slot of the
+   * component's {@link ScopedInstanceTable} without a framework field.
+   */
+  private static boolean isTableSlotBinding(ResolvedBindings resolvedBindings) {
+    if (!resolvedBindings.bindingKey().kind().equals(BindingKey.Kind.CONTRIBUTION)
+        || resolvedBindings.ownedContributionBindings().size() != 1
+        || resolvedBindings.contributionBindings().size() != 1) {
+      return false;
+    }
+    ContributionBinding binding =
+        Iterables.getOnlyElement(resolvedBindings.ownedContributionBindings());
+    if (!(binding instanceof ProvisionBinding)) {
+      return false;
+    }
+    ProvisionBinding provisionBinding = (ProvisionBinding) binding;
+    return provisionBinding.scope().isPresent()
+        && provisionBinding.bindingType().equals(BindingType.UNIQUE)
+        && (provisionBinding.bindingKind().equals(INJECTION)
+            || provisionBinding.bindingKind().equals(PROVISION));
+  }
+
   private void writeInterfaceMethods(BindingGraph input, ClassWriter componentWriter,
       ImmutableMap<BindingKey, MemberSelect> memberSelectSnippets,
       ImmutableSet<BindingKey> enumBindingKeys) throws AssertionError {
@@ -704,6 +1092,18 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
               }
               break;
             case INSTANCE:
+              Optional<Snippet> scopedInstance = memberSelectSnippets.get(bindingKey)
+                  .getInstanceSnippetFor(componentWriter.name());
+              if (scopedInstance.isPresent()) {
+                interfaceMethod.body().addSnippet("return %s;", scopedInstance.get());
+                break;
+              }
+              Optional<Snippet> directInstance = directInstanceSnippet(input,
+                  componentWriter.name(), bindingKey, memberSelectSnippets, MAX_INLINED_DEPTH);
+              if (directInstance.isPresent()) {
+                interfaceMethod.body().addSnippet("return %s;", directInstance.get());
+                break;
+              }
               if (enumBindingKeys.contains(bindingKey)
                   && !MoreTypes.asDeclared(bindingKey.key().type())
                           .getTypeArguments().isEmpty()) {
@@ -722,12 +1122,22 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
             case PRODUCED:
             case PRODUCER:
             case PROVIDER:
-            case FUTURE:
               interfaceMethod.body().addSnippet("return %s;",
                   frameworkTypeUsageStatement(
                       memberSelectSnippets.get(bindingKey).getSnippetFor(componentWriter.name()),
                       interfaceRequest.kind()));
               break;
+            case FUTURE:
+              Snippet futureSnippet = frameworkTypeUsageStatement(
+                  memberSelectSnippets.get(bindingKey).getSnippetFor(componentWriter.name()),
+                  interfaceRequest.kind());
+              if (Util.isCompletionStage(requestType.getReturnType())) {
+                writeCompletableFutureEntryPoint(interfaceMethod,
+                    TypeNames.forTypeMirror(bindingKey.key().type()), futureSnippet);
+              } else {
+                interfaceMethod.body().addSnippet("return %s;", futureSnippet);
+              }
+              break;
             default:
               throw new AssertionError();
           }
@@ -736,6 +1146,103 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
     }
   }
 
+  /**
+   * Writes a production method that exposes {@code futureSnippet} as a {@code CompletableFuture},
+   * for callers that compose {@code CompletionStage}s.
+   */
+  private void writeCompletableFutureEntryPoint(MethodWriter interfaceMethod,
+      TypeName valueTypeName, Snippet futureSnippet) {
+    interfaceMethod.body().addSnippet(Snippet.format(Joiner.on('\n').join(
+        "final %1$s<%2$s> future = new %1$s<%2$s>();",
+        "%3$s.addCallback(%4$s, new %5$s<%2$s>() {",
+        "  @Override public void onSuccess(%2$s result) {",
+        "    future.complete(result);",
+        "  }",
+        "",
+        "  @Override public void onFailure(Throwable t) {",
+        "    future.completeExceptionally(t);",
+        "  }",
+        "});",
+        "return future;"),
+        ClassName.create("java.util.concurrent", "CompletableFuture"),
+        valueTypeName,
+        ClassName.fromClass(Futures.class),
+        futureSnippet,
+        ClassName.fromClass(FutureCallback.class)));
+  }
+
+  /** How many levels of constructor calls a component method may inline. */
+  private static final int MAX_INLINED_DEPTH = 4;
+
+  /**
+   * Returns a snippet that constructs the instance for {@code bindingKey} directly rather than
+   * through its provider, if that is enabled and the binding is an unscoped {@code @Inject}
+   * constructor that the component can call.  Instance dependencies are inlined the same way up to
+   * {@code depth} levels deep; all other dependencies use their framework fields.
+   */
+  private Optional<Snippet> directInstanceSnippet(BindingGraph input, ClassName componentName,
+      BindingKey bindingKey, ImmutableMap<BindingKey, MemberSelect> memberSelectSnippets,
+      int depth) {
+    if (!inlineUnscopedProvisions.equals(FeatureStatus.ENABLED)
+        || depth == 0
+        || !bindingKey.kind().equals(BindingKey.Kind.CONTRIBUTION)) {
+      return Optional.absent();
+    }
+    ResolvedBindings resolvedBindings = input.resolvedBindings().get(bindingKey);
+    if (resolvedBindings == null || resolvedBindings.contributionBindings().size() != 1) {
+      return Optional.absent();
+    }
+    ContributionBinding binding = Iterables.getOnlyElement(resolvedBindings.contributionBindings());
+    if (!(binding instanceof ProvisionBinding)
+        || !canConstructDirectly((ProvisionBinding) binding, componentName.packageName())) {
+      return Optional.absent();
+    }
+    ImmutableList.Builder<Snippet> arguments = ImmutableList.builder();
+    for (DependencyRequest dependency : binding.dependencies()) {
+      MemberSelect dependencySelect = memberSelectSnippets.get(dependency.bindingKey());
+      Optional<Snippet> inlinedDependency = Optional.absent();
+      if (dependency.kind().equals(DependencyRequest.Kind.INSTANCE)) {
+        inlinedDependency = dependencySelect.getInstanceSnippetFor(componentName)
+            .or(directInstanceSnippet(input, componentName, dependency.bindingKey(),
+                memberSelectSnippets, depth - 1));
+      }
+      arguments.add(inlinedDependency.isPresent()
+          ? inlinedDependency.get()
+          : frameworkTypeUsageStatement(
+              dependencySelect.getSnippetFor(componentName), dependency.kind()));
+    }
+    return Optional.of(Snippet.format("new %s(%s)",
+        TypeNames.forTypeMirror(binding.key().type()),
+        Snippet.makeParametersSnippet(arguments.build())));
+  }
+
+  /**
+   * Returns true if the component can replace calls to the factory for {@code binding} with a call
+   * to its constructor.  Members injection, scoping and generic types are left to the factory.
+   */
+  private static boolean canConstructDirectly(ProvisionBinding binding, String componentPackage) {
+    if (!binding.bindingKind().equals(INJECTION)
+        || binding.scope().isPresent()
+        || binding.memberInjectionRequest().isPresent()
+        || !asDeclared(binding.key().type()).getTypeArguments().isEmpty()
+        || !isVisibleFrom(binding.key(), componentPackage)) {
+      return false;
+    }
+    for (DependencyRequest dependency : binding.dependencies()) {
+      if (!isVisibleFrom(dependency.key(), componentPackage)) {
+        return false;
+      }
+    }
+    return binding.bindingElement().getModifiers().contains(PUBLIC)
+        || MoreElements.getPackage(binding.bindingElement()).getQualifiedName()
+            .contentEquals(componentPackage);
+  }
+
+  private static boolean isVisibleFrom(Key key, String packageName) {
+    Optional<String> keyPackage = Binding.findBindingPackage(key);
+    return !keyPackage.isPresent() || keyPackage.get().equals(packageName);
+  }
+
   private void initializeFrameworkTypes(BindingGraph input,
       ClassWriter componentWriter,
       ConstructorWriter constructorWriter,
@@ -743,10 +1250,40 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
       Map<TypeElement, MemberSelect> componentContributionFields,
       ImmutableMap<BindingKey, MemberSelect> memberSelectSnippets,
       ImmutableMap<ContributionBinding, Snippet> parentMultibindingContributionSnippets,
-      ImmutableMap<ContributionBinding, Snippet> multibindingContributionSnippets)
+      ImmutableMap<ContributionBinding, Snippet> multibindingContributionSnippets,
+      ImmutableMap<BindingKey, LazyFieldAccessor> lazyFieldAccessors,
+      Optional<ScopedInstanceSlots> scopedInstanceSlots)
       throws AssertionError {
+    for (Entry<BindingKey, LazyFieldAccessor> entry : lazyFieldAccessors.entrySet()) {
+      writeLazyFieldAccessor(entry.getValue(),
+          initializeUniqueBinding(input,
+              componentWriter.name(),
+              input.resolvedBindings().get(entry.getKey()),
+              componentContributionFields,
+              memberSelectSnippets,
+              scopedInstanceSlots));
+    }
+
+    // a binding read from its slot has no field, so there is nothing to initialize for it
+    ImmutableSet<BindingKey> reservedKeys = scopedInstanceSlots.isPresent()
+        ? scopedInstanceSlots.get().reservedKeys()
+        : ImmutableSet.<BindingKey>of();
+    for (BindingKey bindingKey : reservedKeys) {
+      scopedInstanceSlots.get().fillReservedSlot(bindingKey,
+          createFactoryForProvisionBinding(
+              (ProvisionBinding) Iterables.getOnlyElement(
+                  input.resolvedBindings().get(bindingKey).contributionBindings()),
+              componentWriter.name(),
+              componentContributionFields,
+              memberSelectSnippets));
+    }
+
     List<List<BindingKey>> partitions = Lists.partition(
-        input.resolvedBindings().keySet().asList(), 100);
+        ImmutableList.copyOf(
+            Sets.difference(
+                Sets.difference(input.resolvedBindings().keySet(), lazyFieldAccessors.keySet()),
+                reservedKeys)),
+        100);
     for (int i = 0; i < partitions.size(); i++) {
       MethodWriter initializeMethod =
           componentWriter.addMethod(VoidName.VOID, "initialize" + ((i == 0) ? "" : i));
@@ -772,7 +1309,7 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
               case SET:
                 boolean hasOnlyProvisions =
                     Iterables.all(bindings, Predicates.instanceOf(ProvisionBinding.class));
-                ImmutableList.Builder<Snippet> parameterSnippets = ImmutableList.builder();
+                Map<ContributionBinding, Snippet> parameterSnippets = Maps.newLinkedHashMap();
                 for (ContributionBinding binding : bindings) {
                   if (multibindingContributionSnippets.containsKey(binding)) {
                     Snippet initializeSnippet = initializeFactoryForContributionBinding(
@@ -780,12 +1317,14 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
                         input,
                         componentWriter.name(),
                         componentContributionFields,
-                        memberSelectSnippets);
+                        memberSelectSnippets,
+                        scopedInstanceSlots);
                     Snippet snippet = multibindingContributionSnippets.get(binding);
                     initializeMethod.body().addSnippet("this.%s = %s;", snippet, initializeSnippet);
-                    parameterSnippets.add(snippet);
+                    parameterSnippets.put(binding, snippet);
                   } else if (parentMultibindingContributionSnippets.containsKey(binding)) {
-                    parameterSnippets.add(parentMultibindingContributionSnippets.get(binding));
+                    parameterSnippets.put(binding,
+                        parentMultibindingContributionSnippets.get(binding));
                   } else {
                     throw new IllegalStateException();
                   }
@@ -794,7 +1333,13 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
                     hasOnlyProvisions
                         ? ClassName.fromClass(SetFactory.class)
                         : ClassName.fromClass(SetProducer.class),
-                    Snippet.makeParametersSnippet(parameterSnippets.build()));
+                    Snippet.makeParametersSnippet(
+                        ImmutableList.copyOf(parameterSnippets.values())));
+                if (hasOnlyProvisions
+                    && Iterables.all(parameterSnippets.keySet(), IS_SCOPED_PROVISION)) {
+                  // every element is fixed for the life of the component, so the set is too
+                  initializeSetSnippet = scopedProvider(initializeSetSnippet, scopedInstanceSlots);
+                }
                 initializeMethod.body().addSnippet("this.%s = %s;",
                     memberSelectSnippet, initializeSetSnippet);
                 break;
@@ -814,7 +1359,8 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
                               componentWriter.name(),
                               input.componentDescriptor().dependencyMethodIndex(),
                               componentContributionFields,
-                              memberSelectSnippets));
+                              memberSelectSnippets,
+                              scopedInstanceSlots));
                     }
                   }
                   if (!provisionBindings.isEmpty()) {
@@ -825,6 +1371,11 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
                             .putAll(multibindingContributionSnippets)
                             .build(),
                         provisionBindings);
+                    if (isMapOfScopedValues(input, provisionBindings)) {
+                      // every value is fixed for the life of the component, so the map is too
+                      initializeMapSnippet =
+                          scopedProvider(initializeMapSnippet, scopedInstanceSlots);
+                    }
                     initializeMethod.body().addSnippet("this.%s = %s;",
                         memberSelectSnippet, initializeMapSnippet);
                   }
@@ -845,7 +1396,8 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
                           initializeFactoryForProvisionBinding(provisionBinding,
                               componentWriter.name(),
                               input.componentDescriptor().dependencyMethodIndex(),
-                              componentContributionFields, memberSelectSnippets));
+                              componentContributionFields, memberSelectSnippets,
+                              scopedInstanceSlots));
                     }
                   } else if (binding instanceof ProductionBinding) {
                     ProductionBinding productionBinding = (ProductionBinding) binding;
@@ -882,6 +1434,52 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
     }
   }
 
+  /** Writes an accessor that creates the framework type in its field the first time it is used. */
+  private static void writeLazyFieldAccessor(LazyFieldAccessor lazyFieldAccessor,
+      Snippet initializeSnippet) {
+    FieldWriter field = lazyFieldAccessor.field();
+    lazyFieldAccessor.accessor().body().addSnippet(Snippet.format(Joiner.on('\n').join(
+        "%1$s local = %2$s;",
+        "if (local == null) {",
+        "  synchronized (this) {",
+        "    local = %2$s;",
+        "    if (local == null) {",
+        "      local = %3$s;",
+        "      %2$s = local;",
+        "    }",
+        "  }",
+        "}",
+        "return local;"),
+        field.type(),
+        field.name(),
+        initializeSnippet));
+  }
+
+  /** Returns the snippet that creates the framework type for a {@linkplain #isUniqueBinding}. */
+  private Snippet initializeUniqueBinding(BindingGraph input,
+      ClassName componentName,
+      ResolvedBindings resolvedBindings,
+      Map<TypeElement, MemberSelect> componentContributionFields,
+      ImmutableMap<BindingKey, MemberSelect> memberSelectSnippets,
+      Optional<ScopedInstanceSlots> scopedInstanceSlots) {
+    switch (resolvedBindings.bindingKey().kind()) {
+      case CONTRIBUTION:
+        return initializeFactoryForContributionBinding(
+            Iterables.getOnlyElement(resolvedBindings.contributionBindings()),
+            input,
+            componentName,
+            componentContributionFields,
+            memberSelectSnippets,
+            scopedInstanceSlots);
+      case MEMBERS_INJECTION:
+        return initializeMembersInjectorForBinding(componentName,
+            Iterables.getOnlyElement(resolvedBindings.membersInjectionBindings()),
+            memberSelectSnippets);
+      default:
+        throw new AssertionError();
+    }
+  }
+
   private static FrameworkField frameworkFieldForSyntheticContributionBinding(BindingKey bindingKey,
       int contributionNumber, ContributionBinding contributionBinding) throws AssertionError {
     switch (contributionBinding.bindingType()) {
@@ -908,6 +1506,14 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
     }
   }
 
+  private static final Predicate<ContributionBinding> IS_SCOPED_PROVISION =
+      new Predicate<ContributionBinding>() {
+        @Override public boolean apply(ContributionBinding binding) {
+          return binding instanceof ProvisionBinding
+              && ((ProvisionBinding) binding).scope().isPresent();
+        }
+      };
+
   private static Class<?> frameworkClassForResolvedBindings(ResolvedBindings resolvedBindings) {
     switch (resolvedBindings.bindingKey().kind()) {
       case CONTRIBUTION:
@@ -979,14 +1585,16 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
       BindingGraph input,
       ClassName componentName,
       Map<TypeElement, MemberSelect> componentContributionFields,
-      ImmutableMap<BindingKey, MemberSelect> memberSelectSnippets) {
+      ImmutableMap<BindingKey, MemberSelect> memberSelectSnippets,
+      Optional<ScopedInstanceSlots> scopedInstanceSlots) {
     if (binding instanceof ProvisionBinding) {
       return initializeFactoryForProvisionBinding(
           (ProvisionBinding) binding,
           componentName,
           input.componentDescriptor().dependencyMethodIndex(),
           componentContributionFields,
-          memberSelectSnippets);
+          memberSelectSnippets,
+          scopedInstanceSlots);
     } else if (binding instanceof ProductionBinding) {
       return initializeFactoryForProductionBinding(
           (ProductionBinding) binding,
@@ -1004,7 +1612,8 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
       ClassName componentName,
       ImmutableMap<ExecutableElement, TypeElement> dependencyMethodIndex,
       Map<TypeElement, MemberSelect> contributionFields,
-      ImmutableMap<BindingKey, MemberSelect> memberSelectSnippets) {
+      ImmutableMap<BindingKey, MemberSelect> memberSelectSnippets,
+      Optional<ScopedInstanceSlots> scopedInstanceSlots) {
     switch(binding.bindingKind()) {
       case COMPONENT:
         return Snippet.format("%s.<%s>create(this)",
@@ -1056,28 +1665,53 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
         }
       case INJECTION:
       case PROVISION:
-        List<Snippet> parameters =
-            Lists.newArrayListWithCapacity(binding.dependencies().size() + 1);
-        if (binding.bindingKind().equals(PROVISION)) {
-          parameters.add(contributionFields.get(binding.contributedBy().get())
-              .getSnippetFor(componentName));
-        }
-        parameters.addAll(getDependencyParameters(componentName, binding.implicitDependencies(),
-            memberSelectSnippets));
-
-        Snippet factorySnippet = Snippet.format("%s.create(%s)",
-            factoryNameForProvisionBinding(binding),
-            Snippet.makeParametersSnippet(parameters));
+        Snippet factorySnippet = createFactoryForProvisionBinding(
+            binding, componentName, contributionFields, memberSelectSnippets);
         return binding.scope().isPresent()
-            ? Snippet.format("%s.create(%s)",
-                ClassName.fromClass(ScopedProvider.class),
-                factorySnippet)
+            ? scopedProvider(factorySnippet, scopedInstanceSlots)
             : factorySnippet;
       default:
         throw new AssertionError();
     }
   }
 
+  /**
+   * Returns a snippet that creates the generated factory of an {@code @Inject} constructor or
+   * {@code @Provides} method, without scoping it.
+   */
+  private Snippet createFactoryForProvisionBinding(ProvisionBinding binding,
+      ClassName componentName,
+      Map<TypeElement, MemberSelect> contributionFields,
+      ImmutableMap<BindingKey, MemberSelect> memberSelectSnippets) {
+    List<Snippet> parameters =
+        Lists.newArrayListWithCapacity(binding.dependencies().size() + 1);
+    if (binding.bindingKind().equals(PROVISION)) {
+      parameters.add(contributionFields.get(binding.contributedBy().get())
+          .getSnippetFor(componentName));
+    }
+    parameters.addAll(getDependencyParameters(componentName, binding.implicitDependencies(),
+        memberSelectSnippets));
+    return Snippet.format("%s.create(%s)",
+        factoryNameForProvisionBinding(binding),
+        Snippet.makeParametersSnippet(parameters));
+  }
+
+  /**
+   * Returns a snippet that memoizes the provider created by {@code factorySnippet}, either in a
+   * slot of the component's {@link ScopedInstanceTable} or in a provider of its own.
+   */
+  private Snippet scopedProvider(Snippet factorySnippet,
+      Optional<ScopedInstanceSlots> scopedInstanceSlots) {
+    if (scopedInstanceSlots.isPresent()) {
+      return scopedInstanceSlots.get().addSlot(factorySnippet);
+    }
+    return lockFreeScopedProviders.equals(FeatureStatus.ENABLED)
+        ? Snippet.format("%s.create(%s)",
+            ClassName.fromClass(LockFreeScopedProvider.class), factorySnippet)
+        : Snippet.format("%s.provider(%s)",
+            ClassName.fromClass(DoubleCheck.class), factorySnippet);
+  }
+
   private Snippet initializeFactoryForProductionBinding(ProductionBinding binding,
       BindingGraph bindingGraph,
       ClassName componentName,
@@ -1101,11 +1735,20 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
       case IMMEDIATE:
       case FUTURE_PRODUCTION:
         List<Snippet> parameters =
-            Lists.newArrayListWithCapacity(binding.dependencies().size() + 2);
+            Lists.newArrayListWithCapacity(binding.dependencies().size() + 4);
         parameters.add(contributionFields.get(binding.bindingTypeElement())
             .getSnippetFor(componentName));
+        parameters.add(Snippet.format("%s.withPriority(%s, %d)",
+            ClassName.fromClass(Producers.class),
+            contributionFields.get(bindingGraph.componentDescriptor().executorDependency().get())
+                .getSnippetFor(componentName),
+            bindingGraph.producerPriorities()
+                .get(BindingKey.create(BindingKey.Kind.CONTRIBUTION, binding.key()))));
         parameters.add(contributionFields.get(
-            bindingGraph.componentDescriptor().executorDependency().get())
+            bindingGraph.componentDescriptor().monitorDependency().get())
+                .getSnippetFor(componentName));
+        parameters.add(contributionFields.get(
+            bindingGraph.componentDescriptor().deadlineDependency().get())
                 .getSnippetFor(componentName));
         parameters.addAll(getProducerDependencyParameters(
             bindingGraph, componentName, binding.dependencies(), memberSelectSnippets));
@@ -1194,6 +1837,13 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
     return parameters.build();
   }
 
+  /**
+   * The largest map binding that is stored in a compact array map rather than a
+   * {@link java.util.LinkedHashMap}, unless its keys are enums that are stored in an
+   * {@link java.util.EnumMap}.
+   */
+  private static final int MAX_COMPACT_MAP_SIZE = 16;
+
   private Snippet initializeMapBinding(
       ClassName componentName,
       ImmutableMap<BindingKey, MemberSelect> memberSelectSnippets,
@@ -1210,19 +1860,29 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
                   .getSnippetFor(componentName));
     } else {
       DeclaredType mapType = asDeclared(firstBinding.key().type());
-      TypeMirror mapKeyType = Util.getKeyTypeOfMap(mapType);
+      DeclaredType mapKeyType = Util.getKeyTypeOfMap(mapType);
       TypeMirror mapValueType = Util.getProvidedValueTypeOfMap(mapType); // V of Map<K, Provider<V>>
-      StringBuilder snippetFormatBuilder = new StringBuilder("%s.<%s, %s>builder(%d)");
-      for (int i = 0; i < bindings.size(); i++) {
-        snippetFormatBuilder.append("\n    .put(%s, %s)");
-      }
-      snippetFormatBuilder.append("\n    .build()");
-
       List<Object> argsBuilder = Lists.newArrayList();
       argsBuilder.add(ClassName.fromClass(MapProviderFactory.class));
       argsBuilder.add(TypeNames.forTypeMirror(mapKeyType));
       argsBuilder.add(TypeNames.forTypeMirror(mapValueType));
-      argsBuilder.add(bindings.size());
+      StringBuilder snippetFormatBuilder;
+      if (mapKeyType.asElement().getKind().equals(ENUM)
+          && isInDeclarationOrder(bindings)) {
+        // an EnumMap iterates in declaration order, which is then the order of the contributions
+        snippetFormatBuilder = new StringBuilder("%s.<%s, %s>enumKeyedBuilder(%s.class)");
+        argsBuilder.add(TypeNames.forTypeMirror(mapKeyType));
+      } else if (bindings.size() <= MAX_COMPACT_MAP_SIZE) {
+        snippetFormatBuilder = new StringBuilder("%s.<%s, %s>compactBuilder(%d)");
+        argsBuilder.add(bindings.size());
+      } else {
+        snippetFormatBuilder = new StringBuilder("%s.<%s, %s>builder(%d)");
+        argsBuilder.add(bindings.size());
+      }
+      for (int i = 0; i < bindings.size(); i++) {
+        snippetFormatBuilder.append("\n    .put(%s, %s)");
+      }
+      snippetFormatBuilder.append("\n    .build()");
 
       writeEntry(argsBuilder, firstBinding, multibindingContributionSnippets.get(firstBinding));
       while (iterator.hasNext()) {
@@ -1235,6 +1895,33 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
     }
   }
 
+  /**
+   * Returns true if the enum constants that key {@code bindings} are declared in the order in which
+   * the bindings contribute them.
+   */
+  private static boolean isInDeclarationOrder(Set<ProvisionBinding> bindings) {
+    int previousOrdinal = -1;
+    for (ProvisionBinding binding : bindings) {
+      AnnotationMirror mapKey = Iterables.getOnlyElement(getMapKeys(binding.bindingElement()));
+      Element constant = (Element) Iterables.getOnlyElement(
+          mapKey.getElementValues().values()).getValue();
+      int ordinal = 0;
+      for (Element element : constant.getEnclosingElement().getEnclosedElements()) {
+        if (element.equals(constant)) {
+          break;
+        }
+        if (element.getKind().equals(ENUM_CONSTANT)) {
+          ordinal++;
+        }
+      }
+      if (ordinal < previousOrdinal) {
+        return false;
+      }
+      previousOrdinal = ordinal;
+    }
+    return true;
+  }
+
   // add one map entry for map Provider in Constructor
   private void writeEntry(List<Object> argsBuilder, Binding binding,
       Snippet factory) {
@@ -1326,6 +2013,23 @@ final class ComponentGenerator extends SourceFileGenerator<BindingGraph> {
     return value.accept(mapKeyVisitor, null);
   }
 
+  /**
+   * Returns true if {@code bindings} is the synthetic binding for a {@code Map<K, V>} whose values
+   * all come from scoped providers.
+   */
+  private boolean isMapOfScopedValues(BindingGraph input, Set<ProvisionBinding> bindings) {
+    if (bindings.size() != 1 || !isNonProviderMap(Iterables.getOnlyElement(bindings))) {
+      return false;
+    }
+    DependencyRequest providerMapRequest =
+        Iterables.getOnlyElement(Iterables.getOnlyElement(bindings).dependencies());
+    ResolvedBindings providerMapBindings =
+        input.resolvedBindings().get(providerMapRequest.bindingKey());
+    return providerMapBindings != null
+        && !providerMapBindings.contributionBindings().isEmpty()
+        && Iterables.all(providerMapBindings.contributionBindings(), IS_SCOPED_PROVISION);
+  }
+
   private boolean isNonProviderMap(Binding binding) {
     TypeMirror bindingType = binding.key().type();
     return MoreTypes.isTypeOf(Map.class, bindingType) // Implicitly guarantees a declared type.
@@ -21,6 +21,9 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.SetMultimap;
 import dagger.Component;
 import dagger.internal.codegen.ComponentDescriptor.Factory;
+import dagger.internal.codegen.ProcessorStatistics.ComponentRecord;
+import dagger.internal.codegen.ProcessorStatistics.Phase;
+import dagger.internal.codegen.ProcessorStatistics.Timer;
 import java.lang.annotation.Annotation;
 import java.util.Set;
 import javax.annotation.processing.Messager;
@@ -40,6 +43,7 @@ final class ComponentProcessingStep implements ProcessingStep {
   private final ComponentDescriptor.Factory componentDescriptorFactory;
   private final BindingGraph.Factory bindingGraphFactory;
   private final ComponentGenerator componentGenerator;
+  private final ProcessorStatistics statistics;
 
   ComponentProcessingStep(
       Messager messager,
@@ -47,13 +51,15 @@ final class ComponentProcessingStep implements ProcessingStep {
       BindingGraphValidator bindingGraphValidator,
       Factory componentDescriptorFactory,
       BindingGraph.Factory bindingGraphFactory,
-      ComponentGenerator componentGenerator) {
+      ComponentGenerator componentGenerator,
+      ProcessorStatistics statistics) {
     this.messager = messager;
     this.componentValidator = componentValidator;
     this.bindingGraphValidator = bindingGraphValidator;
     this.componentDescriptorFactory = componentDescriptorFactory;
     this.bindingGraphFactory = bindingGraphFactory;
     this.componentGenerator = componentGenerator;
+    this.statistics = statistics;
   }
 
   @Override
@@ -71,17 +77,29 @@ final class ComponentProcessingStep implements ProcessingStep {
           componentValidator.validate(componentTypeElement);
       componentReport.printMessagesTo(messager);
       if (componentReport.isClean()) {
+        ComponentRecord statisticsRecord =
+            statistics.startComponent(componentTypeElement.getQualifiedName().toString());
+        Timer timer = statisticsRecord.start(Phase.COMPONENT_DESCRIPTOR);
         ComponentDescriptor componentDescriptor =
             componentDescriptorFactory.forComponent(componentTypeElement);
+        timer.stop();
+        timer = statisticsRecord.start(Phase.BINDING_GRAPH);
         BindingGraph bindingGraph = bindingGraphFactory.create(componentDescriptor);
+        timer.stop();
+        statisticsRecord.recordGraph(bindingGraph);
+        timer = statisticsRecord.start(Phase.BINDING_GRAPH_VALIDATION);
         ValidationReport<BindingGraph> graphReport =
             bindingGraphValidator.validate(bindingGraph);
+        timer.stop();
         graphReport.printMessagesTo(messager);
         if (graphReport.isClean()) {
+          timer = statisticsRecord.start(Phase.COMPONENT_GENERATION);
           try {
             componentGenerator.generate(bindingGraph);
           } catch (SourceFileGenerationException e) {
             e.printMessageTo(messager);
+          } finally {
+            timer.stop();
           }
         }
       }
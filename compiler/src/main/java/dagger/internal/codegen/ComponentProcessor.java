@@ -23,6 +23,7 @@ import dagger.Module;
 import dagger.Provides;
 import dagger.producers.ProducerModule;
 import dagger.producers.Produces;
+import java.io.IOException;
 import java.util.EnumSet;
 import java.util.Map;
 import java.util.Set;
@@ -36,11 +37,18 @@ import javax.lang.model.util.Types;
 import javax.tools.Diagnostic;
 
 import static javax.tools.Diagnostic.Kind.ERROR;
+import static javax.tools.Diagnostic.Kind.WARNING;
 
 /**
  * The annotation processor responsible for generating the classes that drive the Dagger 2.0
  * implementation.
  *
+ * <p>Gradle runs it as an <em>aggregating</em> incremental processor, so it only avoids full
+ * recompilation, not the reprocessing of every annotated type on each change. Isolating processing
+ * would need the per-type steps in a processor of their own, and factories for {@code @Inject}
+ * types that components find in other compilation units are generated here, on the components'
+ * behalf, which is aggregating work in any case.
+ *
  * TODO(gak): give this some better documentation
  *
  * @author Gregory Kick
@@ -49,6 +57,9 @@ import static javax.tools.Diagnostic.Kind.ERROR;
 @AutoService(Processor.class)
 public final class ComponentProcessor extends BasicAnnotationProcessor {
   private InjectBindingRegistry injectBindingRegistry;
+  private ProcessorStatistics statistics;
+  private ProvisionBinding.Factory provisionBindingFactory;
+  private ProductionBinding.Factory productionBindingFactory;
 
   @Override
   public SourceVersion getSupportedSourceVersion() {
@@ -57,7 +68,14 @@ public final class ComponentProcessor extends BasicAnnotationProcessor {
 
   @Override
   public Set<String> getSupportedOptions() {
-    return ImmutableSet.of(DISABLE_INTER_COMPONENT_SCOPE_VALIDATION_KEY, NULLABLE_VALIDATION_KEY);
+    return ImmutableSet.of(
+        DISABLE_INTER_COMPONENT_SCOPE_VALIDATION_KEY,
+        NULLABLE_VALIDATION_KEY,
+        LOCK_FREE_SCOPED_PROVIDERS_KEY,
+        SCOPED_INSTANCE_TABLES_KEY,
+        INLINE_UNSCOPED_PROVISIONS_KEY,
+        LAZY_FRAMEWORK_FIELDS_KEY,
+        STATS_KEY);
   }
 
   @Override
@@ -70,6 +88,8 @@ public final class ComponentProcessor extends BasicAnnotationProcessor {
     Diagnostic.Kind nullableDiagnosticType =
         nullableValidationType(processingEnv).diagnosticKind().get();
 
+    this.statistics = ProcessorStatistics.create(statsStatus(processingEnv));
+
     MethodSignatureFormatter methodSignatureFormatter = new MethodSignatureFormatter(types);
     ProvisionBindingFormatter provisionBindingFormatter =
         new ProvisionBindingFormatter(methodSignatureFormatter);
@@ -95,18 +115,23 @@ public final class ComponentProcessor extends BasicAnnotationProcessor {
     Key.Factory keyFactory = new Key.Factory(types, elements);
 
     FactoryGenerator factoryGenerator =
-        new FactoryGenerator(filer, DependencyRequestMapper.FOR_PROVIDER, nullableDiagnosticType);
-    MembersInjectorGenerator membersInjectorGenerator =
-        new MembersInjectorGenerator(filer, elements, types, DependencyRequestMapper.FOR_PROVIDER);
+        new FactoryGenerator(filer, statistics, DependencyRequestMapper.FOR_PROVIDER,
+            nullableDiagnosticType);
+    MembersInjectorGenerator membersInjectorGenerator = new MembersInjectorGenerator(
+        filer, statistics, elements, types, DependencyRequestMapper.FOR_PROVIDER);
     ComponentGenerator componentGenerator =
-        new ComponentGenerator(filer, types, nullableDiagnosticType);
+        new ComponentGenerator(filer, statistics, types, nullableDiagnosticType,
+            lockFreeScopedProvidersStatus(processingEnv),
+            scopedInstanceTablesStatus(processingEnv),
+            inlineUnscopedProvisionsStatus(processingEnv),
+            lazyFrameworkFieldsStatus(processingEnv));
     ProducerFactoryGenerator producerFactoryGenerator =
-        new ProducerFactoryGenerator(filer, DependencyRequestMapper.FOR_PRODUCER);
+        new ProducerFactoryGenerator(filer, statistics, DependencyRequestMapper.FOR_PRODUCER);
 
     DependencyRequest.Factory dependencyRequestFactory = new DependencyRequest.Factory(keyFactory);
-    ProvisionBinding.Factory provisionBindingFactory =
+    this.provisionBindingFactory =
         new ProvisionBinding.Factory(elements, types, keyFactory, dependencyRequestFactory);
-    ProductionBinding.Factory productionBindingFactory =
+    this.productionBindingFactory =
         new ProductionBinding.Factory(types, keyFactory, dependencyRequestFactory);
 
     MembersInjectionBinding.Factory membersInjectionBindingFactory =
@@ -123,7 +148,7 @@ public final class ComponentProcessor extends BasicAnnotationProcessor {
         elements, types, injectBindingRegistry, keyFactory,
         dependencyRequestFactory, provisionBindingFactory, productionBindingFactory);
 
-    MapKeyGenerator mapKeyGenerator = new MapKeyGenerator(filer);
+    MapKeyGenerator mapKeyGenerator = new MapKeyGenerator(filer, statistics);
     BindingGraphValidator bindingGraphValidator = new BindingGraphValidator(
         types,
         injectBindingRegistry,
@@ -135,7 +160,7 @@ public final class ComponentProcessor extends BasicAnnotationProcessor {
         dependencyRequestFormatter,
         keyFormatter);
 
-    return ImmutableList.<ProcessingStep>of(
+    ImmutableList<ProcessingStep> steps = ImmutableList.<ProcessingStep>of(
         new MapKeyProcessingStep(
             messager,
             mapKeyValidator,
@@ -160,7 +185,8 @@ public final class ComponentProcessor extends BasicAnnotationProcessor {
             bindingGraphValidator,
             componentDescriptorFactory,
             bindingGraphFactory,
-            componentGenerator),
+            componentGenerator,
+            statistics),
         new ProducerModuleProcessingStep(
             messager,
             producerModuleValidator,
@@ -173,7 +199,14 @@ public final class ComponentProcessor extends BasicAnnotationProcessor {
             bindingGraphValidator,
             componentDescriptorFactory,
             bindingGraphFactory,
-            componentGenerator));
+            componentGenerator,
+            statistics));
+
+    ImmutableList.Builder<ProcessingStep> timedSteps = ImmutableList.builder();
+    for (ProcessingStep step : steps) {
+      timedSteps.add(statistics.timed(step));
+    }
+    return timedSteps.build();
   }
 
   @Override
@@ -183,6 +216,14 @@ public final class ComponentProcessor extends BasicAnnotationProcessor {
     } catch (SourceFileGenerationException e) {
       e.printMessageTo(processingEnv.getMessager());
     }
+    provisionBindingFactory.clearCachedBindings();
+    productionBindingFactory.clearCachedBindings();
+    try {
+      statistics.endRound(processingEnv.getFiler());
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(WARNING,
+          "Could not write " + ProcessorStatistics.REPORT_NAME + ": " + e.getMessage());
+    }
   }
 
   private static final String DISABLE_INTER_COMPONENT_SCOPE_VALIDATION_KEY =
@@ -191,6 +232,21 @@ public final class ComponentProcessor extends BasicAnnotationProcessor {
   private static final String NULLABLE_VALIDATION_KEY =
       "dagger.nullableValidation";
 
+  private static final String LOCK_FREE_SCOPED_PROVIDERS_KEY =
+      "dagger.lockFreeScopedProviders";
+
+  private static final String SCOPED_INSTANCE_TABLES_KEY =
+      "dagger.scopedInstanceTables";
+
+  private static final String INLINE_UNSCOPED_PROVISIONS_KEY =
+      "dagger.inlineUnscopedProvisions";
+
+  private static final String LAZY_FRAMEWORK_FIELDS_KEY =
+      "dagger.lazyFrameworkFields";
+
+  private static final String STATS_KEY =
+      "dagger.stats";
+
   private static ValidationType scopeValidationType(ProcessingEnvironment processingEnv) {
     return validationTypeFor(processingEnv,
         DISABLE_INTER_COMPONENT_SCOPE_VALIDATION_KEY,
@@ -223,4 +279,41 @@ public final class ComponentProcessor extends BasicAnnotationProcessor {
     }
     return defaultValue;
   }
+
+  private static FeatureStatus lockFreeScopedProvidersStatus(ProcessingEnvironment processingEnv) {
+    return featureStatusFor(processingEnv, LOCK_FREE_SCOPED_PROVIDERS_KEY, FeatureStatus.DISABLED);
+  }
+
+  private static FeatureStatus scopedInstanceTablesStatus(ProcessingEnvironment processingEnv) {
+    return featureStatusFor(processingEnv, SCOPED_INSTANCE_TABLES_KEY, FeatureStatus.DISABLED);
+  }
+
+  private static FeatureStatus inlineUnscopedProvisionsStatus(
+      ProcessingEnvironment processingEnv) {
+    return featureStatusFor(processingEnv, INLINE_UNSCOPED_PROVISIONS_KEY,
+        FeatureStatus.DISABLED);
+  }
+
+  private static FeatureStatus lazyFrameworkFieldsStatus(ProcessingEnvironment processingEnv) {
+    return featureStatusFor(processingEnv, LAZY_FRAMEWORK_FIELDS_KEY, FeatureStatus.DISABLED);
+  }
+
+  private static FeatureStatus statsStatus(ProcessingEnvironment processingEnv) {
+    return featureStatusFor(processingEnv, STATS_KEY, FeatureStatus.DISABLED);
+  }
+
+  private static FeatureStatus featureStatusFor(ProcessingEnvironment processingEnv, String key,
+      FeatureStatus defaultValue) {
+    Map<String, String> options = processingEnv.getOptions();
+    if (options.containsKey(key)) {
+      try {
+        return FeatureStatus.valueOf(options.get(key).toUpperCase());
+      } catch (IllegalArgumentException e) {
+        processingEnv.getMessager().printMessage(ERROR, "Processor option -A"
+            + key + " may only have the values " + EnumSet.allOf(FeatureStatus.class)
+            + " (case insensitive), found: " + options.get(key));
+      }
+    }
+    return defaultValue;
+  }
 }
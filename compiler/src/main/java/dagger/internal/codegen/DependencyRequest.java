@@ -185,9 +185,9 @@ abstract class DependencyRequest {
       TypeMirror type = productionMethodType.getReturnType();
       Optional<AnnotationMirror> qualifier = InjectionAnnotations.getQualifier(productionMethod);
       DeclaredType container = getEnclosingType(productionMethod);
-      // Only a component production method can be a request for a ListenableFuture, so we
-      // special-case it here.
-      if (isTypeOf(ListenableFuture.class, type)) {
+      // Only a component production method can be a request for a ListenableFuture (or a
+      // CompletionStage), so we special-case it here.
+      if (Util.isProducerFuture(type)) {
         return new AutoValue_DependencyRequest(
             Kind.FUTURE,
             keyFactory.forQualifiedType(qualifier,
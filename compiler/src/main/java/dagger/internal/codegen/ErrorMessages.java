@@ -99,10 +99,10 @@ final class ErrorMessages {
 
   static final String PRODUCES_METHOD_RETURN_TYPE =
       "@Produces methods must either return a primitive, an array or a declared type, or a"
-      + " ListenableFuture of one of those types.";
+      + " ListenableFuture or CompletionStage of one of those types.";
 
   static final String PRODUCES_METHOD_RAW_FUTURE =
-      "@Produces methods cannot return a raw ListenableFuture.";
+      "@Produces methods cannot return a raw ListenableFuture or CompletionStage.";
 
   static final String BINDING_METHOD_SET_VALUES_RAW_SET =
       "@%s methods of type set values cannot return a raw Set";
@@ -111,7 +111,8 @@ final class ErrorMessages {
       "@Provides methods of type set values must return a Set";
 
   static final String PRODUCES_METHOD_SET_VALUES_RETURN_SET =
-      "@Produces methods of type set values must return a Set or ListenableFuture of Set";
+      "@Produces methods of type set values must return a Set, or a ListenableFuture or"
+      + " CompletionStage of Set";
 
   static final String BINDING_METHOD_MUST_RETURN_A_VALUE =
       "@%s methods must return a value (not void).";
@@ -73,9 +73,9 @@ final class FactoryGenerator extends SourceFileGenerator<ProvisionBinding> {
   private final DependencyRequestMapper dependencyRequestMapper;
   private final Diagnostic.Kind nullableValidationType;
 
-  FactoryGenerator(Filer filer, DependencyRequestMapper dependencyRequestMapper,
-      Diagnostic.Kind nullableValidationType) {
-    super(filer);
+  FactoryGenerator(Filer filer, ProcessorStatistics statistics,
+      DependencyRequestMapper dependencyRequestMapper, Diagnostic.Kind nullableValidationType) {
+    super(filer, statistics);
     this.dependencyRequestMapper = dependencyRequestMapper;
     this.nullableValidationType = nullableValidationType;
   }
@@ -23,7 +23,6 @@ import com.google.common.base.Equivalence;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Optional;
 import com.google.common.collect.Iterables;
-import com.google.common.util.concurrent.ListenableFuture;
 import dagger.MapKey;
 import dagger.Provides;
 import dagger.producers.Producer;
@@ -197,7 +196,7 @@ abstract class Key {
       checkArgument(componentMethod.getKind().equals(METHOD));
       TypeMirror returnType = normalize(types, componentMethod.getReturnType());
       TypeMirror keyType = returnType;
-      if (MoreTypes.isTypeOf(ListenableFuture.class, returnType)) {
+      if (Util.isProducerFuture(returnType)) {
         keyType = Iterables.getOnlyElement(MoreTypes.asDeclared(returnType).getTypeArguments());
       }
       return new AutoValue_Key(
@@ -255,7 +254,7 @@ abstract class Key {
       checkArgument(producesAnnotation != null);
       TypeMirror returnType = normalize(types, executableType.getReturnType());
       TypeMirror keyType = returnType;
-      if (MoreTypes.isTypeOf(ListenableFuture.class, returnType)) {
+      if (Util.isProducerFuture(returnType)) {
         keyType = Iterables.getOnlyElement(MoreTypes.asDeclared(returnType).getTypeArguments());
       }
       switch (producesAnnotation.type()) {
@@ -44,8 +44,8 @@ import static javax.lang.model.element.Modifier.STATIC;
  * @since 2.0
  */
 final class MapKeyGenerator extends SourceFileGenerator<Element> {
-  MapKeyGenerator(Filer filer) {
-    super(filer);
+  MapKeyGenerator(Filer filer, ProcessorStatistics statistics) {
+    super(filer, statistics);
   }
 
   @Override
@@ -16,10 +16,8 @@
 package dagger.internal.codegen;
 
 import com.google.auto.common.MoreTypes;
-import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.base.Optional;
-import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -72,10 +70,11 @@ final class MembersInjectorGenerator extends SourceFileGenerator<MembersInjectio
 
   MembersInjectorGenerator(
       Filer filer,
+      ProcessorStatistics statistics,
       Elements elements,
       Types types,
       DependencyRequestMapper dependencyRequestMapper) {
-    super(filer);
+    super(filer, statistics);
     this.elements = checkNotNull(elements);
     this.types = checkNotNull(types);
     this.dependencyRequestMapper = dependencyRequestMapper;
@@ -89,13 +88,9 @@ final class MembersInjectorGenerator extends SourceFileGenerator<MembersInjectio
   @Override
   Iterable<? extends Element> getOriginatingElements(
       MembersInjectionBinding binding) {
-    return FluentIterable.from(binding.injectionSites())
-        .transform(new Function<InjectionSite, Element>() {
-          @Override public Element apply(InjectionSite injectionSite) {
-            return injectionSite.element();
-          }
-        })
-        .toSet();
+    // the injected type itself, rather than its injection sites, so that there is exactly one even
+    // when the type only inherits members to inject
+    return ImmutableSet.of(binding.bindingElement());
   }
 
   @Override
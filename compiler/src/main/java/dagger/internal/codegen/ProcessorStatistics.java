@@ -0,0 +1,321 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.internal.codegen;
+
+import com.google.auto.common.BasicAnnotationProcessor.ProcessingStep;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
+import dagger.internal.codegen.BindingGraph.ResolvedBindings;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.Filer;
+import javax.lang.model.element.Element;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Records where the {@link ComponentProcessor} spends its time when the {@code dagger.stats}
+ * option is enabled: the wall time and allocation of each {@link ProcessingStep} and of each
+ * {@link Phase}, and the size of each component's graph. When the option is disabled, every
+ * method does nothing.
+ *
+ * <p>The report is written as JSON to {@value #REPORT_NAME} in the class output directory, once,
+ * after the first round in which the processor generates no sources. That is normally the last
+ * round in which it has work; rounds after it, which only happen when other processors generate
+ * more inputs for Dagger, are left out of the report. Allocation is measured for the processor's
+ * thread, and is {@code null} in the report on runtimes that can't measure it.
+ */
+final class ProcessorStatistics {
+  static final String REPORT_NAME = "META-INF/dagger/stats.json";
+
+  /** The parts of processing a component that are timed separately. */
+  enum Phase {
+    COMPONENT_DESCRIPTOR("ComponentDescriptor.Factory"),
+    BINDING_GRAPH("BindingGraph.Factory"),
+    BINDING_GRAPH_VALIDATION("BindingGraphValidator"),
+    /** Includes the {@link #SOURCE_FILE_WRITE} of the component. */
+    COMPONENT_GENERATION("ComponentGenerator"),
+    /** Writing generated sources to the {@link Filer}, for every generator. */
+    SOURCE_FILE_WRITE("SourceFileGenerator");
+
+    private final String reportName;
+
+    Phase(String reportName) {
+      this.reportName = reportName;
+    }
+  }
+
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+  static ProcessorStatistics create(FeatureStatus status) {
+    return new ProcessorStatistics(status.equals(FeatureStatus.ENABLED));
+  }
+
+  private final boolean enabled;
+  private final Map<String, Totals> stepTotals = Maps.newLinkedHashMap();
+  private final Map<String, Totals> phaseTotals = Maps.newLinkedHashMap();
+  private final List<ComponentRecord> components = Lists.newArrayList();
+  private final Timer disabledTimer = new Timer(null, null);
+  private int rounds;
+  private int sourceFilesBeforeRound;
+  private boolean reportWritten;
+
+  private ProcessorStatistics(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  boolean isEnabled() {
+    return enabled;
+  }
+
+  /** Returns {@code step}, timed if statistics are enabled. */
+  ProcessingStep timed(final ProcessingStep step) {
+    if (!enabled) {
+      return step;
+    }
+    final String name = step.getClass().getSimpleName();
+    return new ProcessingStep() {
+      @Override
+      public Set<? extends Class<? extends Annotation>> annotations() {
+        return step.annotations();
+      }
+
+      @Override
+      public void process(
+          SetMultimap<Class<? extends Annotation>, Element> elementsByAnnotation) {
+        Timer timer = new Timer(null, null);
+        step.process(elementsByAnnotation);
+        timer.stopInto(totalsFor(stepTotals, name));
+      }
+    };
+  }
+
+  /** Starts timing {@code phase} outside of any component. */
+  Timer start(Phase phase) {
+    return start(phase, null);
+  }
+
+  /**
+   * Starts recording statistics for the component named {@code componentName}. Components whose
+   * graphs are never {@linkplain ComponentRecord#recordGraph recorded} appear in the report with
+   * only their phases.
+   */
+  ComponentRecord startComponent(String componentName) {
+    ComponentRecord record = new ComponentRecord(componentName);
+    if (enabled) {
+      components.add(record);
+    }
+    return record;
+  }
+
+  private Timer start(Phase phase, ComponentRecord component) {
+    return enabled ? new Timer(phase, component) : disabledTimer;
+  }
+
+  /**
+   * Ends a processing round, and writes the report to the class output directory if the processor
+   * generated no sources in it. The processor doesn't see the final round, and the {@link Filer}
+   * creates each file only once, so the report is written from the first round without new work.
+   */
+  void endRound(Filer filer) throws IOException {
+    if (!enabled || reportWritten) {
+      return;
+    }
+    rounds++;
+    Totals sourceFiles = phaseTotals.get(Phase.SOURCE_FILE_WRITE.reportName);
+    int sourceFilesAfterRound = sourceFiles == null ? 0 : sourceFiles.count;
+    if (sourceFilesAfterRound > sourceFilesBeforeRound) {
+      sourceFilesBeforeRound = sourceFilesAfterRound;
+      return;
+    }
+    reportWritten = true;
+    FileObject report = filer.createResource(StandardLocation.CLASS_OUTPUT, "", REPORT_NAME);
+    Writer writer = report.openWriter();
+    try {
+      writeReport(writer);
+    } finally {
+      writer.close();
+    }
+  }
+
+  void writeReport(Appendable out) throws IOException {
+    // Every name in the report is a Java identifier, qualified name or phase name, so none of
+    // them need escaping.
+    out.append("{\n  \"rounds\": ").append(String.valueOf(rounds)).append(",\n");
+    out.append("  \"steps\": ");
+    writeTotals(out, stepTotals, "  ");
+    out.append(",\n  \"phases\": ");
+    writeTotals(out, phaseTotals, "  ");
+    out.append(",\n  \"components\": [");
+    for (int i = 0; i < components.size(); i++) {
+      out.append(i == 0 ? "\n" : ",\n");
+      components.get(i).writeTo(out);
+    }
+    out.append(components.isEmpty() ? "]\n}\n" : "\n  ]\n}\n");
+  }
+
+  private static void writeTotals(Appendable out, Map<String, Totals> totals, String indent)
+      throws IOException {
+    out.append('{');
+    boolean first = true;
+    for (Map.Entry<String, Totals> entry : totals.entrySet()) {
+      out.append(first ? "\n" : ",\n").append(indent).append("  \"").append(entry.getKey())
+          .append("\": ");
+      entry.getValue().writeTo(out);
+      first = false;
+    }
+    out.append(first ? "}" : "\n" + indent + "}");
+  }
+
+  private static Totals totalsFor(Map<String, Totals> totals, String name) {
+    Totals result = totals.get(name);
+    if (result == null) {
+      result = new Totals();
+      totals.put(name, result);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the number of bytes that the current thread has allocated, or -1 if this runtime
+   * can't tell.
+   */
+  private static long allocatedBytes() {
+    if (THREADS instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) THREADS)
+          .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1;
+  }
+
+  /** The accumulated cost of a step or phase. */
+  private static final class Totals {
+    int count;
+    long wallNanos;
+    long allocatedBytes;
+
+    void add(long wallNanos, long allocatedBytes) {
+      this.count++;
+      this.wallNanos += wallNanos;
+      if (this.allocatedBytes >= 0) {
+        this.allocatedBytes = allocatedBytes >= 0 ? this.allocatedBytes + allocatedBytes : -1;
+      }
+    }
+
+    void writeTo(Appendable out) throws IOException {
+      out.append("{\"count\": ").append(String.valueOf(count))
+          .append(", \"wallNanos\": ").append(String.valueOf(wallNanos))
+          .append(", \"allocatedBytes\": ")
+          .append(allocatedBytes >= 0 ? String.valueOf(allocatedBytes) : "null")
+          .append('}');
+    }
+  }
+
+  /** Times one run of a step or phase. */
+  final class Timer {
+    private final Phase phase;
+    private final ComponentRecord component;
+    private final long startNanos;
+    private final long startBytes;
+
+    private Timer(Phase phase, ComponentRecord component) {
+      this.phase = phase;
+      this.component = component;
+      this.startBytes = enabled ? allocatedBytes() : -1;
+      this.startNanos = enabled ? System.nanoTime() : 0;
+    }
+
+    /** Stops timing, and adds the time and allocation to the totals for the phase. */
+    void stop() {
+      if (phase == null) {
+        return;
+      }
+      if (component == null) {
+        stopInto(totalsFor(phaseTotals, phase.reportName));
+      } else {
+        stopInto(totalsFor(phaseTotals, phase.reportName),
+            totalsFor(component.phases, phase.reportName));
+      }
+    }
+
+    private void stopInto(Totals... totals) {
+      long wallNanos = System.nanoTime() - startNanos;
+      long endBytes = allocatedBytes();
+      long bytes = startBytes >= 0 && endBytes >= 0 ? endBytes - startBytes : -1;
+      for (Totals total : totals) {
+        total.add(wallNanos, bytes);
+      }
+    }
+  }
+
+  /** Statistics about one component. */
+  final class ComponentRecord {
+    private final String name;
+    private final Map<String, Totals> phases = Maps.newLinkedHashMap();
+    private final List<String> graphs = Lists.newArrayList();
+
+    private ComponentRecord(String name) {
+      this.name = name;
+    }
+
+    /** Starts timing {@code phase} for this component. */
+    Timer start(Phase phase) {
+      return ProcessorStatistics.this.start(phase, this);
+    }
+
+    /**
+     * Records the number of keys, bindings and subcomponents in {@code graph} and in each of its
+     * subcomponents' graphs.
+     */
+    void recordGraph(BindingGraph graph) {
+      if (enabled) {
+        recordGraph(graph, name);
+      }
+    }
+
+    private void recordGraph(BindingGraph graph, String path) {
+      int bindings = 0;
+      for (ResolvedBindings resolvedBindings : graph.resolvedBindings().values()) {
+        bindings += resolvedBindings.ownedBindings().size();
+      }
+      graphs.add(String.format(
+          "{\"component\": \"%s\", \"keys\": %d, \"bindings\": %d, \"subcomponents\": %d}",
+          path, graph.resolvedBindings().size(), bindings, graph.subgraphs().size()));
+      for (BindingGraph subgraph : graph.subgraphs().values()) {
+        recordGraph(subgraph,
+            path + "." + subgraph.componentDescriptor().componentDefinitionType().getSimpleName());
+      }
+    }
+
+    private void writeTo(Appendable out) throws IOException {
+      out.append("    {\n      \"name\": \"").append(name).append("\",\n");
+      out.append("      \"phases\": ");
+      writeTotals(out, phases, "      ");
+      out.append(",\n      \"graphs\": [");
+      for (int i = 0; i < graphs.size(); i++) {
+        out.append(i == 0 ? "\n        " : ",\n        ").append(graphs.get(i));
+      }
+      out.append(graphs.isEmpty() ? "]\n    }" : "\n      ]\n    }");
+    }
+  }
+}
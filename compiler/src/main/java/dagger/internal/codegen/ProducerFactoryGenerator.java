@@ -15,6 +15,7 @@
  */
 package dagger.internal.codegen;
 
+import com.google.auto.common.MoreElements;
 import com.google.auto.common.MoreTypes;
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
@@ -25,9 +26,9 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
-import com.google.common.util.concurrent.AsyncFunction;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import dagger.Provides.Type;
 import dagger.internal.codegen.writer.ClassName;
 import dagger.internal.codegen.writer.ClassWriter;
@@ -39,11 +40,16 @@ import dagger.internal.codegen.writer.ParameterizedTypeName;
 import dagger.internal.codegen.writer.Snippet;
 import dagger.internal.codegen.writer.TypeName;
 import dagger.internal.codegen.writer.TypeNames;
+import dagger.internal.codegen.writer.VoidName;
+import dagger.producers.Deadline;
 import dagger.producers.Produced;
 import dagger.producers.Producer;
 import dagger.producers.Produces;
 import dagger.producers.internal.AbstractProducer;
+import dagger.producers.internal.CompletionStageFuture;
+import dagger.producers.internal.FutureCombiner;
 import dagger.producers.internal.Producers;
+import dagger.producers.monitoring.ProductionComponentMonitor;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executor;
@@ -59,6 +65,7 @@ import static javax.lang.model.element.Modifier.FINAL;
 import static javax.lang.model.element.Modifier.PRIVATE;
 import static javax.lang.model.element.Modifier.PROTECTED;
 import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
 
 /**
  * Generates {@link Producer} implementations from {@link ProductionBinding} instances.
@@ -69,8 +76,9 @@ import static javax.lang.model.element.Modifier.PUBLIC;
 final class ProducerFactoryGenerator extends SourceFileGenerator<ProductionBinding> {
   private final DependencyRequestMapper dependencyRequestMapper;
 
-  ProducerFactoryGenerator(Filer filer, DependencyRequestMapper dependencyRequestMapper) {
-    super(filer);
+  ProducerFactoryGenerator(Filer filer, ProcessorStatistics statistics,
+      DependencyRequestMapper dependencyRequestMapper) {
+    super(filer, statistics);
     this.dependencyRequestMapper = dependencyRequestMapper;
   }
 
@@ -103,6 +111,8 @@ final class ProducerFactoryGenerator extends SourceFileGenerator<ProductionBindi
     ConstructorWriter constructorWriter = factoryWriter.addConstructor();
     constructorWriter.addModifiers(PUBLIC);
 
+    constructorWriter.body().addSnippet("super(monitor, %s.class, deadline);", generatedTypeName);
+
     factoryWriter.addField(binding.bindingTypeElement(), "module")
         .addModifiers(PRIVATE, FINAL);
     constructorWriter.addParameter(binding.bindingTypeElement(), "module");
@@ -117,6 +127,9 @@ final class ProducerFactoryGenerator extends SourceFileGenerator<ProductionBindi
         .addSnippet("assert executor != null;")
         .addSnippet("this.executor = executor;");
 
+    constructorWriter.addParameter(ProductionComponentMonitor.class, "monitor");
+    constructorWriter.addParameter(Deadline.class, "deadline");
+
     factoryWriter.annotate(Generated.class).setValue(ComponentProcessor.class.getName());
     factoryWriter.addModifiers(PUBLIC);
     factoryWriter.addModifiers(FINAL);
@@ -142,6 +155,7 @@ final class ProducerFactoryGenerator extends SourceFileGenerator<ProductionBindi
     }
 
     boolean returnsFuture = binding.bindingKind().equals(ProductionBinding.Kind.FUTURE_PRODUCTION);
+    Optional<ClassName> stageFutureName = writeStageFutureIfNecessary(factoryWriter, binding);
     ImmutableList<DependencyRequest> asyncDependencies = FluentIterable
         .from(binding.dependencies())
         .filter(new Predicate<DependencyRequest>() {
@@ -174,109 +188,148 @@ final class ProducerFactoryGenerator extends SourceFileGenerator<ProductionBindi
       }
       final boolean wrapWithFuture = false;  // since submitToExecutor will create the future
       Snippet invocationSnippet = getInvocationSnippet(wrapWithFuture, binding,
-          parameterSnippets.build());
+          stageFutureName, parameterSnippets.build());
       TypeName callableReturnType = returnsFuture ? futureTypeName : providedTypeName;
       Snippet throwsClause = getThrowsClause(binding.thrownTypes());
       Snippet callableSnippet = Snippet.format(Joiner.on('\n').join(
           "new %1$s<%2$s>() {",
           "  @Override public %2$s call() %3$s{",
-          "    return %4$s;",
+          "    %4$s",
           "  }",
           "}"),
           ClassName.fromClass(Callable.class),
           callableReturnType,
           throwsClause,
-          invocationSnippet);
-      getMethodWriter.body().addSnippet("%s future = %s.submitToExecutor(%s, executor);",
+          invocationBody(invocationSnippet, "    "));
+      // with no inputs to wait for, an inline producer just runs on the requesting thread
+      Snippet executorSnippet = dispatchExecutor(binding);
+      getMethodWriter.body().addSnippet("%s future = %s.submitToExecutor(%s, %s);",
           ParameterizedTypeName.create(
               ClassName.fromClass(ListenableFuture.class),
               callableReturnType),
           ClassName.fromClass(Producers.class),
-          callableSnippet);
+          callableSnippet,
+          executorSnippet);
       getMethodWriter.body().addSnippet("return %s;",
           returnsFuture
               ? Snippet.format("%s.dereference(future)", ClassName.fromClass(Futures.class))
               : "future");
     } else {
-      final Snippet futureSnippet;
-      final Snippet transformSnippet;
-      if (asyncDependencies.size() == 1) {
-        DependencyRequest asyncDependency = Iterables.getOnlyElement(asyncDependencies);
-        futureSnippet = Snippet.format("%s",
-            fields.get(asyncDependency.bindingKey()).name() + "Future");
-        String argName = asyncDependency.requestElement().getSimpleName().toString();
-        ImmutableList.Builder<Snippet> parameterSnippets = ImmutableList.builder();
-        for (DependencyRequest dependency : binding.dependencies()) {
-          // We really want to compare instances here, because asyncDependency is an element in the
-          // set binding.dependencies().
-          if (dependency == asyncDependency) {
+      // the factory is the combiner's callback, so combining allocates nothing but the combiner
+      boolean typedCallback = asyncDependencies.size() <= MAX_TYPED_COMBINER_INPUTS;
+      MethodWriter combineMethod = factoryWriter.addMethod(futureTypeName, "combine");
+      combineMethod.annotate(Override.class);
+      combineMethod.addModifiers(PUBLIC);
+      for (TypeMirror thrownType : binding.thrownTypes()) {
+        combineMethod.addThrownType(TypeNames.forTypeMirror(thrownType));
+      }
+      ImmutableList.Builder<TypeName> callbackTypeArguments = ImmutableList.builder();
+      ImmutableList.Builder<Snippet> parameterSnippets = ImmutableList.builder();
+      int asyncIndex = 0;
+      for (DependencyRequest dependency : binding.dependencies()) {
+        if (isAsyncDependency(dependency)) {
+          TypeName valueType = asyncDependencyType(dependency);
+          if (typedCallback) {
+            String argName = dependency.requestElement().getSimpleName().toString();
+            callbackTypeArguments.add(valueType);
+            combineMethod.addParameter(valueType, argName);
             parameterSnippets.add(Snippet.format("%s", argName));
           } else {
-            parameterSnippets.add(frameworkTypeUsageStatement(
-                Snippet.format(fields.get(dependency.bindingKey()).name()),
-                dependency.kind()));
+            parameterSnippets.add(Snippet.format("(%s) values[%s]", valueType, asyncIndex));
           }
+          asyncIndex++;
+        } else {
+          parameterSnippets.add(frameworkTypeUsageStatement(
+              Snippet.format(fields.get(dependency.bindingKey()).name()), dependency.kind()));
         }
-        boolean wrapWithFuture = !returnsFuture;  // only wrap if we don't already have a future
-        Snippet invocationSnippet = getInvocationSnippet(wrapWithFuture, binding,
-            parameterSnippets.build());
-        Snippet throwsClause = getThrowsClause(binding.thrownTypes());
-        transformSnippet = Snippet.format(Joiner.on('\n').join(
-            "new %1$s<%2$s, %3$s>() {",
-            "  @Override public %4$s apply(%2$s %5$s) %6$s{",
-            "    return %7$s;",
-            "  }",
-            "}"),
-            ClassName.fromClass(AsyncFunction.class),
-            asyncDependencyType(asyncDependency),
-            providedTypeName,
-            futureTypeName,
-            argName,
-            throwsClause,
-            invocationSnippet);
+      }
+      if (!typedCallback) {
+        combineMethod.annotate(SuppressWarnings.class).setValue("unchecked");
+        combineMethod.addParameter(TypeNames.forClass(Object[].class), "values");
+      }
+      callbackTypeArguments.add(providedTypeName);
+      factoryWriter.addImplementedType(typedCallback
+          ? ParameterizedTypeName.create(
+              callbackClassName(asyncDependencies.size()), callbackTypeArguments.build())
+          : ParameterizedTypeName.create(
+              ClassName.fromClass(FutureCombiner.CallbackN.class), providedTypeName));
+      boolean wrapWithFuture = !returnsFuture;  // only wrap if we don't already have a future
+      Snippet invocationSnippet = getInvocationSnippet(wrapWithFuture, binding,
+          stageFutureName, parameterSnippets.build());
+      combineMethod.body().addSnippet(invocationBody(invocationSnippet, ""));
+
+      Snippet futuresSnippet = Snippet.format(Joiner.on(", ").join(FluentIterable
+          .from(asyncDependencies)
+          .transform(new Function<DependencyRequest, String>() {
+            @Override public String apply(DependencyRequest dependency) {
+              return fields.get(dependency.bindingKey()).name() + "Future";
+            }
+          })));
+      // with no executor hop, an inline producer runs on the thread that completes its last input
+      Snippet executorSnippet = dispatchExecutor(binding);
+      if (typedCallback) {
+        getMethodWriter.body().addSnippet("return %s.combine(%s, this, %s);",
+            ClassName.fromClass(FutureCombiner.class), futuresSnippet, executorSnippet);
       } else {
-        futureSnippet = Snippet.format("%s.<%s>allAsList(%s)",
-            ClassName.fromClass(Futures.class),
-            ClassName.fromClass(Object.class),
-            Joiner.on(",").join(FluentIterable
-                .from(asyncDependencies)
-                .transform(new Function<DependencyRequest, String>() {
-                  @Override public String apply(DependencyRequest dependency) {
-                    return fields.get(dependency.bindingKey()).name() + "Future";
-                  }
-                })));
-        ImmutableList<Snippet> parameterSnippets = getParameterSnippets(binding, fields, "args");
-        boolean wrapWithFuture = !returnsFuture;  // only wrap if we don't already have a future
-        Snippet invocationSnippet = getInvocationSnippet(wrapWithFuture, binding,
-            parameterSnippets);
-        ParameterizedTypeName listOfObject = ParameterizedTypeName.create(
-            ClassName.fromClass(List.class), ClassName.fromClass(Object.class));
-        Snippet throwsClause = getThrowsClause(binding.thrownTypes());
-        transformSnippet = Snippet.format(Joiner.on('\n').join(
-            "new %1$s<%2$s, %3$s>() {",
-            "  @SuppressWarnings(\"unchecked\")  // safe by specification",
-            "  @Override public %4$s apply(%2$s args) %5$s{",
-            "    return %6$s;",
-            "  }",
-            "}"),
-            ClassName.fromClass(AsyncFunction.class),
-            listOfObject,
-            providedTypeName,
-            futureTypeName,
-            throwsClause,
-            invocationSnippet);
+        getMethodWriter.body().addSnippet("return %s.combine(this, %s, %s);",
+            ClassName.fromClass(FutureCombiner.class), executorSnippet, futuresSnippet);
       }
-      getMethodWriter.body().addSnippet("return %s.%s(%s, %s, executor);",
-          ClassName.fromClass(Futures.class),
-          "transform",
-          futureSnippet,
-          transformSnippet);
     }
 
     // TODO(gak): write a sensible toString
     return ImmutableSet.of(writer);
   }
 
+  /**
+   * Returns the executor that the producer hands its method call to. It reports the producer as
+   * ready to its monitor as it accepts the call.
+   */
+  private static Snippet dispatchExecutor(ProductionBinding binding) {
+    return binding.runsInline()
+        ? Snippet.format(
+            "dispatchTo(%s.directExecutor())", ClassName.fromClass(MoreExecutors.class))
+        : Snippet.format("dispatchTo(executor)");
+  }
+
+  /**
+   * Returns the statements that call the producer's method and return the result. They report to
+   * the producer's monitor around the call, so that only producers whose method actually runs
+   * report it.
+   */
+  private static Snippet invocationBody(Snippet invocationSnippet, String indent) {
+    return Snippet.format(Joiner.on("\n" + indent).join(
+        "methodStarting();",
+        "try {",
+        "  return %s;",
+        "} finally {",
+        "  methodFinished();",
+        "}"),
+        invocationSnippet);
+  }
+
+  /**
+   * The largest number of asynchronous dependencies for which {@link FutureCombiner} has a typed
+   * callback. Producers with more receive their values in an array.
+   */
+  private static final int MAX_TYPED_COMBINER_INPUTS = 5;
+
+  private static ClassName callbackClassName(int inputCount) {
+    switch (inputCount) {
+      case 1:
+        return ClassName.fromClass(FutureCombiner.Callback1.class);
+      case 2:
+        return ClassName.fromClass(FutureCombiner.Callback2.class);
+      case 3:
+        return ClassName.fromClass(FutureCombiner.Callback3.class);
+      case 4:
+        return ClassName.fromClass(FutureCombiner.Callback4.class);
+      case 5:
+        return ClassName.fromClass(FutureCombiner.Callback5.class);
+      default:
+        throw new AssertionError(inputCount);
+    }
+  }
+
   private boolean isAsyncDependency(DependencyRequest dependency) {
     switch (dependency.kind()) {
       case INSTANCE:
@@ -299,40 +352,24 @@ final class ProducerFactoryGenerator extends SourceFileGenerator<ProductionBindi
     }
   }
 
-  private ImmutableList<Snippet> getParameterSnippets(ProductionBinding binding,
-      ImmutableMap<BindingKey, FrameworkField> fields,
-      String listArgName) {
-    int argIndex = 0;
-    ImmutableList.Builder<Snippet> snippets = ImmutableList.builder();
-    for (DependencyRequest dependency : binding.dependencies()) {
-      if (isAsyncDependency(dependency)) {
-        snippets.add(Snippet.format(
-            "(%s) %s.get(%s)",
-            asyncDependencyType(dependency),
-            listArgName,
-            argIndex));
-        argIndex++;
-      } else {
-        snippets.add(frameworkTypeUsageStatement(
-            Snippet.format(fields.get(dependency.bindingKey()).name()), dependency.kind()));
-      }
-    }
-    return snippets.build();
-  }
-
   /**
    * Creates a Snippet for the invocation of the producer method from the module.
    *
    * @param wrapWithFuture If true, wraps the result of the call to the producer method
    *        in an immediate future.
    * @param binding The binding to generate the invocation snippet for.
+   * @param stageFutureName The future that adapts the method's {@code CompletionStage}, if it
+   *        returns one.
    * @param parameterSnippets The snippets for all the parameters to the producer method.
    */
   private Snippet getInvocationSnippet(boolean wrapWithFuture, ProductionBinding binding,
-      ImmutableList<Snippet> parameterSnippets) {
+      Optional<ClassName> stageFutureName, ImmutableList<Snippet> parameterSnippets) {
     Snippet moduleSnippet = Snippet.format("module.%s(%s)",
         binding.bindingElement().getSimpleName(),
         makeParametersSnippet(parameterSnippets));
+    if (stageFutureName.isPresent()) {
+      moduleSnippet = Snippet.format("%s.of(%s)", stageFutureName.get(), moduleSnippet);
+    }
     if (wrapWithFuture) {
       moduleSnippet = Snippet.format("%s.immediateFuture(%s)",
           ClassName.fromClass(Futures.class),
@@ -353,6 +390,50 @@ final class ProducerFactoryGenerator extends SourceFileGenerator<ProductionBindi
     }
   }
 
+  /**
+   * If the binding's method returns a {@code CompletionStage}, adds a nested future that is
+   * completed by that stage, and returns its name. The nested class is also the stage's
+   * {@code BiConsumer}, so adapting a stage costs a single allocation.
+   */
+  private Optional<ClassName> writeStageFutureIfNecessary(
+      ClassWriter factoryWriter, ProductionBinding binding) {
+    TypeMirror returnType = MoreElements.asExecutable(binding.bindingElement()).getReturnType();
+    if (!Util.isCompletionStage(returnType)) {
+      return Optional.absent();
+    }
+    TypeName valueTypeName = TypeNames.forTypeMirror(
+        Iterables.getOnlyElement(MoreTypes.asDeclared(returnType).getTypeArguments()));
+    ClassWriter stageFutureWriter = factoryWriter.addNestedClass("StageFuture");
+    stageFutureWriter.addModifiers(PRIVATE, STATIC, FINAL);
+    stageFutureWriter.setSuperType(
+        ParameterizedTypeName.create(CompletionStageFuture.class, valueTypeName));
+    stageFutureWriter.addImplementedType(ParameterizedTypeName.create(
+        ClassName.create("java.util.function", "BiConsumer"),
+        valueTypeName,
+        ClassName.fromClass(Throwable.class)));
+
+    MethodWriter ofMethod = stageFutureWriter.addMethod(
+        ParameterizedTypeName.create(ClassName.fromClass(ListenableFuture.class), valueTypeName),
+        "of");
+    ofMethod.addModifiers(STATIC);
+    ofMethod.addParameter(
+        ParameterizedTypeName.create(
+            ClassName.create("java.util.concurrent", "CompletionStage"), valueTypeName),
+        "stage");
+    ofMethod.body()
+        .addSnippet("%1$s future = new %1$s();", stageFutureWriter.name())
+        .addSnippet("stage.whenComplete(future);")
+        .addSnippet("return future;");
+
+    MethodWriter acceptMethod = stageFutureWriter.addMethod(VoidName.VOID, "accept");
+    acceptMethod.annotate(Override.class);
+    acceptMethod.addModifiers(PUBLIC);
+    acceptMethod.addParameter(valueTypeName, "value");
+    acceptMethod.addParameter(Throwable.class, "failure");
+    acceptMethod.body().addSnippet("complete(value, failure);");
+    return Optional.of(stageFutureWriter.name());
+  }
+
   /**
    * Creates a Snippet for the throws clause.
    *
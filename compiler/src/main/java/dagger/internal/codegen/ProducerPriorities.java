@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.internal.codegen;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.SetMultimap;
+import dagger.internal.codegen.BindingGraph.ResolvedBindings;
+import java.util.Map;
+
+import static com.google.common.collect.Maps.newHashMapWithExpectedSize;
+
+/**
+ * Ranks the producers of a production component by how much work still has to follow them. The
+ * priority of a producer is the number of producers on the longest chain from it to a component
+ * method, counting itself, so a producer that a component method returns directly has priority 1
+ * and each producer it depends on has a priority of at least 2. The generated component hands the
+ * priority to the executor, which can then start the producers on the critical path first.
+ *
+ * @since 2.1
+ */
+final class ProducerPriorities {
+  /**
+   * Returns the priority of each binding key in {@code resolvedBindings} whose bindings include a
+   * {@code @Produces} method. Cycles, which only provisions can form, are cut where they are found.
+   */
+  static ImmutableMap<BindingKey, Integer> compute(
+      ImmutableMap<BindingKey, ResolvedBindings> resolvedBindings) {
+    ImmutableSetMultimap.Builder<BindingKey, BindingKey> consumers =
+        ImmutableSetMultimap.builder();
+    for (ResolvedBindings bindings : resolvedBindings.values()) {
+      for (Binding binding : bindings.bindings()) {
+        for (DependencyRequest dependency : binding.implicitDependencies()) {
+          consumers.put(dependency.bindingKey(), bindings.bindingKey());
+        }
+      }
+    }
+    ProducerPriorities priorities = new ProducerPriorities(resolvedBindings, consumers.build());
+    ImmutableMap.Builder<BindingKey, Integer> builder = ImmutableMap.builder();
+    for (BindingKey key : resolvedBindings.keySet()) {
+      if (priorities.isProducedBy(key)) {
+        builder.put(key, 1 + priorities.stepsAfter(key));
+      }
+    }
+    return builder.build();
+  }
+
+  /** Marks a key whose consumers are being visited; real step counts are never negative. */
+  private static final int IN_PROGRESS = -1;
+
+  private final ImmutableMap<BindingKey, ResolvedBindings> resolvedBindings;
+  private final SetMultimap<BindingKey, BindingKey> consumers;
+  private final Map<BindingKey, Integer> stepsAfter;
+
+  private ProducerPriorities(ImmutableMap<BindingKey, ResolvedBindings> resolvedBindings,
+      SetMultimap<BindingKey, BindingKey> consumers) {
+    this.resolvedBindings = resolvedBindings;
+    this.consumers = consumers;
+    this.stepsAfter = newHashMapWithExpectedSize(resolvedBindings.size());
+  }
+
+  /** Returns true if some binding for {@code key} runs a method on the component's executor. */
+  private boolean isProducedBy(BindingKey key) {
+    ResolvedBindings bindings = resolvedBindings.get(key);
+    if (bindings == null) {
+      return false;
+    }
+    for (Binding binding : bindings.bindings()) {
+      if (binding instanceof ProductionBinding) {
+        switch (((ProductionBinding) binding).bindingKind()) {
+          case IMMEDIATE:
+          case FUTURE_PRODUCTION:
+            return true;
+          default:
+            break;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the number of producers on the longest chain of bindings that consume {@code key},
+   * memoizing the result so that each key is visited once.
+   */
+  private int stepsAfter(BindingKey key) {
+    Integer memo = stepsAfter.get(key);
+    if (memo != null) {
+      return memo.intValue() == IN_PROGRESS ? 0 : memo;
+    }
+    stepsAfter.put(key, IN_PROGRESS);
+    int steps = 0;
+    for (BindingKey consumer : consumers.get(key)) {
+      steps = Math.max(steps, (isProducedBy(consumer) ? 1 : 0) + stepsAfter(consumer));
+    }
+    stepsAfter.put(key, steps);
+    return steps;
+  }
+}
@@ -18,7 +18,6 @@ package dagger.internal.codegen;
 import com.google.auto.common.MoreTypes;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
-import com.google.common.util.concurrent.ListenableFuture;
 import dagger.producers.ProducerModule;
 import dagger.producers.Produces;
 import java.util.Set;
@@ -145,8 +144,7 @@ final class ProducesMethodValidator implements Validator<ExecutableElement> {
         }
         break;
       case SET_VALUES:
-        if (returnTypeKind.equals(DECLARED)
-            && MoreTypes.isTypeOf(ListenableFuture.class, returnType)) {
+        if (Util.isProducerFuture(returnType)) {
           DeclaredType declaredReturnType = MoreTypes.asDeclared(returnType);
           if (!declaredReturnType.getTypeArguments().isEmpty()) {
             validateSetType(builder, Iterables.getOnlyElement(
@@ -181,7 +179,7 @@ final class ProducesMethodValidator implements Validator<ExecutableElement> {
 
   private void validateSingleReturnType(ValidationReport.Builder<? extends Element> reportBuilder,
       TypeMirror type) {
-    if (type.getKind().equals(DECLARED) && MoreTypes.isTypeOf(ListenableFuture.class, type)) {
+    if (Util.isProducerFuture(type)) {
       DeclaredType declaredType = MoreTypes.asDeclared(type);
       if (declaredType.getTypeArguments().isEmpty()) {
         reportBuilder.addItem(PRODUCES_METHOD_RAW_FUTURE, reportBuilder.getSubject());
@@ -17,12 +17,16 @@ package dagger.internal.codegen;
 
 import com.google.auto.common.MoreTypes;
 import com.google.auto.value.AutoValue;
+import com.google.common.base.Equivalence;
 import com.google.common.base.Optional;
+import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Table;
 import dagger.producers.Producer;
 import dagger.producers.Produces;
+import java.util.Map;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.DeclaredType;
@@ -52,7 +56,10 @@ abstract class ProductionBinding extends ContributionBinding {
   enum Kind {
     /** Represents a binding configured by {@link Produces} that doesn't return a future. */
     IMMEDIATE,
-    /** Represents a binding configured by {@link Produces} that returns a future. */
+    /**
+     * Represents a binding configured by {@link Produces} that returns a future, either a
+     * {@code ListenableFuture} or a {@code CompletionStage}.
+     */
     FUTURE_PRODUCTION,
     /**
      * Represents a binding that is not explicitly tied to code, but generated implicitly by the
@@ -78,6 +85,14 @@ abstract class ProductionBinding extends ContributionBinding {
   /** Returns the list of types in the throws clause of the method. */
   abstract ImmutableList<? extends TypeMirror> thrownTypes();
 
+  /**
+   * True if the method runs on the thread that completes its inputs rather than on the
+   * component's executor.
+   *
+   * @see Produces#inline
+   */
+  abstract boolean runsInline();
+
   @Override
   BindingType bindingType() {
     switch (productionType()) {
@@ -107,6 +122,10 @@ abstract class ProductionBinding extends ContributionBinding {
     private final Types types;
     private final Key.Factory keyFactory;
     private final DependencyRequest.Factory dependencyRequestFactory;
+    private final Table<ExecutableElement, Equivalence.Wrapper<TypeMirror>, ProductionBinding>
+        producesMethodBindings = HashBasedTable.create();
+    private final Map<ExecutableElement, ProductionBinding> componentMethodBindings =
+        Maps.newHashMap();
 
     Factory(Types types,
         Key.Factory keyFactory,
@@ -117,8 +136,33 @@ abstract class ProductionBinding extends ContributionBinding {
       this.dependencyRequestFactory = dependencyRequestFactory;
     }
 
+    /**
+     * Forgets the bindings created so far for {@code @Produces} methods and component methods.
+     * Called at the end of each round, since a later round may generate types that they refer to.
+     */
+    void clearCachedBindings() {
+      producesMethodBindings.clear();
+      componentMethodBindings.clear();
+    }
+
+    /**
+     * Returns the binding for {@code producesMethod} as a member of {@code contributedBy}, creating
+     * it only the first time that it's requested in this round.
+     */
     ProductionBinding forProducesMethod(
         ExecutableElement producesMethod, TypeMirror contributedBy) {
+      Equivalence.Wrapper<TypeMirror> wrappedContributedBy =
+          MoreTypes.equivalence().wrap(contributedBy);
+      ProductionBinding binding = producesMethodBindings.get(producesMethod, wrappedContributedBy);
+      if (binding == null) {
+        binding = createForProducesMethod(producesMethod, contributedBy);
+        producesMethodBindings.put(producesMethod, wrappedContributedBy, binding);
+      }
+      return binding;
+    }
+
+    private ProductionBinding createForProducesMethod(
+        ExecutableElement producesMethod, TypeMirror contributedBy) {
       checkNotNull(producesMethod);
       checkArgument(producesMethod.getKind().equals(METHOD));
       checkArgument(contributedBy.getKind().equals(TypeKind.DECLARED));
@@ -133,7 +177,7 @@ abstract class ProductionBinding extends ContributionBinding {
               declaredContainer,
               producesMethod.getParameters(),
               resolvedMethod.getParameterTypes());
-      Kind kind = MoreTypes.isTypeOf(ListenableFuture.class, producesMethod.getReturnType())
+      Kind kind = Util.isProducerFuture(producesMethod.getReturnType())
           ? Kind.FUTURE_PRODUCTION
           : Kind.IMMEDIATE;
       return new AutoValue_ProductionBinding(
@@ -146,7 +190,8 @@ abstract class ProductionBinding extends ContributionBinding {
           Optional.of(MoreTypes.asTypeElement(declaredContainer)),
           kind,
           producesAnnotation.type(),
-          ImmutableList.copyOf(producesMethod.getThrownTypes()));
+          ImmutableList.copyOf(producesMethod.getThrownTypes()),
+          producesAnnotation.inline());
     }
 
     ProductionBinding forImplicitMapBinding(DependencyRequest explicitRequest,
@@ -164,14 +209,28 @@ abstract class ProductionBinding extends ContributionBinding {
           Optional.<TypeElement>absent(),
           Kind.SYNTHETIC_PRODUCTION,
           Produces.Type.MAP,
-          ImmutableList.<TypeMirror>of());
+          ImmutableList.<TypeMirror>of(),
+          false);
     }
 
+    /**
+     * Returns the binding for a production method of a component dependency, creating it only the
+     * first time that it's requested in this round.
+     */
     ProductionBinding forComponentMethod(ExecutableElement componentMethod) {
+      ProductionBinding binding = componentMethodBindings.get(componentMethod);
+      if (binding == null) {
+        binding = createForComponentMethod(componentMethod);
+        componentMethodBindings.put(componentMethod, binding);
+      }
+      return binding;
+    }
+
+    private ProductionBinding createForComponentMethod(ExecutableElement componentMethod) {
       checkNotNull(componentMethod);
       checkArgument(componentMethod.getKind().equals(METHOD));
       checkArgument(componentMethod.getParameters().isEmpty());
-      checkArgument(MoreTypes.isTypeOf(ListenableFuture.class, componentMethod.getReturnType()));
+      checkArgument(Util.isProducerFuture(componentMethod.getReturnType()));
       return new AutoValue_ProductionBinding(
           keyFactory.forProductionComponentMethod(componentMethod),
           componentMethod,
@@ -182,7 +241,8 @@ abstract class ProductionBinding extends ContributionBinding {
           Optional.<TypeElement>absent(),
           Kind.COMPONENT_PRODUCTION,
           Produces.Type.UNIQUE,
-          ImmutableList.copyOf(componentMethod.getThrownTypes()));
+          ImmutableList.copyOf(componentMethod.getThrownTypes()),
+          false);
     }
   }
 }
@@ -19,6 +19,9 @@ import com.google.auto.common.BasicAnnotationProcessor.ProcessingStep;
 import com.google.auto.common.MoreElements;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.SetMultimap;
+import dagger.internal.codegen.ProcessorStatistics.ComponentRecord;
+import dagger.internal.codegen.ProcessorStatistics.Phase;
+import dagger.internal.codegen.ProcessorStatistics.Timer;
 import dagger.producers.ProductionComponent;
 import java.lang.annotation.Annotation;
 import java.util.Set;
@@ -39,6 +42,7 @@ final class ProductionComponentProcessingStep implements ProcessingStep {
   private final ComponentDescriptor.Factory componentDescriptorFactory;
   private final BindingGraph.Factory bindingGraphFactory;
   private final ComponentGenerator componentGenerator;
+  private final ProcessorStatistics statistics;
 
   ProductionComponentProcessingStep(
       Messager messager,
@@ -46,13 +50,15 @@ final class ProductionComponentProcessingStep implements ProcessingStep {
       BindingGraphValidator bindingGraphValidator,
       ComponentDescriptor.Factory componentDescriptorFactory,
       BindingGraph.Factory bindingGraphFactory,
-      ComponentGenerator componentGenerator) {
+      ComponentGenerator componentGenerator,
+      ProcessorStatistics statistics) {
     this.messager = messager;
     this.componentValidator = componentValidator;
     this.bindingGraphValidator = bindingGraphValidator;
     this.componentDescriptorFactory = componentDescriptorFactory;
     this.bindingGraphFactory = bindingGraphFactory;
     this.componentGenerator = componentGenerator;
+    this.statistics = statistics;
   }
 
   @Override
@@ -70,17 +76,29 @@ final class ProductionComponentProcessingStep implements ProcessingStep {
           componentValidator.validate(componentTypeElement);
       componentReport.printMessagesTo(messager);
       if (componentReport.isClean()) {
+        ComponentRecord statisticsRecord =
+            statistics.startComponent(componentTypeElement.getQualifiedName().toString());
+        Timer timer = statisticsRecord.start(Phase.COMPONENT_DESCRIPTOR);
         ComponentDescriptor componentDescriptor =
             componentDescriptorFactory.forProductionComponent(componentTypeElement);
+        timer.stop();
+        timer = statisticsRecord.start(Phase.BINDING_GRAPH);
         BindingGraph bindingGraph = bindingGraphFactory.create(componentDescriptor);
+        timer.stop();
+        statisticsRecord.recordGraph(bindingGraph);
+        timer = statisticsRecord.start(Phase.BINDING_GRAPH_VALIDATION);
         ValidationReport<BindingGraph> graphReport =
             bindingGraphValidator.validate(bindingGraph);
+        timer.stop();
         graphReport.printMessagesTo(messager);
         if (graphReport.isClean()) {
+          timer = statisticsRecord.start(Phase.COMPONENT_GENERATION);
           try {
             componentGenerator.generate(bindingGraph);
           } catch (SourceFileGenerationException e) {
             e.printMessageTo(messager);
+          } finally {
+            timer.stop();
           }
         }
       }
@@ -21,9 +21,11 @@ import dagger.Module;
 import dagger.producers.ProducerModule;
 import dagger.producers.ProductionComponent;
 import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
 import javax.lang.model.util.SimpleTypeVisitor6;
 
 import static com.google.auto.common.MoreElements.getAnnotationMirror;
@@ -48,6 +50,13 @@ final class ProductionComponentValidator implements Validator<TypeElement> {
           subject);
     }
 
+    for (ExecutableElement method : ElementFilter.methodsIn(subject.getEnclosedElements())) {
+      if (method.getSimpleName().contentEquals("reset")) {
+        builder.addItem("Production components may not declare reset(), since the generated "
+            + "component implements ResettableComponent.reset(Deadline)", method);
+      }
+    }
+
     AnnotationMirror componentMirror =
         getAnnotationMirror(subject, ProductionComponent.class).get();
     ImmutableList<TypeMirror> moduleTypes = getComponentModules(componentMirror);
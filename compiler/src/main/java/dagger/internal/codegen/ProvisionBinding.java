@@ -21,9 +21,13 @@ import com.google.auto.common.MoreTypes;
 import com.google.auto.value.AutoValue;
 import com.google.common.base.Equivalence;
 import com.google.common.base.Optional;
+import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.collect.Table;
 import dagger.Provides;
+import java.util.Map;
 import javax.inject.Inject;
 import javax.inject.Provider;
 import javax.lang.model.element.AnnotationMirror;
@@ -150,6 +154,10 @@ abstract class ProvisionBinding extends ContributionBinding {
     private final Types types;
     private final Key.Factory keyFactory;
     private final DependencyRequest.Factory dependencyRequestFactory;
+    private final Table<ExecutableElement, Equivalence.Wrapper<TypeMirror>, ProvisionBinding>
+        providesMethodBindings = HashBasedTable.create();
+    private final Map<ExecutableElement, ProvisionBinding> componentMethodBindings =
+        Maps.newHashMap();
 
     Factory(Elements elements, Types types, Key.Factory keyFactory,
         DependencyRequest.Factory dependencyRequestFactory) {
@@ -159,6 +167,15 @@ abstract class ProvisionBinding extends ContributionBinding {
       this.dependencyRequestFactory = dependencyRequestFactory;
     }
 
+    /**
+     * Forgets the bindings created so far for {@code @Provides} methods and component methods.
+     * Called at the end of each round, since a later round may generate types that they refer to.
+     */
+    void clearCachedBindings() {
+      providesMethodBindings.clear();
+      componentMethodBindings.clear();
+    }
+
     /** Returns an unresolved version of this binding. */
     ProvisionBinding unresolve(ProvisionBinding binding) {
       checkState(binding.hasNonDefaultTypeParameters());
@@ -238,7 +255,23 @@ abstract class ProvisionBinding extends ContributionBinding {
       return Optional.absent();
     }
 
+    /**
+     * Returns the binding for {@code providesMethod} as a member of {@code contributedBy}, creating
+     * it only the first time that it's requested in this round.
+     */
     ProvisionBinding forProvidesMethod(ExecutableElement providesMethod, TypeMirror contributedBy) {
+      Equivalence.Wrapper<TypeMirror> wrappedContributedBy =
+          MoreTypes.equivalence().wrap(contributedBy);
+      ProvisionBinding binding = providesMethodBindings.get(providesMethod, wrappedContributedBy);
+      if (binding == null) {
+        binding = createForProvidesMethod(providesMethod, contributedBy);
+        providesMethodBindings.put(providesMethod, wrappedContributedBy, binding);
+      }
+      return binding;
+    }
+
+    private ProvisionBinding createForProvidesMethod(
+        ExecutableElement providesMethod, TypeMirror contributedBy) {
       checkNotNull(providesMethod);
       checkArgument(providesMethod.getKind().equals(METHOD));
       checkArgument(contributedBy.getKind().equals(TypeKind.DECLARED));
@@ -304,7 +337,20 @@ abstract class ProvisionBinding extends ContributionBinding {
           Optional.<DependencyRequest>absent());
     }
 
+    /**
+     * Returns the binding for a provision method of a component dependency, creating it only the
+     * first time that it's requested in this round.
+     */
     ProvisionBinding forComponentMethod(ExecutableElement componentMethod) {
+      ProvisionBinding binding = componentMethodBindings.get(componentMethod);
+      if (binding == null) {
+        binding = createForComponentMethod(componentMethod);
+        componentMethodBindings.put(componentMethod, binding);
+      }
+      return binding;
+    }
+
+    private ProvisionBinding createForComponentMethod(ExecutableElement componentMethod) {
       checkNotNull(componentMethod);
       checkArgument(componentMethod.getKind().equals(METHOD));
       checkArgument(componentMethod.getParameters().isEmpty());
@@ -21,6 +21,7 @@ import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import dagger.internal.codegen.ProcessorStatistics.Phase;
 import dagger.internal.codegen.writer.ClassName;
 import dagger.internal.codegen.writer.JavaWriter;
 import dagger.internal.codegen.writer.TypeWriter;
@@ -41,9 +42,11 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 abstract class SourceFileGenerator<T> {
   private final Filer filer;
+  private final ProcessorStatistics statistics;
 
-  SourceFileGenerator(Filer filer) {
+  SourceFileGenerator(Filer filer, ProcessorStatistics statistics) {
     this.filer = checkNotNull(filer);
+    this.statistics = checkNotNull(statistics);
   }
 
   final void generate(T input) throws SourceFileGenerationException {
@@ -52,11 +55,14 @@ abstract class SourceFileGenerator<T> {
     try {
       ImmutableSet<JavaWriter> writers = write(generatedTypeName, input);
       for (JavaWriter javaWriter : writers) {
+        ProcessorStatistics.Timer timer = statistics.start(Phase.SOURCE_FILE_WRITE);
         try {
           javaWriter.file(filer, originatingElements);
         } catch (IOException e) {
           throw new SourceFileGenerationException(getNamesForWriters(javaWriter.getTypeWriters()),
               e, getElementForErrorReporting(input));
+        } finally {
+          timer.stop();
         }
       }
     } catch (Exception e) {
@@ -83,7 +89,10 @@ abstract class SourceFileGenerator<T> {
 
   /**
    * Implementations should return {@link Element} instances from which the source is to be
-   * generated.
+   * generated. These are recorded with the {@link Filer} so that incremental compilers know which
+   * sources to regenerate, and delete, when an input changes. Generators for a single binding
+   * return exactly one element, in the type that declares the binding; the component generator
+   * returns every type that its graph was built from.
    */
   abstract Iterable<? extends Element> getOriginatingElements(T input);
 
@@ -22,7 +22,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Ordering;
-import dagger.internal.DoubleCheckLazy;
+import dagger.internal.DoubleCheck;
 import dagger.internal.codegen.ContributionBinding.BindingType;
 import dagger.internal.codegen.writer.ClassName;
 import dagger.internal.codegen.writer.ParameterizedTypeName;
@@ -171,7 +171,7 @@ class SourceFiles {
       DependencyRequest.Kind dependencyKind) {
     switch (dependencyKind) {
       case LAZY:
-        return Snippet.format("%s.create(%s)", ClassName.fromClass(DoubleCheckLazy.class),
+        return Snippet.format("%s.lazy(%s)", ClassName.fromClass(DoubleCheck.class),
             frameworkTypeMemberSelect);
       case INSTANCE:
       case FUTURE:
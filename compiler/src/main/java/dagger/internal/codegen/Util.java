@@ -21,7 +21,9 @@ import com.google.auto.common.MoreTypes;
 import com.google.common.base.Equivalence;
 import com.google.common.base.Equivalence.Wrapper;
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ListenableFuture;
 import java.util.List;
 import java.util.Map;
 import javax.lang.model.element.AnnotationMirror;
@@ -40,6 +42,7 @@ import static com.google.common.base.Preconditions.checkState;
 import static javax.lang.model.element.ElementKind.CONSTRUCTOR;
 import static javax.lang.model.element.Modifier.ABSTRACT;
 import static javax.lang.model.element.Modifier.STATIC;
+import static javax.lang.model.type.TypeKind.DECLARED;
 
 /**
  * Utilities for handling types in annotation processors
@@ -103,6 +106,32 @@ final class Util {
     return keyTypeElement;
   }
 
+  /**
+   * The Java 8 future types that producers may return and components may expose. They are matched
+   * by name since dagger itself is built for runtimes that predate them.
+   */
+  private static final ImmutableSet<String> COMPLETION_STAGE_TYPES = ImmutableSet.of(
+      "java.util.concurrent.CompletionStage",
+      "java.util.concurrent.CompletableFuture");
+
+  /**
+   * Returns true if {@code type} is a {@code CompletionStage} or a {@code CompletableFuture}.
+   */
+  static boolean isCompletionStage(TypeMirror type) {
+    return type.getKind().equals(DECLARED)
+        && COMPLETION_STAGE_TYPES.contains(
+            MoreTypes.asTypeElement(type).getQualifiedName().toString());
+  }
+
+  /**
+   * Returns true if {@code type} is a future that a producer may return: a
+   * {@link ListenableFuture} or a {@linkplain #isCompletionStage completion stage}.
+   */
+  static boolean isProducerFuture(TypeMirror type) {
+    return (type.getKind().equals(DECLARED) && MoreTypes.isTypeOf(ListenableFuture.class, type))
+        || isCompletionStage(type);
+  }
+
   /**
    * Wraps an {@link Optional} of a type in an {@code Optional} of a {@link Wrapper} for that type.
    */
@@ -35,6 +35,7 @@ public final class MethodWriter extends Modifiable implements HasClassReferences
   private final String name;
   private final Map<String, VariableWriter> parameterWriters;
   private final List<TypeVariableName> typeParameters;
+  private final List<TypeName> thrownTypes;
   private Optional<BlockWriter> body;
 
   MethodWriter(TypeName returnType, String name) {
@@ -42,6 +43,7 @@ public final class MethodWriter extends Modifiable implements HasClassReferences
     this.name = name;
     this.parameterWriters = Maps.newLinkedHashMap();
     this.typeParameters = Lists.newArrayList();
+    this.thrownTypes = Lists.newArrayList();
     this.body = Optional.absent();
   }
 
@@ -80,6 +82,10 @@ public final class MethodWriter extends Modifiable implements HasClassReferences
     return parameterWriter;
   }
 
+  public void addThrownType(TypeName thrownType) {
+    thrownTypes.add(thrownType);
+  }
+
   public BlockWriter body() {
     if (body.isPresent()) {
       return body.get();
@@ -99,6 +105,7 @@ public final class MethodWriter extends Modifiable implements HasClassReferences
     appendable.append(' ').append(name).append('(');
     Writables.join(", ", parameterWriters.values(), appendable, context);
     appendable.append(")");
+    Writables.join(", ", thrownTypes, " throws ", "", appendable, context);
     if (body.isPresent()) {
       appendable.append(" {");
       body.get().write(new IndentingAppendable(appendable), context);
@@ -112,7 +119,8 @@ public final class MethodWriter extends Modifiable implements HasClassReferences
   @Override
   public Set<ClassName> referencedClasses() {
     return FluentIterable.from(
-        Iterables.concat(ImmutableList.of(returnType), parameterWriters.values(), body.asSet()))
+        Iterables.concat(
+            ImmutableList.of(returnType), parameterWriters.values(), thrownTypes, body.asSet()))
             .transformAndConcat(new Function<HasClassReferences, Set<ClassName>>() {
               @Override
               public Set<ClassName> apply(HasClassReferences input) {
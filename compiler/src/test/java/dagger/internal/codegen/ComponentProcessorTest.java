@@ -195,7 +195,7 @@ public class ComponentProcessorTest {
         "package test;",
         "",
         "import dagger.Lazy;",
-        "import dagger.internal.DoubleCheckLazy;",
+        "import dagger.internal.DoubleCheck;",
         "import javax.annotation.Generated;",
         "import javax.inject.Provider;",
         "",
@@ -224,7 +224,7 @@ public class ComponentProcessorTest {
         "",
         "  @Override",
         "  public Lazy<SomeInjectableType> lazySomeInjectableType() {",
-        "    return DoubleCheckLazy.create(SomeInjectableType_Factory.create());",
+        "    return DoubleCheck.lazy(SomeInjectableType_Factory.create());",
         "  }",
         "",
         "  @Override",
@@ -278,8 +278,7 @@ public class ComponentProcessorTest {
         "package test;",
         "",
         "import dagger.Lazy;",
-        "import dagger.internal.DoubleCheckLazy;",
-        "import dagger.internal.ScopedProvider;",
+        "import dagger.internal.DoubleCheck;",
         "import javax.annotation.Generated;",
         "import javax.inject.Provider;",
         "",
@@ -302,7 +301,7 @@ public class ComponentProcessorTest {
         "",
         "  private void initialize(final Builder builder) {",
         "    this.someInjectableTypeProvider =",
-        "        ScopedProvider.create(SomeInjectableType_Factory.create());",
+        "        DoubleCheck.provider(SomeInjectableType_Factory.create());",
         "  }",
         "",
         "  @Override",
@@ -312,7 +311,7 @@ public class ComponentProcessorTest {
         "",
         "  @Override",
         "  public Lazy<SomeInjectableType> lazySomeInjectableType() {",
-        "    return DoubleCheckLazy.create(someInjectableTypeProvider);",
+        "    return DoubleCheck.lazy(someInjectableTypeProvider);",
         "  }",
         "",
         "  @Override",
@@ -335,6 +334,526 @@ public class ComponentProcessorTest {
         .and().generatesSources(generatedComponent);
   }
 
+  @Test public void componentWithScope_lockFreeScopedProviders() {
+    JavaFileObject injectableTypeFile = JavaFileObjects.forSourceLines("test.SomeInjectableType",
+        "package test;",
+        "",
+        "import javax.inject.Inject;",
+        "import javax.inject.Singleton;",
+        "",
+        "@Singleton",
+        "final class SomeInjectableType {",
+        "  @Inject SomeInjectableType() {}",
+        "}");
+    JavaFileObject componentFile = JavaFileObjects.forSourceLines("test.SimpleComponent",
+        "package test;",
+        "",
+        "import dagger.Component;",
+        "import dagger.Lazy;",
+        "import javax.inject.Provider;",
+        "import javax.inject.Singleton;",
+        "",
+        "@Singleton",
+        "@Component",
+        "interface SimpleComponent {",
+        "  SomeInjectableType someInjectableType();",
+        "  Lazy<SomeInjectableType> lazySomeInjectableType();",
+        "  Provider<SomeInjectableType> someInjectableTypeProvider();",
+        "}");
+    JavaFileObject generatedComponent = JavaFileObjects.forSourceLines(
+        "test.DaggerSimpleComponent",
+        "package test;",
+        "",
+        "import dagger.Lazy;",
+        "import dagger.internal.DoubleCheck;",
+        "import dagger.internal.LockFreeScopedProvider;",
+        "import javax.annotation.Generated;",
+        "import javax.inject.Provider;",
+        "",
+        "@Generated(\"dagger.internal.codegen.ComponentProcessor\")",
+        "public final class DaggerSimpleComponent implements SimpleComponent {",
+        "  private Provider<SomeInjectableType> someInjectableTypeProvider;",
+        "",
+        "  private DaggerSimpleComponent(Builder builder) {",
+        "    assert builder != null;",
+        "    initialize(builder);",
+        "  }",
+        "",
+        "  public static Builder builder() {",
+        "    return new Builder();",
+        "  }",
+        "",
+        "  public static SimpleComponent create() {",
+        "    return builder().build();",
+        "  }",
+        "",
+        "  private void initialize(final Builder builder) {",
+        "    this.someInjectableTypeProvider =",
+        "        LockFreeScopedProvider.create(SomeInjectableType_Factory.create());",
+        "  }",
+        "",
+        "  @Override",
+        "  public SomeInjectableType someInjectableType() {",
+        "    return someInjectableTypeProvider.get();",
+        "  }",
+        "",
+        "  @Override",
+        "  public Lazy<SomeInjectableType> lazySomeInjectableType() {",
+        "    return DoubleCheck.lazy(someInjectableTypeProvider);",
+        "  }",
+        "",
+        "  @Override",
+        "  public Provider<SomeInjectableType> someInjectableTypeProvider() {",
+        "    return someInjectableTypeProvider;",
+        "  }",
+        "",
+        "  public static final class Builder {",
+        "    private Builder() {",
+        "    }",
+        "",
+        "    public SimpleComponent build() {",
+        "      return new DaggerSimpleComponent(this);",
+        "    }",
+        "  }",
+        "}");
+    assertAbout(javaSources()).that(ImmutableList.of(injectableTypeFile, componentFile))
+        .withCompilerOptions("-Adagger.lockFreeScopedProviders=enabled")
+        .processedWith(new ComponentProcessor())
+        .compilesWithoutError()
+        .and().generatesSources(generatedComponent);
+  }
+
+  @Test public void componentWithScope_scopedInstanceTables() {
+    JavaFileObject injectableTypeFile = JavaFileObjects.forSourceLines("test.SomeInjectableType",
+        "package test;",
+        "",
+        "import javax.inject.Inject;",
+        "import javax.inject.Singleton;",
+        "",
+        "@Singleton",
+        "final class SomeInjectableType {",
+        "  @Inject SomeInjectableType() {}",
+        "}");
+    JavaFileObject componentFile = JavaFileObjects.forSourceLines("test.SimpleComponent",
+        "package test;",
+        "",
+        "import dagger.Component;",
+        "import javax.inject.Provider;",
+        "import javax.inject.Singleton;",
+        "",
+        "@Singleton",
+        "@Component",
+        "interface SimpleComponent {",
+        "  SomeInjectableType someInjectableType();",
+        "  Provider<SomeInjectableType> someInjectableTypeProvider();",
+        "}");
+    JavaFileObject generatedComponent = JavaFileObjects.forSourceLines(
+        "test.DaggerSimpleComponent",
+        "package test;",
+        "",
+        "import dagger.internal.ScopedInstanceTable;",
+        "import javax.annotation.Generated;",
+        "import javax.inject.Provider;",
+        "",
+        "@Generated(\"dagger.internal.codegen.ComponentProcessor\")",
+        "public final class DaggerSimpleComponent implements SimpleComponent {",
+        "  private final ScopedInstances scopedInstances = new ScopedInstances();",
+        "",
+        "  private DaggerSimpleComponent(Builder builder) {",
+        "    assert builder != null;",
+        "  }",
+        "",
+        "  public static Builder builder() {",
+        "    return new Builder();",
+        "  }",
+        "",
+        "  public static SimpleComponent create() {",
+        "    return builder().build();",
+        "  }",
+        "",
+        "  @Override",
+        "  public SomeInjectableType someInjectableType() {",
+        "    return scopedInstances.<SomeInjectableType>get(0);",
+        "  }",
+        "",
+        "  @Override",
+        "  public Provider<SomeInjectableType> someInjectableTypeProvider() {",
+        "    return scopedInstances.<SomeInjectableType>provider(0);",
+        "  }",
+        "",
+        "  public static final class Builder {",
+        "    private Builder() {",
+        "    }",
+        "",
+        "    public SimpleComponent build() {",
+        "      return new DaggerSimpleComponent(this);",
+        "    }",
+        "  }",
+        "",
+        "  private final class ScopedInstances extends ScopedInstanceTable {",
+        "    ScopedInstances() {",
+        "      super(1);",
+        "    }",
+        "",
+        "    @Override",
+        "    protected Object create(int slot) {",
+        "      switch (slot) {",
+        "        case 0:",
+        "          return SomeInjectableType_Factory.create().get();",
+        "        default:",
+        "          throw new IllegalArgumentException(String.valueOf(slot));",
+        "      }",
+        "    }",
+        "  }",
+        "}");
+    assertAbout(javaSources()).that(ImmutableList.of(injectableTypeFile, componentFile))
+        .withCompilerOptions("-Adagger.scopedInstanceTables=enabled")
+        .processedWith(new ComponentProcessor())
+        .compilesWithoutError()
+        .and().generatesSources(generatedComponent);
+  }
+
+  @Test public void componentWithScope_scopedInstanceTables_partitioned() {
+    int types = 101;
+    ImmutableList.Builder<JavaFileObject> sources = ImmutableList.builder();
+    ImmutableList.Builder<String> componentLines = ImmutableList.<String>builder()
+        .add("package test;",
+            "",
+            "import dagger.Component;",
+            "import javax.inject.Singleton;",
+            "",
+            "@Singleton",
+            "@Component",
+            "interface SimpleComponent {");
+    ImmutableList.Builder<String> componentMethods = ImmutableList.builder();
+    ImmutableList.Builder<String> cases = ImmutableList.builder();
+    for (int i = 0; i < types; i++) {
+      sources.add(JavaFileObjects.forSourceLines("test.Type" + i,
+          "package test;",
+          "",
+          "import javax.inject.Inject;",
+          "import javax.inject.Singleton;",
+          "",
+          "@Singleton",
+          "final class Type" + i + " {",
+          "  @Inject Type" + i + "() {}",
+          "}"));
+      componentLines.add("  Type" + i + " type" + i + "();");
+      componentMethods.add("",
+          "  @Override",
+          "  public Type" + i + " type" + i + "() {",
+          "    return scopedInstances.<Type" + i + ">get(" + i + ");",
+          "  }");
+      if (i == 100) {
+        cases.add("        default:",
+            "          throw new IllegalArgumentException(String.valueOf(slot));",
+            "      }",
+            "    }",
+            "",
+            "    private Object create1(int slot) {",
+            "      switch (slot) {");
+      }
+      cases.add("        case " + i + ":",
+          "          return Type" + i + "_Factory.create().get();");
+    }
+    sources.add(JavaFileObjects.forSourceLines("test.SimpleComponent",
+        componentLines.add("}").build().toArray(new String[0])));
+    JavaFileObject generatedComponent = JavaFileObjects.forSourceLines(
+        "test.DaggerSimpleComponent",
+        ImmutableList.<String>builder()
+            .add("package test;",
+                "",
+                "import dagger.internal.ScopedInstanceTable;",
+                "import javax.annotation.Generated;",
+                "",
+                "@Generated(\"dagger.internal.codegen.ComponentProcessor\")",
+                "public final class DaggerSimpleComponent implements SimpleComponent {",
+                "  private final ScopedInstances scopedInstances = new ScopedInstances();",
+                "",
+                "  private DaggerSimpleComponent(Builder builder) {",
+                "    assert builder != null;",
+                "  }",
+                "",
+                "  public static Builder builder() {",
+                "    return new Builder();",
+                "  }",
+                "",
+                "  public static SimpleComponent create() {",
+                "    return builder().build();",
+                "  }")
+            .addAll(componentMethods.build())
+            .add("",
+                "  public static final class Builder {",
+                "    private Builder() {",
+                "    }",
+                "",
+                "    public SimpleComponent build() {",
+                "      return new DaggerSimpleComponent(this);",
+                "    }",
+                "  }",
+                "",
+                "  private final class ScopedInstances extends ScopedInstanceTable {",
+                "    ScopedInstances() {",
+                "      super(" + types + ");",
+                "    }",
+                "",
+                "    @Override",
+                "    protected Object create(int slot) {",
+                "      switch (slot / 100) {",
+                "        case 0:",
+                "          return create0(slot);",
+                "        case 1:",
+                "          return create1(slot);",
+                "        default:",
+                "          throw new IllegalArgumentException(String.valueOf(slot));",
+                "      }",
+                "    }",
+                "",
+                "    private Object create0(int slot) {",
+                "      switch (slot) {")
+            .addAll(cases.build())
+            .add("        default:",
+                "          throw new IllegalArgumentException(String.valueOf(slot));",
+                "      }",
+                "    }",
+                "  }",
+                "}")
+            .build()
+            .toArray(new String[0]));
+    assertAbout(javaSources()).that(sources.build())
+        .withCompilerOptions("-Adagger.scopedInstanceTables=enabled")
+        .processedWith(new ComponentProcessor())
+        .compilesWithoutError()
+        .and().generatesSources(generatedComponent);
+  }
+
+  @Test public void inlineUnscopedProvisions() {
+    JavaFileObject dependencyFile = JavaFileObjects.forSourceLines("test.Dependency",
+        "package test;",
+        "",
+        "import javax.inject.Inject;",
+        "",
+        "final class Dependency {",
+        "  @Inject Dependency() {}",
+        "}");
+    JavaFileObject scopedDependencyFile = JavaFileObjects.forSourceLines("test.ScopedDependency",
+        "package test;",
+        "",
+        "import javax.inject.Inject;",
+        "import javax.inject.Singleton;",
+        "",
+        "@Singleton",
+        "final class ScopedDependency {",
+        "  @Inject ScopedDependency() {}",
+        "}");
+    JavaFileObject injectableTypeFile = JavaFileObjects.forSourceLines("test.SomeInjectableType",
+        "package test;",
+        "",
+        "import javax.inject.Inject;",
+        "import javax.inject.Provider;",
+        "",
+        "final class SomeInjectableType {",
+        "  @Inject SomeInjectableType(Dependency dependency,",
+        "      ScopedDependency scopedDependency,",
+        "      Provider<Dependency> dependencyProvider) {}",
+        "}");
+    JavaFileObject componentFile = JavaFileObjects.forSourceLines("test.SimpleComponent",
+        "package test;",
+        "",
+        "import dagger.Component;",
+        "import javax.inject.Provider;",
+        "import javax.inject.Singleton;",
+        "",
+        "@Singleton",
+        "@Component",
+        "interface SimpleComponent {",
+        "  SomeInjectableType someInjectableType();",
+        "  Provider<SomeInjectableType> someInjectableTypeProvider();",
+        "}");
+    JavaFileObject generatedComponent = JavaFileObjects.forSourceLines(
+        "test.DaggerSimpleComponent",
+        "package test;",
+        "",
+        "import dagger.internal.DoubleCheck;",
+        "import javax.annotation.Generated;",
+        "import javax.inject.Provider;",
+        "",
+        "@Generated(\"dagger.internal.codegen.ComponentProcessor\")",
+        "public final class DaggerSimpleComponent implements SimpleComponent {",
+        "  private Provider<ScopedDependency> scopedDependencyProvider;",
+        "  private Provider<SomeInjectableType> someInjectableTypeProvider;",
+        "",
+        "  private DaggerSimpleComponent(Builder builder) {",
+        "    assert builder != null;",
+        "    initialize(builder);",
+        "  }",
+        "",
+        "  public static Builder builder() {",
+        "    return new Builder();",
+        "  }",
+        "",
+        "  public static SimpleComponent create() {",
+        "    return builder().build();",
+        "  }",
+        "",
+        "  private void initialize(final Builder builder) {",
+        "    this.scopedDependencyProvider = DoubleCheck.provider(ScopedDependency_Factory.create());",
+        "    this.someInjectableTypeProvider = SomeInjectableType_Factory.create(",
+        "        Dependency_Factory.create(), scopedDependencyProvider);",
+        "  }",
+        "",
+        "  @Override",
+        "  public SomeInjectableType someInjectableType() {",
+        "    return new SomeInjectableType(new Dependency(), scopedDependencyProvider.get(),",
+        "        Dependency_Factory.create());",
+        "  }",
+        "",
+        "  @Override",
+        "  public Provider<SomeInjectableType> someInjectableTypeProvider() {",
+        "    return someInjectableTypeProvider;",
+        "  }",
+        "",
+        "  public static final class Builder {",
+        "    private Builder() {",
+        "    }",
+        "",
+        "    public SimpleComponent build() {",
+        "      return new DaggerSimpleComponent(this);",
+        "    }",
+        "  }",
+        "}");
+    assertAbout(javaSources())
+        .that(ImmutableList.of(
+            dependencyFile, scopedDependencyFile, injectableTypeFile, componentFile))
+        .withCompilerOptions("-Adagger.inlineUnscopedProvisions=enabled")
+        .processedWith(new ComponentProcessor())
+        .compilesWithoutError()
+        .and().generatesSources(generatedComponent);
+  }
+
+  @Test public void componentWithScope_lazyFrameworkFields() {
+    JavaFileObject injectableTypeFile = JavaFileObjects.forSourceLines("test.SomeInjectableType",
+        "package test;",
+        "",
+        "import javax.inject.Inject;",
+        "import javax.inject.Singleton;",
+        "",
+        "@Singleton",
+        "final class SomeInjectableType {",
+        "  @Inject SomeInjectableType() {}",
+        "}");
+    JavaFileObject componentFile = JavaFileObjects.forSourceLines("test.SimpleComponent",
+        "package test;",
+        "",
+        "import dagger.Component;",
+        "import javax.inject.Provider;",
+        "import javax.inject.Singleton;",
+        "",
+        "@Singleton",
+        "@Component",
+        "interface SimpleComponent {",
+        "  SomeInjectableType someInjectableType();",
+        "  Provider<SomeInjectableType> someInjectableTypeProvider();",
+        "}");
+    JavaFileObject generatedComponent = JavaFileObjects.forSourceLines(
+        "test.DaggerSimpleComponent",
+        "package test;",
+        "",
+        "import dagger.internal.DoubleCheck;",
+        "import javax.annotation.Generated;",
+        "import javax.inject.Provider;",
+        "",
+        "@Generated(\"dagger.internal.codegen.ComponentProcessor\")",
+        "public final class DaggerSimpleComponent implements SimpleComponent {",
+        "  private volatile Provider<SomeInjectableType> someInjectableTypeProvider;",
+        "",
+        "  private DaggerSimpleComponent(Builder builder) {",
+        "    assert builder != null;",
+        "  }",
+        "",
+        "  public static Builder builder() {",
+        "    return new Builder();",
+        "  }",
+        "",
+        "  public static SimpleComponent create() {",
+        "    return builder().build();",
+        "  }",
+        "",
+        "  private Provider<SomeInjectableType> getSomeInjectableTypeProvider() {",
+        "    Provider<SomeInjectableType> local = someInjectableTypeProvider;",
+        "    if (local == null) {",
+        "      synchronized (this) {",
+        "        local = someInjectableTypeProvider;",
+        "        if (local == null) {",
+        "          local = DoubleCheck.provider(SomeInjectableType_Factory.create());",
+        "          someInjectableTypeProvider = local;",
+        "        }",
+        "      }",
+        "    }",
+        "    return local;",
+        "  }",
+        "",
+        "  @Override",
+        "  public SomeInjectableType someInjectableType() {",
+        "    return getSomeInjectableTypeProvider().get();",
+        "  }",
+        "",
+        "  @Override",
+        "  public Provider<SomeInjectableType> someInjectableTypeProvider() {",
+        "    return getSomeInjectableTypeProvider();",
+        "  }",
+        "",
+        "  public static final class Builder {",
+        "    private Builder() {",
+        "    }",
+        "",
+        "    public SimpleComponent build() {",
+        "      return new DaggerSimpleComponent(this);",
+        "    }",
+        "  }",
+        "}");
+    assertAbout(javaSources()).that(ImmutableList.of(injectableTypeFile, componentFile))
+        .withCompilerOptions("-Adagger.lazyFrameworkFields=enabled")
+        .processedWith(new ComponentProcessor())
+        .compilesWithoutError()
+        .and().generatesSources(generatedComponent);
+  }
+
+  @Test public void lazyFrameworkFields_accessorNamesDoNotCollide() {
+    ImmutableList.Builder<JavaFileObject> sources = ImmutableList.builder();
+    for (String pkg : ImmutableList.of("a", "b", "c")) {
+      sources.add(JavaFileObjects.forSourceLines("test." + pkg + ".Foo",
+          "package test." + pkg + ";",
+          "",
+          "import javax.inject.Inject;",
+          "import javax.inject.Singleton;",
+          "",
+          "@Singleton",
+          "public final class Foo {",
+          "  @Inject public Foo() {}",
+          "}"));
+    }
+    // the fields are fooProvider, fooProvider1 and fooProvider2, so getFooProvider() pushes the
+    // first accessor onto the name that the third would otherwise take
+    sources.add(JavaFileObjects.forSourceLines("test.SimpleComponent",
+        "package test;",
+        "",
+        "import dagger.Component;",
+        "import javax.inject.Singleton;",
+        "",
+        "@Singleton",
+        "@Component",
+        "interface SimpleComponent {",
+        "  test.a.Foo getFooProvider();",
+        "  test.b.Foo bFoo();",
+        "  test.c.Foo cFoo();",
+        "}"));
+    assertAbout(javaSources()).that(sources.build())
+        .withCompilerOptions("-Adagger.lazyFrameworkFields=enabled")
+        .processedWith(new ComponentProcessor())
+        .compilesWithoutError();
+  }
+
   @Test public void simpleComponentWithNesting() {
     JavaFileObject nestedTypesFile = JavaFileObjects.forSourceLines("test.OuterType",
         "package test;",
@@ -739,6 +1258,43 @@ public class ComponentProcessorTest {
         .compilesWithoutError();
   }
 
+  @Test public void moduleSharedByComponents() {
+    JavaFileObject module = JavaFileObjects.forSourceLines("test.SharedModule",
+        "package test;",
+        "",
+        "import dagger.Module;",
+        "import dagger.Provides;",
+        "",
+        "@Module final class SharedModule {",
+        "  @Provides String string() {",
+        "    return \"shared\";",
+        "  }",
+        "}");
+    JavaFileObject firstComponent = JavaFileObjects.forSourceLines("test.FirstComponent",
+        "package test;",
+        "",
+        "import dagger.Component;",
+        "",
+        "@Component(modules = SharedModule.class)",
+        "interface FirstComponent {",
+        "  String string();",
+        "}");
+    JavaFileObject secondComponent = JavaFileObjects.forSourceLines("test.SecondComponent",
+        "package test;",
+        "",
+        "import dagger.Component;",
+        "import javax.inject.Provider;",
+        "",
+        "@Component(modules = SharedModule.class)",
+        "interface SecondComponent {",
+        "  Provider<String> string();",
+        "}");
+    assertAbout(javaSources())
+        .that(ImmutableList.of(module, firstComponent, secondComponent))
+        .processedWith(new ComponentProcessor())
+        .compilesWithoutError();
+  }
+
   @Test public void setBindings() {
     JavaFileObject emptySetModuleFile = JavaFileObjects.forSourceLines("test.EmptySetModule",
         "package test;",
@@ -821,4 +821,58 @@ public class GraphValidationTest {
         .processedWith(new ComponentProcessor())
         .compilesWithoutError();
   }
+
+  /**
+   * Returns a component whose entry point reaches the bottom of a chain of {@code diamonds}
+   * diamonds by 2<sup>diamonds</sup> paths. The bottom depends on {@code bottomDependency}, if any.
+   */
+  private static JavaFileObject diamondComponent(int diamonds, String bottomDependency) {
+    ImmutableList.Builder<String> lines = ImmutableList.<String>builder().add(
+        "package test;",
+        "",
+        "import dagger.Component;",
+        "import javax.inject.Inject;",
+        "",
+        "final class Diamonds {",
+        "  interface Missing {}",
+        "");
+    for (int i = 0; i < diamonds; i++) {
+      lines.add(
+          "  static final class Top" + i + " {",
+          "    @Inject Top" + i + "(Left" + i + " left, Right" + i + " right) {}",
+          "  }",
+          "  static final class Left" + i + " {",
+          "    @Inject Left" + i + "(Top" + (i + 1) + " top) {}",
+          "  }",
+          "  static final class Right" + i + " {",
+          "    @Inject Right" + i + "(Top" + (i + 1) + " top) {}",
+          "  }");
+    }
+    lines.add(
+        "  static final class Top" + diamonds + " {",
+        "    @Inject Top" + diamonds + "(" + bottomDependency + ") {}",
+        "  }",
+        "",
+        "  @Component",
+        "  interface DiamondComponent {",
+        "    Top0 top();",
+        "  }",
+        "}");
+    return JavaFileObjects.forSourceLines(
+        "test.Diamonds", lines.build().toArray(new String[0]));
+  }
+
+  @Test public void deepDiamonds() {
+    assertAbout(javaSource()).that(diamondComponent(40, ""))
+        .processedWith(new ComponentProcessor())
+        .compilesWithoutError();
+  }
+
+  @Test public void deepDiamonds_missingBindingAtBottom() {
+    assertAbout(javaSource()).that(diamondComponent(40, "Missing missing"))
+        .processedWith(new ComponentProcessor())
+        .failsToCompile()
+        .withErrorContaining(
+            "test.Diamonds.Missing cannot be provided without an @Provides-annotated method.");
+  }
 }
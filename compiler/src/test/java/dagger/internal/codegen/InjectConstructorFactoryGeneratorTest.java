@@ -360,7 +360,7 @@ public final class InjectConstructorFactoryGeneratorTest {
     JavaFileObject expected = JavaFileObjects.forSourceLines("test.GenericClass_Factory",
         "package test;",
         "",
-        "import dagger.internal.DoubleCheckLazy;",
+        "import dagger.internal.DoubleCheck;",
         "import dagger.internal.Factory;",
         "import javax.annotation.Generated;",
         "import javax.inject.Provider;",
@@ -401,17 +401,17 @@ public final class InjectConstructorFactoryGeneratorTest {
         "      aAndA2AndPaAndLaProvider.get(),",
         "      aAndA2AndPaAndLaProvider,",
         "      qaProvider.get(),",
-        "      DoubleCheckLazy.create(aAndA2AndPaAndLaProvider),",
+        "      DoubleCheck.lazy(aAndA2AndPaAndLaProvider),",
         "      sAndS2AndPsAndLsProvider.get(),",
         "      sAndS2AndPsAndLsProvider.get(),",
         "      sAndS2AndPsAndLsProvider,",
         "      qsProvider.get(),",
-        "      DoubleCheckLazy.create(sAndS2AndPsAndLsProvider),",
+        "      DoubleCheck.lazy(sAndS2AndPsAndLsProvider),",
         "      bAndB2AndPbAndLbProvider.get(),",
         "      bAndB2AndPbAndLbProvider.get(),", 
         "      bAndB2AndPbAndLbProvider,",
         "      qbProvider.get(),",
-        "      DoubleCheckLazy.create(bAndB2AndPbAndLbProvider));",
+        "      DoubleCheck.lazy(bAndB2AndPbAndLbProvider));",
         "  }",
         "",
         "  public static <A, B> Factory<GenericClass<A, B>> create(",
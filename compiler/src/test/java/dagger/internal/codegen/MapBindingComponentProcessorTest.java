@@ -142,7 +142,7 @@ public class MapBindingComponentProcessorTest {
         "    this.mapOfPathEnumAndProviderOfHandlerContribution2 =",
         "        MapModuleTwo_ProvideLoginHandlerFactory.create(builder.mapModuleTwo);",
         "    this.mapOfPathEnumAndProviderOfHandlerProvider =",
-        "        MapProviderFactory.<PathEnum, Handler>builder(2)",
+        "        MapProviderFactory.<PathEnum, Handler>enumKeyedBuilder(PathEnum.class)",
         "            .put(test.PathEnum.ADMIN,",
         "                mapOfPathEnumAndProviderOfHandlerContribution1)",
         "            .put(test.PathEnum.LOGIN,",
@@ -310,7 +310,7 @@ public class MapBindingComponentProcessorTest {
         "    this.mapOfStringAndProviderOfHandlerContribution2 =",
         "        MapModuleTwo_ProvideLoginHandlerFactory.create(builder.mapModuleTwo);",
         "    this.mapOfStringAndProviderOfHandlerProvider =",
-        "        MapProviderFactory.<String, Handler>builder(2)",
+        "        MapProviderFactory.<String, Handler>compactBuilder(2)",
         "            .put(\"Admin\", mapOfStringAndProviderOfHandlerContribution1)",
         "            .put(\"Login\", mapOfStringAndProviderOfHandlerContribution2)",
         "            .build();",
@@ -480,7 +480,7 @@ public class MapBindingComponentProcessorTest {
         "    this.mapOfPathEnumAndProviderOfHandlerContribution2 =",
         "        MapModuleTwo_ProvideLoginHandlerFactory.create(builder.mapModuleTwo);",
         "    this.mapOfPathEnumAndProviderOfHandlerProvider =",
-        "        MapProviderFactory.<PathEnum, Handler>builder(2)",
+        "        MapProviderFactory.<PathEnum, Handler>enumKeyedBuilder(PathEnum.class)",
         "            .put(test.PathEnum.ADMIN,",
         "                mapOfPathEnumAndProviderOfHandlerContribution1)",
         "            .put(test.PathEnum.LOGIN,",
@@ -543,6 +543,187 @@ public class MapBindingComponentProcessorTest {
             .and().generatesSources(generatedComponent);
   }
 
+  @Test
+  public void mapBindingsWithScopedNonProviderValues() {
+    JavaFileObject mapModuleOneFile = JavaFileObjects.forSourceLines("test.MapModuleOne",
+        "package test;",
+        "",
+        "import static dagger.Provides.Type.MAP;",
+        "",
+        "import dagger.Module;",
+        "import dagger.Provides;",
+        "import javax.inject.Singleton;",
+        "",
+        "@Module",
+        "final class MapModuleOne {",
+        "  @Provides(type = MAP) @PathKey(PathEnum.ADMIN) @Singleton",
+        "  Handler provideAdminHandler() {",
+        "    return new AdminHandler();",
+        "  }",
+        "}");
+    JavaFileObject mapModuleTwoFile = JavaFileObjects.forSourceLines("test.MapModuleTwo",
+        "package test;",
+        "",
+        "import static dagger.Provides.Type.MAP;",
+        "",
+        "import dagger.Module;",
+        "import dagger.Provides;",
+        "import javax.inject.Singleton;",
+        "",
+        "@Module",
+        "final class MapModuleTwo {",
+        "  @Provides(type = MAP) @PathKey(PathEnum.LOGIN) @Singleton",
+        "  Handler provideLoginHandler() {",
+        "    return new LoginHandler();",
+        "  }",
+        "}");
+    JavaFileObject enumKeyFile = JavaFileObjects.forSourceLines("test.PathKey",
+        "package test;",
+        "import dagger.MapKey;",
+        "import java.lang.annotation.Retention;",
+        "import static java.lang.annotation.RetentionPolicy.RUNTIME;",
+        "",
+        "@MapKey(unwrapValue = true)",
+        "@Retention(RUNTIME)",
+        "public @interface PathKey {",
+        "  PathEnum value();",
+        "}");
+    JavaFileObject pathEnumFile = JavaFileObjects.forSourceLines("test.PathEnum",
+        "package test;",
+        "",
+        "public enum PathEnum {",
+        "    ADMIN,",
+        "    LOGIN;",
+        "}");
+    JavaFileObject HandlerFile = JavaFileObjects.forSourceLines("test.Handler",
+        "package test;",
+        "",
+        "interface Handler {}");
+    JavaFileObject LoginHandlerFile = JavaFileObjects.forSourceLines("test.LoginHandler",
+        "package test;",
+        "",
+        "class LoginHandler implements Handler {",
+        "  public LoginHandler() {}",
+        "}");
+    JavaFileObject AdminHandlerFile = JavaFileObjects.forSourceLines("test.AdminHandler",
+        "package test;",
+        "",
+        "class AdminHandler implements Handler {",
+        "  public AdminHandler() {}",
+        "}");
+    JavaFileObject componentFile = JavaFileObjects.forSourceLines("test.TestComponent",
+        "package test;",
+        "",
+        "import dagger.Component;",
+        "import java.util.Map;",
+        "import javax.inject.Provider;",
+        "import javax.inject.Singleton;",
+        "",
+        "@Singleton",
+        "@Component(modules = {MapModuleOne.class, MapModuleTwo.class})",
+        "interface TestComponent {",
+        "  Map<PathEnum, Handler> dispatcher();",
+        "}");
+    JavaFileObject generatedComponent = JavaFileObjects.forSourceLines("test.DaggerTestComponent",
+        "package test;",
+        "",
+        "import dagger.internal.DoubleCheck;",
+        "import dagger.internal.MapFactory;",
+        "import dagger.internal.MapProviderFactory;",
+        "import java.util.Map;",
+        "import javax.annotation.Generated;",
+        "import javax.inject.Provider;",
+        "",
+        "@Generated(\"dagger.internal.codegen.ComponentProcessor\")",
+        "public final class DaggerTestComponent implements TestComponent {",
+        "  private Provider<Handler> mapOfPathEnumAndProviderOfHandlerContribution1;",
+        "  private Provider<Handler> mapOfPathEnumAndProviderOfHandlerContribution2;",
+        "  private Provider<Map<PathEnum, Provider<Handler>>>",
+        "      mapOfPathEnumAndProviderOfHandlerProvider;",
+        "  private Provider<Map<PathEnum, Handler>> mapOfPathEnumAndHandlerProvider;",
+        "",
+        "  private DaggerTestComponent(Builder builder) {",
+        "    assert builder != null;",
+        "    initialize(builder);",
+        "  }",
+        "",
+        "  public static Builder builder() {",
+        "    return new Builder();",
+        "  }",
+        "",
+        "  public static TestComponent create() {",
+        "    return builder().build();",
+        "  }",
+        "",
+        "  private void initialize(final Builder builder) {",
+        "    this.mapOfPathEnumAndProviderOfHandlerContribution1 = DoubleCheck.provider(",
+        "        MapModuleOne_ProvideAdminHandlerFactory.create(builder.mapModuleOne));",
+        "    this.mapOfPathEnumAndProviderOfHandlerContribution2 = DoubleCheck.provider(",
+        "        MapModuleTwo_ProvideLoginHandlerFactory.create(builder.mapModuleTwo));",
+        "    this.mapOfPathEnumAndProviderOfHandlerProvider =",
+        "        MapProviderFactory.<PathEnum, Handler>enumKeyedBuilder(PathEnum.class)",
+        "            .put(test.PathEnum.ADMIN,",
+        "                mapOfPathEnumAndProviderOfHandlerContribution1)",
+        "            .put(test.PathEnum.LOGIN,",
+        "                mapOfPathEnumAndProviderOfHandlerContribution2)",
+        "            .build();",
+        "    this.mapOfPathEnumAndHandlerProvider = DoubleCheck.provider(",
+        "        MapFactory.create(mapOfPathEnumAndProviderOfHandlerProvider));",
+        "  }",
+        "",
+        "  @Override",
+        "  public Map<PathEnum, Handler> dispatcher() {",
+        "    return mapOfPathEnumAndHandlerProvider.get();",
+        "  }",
+        "",
+        "  public static final class Builder {",
+        "    private MapModuleOne mapModuleOne;",
+        "    private MapModuleTwo mapModuleTwo;",
+        "",
+        "    private Builder() {",
+        "    }",
+        "",
+        "    public TestComponent build() {",
+        "      if (mapModuleOne == null) {",
+        "        this.mapModuleOne = new MapModuleOne();",
+        "      }",
+        "      if (mapModuleTwo == null) {",
+        "        this.mapModuleTwo = new MapModuleTwo();",
+        "      }",
+        "      return new DaggerTestComponent(this);",
+        "    }",
+        "",
+        "    public Builder mapModuleOne(MapModuleOne mapModuleOne) {",
+        "      if (mapModuleOne == null) {",
+        "        throw new NullPointerException(\"mapModuleOne\");",
+        "      }",
+        "      this.mapModuleOne = mapModuleOne;",
+        "      return this;",
+        "    }",
+        "",
+        "    public Builder mapModuleTwo(MapModuleTwo mapModuleTwo) {",
+        "      if (mapModuleTwo == null) {",
+        "        throw new NullPointerException(\"mapModuleTwo\");",
+        "      }",
+        "      this.mapModuleTwo = mapModuleTwo;",
+        "      return this;",
+        "    }",
+        "  }",
+        "}");
+    assert_().about(javaSources())
+        .that(ImmutableList.of(mapModuleOneFile,
+            mapModuleTwoFile,
+            enumKeyFile,
+            pathEnumFile,
+            HandlerFile,
+            LoginHandlerFile,
+            AdminHandlerFile,
+            componentFile)).
+        processedWith(new ComponentProcessor())
+            .compilesWithoutError()
+            .and().generatesSources(generatedComponent);
+  }
+
   @Test
   public void injectMapWithoutMapBinding() {
     JavaFileObject mapModuleFile = JavaFileObjects.forSourceLines("test.MapModule",
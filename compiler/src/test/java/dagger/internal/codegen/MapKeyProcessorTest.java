@@ -183,7 +183,7 @@ public class MapKeyProcessorTest {
         "    this.mapOfPathKeyAndProviderOfHandlerContribution2 =",
         "        MapModuleTwo_ProvideLoginHandlerFactory.create(builder.mapModuleTwo);",
         "    this.mapOfPathKeyAndProviderOfHandlerProvider =",
-        "        MapProviderFactory.<PathKey, Handler>builder(2)",
+        "        MapProviderFactory.<PathKey, Handler>compactBuilder(2)",
         "            .put(PathKeyCreator.create(PathEnum.ADMIN, \"AdminPath\"),",
         "                mapOfPathKeyAndProviderOfHandlerContribution1)",
         "            .put(PathKeyCreator.create(PathEnum.LOGIN, \"LoginPath\"),",
@@ -357,7 +357,7 @@ public class MapKeyProcessorTest {
         "    this.mapOfPathKeyAndProviderOfHandlerContribution2 =",
         "        MapModuleTwo_ProvideLoginHandlerFactory.create(builder.mapModuleTwo);",
         "    this.mapOfPathKeyAndProviderOfHandlerProvider =",
-        "        MapProviderFactory.<PathKey, Handler>builder(2)",
+        "        MapProviderFactory.<PathKey, Handler>compactBuilder(2)",
         "            .put(PathKeyCreator.create(PathEnum.ADMIN, \"DefaultPath\"),",
         "                mapOfPathKeyAndProviderOfHandlerContribution1)",
         "            .put(PathKeyCreator.create(PathEnum.LOGIN, \"LoginPath\"),",
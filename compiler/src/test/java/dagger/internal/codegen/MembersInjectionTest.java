@@ -353,7 +353,7 @@ public class MembersInjectionTest {
         "package test;",
         "",
         "import dagger.MembersInjector;",
-        "import dagger.internal.DoubleCheckLazy;",
+        "import dagger.internal.DoubleCheck;",
         "import javax.annotation.Generated;",
         "import javax.inject.Provider;",
         "",
@@ -373,7 +373,7 @@ public class MembersInjectionTest {
         "      throw new NullPointerException(\"Cannot inject members into a null reference\");",
         "    }",
         "    instance.string = stringProvider.get();",
-        "    instance.lazyString = DoubleCheckLazy.create(stringProvider);",
+        "    instance.lazyString = DoubleCheck.lazy(stringProvider);",
         "    instance.stringProvider = stringProvider;",
         "  }",
         "",
@@ -406,7 +406,7 @@ public class MembersInjectionTest {
         "package test;",
         "",
         "import dagger.MembersInjector;",
-        "import dagger.internal.DoubleCheckLazy;",
+        "import dagger.internal.DoubleCheck;",
         "import javax.annotation.Generated;",
         "import javax.inject.Provider;",
         "",
@@ -427,7 +427,7 @@ public class MembersInjectionTest {
         "    }",
         "    instance.noArgs();",
         "    instance.oneArg(stringProvider.get());",
-        "    instance.manyArgs(stringProvider.get(), DoubleCheckLazy.create(stringProvider),",
+        "    instance.manyArgs(stringProvider.get(), DoubleCheck.lazy(stringProvider),",
         "        stringProvider);",
         "  }",
         "",
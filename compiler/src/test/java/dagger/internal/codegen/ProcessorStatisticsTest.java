@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.internal.codegen;
+
+import com.google.common.collect.ImmutableList;
+import dagger.internal.codegen.ProcessorStatistics.ComponentRecord;
+import dagger.internal.codegen.ProcessorStatistics.Phase;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.processing.Filer;
+import javax.lang.model.element.Element;
+import javax.tools.FileObject;
+import javax.tools.JavaFileManager.Location;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public class ProcessorStatisticsTest {
+  @Test public void report() throws IOException {
+    ProcessorStatistics statistics = ProcessorStatistics.create(FeatureStatus.ENABLED);
+    statistics.start(Phase.SOURCE_FILE_WRITE).stop();
+    ComponentRecord component = statistics.startComponent("test.SimpleComponent");
+    component.start(Phase.BINDING_GRAPH).stop();
+    component.start(Phase.BINDING_GRAPH).stop();
+
+    StringBuilder report = new StringBuilder();
+    statistics.writeReport(report);
+    assertThat(report.toString()).contains("\"SourceFileGenerator\": {\"count\": 1,");
+    assertThat(report.toString()).contains("\"BindingGraph.Factory\": {\"count\": 2,");
+    assertThat(report.toString()).contains("\"name\": \"test.SimpleComponent\"");
+  }
+
+  @Test public void disabled() throws IOException {
+    ProcessorStatistics statistics = ProcessorStatistics.create(FeatureStatus.DISABLED);
+    statistics.start(Phase.SOURCE_FILE_WRITE).stop();
+    statistics.startComponent("test.SimpleComponent").start(Phase.BINDING_GRAPH).stop();
+
+    StringBuilder report = new StringBuilder();
+    statistics.writeReport(report);
+    assertThat(report.toString())
+        .isEqualTo("{\n  \"rounds\": 0,\n  \"steps\": {},\n  \"phases\": {},\n"
+            + "  \"components\": []\n}\n");
+  }
+
+  @Test public void endRound_writesReportOnceWorkRunsOut() throws IOException {
+    ProcessorStatistics statistics = ProcessorStatistics.create(FeatureStatus.ENABLED);
+    RecordingFiler filer = new RecordingFiler();
+    statistics.start(Phase.SOURCE_FILE_WRITE).stop();
+    statistics.endRound(filer);
+    assertThat(filer.resources).isEmpty();
+
+    statistics.endRound(filer);
+    assertThat(filer.resources).isEqualTo(ImmutableList.of(ProcessorStatistics.REPORT_NAME));
+    assertThat(filer.report.toString()).contains("\"rounds\": 2,");
+
+    statistics.start(Phase.SOURCE_FILE_WRITE).stop();
+    statistics.endRound(filer);
+    assertThat(filer.resources).isEqualTo(ImmutableList.of(ProcessorStatistics.REPORT_NAME));
+  }
+
+  /** A filer that only creates resources, and records their names and the last one's contents. */
+  private static final class RecordingFiler implements Filer {
+    final List<String> resources = new ArrayList<String>();
+    final StringWriter report = new StringWriter();
+
+    @Override public JavaFileObject createSourceFile(
+        CharSequence name, Element... originatingElements) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override public JavaFileObject createClassFile(
+        CharSequence name, Element... originatingElements) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override public FileObject createResource(Location location, CharSequence pkg,
+        CharSequence relativeName, Element... originatingElements) {
+      resources.add(relativeName.toString());
+      return new SimpleJavaFileObject(URI.create(relativeName.toString()), Kind.OTHER) {
+        @Override public Writer openWriter() {
+          return report;
+        }
+      };
+    }
+
+    @Override public FileObject getResource(
+        Location location, CharSequence pkg, CharSequence relativeName) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
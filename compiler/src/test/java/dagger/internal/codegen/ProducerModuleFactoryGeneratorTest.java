@@ -37,6 +37,7 @@ import static dagger.internal.codegen.ErrorMessages.PRODUCES_METHOD_RAW_FUTURE;
 import static dagger.internal.codegen.ErrorMessages.PRODUCES_METHOD_RETURN_TYPE;
 import static dagger.internal.codegen.ErrorMessages.PRODUCES_METHOD_SET_VALUES_RETURN_SET;
 import static dagger.internal.codegen.ErrorMessages.PROVIDES_OR_PRODUCES_METHOD_MULTIPLE_QUALIFIERS;
+import static org.junit.Assume.assumeTrue;
 
 @RunWith(JUnit4.class)
 public class ProducerModuleFactoryGeneratorTest {
@@ -465,8 +466,10 @@ public class ProducerModuleFactoryGeneratorTest {
         "",
         "import com.google.common.util.concurrent.Futures;",
         "import com.google.common.util.concurrent.ListenableFuture;",
+        "import dagger.producers.Deadline;",
         "import dagger.producers.internal.AbstractProducer;",
         "import dagger.producers.internal.Producers;",
+        "import dagger.producers.monitoring.ProductionComponentMonitor;",
         "import java.util.concurrent.Callable;",
         "import java.util.concurrent.Executor;",
         "import javax.annotation.Generated;",
@@ -476,7 +479,10 @@ public class ProducerModuleFactoryGeneratorTest {
         "  private final TestModule module;",
         "  private final Executor executor;",
         "",
-        "  public TestModule_ProduceStringFactory(TestModule module, Executor executor) {",
+        "  public TestModule_ProduceStringFactory(TestModule module, Executor executor,",
+        "      ProductionComponentMonitor monitor,",
+        "      Deadline deadline) {",
+        "    super(monitor, TestModule_ProduceStringFactory.class, deadline);",
         "    assert module != null;",
         "    this.module = module;",
         "    assert executor != null;",
@@ -487,9 +493,14 @@ public class ProducerModuleFactoryGeneratorTest {
         "    ListenableFuture<ListenableFuture<String>> future = Producers.submitToExecutor(",
         "      new Callable<ListenableFuture<String>>() {",
         "        @Override public ListenableFuture<String> call() {",
-        "          return module.produceString();",
+        "          methodStarting();",
+        "          try {",
+        "            return module.produceString();",
+        "          } finally {",
+        "            methodFinished();",
+        "          }",
         "        }",
-        "      }, executor);",
+        "      }, dispatchTo(executor));",
         "    return Futures.dereference(future);",
         "  }",
         "}");
@@ -519,8 +530,10 @@ public class ProducerModuleFactoryGeneratorTest {
         "",
         "import com.google.common.util.concurrent.Futures;",
         "import com.google.common.util.concurrent.ListenableFuture;",
+        "import dagger.producers.Deadline;",
         "import dagger.producers.internal.AbstractProducer;",
         "import dagger.producers.internal.Producers;",
+        "import dagger.producers.monitoring.ProductionComponentMonitor;",
         "import java.util.Set;",
         "import java.util.concurrent.Callable;",
         "import java.util.concurrent.Executor;",
@@ -532,7 +545,10 @@ public class ProducerModuleFactoryGeneratorTest {
         "  private final TestModule module;",
         "  private final Executor executor;",
         "",
-        "  public TestModule_ProduceStringFactory(TestModule module, Executor executor) {  ",
+        "  public TestModule_ProduceStringFactory(TestModule module, Executor executor,",
+        "      ProductionComponentMonitor monitor,",
+        "      Deadline deadline) {",
+        "    super(monitor, TestModule_ProduceStringFactory.class, deadline);",
         "    assert module != null;",
         "    this.module = module;",
         "    assert executor != null;",
@@ -544,9 +560,14 @@ public class ProducerModuleFactoryGeneratorTest {
         "    ListenableFuture<ListenableFuture<Set<String>>> future =",
         "        Producers.submitToExecutor(new Callable<ListenableFuture<Set<String>>>() {",
         "      @Override public ListenableFuture<Set<String>> call() {",
-        "        return Producers.createFutureSingletonSet(module.produceString());",
+        "        methodStarting();",
+        "        try {",
+        "          return Producers.createFutureSingletonSet(module.produceString());",
+        "        } finally {",
+        "          methodFinished();",
+        "        }",
         "      }",
-        "    }, executor);",
+        "    }, dispatchTo(executor));",
         "    return Futures.dereference(future);",
         "  }",
         "}");
@@ -573,8 +594,10 @@ public class ProducerModuleFactoryGeneratorTest {
         "package test;",
         "",
         "import com.google.common.util.concurrent.ListenableFuture;",
+        "import dagger.producers.Deadline;",
         "import dagger.producers.internal.AbstractProducer;",
         "import dagger.producers.internal.Producers;",
+        "import dagger.producers.monitoring.ProductionComponentMonitor;",
         "import java.util.concurrent.Callable;",
         "import java.util.concurrent.Executor;",
         "import javax.annotation.Generated;",
@@ -584,7 +607,10 @@ public class ProducerModuleFactoryGeneratorTest {
         "  private final TestModule module;",
         "  private final Executor executor;",
         "",
-        "  public TestModule_ProduceStringFactory(TestModule module, Executor executor) {",
+        "  public TestModule_ProduceStringFactory(TestModule module, Executor executor,",
+        "      ProductionComponentMonitor monitor,",
+        "      Deadline deadline) {",
+        "    super(monitor, TestModule_ProduceStringFactory.class, deadline);",
         "    assert module != null;",
         "    this.module = module;",
         "    assert executor != null;",
@@ -595,9 +621,14 @@ public class ProducerModuleFactoryGeneratorTest {
         "    ListenableFuture<String> future = Producers.submitToExecutor(",
         "      new Callable<String>() {",
         "        @Override public String call() {",
-        "          return module.produceString();",
+        "          methodStarting();",
+        "          try {",
+        "            return module.produceString();",
+        "          } finally {",
+        "            methodFinished();",
+        "          }",
         "        }",
-        "      }, executor);",
+        "      }, dispatchTo(executor));",
         "    return future;",
         "  }",
         "}");
@@ -626,8 +657,10 @@ public class ProducerModuleFactoryGeneratorTest {
         "",
         "import com.google.common.collect.ImmutableSet;",
         "import com.google.common.util.concurrent.ListenableFuture;",
+        "import dagger.producers.Deadline;",
         "import dagger.producers.internal.AbstractProducer;",
         "import dagger.producers.internal.Producers;",
+        "import dagger.producers.monitoring.ProductionComponentMonitor;",
         "import java.util.Set;",
         "import java.util.concurrent.Callable;",
         "import java.util.concurrent.Executor;",
@@ -639,7 +672,10 @@ public class ProducerModuleFactoryGeneratorTest {
         "  private final TestModule module;",
         "  private final Executor executor;",
         "",
-        "  public TestModule_ProduceStringFactory(TestModule module, Executor executor) {  ",
+        "  public TestModule_ProduceStringFactory(TestModule module, Executor executor,",
+        "      ProductionComponentMonitor monitor,",
+        "      Deadline deadline) {",
+        "    super(monitor, TestModule_ProduceStringFactory.class, deadline);",
         "    assert module != null;",
         "    this.module = module;",
         "    assert executor != null;",
@@ -651,9 +687,14 @@ public class ProducerModuleFactoryGeneratorTest {
         "    ListenableFuture<Set<String>> future =",
         "        Producers.submitToExecutor(new Callable<Set<String>>() {",
         "      @Override public Set<String> call() {",
-        "        return ImmutableSet.of(module.produceString());",
+        "        methodStarting();",
+        "        try {",
+        "          return ImmutableSet.of(module.produceString());",
+        "        } finally {",
+        "          methodFinished();",
+        "        }",
         "      }",
-        "    }, executor);",
+        "    }, dispatchTo(executor));",
         "    return future;",
         "  }",
         "}");
@@ -684,20 +725,22 @@ public class ProducerModuleFactoryGeneratorTest {
     JavaFileObject factoryFile = JavaFileObjects.forSourceLines("TestModule_ProduceStringFactory",
         "package test;",
         "",
-        "import com.google.common.util.concurrent.AsyncFunction;",
-        "import com.google.common.util.concurrent.Futures;",
         "import com.google.common.util.concurrent.ListenableFuture;",
+        "import dagger.producers.Deadline;",
         "import dagger.producers.Produced;",
         "import dagger.producers.Producer;",
         "import dagger.producers.internal.AbstractProducer;",
+        "import dagger.producers.internal.FutureCombiner;",
+        "import dagger.producers.internal.FutureCombiner.Callback2;",
         "import dagger.producers.internal.Producers;",
-        "import java.util.List;",
+        "import dagger.producers.monitoring.ProductionComponentMonitor;",
         "import java.util.concurrent.Executor;",
         "import javax.annotation.Generated;",
         "import javax.inject.Provider;",
         "",
         "@Generated(\"dagger.internal.codegen.ComponentProcessor\")",
-        "public final class TestModule_ProduceStringFactory extends AbstractProducer<String> {",
+        "public final class TestModule_ProduceStringFactory extends AbstractProducer<String>",
+        "    implements Callback2<Integer, Produced<Double>, String> {",
         "  private final TestModule module;",
         "  private final Executor executor;",
         "  private final Producer<Integer> aProducer;",
@@ -708,10 +751,13 @@ public class ProducerModuleFactoryGeneratorTest {
         "  public TestModule_ProduceStringFactory(",
         "      TestModule module,",
         "      Executor executor,",
+        "      ProductionComponentMonitor monitor,",
+        "      Deadline deadline,",
         "      Producer<Integer> aProducer,",
         "      Producer<Double> bProducer,",
         "      Producer<Object> cProducer,",
         "      Provider<Boolean> dProvider) {",
+        "    super(monitor, TestModule_ProduceStringFactory.class, deadline);",
         "    assert module != null;",
         "    this.module = module;",
         "    assert executor != null;",
@@ -730,18 +776,18 @@ public class ProducerModuleFactoryGeneratorTest {
         "    ListenableFuture<Integer> aProducerFuture = aProducer.get();",
         "    ListenableFuture<Produced<Double>> bProducerFuture =",
         "        Producers.createFutureProduced(bProducer.get());",
-        "    return Futures.transform(",
-        "        Futures.<Object>allAsList(aProducerFuture, bProducerFuture),",
-        "        new AsyncFunction<List<Object>, String>() {",
-        "          @SuppressWarnings(\"unchecked\")  // safe by specification",
-        "          @Override public ListenableFuture<String> apply(List<Object> args) {",
-        "            return module.produceString(",
-        "                (Integer) args.get(0),",
-        "                (Produced<Double>) args.get(1),",
-        "                cProducer,",
-        "                dProvider);",
-        "          }",
-        "        }, executor);",
+        "    return FutureCombiner.combine(",
+        "        aProducerFuture, bProducerFuture, this, dispatchTo(executor));",
+        "  }",
+        "",
+        "  @Override public ListenableFuture<String> combine(Integer a, Produced<Double> b)",
+        "      {",
+        "    methodStarting();",
+        "    try {",
+        "      return module.produceString(a, b, cProducer, dProvider);",
+        "    } finally {",
+        "      methodFinished();",
+        "    }",
         "  }",
         "}");
     assertAbout(javaSource()).that(moduleFile)
@@ -770,20 +816,23 @@ public class ProducerModuleFactoryGeneratorTest {
     JavaFileObject factoryFile = JavaFileObjects.forSourceLines("TestModule_ProduceStringFactory",
         "package test;",
         "",
-        "import com.google.common.util.concurrent.AsyncFunction;",
         "import com.google.common.util.concurrent.Futures;",
         "import com.google.common.util.concurrent.ListenableFuture;",
+        "import dagger.producers.Deadline;",
         "import dagger.producers.Produced;",
         "import dagger.producers.Producer;",
         "import dagger.producers.internal.AbstractProducer;",
+        "import dagger.producers.internal.FutureCombiner;",
+        "import dagger.producers.internal.FutureCombiner.Callback2;",
         "import dagger.producers.internal.Producers;",
-        "import java.util.List;",
+        "import dagger.producers.monitoring.ProductionComponentMonitor;",
         "import java.util.concurrent.Executor;",
         "import javax.annotation.Generated;",
         "import javax.inject.Provider;",
         "",
         "@Generated(\"dagger.internal.codegen.ComponentProcessor\")",
-        "public final class TestModule_ProduceStringFactory extends AbstractProducer<String> {",
+        "public final class TestModule_ProduceStringFactory extends AbstractProducer<String>",
+        "    implements Callback2<Integer, Produced<Double>, String> {",
         "  private final TestModule module;",
         "  private final Executor executor;",
         "  private final Producer<Integer> aProducer;",
@@ -794,10 +843,13 @@ public class ProducerModuleFactoryGeneratorTest {
         "  public TestModule_ProduceStringFactory(",
         "      TestModule module,",
         "      Executor executor,",
+        "      ProductionComponentMonitor monitor,",
+        "      Deadline deadline,",
         "      Producer<Integer> aProducer,",
         "      Producer<Double> bProducer,",
         "      Producer<Object> cProducer,",
         "      Provider<Boolean> dProvider) {",
+        "    super(monitor, TestModule_ProduceStringFactory.class, deadline);",
         "    assert module != null;",
         "    this.module = module;",
         "    assert executor != null;",
@@ -816,18 +868,127 @@ public class ProducerModuleFactoryGeneratorTest {
         "    ListenableFuture<Integer> aProducerFuture = aProducer.get();",
         "    ListenableFuture<Produced<Double>> bProducerFuture =",
         "        Producers.createFutureProduced(bProducer.get());",
-        "    return Futures.transform(",
-        "        Futures.<Object>allAsList(aProducerFuture, bProducerFuture),",
-        "        new AsyncFunction<List<Object>, String>() {",
-        "          @SuppressWarnings(\"unchecked\")  // safe by specification",
-        "          @Override public ListenableFuture<String> apply(List<Object> args) {",
-        "            return Futures.immediateFuture(module.produceString(",
-        "                (Integer) args.get(0),",
-        "                (Produced<Double>) args.get(1),",
-        "                cProducer,",
-        "                dProvider));",
-        "          }",
-        "        }, executor);",
+        "    return FutureCombiner.combine(",
+        "        aProducerFuture, bProducerFuture, this, dispatchTo(executor));",
+        "  }",
+        "",
+        "  @Override public ListenableFuture<String> combine(Integer a, Produced<Double> b)",
+        "      {",
+        "    methodStarting();",
+        "    try {",
+        "      return Futures.immediateFuture(module.produceString(a, b, cProducer, dProvider));",
+        "    } finally {",
+        "      methodFinished();",
+        "    }",
+        "  }",
+        "}");
+    assertAbout(javaSource()).that(moduleFile)
+        .processedWith(new ComponentProcessor())
+        .compilesWithoutError()
+        .and().generatesSources(factoryFile);
+  }
+
+  @Test public void singleProducesMethodManyArgs() {
+    JavaFileObject moduleFile = JavaFileObjects.forSourceLines("test.TestModule",
+        "package test;",
+        "",
+        "import dagger.producers.Produced;",
+        "import dagger.producers.ProducerModule;",
+        "import dagger.producers.Produces;",
+        "",
+        "@ProducerModule",
+        "final class TestModule {",
+        "  @Produces String produceString(",
+        "      int a, long b, double c, float d, short e, Produced<Byte> f) {",
+        "    return \"\";",
+        "  }",
+        "}");
+    JavaFileObject factoryFile = JavaFileObjects.forSourceLines("TestModule_ProduceStringFactory",
+        "package test;",
+        "",
+        "import com.google.common.util.concurrent.Futures;",
+        "import com.google.common.util.concurrent.ListenableFuture;",
+        "import dagger.producers.Deadline;",
+        "import dagger.producers.Produced;",
+        "import dagger.producers.Producer;",
+        "import dagger.producers.internal.AbstractProducer;",
+        "import dagger.producers.internal.FutureCombiner;",
+        "import dagger.producers.internal.FutureCombiner.CallbackN;",
+        "import dagger.producers.internal.Producers;",
+        "import dagger.producers.monitoring.ProductionComponentMonitor;",
+        "import java.util.concurrent.Executor;",
+        "import javax.annotation.Generated;",
+        "",
+        "@Generated(\"dagger.internal.codegen.ComponentProcessor\")",
+        "public final class TestModule_ProduceStringFactory extends AbstractProducer<String>",
+        "    implements CallbackN<String> {",
+        "  private final TestModule module;",
+        "  private final Executor executor;",
+        "  private final Producer<Integer> aProducer;",
+        "  private final Producer<Long> bProducer;",
+        "  private final Producer<Double> cProducer;",
+        "  private final Producer<Float> dProducer;",
+        "  private final Producer<Short> eProducer;",
+        "  private final Producer<Byte> fProducer;",
+        "",
+        "  public TestModule_ProduceStringFactory(",
+        "      TestModule module,",
+        "      Executor executor,",
+        "      ProductionComponentMonitor monitor,",
+        "      Deadline deadline,",
+        "      Producer<Integer> aProducer,",
+        "      Producer<Long> bProducer,",
+        "      Producer<Double> cProducer,",
+        "      Producer<Float> dProducer,",
+        "      Producer<Short> eProducer,",
+        "      Producer<Byte> fProducer) {",
+        "    super(monitor, TestModule_ProduceStringFactory.class, deadline);",
+        "    assert module != null;",
+        "    this.module = module;",
+        "    assert executor != null;",
+        "    this.executor = executor;",
+        "    assert aProducer != null;",
+        "    this.aProducer = aProducer;",
+        "    assert bProducer != null;",
+        "    this.bProducer = bProducer;",
+        "    assert cProducer != null;",
+        "    this.cProducer = cProducer;",
+        "    assert dProducer != null;",
+        "    this.dProducer = dProducer;",
+        "    assert eProducer != null;",
+        "    this.eProducer = eProducer;",
+        "    assert fProducer != null;",
+        "    this.fProducer = fProducer;",
+        "  }",
+        "",
+        "  @Override protected ListenableFuture<String> compute() {",
+        "    ListenableFuture<Integer> aProducerFuture = aProducer.get();",
+        "    ListenableFuture<Long> bProducerFuture = bProducer.get();",
+        "    ListenableFuture<Double> cProducerFuture = cProducer.get();",
+        "    ListenableFuture<Float> dProducerFuture = dProducer.get();",
+        "    ListenableFuture<Short> eProducerFuture = eProducer.get();",
+        "    ListenableFuture<Produced<Byte>> fProducerFuture =",
+        "        Producers.createFutureProduced(fProducer.get());",
+        "    return FutureCombiner.combine(this, dispatchTo(executor),",
+        "        aProducerFuture, bProducerFuture, cProducerFuture, dProducerFuture,",
+        "        eProducerFuture, fProducerFuture);",
+        "  }",
+        "",
+        "  @Override",
+        "  @SuppressWarnings(\"unchecked\")",
+        "  public ListenableFuture<String> combine(Object[] values) {",
+        "    methodStarting();",
+        "    try {",
+        "      return Futures.immediateFuture(module.produceString(",
+        "          (Integer) values[0],",
+        "          (Long) values[1],",
+        "          (Double) values[2],",
+        "          (Float) values[3],",
+        "          (Short) values[4],",
+        "          (Produced<Byte>) values[5]));",
+        "    } finally {",
+        "      methodFinished();",
+        "    }",
         "  }",
         "}");
     assertAbout(javaSource()).that(moduleFile)
@@ -853,16 +1014,175 @@ public class ProducerModuleFactoryGeneratorTest {
     JavaFileObject factoryFile = JavaFileObjects.forSourceLines("TestModule_ProduceStringFactory",
         "package test;",
         "",
-        "import com.google.common.util.concurrent.AsyncFunction;",
+        "import com.google.common.util.concurrent.ListenableFuture;",
+        "import dagger.producers.Deadline;",
+        "import dagger.producers.Producer;",
+        "import dagger.producers.internal.AbstractProducer;",
+        "import dagger.producers.internal.FutureCombiner;",
+        "import dagger.producers.internal.FutureCombiner.Callback1;",
+        "import dagger.producers.monitoring.ProductionComponentMonitor;",
+        "import java.util.concurrent.Executor;",
+        "import javax.annotation.Generated;",
+        "",
+        "@Generated(\"dagger.internal.codegen.ComponentProcessor\")",
+        "public final class TestModule_ProduceStringFactory extends AbstractProducer<String>",
+        "    implements Callback1<Integer, String> {",
+        "  private final TestModule module;",
+        "  private final Executor executor;",
+        "  private final Producer<Integer> aProducer;",
+        "",
+        "  public TestModule_ProduceStringFactory(",
+        "      TestModule module,",
+        "      Executor executor,",
+        "      ProductionComponentMonitor monitor,",
+        "      Deadline deadline,",
+        "      Producer<Integer> aProducer) {",
+        "    super(monitor, TestModule_ProduceStringFactory.class, deadline);",
+        "    assert module != null;",
+        "    this.module = module;",
+        "    assert executor != null;",
+        "    this.executor = executor;",
+        "    assert aProducer != null;",
+        "    this.aProducer = aProducer;",
+        "  }",
+        "",
+        "  @Override protected ListenableFuture<String> compute() {",
+        "    ListenableFuture<Integer> aProducerFuture = aProducer.get();",
+        "    return FutureCombiner.combine(aProducerFuture, this, dispatchTo(executor));",
+        "  }",
+        "",
+        "  @Override public ListenableFuture<String> combine(Integer a) {",
+        "    methodStarting();",
+        "    try {",
+        "      return module.produceString(a);",
+        "    } finally {",
+        "      methodFinished();",
+        "    }",
+        "  }",
+        "}");
+    assertAbout(javaSource()).that(moduleFile)
+        .processedWith(new ComponentProcessor())
+        .compilesWithoutError()
+        .and().generatesSources(factoryFile);
+  }
+
+  @Test public void singleProducesMethodSingleArgCompletionStage() {
+    assumeTrue(hasCompletionStage());
+    JavaFileObject moduleFile = JavaFileObjects.forSourceLines("test.TestModule",
+        "package test;",
+        "",
+        "import dagger.producers.ProducerModule;",
+        "import dagger.producers.Produces;",
+        "import java.util.concurrent.CompletionStage;",
+        "",
+        "@ProducerModule",
+        "final class TestModule {",
+        "  @Produces CompletionStage<String> produceString(int a) {",
+        "    return null;",
+        "  }",
+        "}");
+    JavaFileObject factoryFile = JavaFileObjects.forSourceLines("TestModule_ProduceStringFactory",
+        "package test;",
+        "",
+        "import com.google.common.util.concurrent.ListenableFuture;",
+        "import dagger.producers.Deadline;",
+        "import dagger.producers.Producer;",
+        "import dagger.producers.internal.AbstractProducer;",
+        "import dagger.producers.internal.CompletionStageFuture;",
+        "import dagger.producers.internal.FutureCombiner;",
+        "import dagger.producers.internal.FutureCombiner.Callback1;",
+        "import dagger.producers.monitoring.ProductionComponentMonitor;",
+        "import java.util.concurrent.CompletionStage;",
+        "import java.util.concurrent.Executor;",
+        "import java.util.function.BiConsumer;",
+        "import javax.annotation.Generated;",
+        "",
+        "@Generated(\"dagger.internal.codegen.ComponentProcessor\")",
+        "public final class TestModule_ProduceStringFactory extends AbstractProducer<String>",
+        "    implements Callback1<Integer, String> {",
+        "  private final TestModule module;",
+        "  private final Executor executor;",
+        "  private final Producer<Integer> aProducer;",
+        "",
+        "  public TestModule_ProduceStringFactory(",
+        "      TestModule module,",
+        "      Executor executor,",
+        "      ProductionComponentMonitor monitor,",
+        "      Deadline deadline,",
+        "      Producer<Integer> aProducer) {",
+        "    super(monitor, TestModule_ProduceStringFactory.class, deadline);",
+        "    assert module != null;",
+        "    this.module = module;",
+        "    assert executor != null;",
+        "    this.executor = executor;",
+        "    assert aProducer != null;",
+        "    this.aProducer = aProducer;",
+        "  }",
+        "",
+        "  @Override protected ListenableFuture<String> compute() {",
+        "    ListenableFuture<Integer> aProducerFuture = aProducer.get();",
+        "    return FutureCombiner.combine(aProducerFuture, this, dispatchTo(executor));",
+        "  }",
+        "",
+        "  @Override public ListenableFuture<String> combine(Integer a) {",
+        "    methodStarting();",
+        "    try {",
+        "      return StageFuture.of(module.produceString(a));",
+        "    } finally {",
+        "      methodFinished();",
+        "    }",
+        "  }",
+        "",
+        "  private static final class StageFuture extends CompletionStageFuture<String>",
+        "      implements BiConsumer<String, Throwable> {",
+        "    static ListenableFuture<String> of(CompletionStage<String> stage) {",
+        "      StageFuture future = new StageFuture();",
+        "      stage.whenComplete(future);",
+        "      return future;",
+        "    }",
+        "",
+        "    @Override public void accept(String value, Throwable failure) {",
+        "      complete(value, failure);",
+        "    }",
+        "  }",
+        "}");
+    assertAbout(javaSource()).that(moduleFile)
+        .processedWith(new ComponentProcessor())
+        .compilesWithoutError()
+        .and().generatesSources(factoryFile);
+  }
+
+  @Test public void singleProducesMethodSingleArgInline() {
+    JavaFileObject moduleFile = JavaFileObjects.forSourceLines("test.TestModule",
+        "package test;",
+        "",
+        "import dagger.producers.ProducerModule;",
+        "import dagger.producers.Produces;",
+        "",
+        "@ProducerModule",
+        "final class TestModule {",
+        "  @Produces(inline = true) String produceString(int a) {",
+        "    return null;",
+        "  }",
+        "}");
+    JavaFileObject factoryFile = JavaFileObjects.forSourceLines("TestModule_ProduceStringFactory",
+        "package test;",
+        "",
         "import com.google.common.util.concurrent.Futures;",
         "import com.google.common.util.concurrent.ListenableFuture;",
+        "import com.google.common.util.concurrent.MoreExecutors;",
+        "import dagger.producers.Deadline;",
         "import dagger.producers.Producer;",
         "import dagger.producers.internal.AbstractProducer;",
+        "import dagger.producers.internal.FutureCombiner;",
+        "import dagger.producers.internal.FutureCombiner.Callback1;",
+        "import dagger.producers.monitoring.ProductionComponentMonitor;",
         "import java.util.concurrent.Executor;",
         "import javax.annotation.Generated;",
         "",
         "@Generated(\"dagger.internal.codegen.ComponentProcessor\")",
-        "public final class TestModule_ProduceStringFactory extends AbstractProducer<String> {",
+        "public final class TestModule_ProduceStringFactory extends AbstractProducer<String>",
+        "    implements Callback1<Integer, String> {",
         "  private final TestModule module;",
         "  private final Executor executor;",
         "  private final Producer<Integer> aProducer;",
@@ -870,7 +1190,10 @@ public class ProducerModuleFactoryGeneratorTest {
         "  public TestModule_ProduceStringFactory(",
         "      TestModule module,",
         "      Executor executor,",
+        "      ProductionComponentMonitor monitor,",
+        "      Deadline deadline,",
         "      Producer<Integer> aProducer) {",
+        "    super(monitor, TestModule_ProduceStringFactory.class, deadline);",
         "    assert module != null;",
         "    this.module = module;",
         "    assert executor != null;",
@@ -881,12 +1204,79 @@ public class ProducerModuleFactoryGeneratorTest {
         "",
         "  @Override protected ListenableFuture<String> compute() {",
         "    ListenableFuture<Integer> aProducerFuture = aProducer.get();",
-        "    return Futures.transform(aProducerFuture,",
-        "        new AsyncFunction<Integer, String>() {",
-        "          @Override public ListenableFuture<String> apply(Integer a) {",
-        "            return module.produceString(a);",
+        "    return FutureCombiner.combine(",
+        "        aProducerFuture, this, dispatchTo(MoreExecutors.directExecutor()));",
+        "  }",
+        "",
+        "  @Override public ListenableFuture<String> combine(Integer a) {",
+        "    methodStarting();",
+        "    try {",
+        "      return Futures.immediateFuture(module.produceString(a));",
+        "    } finally {",
+        "      methodFinished();",
+        "    }",
+        "  }",
+        "}");
+    assertAbout(javaSource()).that(moduleFile)
+        .processedWith(new ComponentProcessor())
+        .compilesWithoutError()
+        .and().generatesSources(factoryFile);
+  }
+
+  @Test public void singleProducesMethodNoArgsInline() {
+    JavaFileObject moduleFile = JavaFileObjects.forSourceLines("test.TestModule",
+        "package test;",
+        "",
+        "import dagger.producers.ProducerModule;",
+        "import dagger.producers.Produces;",
+        "",
+        "@ProducerModule",
+        "final class TestModule {",
+        "  @Produces(inline = true) String produceString() {",
+        "    return \"\";",
+        "  }",
+        "}");
+    JavaFileObject factoryFile = JavaFileObjects.forSourceLines("TestModule_ProduceStringFactory",
+        "package test;",
+        "",
+        "import com.google.common.util.concurrent.ListenableFuture;",
+        "import com.google.common.util.concurrent.MoreExecutors;",
+        "import dagger.producers.Deadline;",
+        "import dagger.producers.internal.AbstractProducer;",
+        "import dagger.producers.internal.Producers;",
+        "import dagger.producers.monitoring.ProductionComponentMonitor;",
+        "import java.util.concurrent.Callable;",
+        "import java.util.concurrent.Executor;",
+        "import javax.annotation.Generated;",
+        "",
+        "@Generated(\"dagger.internal.codegen.ComponentProcessor\")",
+        "public final class TestModule_ProduceStringFactory extends AbstractProducer<String> {",
+        "  private final TestModule module;",
+        "  private final Executor executor;",
+        "",
+        "  public TestModule_ProduceStringFactory(TestModule module, Executor executor,",
+        "      ProductionComponentMonitor monitor,",
+        "      Deadline deadline) {",
+        "    super(monitor, TestModule_ProduceStringFactory.class, deadline);",
+        "    assert module != null;",
+        "    this.module = module;",
+        "    assert executor != null;",
+        "    this.executor = executor;",
+        "  }",
+        "",
+        "  @Override protected ListenableFuture<String> compute() {",
+        "    ListenableFuture<String> future = Producers.submitToExecutor(",
+        "      new Callable<String>() {",
+        "        @Override public String call() {",
+        "          methodStarting();",
+        "          try {",
+        "            return module.produceString();",
+        "          } finally {",
+        "            methodFinished();",
         "          }",
-        "        }, executor);",
+        "        }",
+        "      }, dispatchTo(MoreExecutors.directExecutor()));",
+        "    return future;",
         "  }",
         "}");
     assertAbout(javaSource()).that(moduleFile)
@@ -916,8 +1306,10 @@ public class ProducerModuleFactoryGeneratorTest {
         "",
         "import com.google.common.util.concurrent.Futures;",
         "import com.google.common.util.concurrent.ListenableFuture;",
+        "import dagger.producers.Deadline;",
         "import dagger.producers.internal.AbstractProducer;",
         "import dagger.producers.internal.Producers;",
+        "import dagger.producers.monitoring.ProductionComponentMonitor;",
         "import java.io.IOException;",
         "import java.util.concurrent.Callable;",
         "import java.util.concurrent.Executor;",
@@ -928,7 +1320,10 @@ public class ProducerModuleFactoryGeneratorTest {
         "  private final TestModule module;",
         "  private final Executor executor;",
         "",
-        "  public TestModule_ProduceStringFactory(TestModule module, Executor executor) {",
+        "  public TestModule_ProduceStringFactory(TestModule module, Executor executor,",
+        "      ProductionComponentMonitor monitor,",
+        "      Deadline deadline) {",
+        "    super(monitor, TestModule_ProduceStringFactory.class, deadline);",
         "    assert module != null;",
         "    this.module = module;",
         "    assert executor != null;",
@@ -940,9 +1335,14 @@ public class ProducerModuleFactoryGeneratorTest {
         "      new Callable<ListenableFuture<String>>() {",
         "        @Override public ListenableFuture<String> call()",
         "            throws InterruptedException, IOException {",
-        "          return module.produceString();",
+        "          methodStarting();",
+        "          try {",
+        "            return module.produceString();",
+        "          } finally {",
+        "            methodFinished();",
+        "          }",
         "        }",
-        "      }, executor);",
+        "      }, dispatchTo(executor));",
         "    return Futures.dereference(future);",
         "  }",
         "}");
@@ -970,8 +1370,10 @@ public class ProducerModuleFactoryGeneratorTest {
         "package test;",
         "",
         "import com.google.common.util.concurrent.ListenableFuture;",
+        "import dagger.producers.Deadline;",
         "import dagger.producers.internal.AbstractProducer;",
         "import dagger.producers.internal.Producers;",
+        "import dagger.producers.monitoring.ProductionComponentMonitor;",
         "import java.io.IOException;",
         "import java.util.concurrent.Callable;",
         "import java.util.concurrent.Executor;",
@@ -982,7 +1384,10 @@ public class ProducerModuleFactoryGeneratorTest {
         "  private final TestModule module;",
         "  private final Executor executor;",
         "",
-        "  public TestModule_ProduceStringFactory(TestModule module, Executor executor) {",
+        "  public TestModule_ProduceStringFactory(TestModule module, Executor executor,",
+        "      ProductionComponentMonitor monitor,",
+        "      Deadline deadline) {",
+        "    super(monitor, TestModule_ProduceStringFactory.class, deadline);",
         "    assert module != null;",
         "    this.module = module;",
         "    assert executor != null;",
@@ -993,9 +1398,14 @@ public class ProducerModuleFactoryGeneratorTest {
         "    ListenableFuture<String> future = Producers.submitToExecutor(",
         "      new Callable<String>() {",
         "        @Override public String call() throws IOException {",
-        "          return module.produceString();",
+        "          methodStarting();",
+        "          try {",
+        "            return module.produceString();",
+        "          } finally {",
+        "            methodFinished();",
+        "          }",
         "        }",
-        "      }, executor);",
+        "      }, dispatchTo(executor));",
         "    return future;",
         "  }",
         "}");
@@ -1028,21 +1438,23 @@ public class ProducerModuleFactoryGeneratorTest {
     JavaFileObject factoryFile = JavaFileObjects.forSourceLines("TestModule_ProduceStringFactory",
         "package test;",
         "",
-        "import com.google.common.util.concurrent.AsyncFunction;",
-        "import com.google.common.util.concurrent.Futures;",
         "import com.google.common.util.concurrent.ListenableFuture;",
+        "import dagger.producers.Deadline;",
         "import dagger.producers.Produced;",
         "import dagger.producers.Producer;",
         "import dagger.producers.internal.AbstractProducer;",
+        "import dagger.producers.internal.FutureCombiner;",
+        "import dagger.producers.internal.FutureCombiner.Callback2;",
         "import dagger.producers.internal.Producers;",
+        "import dagger.producers.monitoring.ProductionComponentMonitor;",
         "import java.io.IOException;",
-        "import java.util.List;",
         "import java.util.concurrent.Executor;",
         "import javax.annotation.Generated;",
         "import javax.inject.Provider;",
         "",
         "@Generated(\"dagger.internal.codegen.ComponentProcessor\")",
-        "public final class TestModule_ProduceStringFactory extends AbstractProducer<String> {",
+        "public final class TestModule_ProduceStringFactory extends AbstractProducer<String>",
+        "    implements Callback2<Integer, Produced<Double>, String> {",
         "  private final TestModule module;",
         "  private final Executor executor;",
         "  private final Producer<Integer> aProducer;",
@@ -1053,10 +1465,13 @@ public class ProducerModuleFactoryGeneratorTest {
         "  public TestModule_ProduceStringFactory(",
         "      TestModule module,",
         "      Executor executor,",
+        "      ProductionComponentMonitor monitor,",
+        "      Deadline deadline,",
         "      Producer<Integer> aProducer,",
         "      Producer<Double> bProducer,",
         "      Producer<Object> cProducer,",
         "      Provider<Boolean> dProvider) {",
+        "    super(monitor, TestModule_ProduceStringFactory.class, deadline);",
         "    assert module != null;",
         "    this.module = module;",
         "    assert executor != null;",
@@ -1075,19 +1490,18 @@ public class ProducerModuleFactoryGeneratorTest {
         "    ListenableFuture<Integer> aProducerFuture = aProducer.get();",
         "    ListenableFuture<Produced<Double>> bProducerFuture =",
         "        Producers.createFutureProduced(bProducer.get());",
-        "    return Futures.transform(",
-        "        Futures.<Object>allAsList(aProducerFuture, bProducerFuture),",
-        "        new AsyncFunction<List<Object>, String>() {",
-        "          @SuppressWarnings(\"unchecked\")  // safe by specification",
-        "          @Override public ListenableFuture<String> apply(List<Object> args)",
-        "              throws IOException {",
-        "            return module.produceString(",
-        "                (Integer) args.get(0),",
-        "                (Produced<Double>) args.get(1),",
-        "                cProducer,",
-        "                dProvider);",
-        "          }",
-        "        }, executor);",
+        "    return FutureCombiner.combine(",
+        "        aProducerFuture, bProducerFuture, this, dispatchTo(executor));",
+        "  }",
+        "",
+        "  @Override public ListenableFuture<String> combine(Integer a, Produced<Double> b)",
+        "      throws IOException {",
+        "    methodStarting();",
+        "    try {",
+        "      return module.produceString(a, b, cProducer, dProvider);",
+        "    } finally {",
+        "      methodFinished();",
+        "    }",
         "  }",
         "}");
     assertAbout(javaSource()).that(moduleFile)
@@ -1117,8 +1531,10 @@ public class ProducerModuleFactoryGeneratorTest {
         "",
         "import com.google.common.util.concurrent.Futures;",
         "import com.google.common.util.concurrent.ListenableFuture;",
+        "import dagger.producers.Deadline;",
         "import dagger.producers.internal.AbstractProducer;",
         "import dagger.producers.internal.Producers;",
+        "import dagger.producers.monitoring.ProductionComponentMonitor;",
         "import java.io.IOException;",
         "import java.util.Set;",
         "import java.util.concurrent.Callable;",
@@ -1131,7 +1547,10 @@ public class ProducerModuleFactoryGeneratorTest {
         "  private final TestModule module;",
         "  private final Executor executor;",
         "",
-        "  public TestModule_ProduceStringFactory(TestModule module, Executor executor) {  ",
+        "  public TestModule_ProduceStringFactory(TestModule module, Executor executor,",
+        "      ProductionComponentMonitor monitor,",
+        "      Deadline deadline) {",
+        "    super(monitor, TestModule_ProduceStringFactory.class, deadline);",
         "    assert module != null;",
         "    this.module = module;",
         "    assert executor != null;",
@@ -1143,9 +1562,14 @@ public class ProducerModuleFactoryGeneratorTest {
         "    ListenableFuture<ListenableFuture<Set<String>>> future =",
         "        Producers.submitToExecutor(new Callable<ListenableFuture<Set<String>>>() {",
         "      @Override public ListenableFuture<Set<String>> call() throws IOException {",
-        "        return Producers.createFutureSingletonSet(module.produceString());",
+        "        methodStarting();",
+        "        try {",
+        "          return Producers.createFutureSingletonSet(module.produceString());",
+        "        } finally {",
+        "          methodFinished();",
+        "        }",
         "      }",
-        "    }, executor);",
+        "    }, dispatchTo(executor));",
         "    return Futures.dereference(future);",
         "  }",
         "}");
@@ -1188,4 +1612,14 @@ public class ProducerModuleFactoryGeneratorTest {
         .failsToCompile()
         .withErrorContaining(PROVIDES_OR_PRODUCES_METHOD_MULTIPLE_QUALIFIERS);
   }
+
+  /** Returns true if the compiler running these tests knows about Java 8 futures. */
+  static boolean hasCompletionStage() {
+    try {
+      Class.forName("java.util.concurrent.CompletionStage");
+      return true;
+    } catch (ClassNotFoundException e) {
+      return false;
+    }
+  }
 }
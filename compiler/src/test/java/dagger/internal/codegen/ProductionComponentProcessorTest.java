@@ -23,6 +23,7 @@ import org.junit.runners.JUnit4;
 
 import static com.google.common.truth.Truth.assertAbout;
 import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+import static org.junit.Assume.assumeTrue;
 
 @RunWith(JUnit4.class)
 public class ProductionComponentProcessorTest {
@@ -84,6 +85,23 @@ public class ProductionComponentProcessorTest {
         .withErrorContaining("is not annotated with @Module or @ProducerModule");
   }
 
+  @Test public void resetMethod() {
+    JavaFileObject componentFile = JavaFileObjects.forSourceLines("test.TestComponent",
+        "package test;",
+        "",
+        "import com.google.common.util.concurrent.ListenableFuture;",
+        "import dagger.producers.ProductionComponent;",
+        "",
+        "@ProductionComponent",
+        "interface TestComponent {",
+        "  ListenableFuture<String> reset();",
+        "}");
+    assertAbout(javaSource()).that(componentFile)
+        .processedWith(new ComponentProcessor())
+        .failsToCompile()
+        .withErrorContaining("may not declare reset()");
+  }
+
   @Test public void simpleComponent() {
     JavaFileObject component = JavaFileObjects.forSourceLines("test.TestClass",
         "package test;",
@@ -128,8 +146,11 @@ public class ProductionComponentProcessorTest {
         "package test;",
         "",
         "import com.google.common.util.concurrent.ListenableFuture;",
+        "import dagger.producers.Deadline;",
         "import dagger.producers.Producer;",
         "import dagger.producers.internal.Producers;",
+        "import dagger.producers.internal.ResettableComponent;",
+        "import dagger.producers.monitoring.ProductionComponentMonitor;",
         "import java.util.concurrent.Executor;",
         "import javax.annotation.Generated;",
         "import javax.inject.Provider;",
@@ -140,7 +161,8 @@ public class ProductionComponentProcessorTest {
         "import test.TestClass.SimpleComponent;",
         "",
         "@Generated(\"dagger.internal.codegen.ComponentProcessor\")",
-        "public final class DaggerTestClass_SimpleComponent implements SimpleComponent {",
+        "public final class DaggerTestClass_SimpleComponent",
+        "    implements SimpleComponent, ResettableComponent {",
         "  private Provider<B> bProvider;",
         "  private Producer<A> aProducer;",
         "",
@@ -157,7 +179,11 @@ public class ProductionComponentProcessorTest {
         "    this.bProvider = TestClass$BModule_BFactory.create(",
         "        builder.bModule, TestClass$C_Factory.create());",
         "    this.aProducer = new TestClass$AModule_AFactory(",
-        "        builder.aModule, builder.executor, Producers.producerFromProvider(bProvider));",
+        "        builder.aModule,",
+        "        Producers.withPriority(builder.executor, 1),",
+        "        builder.productionComponentMonitor,",
+        "        builder.deadline,",
+        "        Producers.producerFromProvider(bProvider));",
         "  }",
         "",
         "  @Override",
@@ -165,10 +191,17 @@ public class ProductionComponentProcessorTest {
         "    return aProducer.get();",
         "  }",
         "",
+        "  @Override",
+        "  public void reset(Deadline deadline) {",
+        "    Producers.reset(aProducer, deadline);",
+        "  }",
+        "",
         "  public static final class Builder {",
         "    private AModule aModule;",
         "    private BModule bModule;",
         "    private Executor executor;",
+        "    private ProductionComponentMonitor productionComponentMonitor;",
+        "    private Deadline deadline;",
         "",
         "    private Builder() {",
         "    }",
@@ -183,6 +216,12 @@ public class ProductionComponentProcessorTest {
         "      if (executor == null) {",
         "        throw new IllegalStateException(\"executor must be set\");",
         "      }",
+        "      if (productionComponentMonitor == null) {",
+        "        this.productionComponentMonitor = ProductionComponentMonitor.noOp();",
+        "      }",
+        "      if (deadline == null) {",
+        "        this.deadline = Deadline.none();",
+        "      }",
         "      return new DaggerTestClass_SimpleComponent(this);",
         "    }",
         "",
@@ -209,6 +248,202 @@ public class ProductionComponentProcessorTest {
         "      this.executor = executor;",
         "      return this;",
         "    }",
+        "",
+        "    public Builder productionComponentMonitor(",
+        "        ProductionComponentMonitor productionComponentMonitor) {",
+        "      if (productionComponentMonitor == null) {",
+        "        throw new NullPointerException(\"productionComponentMonitor\");",
+        "      }",
+        "      this.productionComponentMonitor = productionComponentMonitor;",
+        "      return this;",
+        "    }",
+        "",
+        "    public Builder deadline(Deadline deadline) {",
+        "      if (deadline == null) {",
+        "        throw new NullPointerException(\"deadline\");",
+        "      }",
+        "      this.deadline = deadline;",
+        "      return this;",
+        "    }",
+        "  }",
+        "}");
+    assertAbout(javaSource()).that(component)
+        .processedWith(new ComponentProcessor())
+        .compilesWithoutError()
+        .and().generatesSources(generatedComponent);
+  }
+
+  @Test public void producerPriorities() {
+    JavaFileObject component = JavaFileObjects.forSourceLines("test.TestClass",
+        "package test;",
+        "",
+        "import com.google.common.util.concurrent.ListenableFuture;",
+        "import dagger.producers.ProducerModule;",
+        "import dagger.producers.Produces;",
+        "import dagger.producers.ProductionComponent;",
+        "",
+        "final class TestClass {",
+        "  interface A {}",
+        "  interface B {}",
+        "  interface C {}",
+        "  interface D {}",
+        "",
+        "  @ProducerModule",
+        "  static final class TestModule {",
+        "    @Produces A a(B b, D d) {",
+        "      return null;",
+        "    }",
+        "",
+        "    @Produces B b(C c) {",
+        "      return null;",
+        "    }",
+        "",
+        "    @Produces C c() {",
+        "      return null;",
+        "    }",
+        "",
+        "    @Produces D d() {",
+        "      return null;",
+        "    }",
+        "  }",
+        "",
+        "  @ProductionComponent(modules = TestModule.class)",
+        "  interface PriorityComponent {",
+        "    ListenableFuture<A> a();",
+        "  }",
+        "}");
+    JavaFileObject generatedComponent = JavaFileObjects.forSourceLines(
+        "test.DaggerTestClass_PriorityComponent",
+        "package test;",
+        "",
+        "import com.google.common.util.concurrent.ListenableFuture;",
+        "import dagger.producers.Deadline;",
+        "import dagger.producers.Producer;",
+        "import dagger.producers.internal.Producers;",
+        "import dagger.producers.internal.ResettableComponent;",
+        "import dagger.producers.monitoring.ProductionComponentMonitor;",
+        "import java.util.concurrent.Executor;",
+        "import javax.annotation.Generated;",
+        "import test.TestClass.A;",
+        "import test.TestClass.B;",
+        "import test.TestClass.C;",
+        "import test.TestClass.D;",
+        "import test.TestClass.PriorityComponent;",
+        "import test.TestClass.TestModule;",
+        "",
+        "@Generated(\"dagger.internal.codegen.ComponentProcessor\")",
+        "public final class DaggerTestClass_PriorityComponent",
+        "    implements PriorityComponent, ResettableComponent {",
+        "  private Producer<C> cProducer;",
+        "  private Producer<B> bProducer;",
+        "  private Producer<D> dProducer;",
+        "  private Producer<A> aProducer;",
+        "",
+        "  private DaggerTestClass_PriorityComponent(Builder builder) {",
+        "    assert builder != null;",
+        "    initialize(builder);",
+        "  }",
+        "",
+        "  public static Builder builder() {",
+        "    return new Builder();",
+        "  }",
+        "",
+        "  private void initialize(final Builder builder) {",
+        "    this.cProducer = new TestClass$TestModule_CFactory(",
+        "        builder.testModule,",
+        "        Producers.withPriority(builder.executor, 3),",
+        "        builder.productionComponentMonitor,",
+        "        builder.deadline);",
+        "    this.bProducer = new TestClass$TestModule_BFactory(",
+        "        builder.testModule,",
+        "        Producers.withPriority(builder.executor, 2),",
+        "        builder.productionComponentMonitor,",
+        "        builder.deadline,",
+        "        cProducer);",
+        "    this.dProducer = new TestClass$TestModule_DFactory(",
+        "        builder.testModule,",
+        "        Producers.withPriority(builder.executor, 2),",
+        "        builder.productionComponentMonitor,",
+        "        builder.deadline);",
+        "    this.aProducer = new TestClass$TestModule_AFactory(",
+        "        builder.testModule,",
+        "        Producers.withPriority(builder.executor, 1),",
+        "        builder.productionComponentMonitor,",
+        "        builder.deadline,",
+        "        bProducer,",
+        "        dProducer);",
+        "  }",
+        "",
+        "  @Override",
+        "  public ListenableFuture<A> a() {",
+        "    return aProducer.get();",
+        "  }",
+        "",
+        "  @Override",
+        "  public void reset(Deadline deadline) {",
+        "    Producers.reset(cProducer, deadline);",
+        "    Producers.reset(bProducer, deadline);",
+        "    Producers.reset(dProducer, deadline);",
+        "    Producers.reset(aProducer, deadline);",
+        "  }",
+        "",
+        "  public static final class Builder {",
+        "    private TestModule testModule;",
+        "    private Executor executor;",
+        "    private ProductionComponentMonitor productionComponentMonitor;",
+        "    private Deadline deadline;",
+        "",
+        "    private Builder() {",
+        "    }",
+        "",
+        "    public PriorityComponent build() {",
+        "      if (testModule == null) {",
+        "        this.testModule = new TestModule();",
+        "      }",
+        "      if (executor == null) {",
+        "        throw new IllegalStateException(\"executor must be set\");",
+        "      }",
+        "      if (productionComponentMonitor == null) {",
+        "        this.productionComponentMonitor = ProductionComponentMonitor.noOp();",
+        "      }",
+        "      if (deadline == null) {",
+        "        this.deadline = Deadline.none();",
+        "      }",
+        "      return new DaggerTestClass_PriorityComponent(this);",
+        "    }",
+        "",
+        "    public Builder testModule(TestModule testModule) {",
+        "      if (testModule == null) {",
+        "        throw new NullPointerException(\"testModule\");",
+        "      }",
+        "      this.testModule = testModule;",
+        "      return this;",
+        "    }",
+        "",
+        "    public Builder executor(Executor executor) {",
+        "      if (executor == null) {",
+        "        throw new NullPointerException(\"executor\");",
+        "      }",
+        "      this.executor = executor;",
+        "      return this;",
+        "    }",
+        "",
+        "    public Builder productionComponentMonitor(",
+        "        ProductionComponentMonitor productionComponentMonitor) {",
+        "      if (productionComponentMonitor == null) {",
+        "        throw new NullPointerException(\"productionComponentMonitor\");",
+        "      }",
+        "      this.productionComponentMonitor = productionComponentMonitor;",
+        "      return this;",
+        "    }",
+        "",
+        "    public Builder deadline(Deadline deadline) {",
+        "      if (deadline == null) {",
+        "        throw new NullPointerException(\"deadline\");",
+        "      }",
+        "      this.deadline = deadline;",
+        "      return this;",
+        "    }",
         "  }",
         "}");
     assertAbout(javaSource()).that(component)
@@ -216,4 +451,41 @@ public class ProductionComponentProcessorTest {
         .compilesWithoutError()
         .and().generatesSources(generatedComponent);
   }
+
+  @Test public void completionStageProducersAndEntryPoints() {
+    assumeTrue(ProducerModuleFactoryGeneratorTest.hasCompletionStage());
+    JavaFileObject component = JavaFileObjects.forSourceLines("test.TestClass",
+        "package test;",
+        "",
+        "import dagger.producers.ProducerModule;",
+        "import dagger.producers.Produces;",
+        "import dagger.producers.ProductionComponent;",
+        "import java.util.concurrent.CompletableFuture;",
+        "import java.util.concurrent.CompletionStage;",
+        "",
+        "final class TestClass {",
+        "  interface A {}",
+        "  interface B {}",
+        "",
+        "  @ProducerModule",
+        "  static final class AModule {",
+        "    @Produces CompletionStage<A> a() {",
+        "      return null;",
+        "    }",
+        "",
+        "    @Produces CompletableFuture<B> b(A a) {",
+        "      return null;",
+        "    }",
+        "  }",
+        "",
+        "  @ProductionComponent(modules = AModule.class)",
+        "  interface StageComponent {",
+        "    CompletableFuture<A> a();",
+        "    CompletionStage<B> b();",
+        "  }",
+        "}");
+    assertAbout(javaSource()).that(component)
+        .processedWith(new ComponentProcessor())
+        .compilesWithoutError();
+  }
 }
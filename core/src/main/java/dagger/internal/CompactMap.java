@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2014 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.internal;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable {@link Map} that keeps its keys and values in parallel arrays and finds keys by
+ * linear probing in a table of indices. Unlike {@link java.util.LinkedHashMap} it allocates no
+ * per-entry objects, which makes it a good fit for the small maps that back most map bindings.
+ * Iteration order is the iteration order of the map that it was copied from. Keys may not be
+ * {@code null}.
+ *
+ * @since 2.1
+ */
+final class CompactMap<K, V> extends AbstractMap<K, V> {
+  private final Object[] keys;
+  private final Object[] values;
+  /** Indices into {@link #keys}, offset by one so that {@code 0} marks an empty slot. */
+  private final int[] table;
+  private final int mask;
+
+  /** Returns an immutable copy of {@code map}. */
+  static <K, V> Map<K, V> copyOf(Map<? extends K, ? extends V> map) {
+    return new CompactMap<K, V>(map);
+  }
+
+  private CompactMap(Map<? extends K, ? extends V> map) {
+    int size = map.size();
+    this.keys = new Object[size];
+    this.values = new Object[size];
+    // a power of two that keeps the load factor at or below 1/2
+    int tableSize = Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+    this.table = new int[tableSize];
+    this.mask = tableSize - 1;
+    int index = 0;
+    for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
+      K key = entry.getKey();
+      if (key == null) {
+        throw new NullPointerException("The key is null");
+      }
+      keys[index] = key;
+      values[index] = entry.getValue();
+      int slot = smear(key.hashCode()) & mask;
+      while (table[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = index + 1;
+      index++;
+    }
+  }
+
+  /** Spreads the bits of poorly distributed hash codes so that the low bits are usable. */
+  private static int smear(int hashCode) {
+    return 0x1b873593 * Integer.rotateLeft(hashCode * 0xcc9e2d51, 15);
+  }
+
+  private int indexOf(Object key) {
+    if (key == null) {
+      return -1;
+    }
+    int slot = smear(key.hashCode()) & mask;
+    while (true) {
+      int index = table[slot];
+      if (index == 0) {
+        return -1;
+      }
+      if (key.equals(keys[index - 1])) {
+        return index - 1;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  @Override
+  public int size() {
+    return keys.length;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return indexOf(key) >= 0;
+  }
+
+  @SuppressWarnings("unchecked") // only values of type V are stored
+  @Override
+  public V get(Object key) {
+    int index = indexOf(key);
+    return index < 0 ? null : (V) values[index];
+  }
+
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    return new AbstractSet<Entry<K, V>>() {
+      @Override
+      public int size() {
+        return keys.length;
+      }
+
+      @Override
+      public Iterator<Entry<K, V>> iterator() {
+        return new Iterator<Entry<K, V>>() {
+          private int index;
+
+          @Override
+          public boolean hasNext() {
+            return index < keys.length;
+          }
+
+          @SuppressWarnings("unchecked") // only keys of type K and values of type V are stored
+          @Override
+          public Entry<K, V> next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            Entry<K, V> entry =
+                new SimpleImmutableEntry<K, V>((K) keys[index], (V) values[index]);
+            index++;
+            return entry;
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+    };
+  }
+}
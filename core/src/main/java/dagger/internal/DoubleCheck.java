@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2014 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.internal;
+
+import dagger.Lazy;
+import javax.inject.Provider;
+
+/**
+ * A {@link Lazy} and {@link Provider} implementation that memoizes the value returned from a
+ * delegate using the double-check idiom described in Effective Java 2: Item 71.  The delegate is
+ * released once the value has been computed so that it, and everything it references, can be
+ * garbage collected.
+ *
+ * @since 2.1
+ */
+public final class DoubleCheck<T> implements Provider<T>, Lazy<T> {
+  private static final Object UNINITIALIZED = new Object();
+
+  private Provider<T> provider;
+  private volatile Object instance = UNINITIALIZED;
+
+  private DoubleCheck(Provider<T> provider) {
+    assert provider != null;
+    this.provider = provider;
+  }
+
+  @SuppressWarnings("unchecked") // cast only happens when result comes from the provider
+  @Override
+  public T get() {
+    Object result = instance;
+    if (result == UNINITIALIZED) {
+      synchronized (this) {
+        result = instance;
+        if (result == UNINITIALIZED) {
+          result = provider.get();
+          Object currentInstance = instance;
+          // the provider may have called back into this instance while computing the value
+          if (currentInstance != UNINITIALIZED && currentInstance != result) {
+            throw new IllegalStateException("Scoped provider was invoked recursively returning "
+                + "different results: " + currentInstance + " & " + result);
+          }
+          instance = result;
+          // the value is safely published by the volatile write above, so the provider (and the
+          // graph of factories behind it) is no longer needed
+          provider = null;
+        }
+      }
+    }
+    return (T) result;
+  }
+
+  /** Returns a {@link Provider} that memoizes the value of {@code delegate}. */
+  public static <T> Provider<T> provider(Provider<T> delegate) {
+    if (delegate == null) {
+      throw new NullPointerException();
+    }
+    if (delegate instanceof DoubleCheck) {
+      // avoid double-wrapping, which would only add another volatile read
+      return delegate;
+    }
+    return new DoubleCheck<T>(delegate);
+  }
+
+  /**
+   * Returns a {@link Lazy} that memoizes the value of {@code provider}.  If {@code provider} is
+   * already a {@link DoubleCheck}, as it is for scoped bindings, it is returned rather than
+   * allocating a new wrapper.
+   */
+  public static <T> Lazy<T> lazy(Provider<T> provider) {
+    if (provider == null) {
+      throw new NullPointerException();
+    }
+    if (provider instanceof DoubleCheck) {
+      @SuppressWarnings("unchecked") // a DoubleCheck that is a Provider<T> is also a Lazy<T>
+      Lazy<T> lazy = (Lazy<T>) provider;
+      return lazy;
+    }
+    return new DoubleCheck<T>(provider);
+  }
+}
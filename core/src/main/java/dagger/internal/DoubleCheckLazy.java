@@ -19,44 +19,18 @@ import dagger.Lazy;
 import javax.inject.Provider;
 
 /**
- * A basic {@link Lazy} implementation that memoizes the value returned from a {@link Provider}
- * using the double-check idiom described in Effective Java 2: Item 71.
+ * Memoizes the value returned from a {@link Provider} as a {@link Lazy}.
  *
  * @author Gregory Kick
  * @since 2.0
+ * @deprecated Use {@link DoubleCheck#lazy}.  This class is only retained for code generated by
+ *     earlier versions of Dagger.
  */
-// TODO(gak): Unify the duplicated code between this and ScopedProvider.
-public final class DoubleCheckLazy<T> implements Lazy<T> {
-  private static final Object UNINITIALIZED = new Object();
-
-  private final Provider<T> provider;
-  private volatile Object instance = UNINITIALIZED;
-
-  private DoubleCheckLazy(Provider<T> provider) {
-    assert provider != null;
-    this.provider = provider;
-  }
-
-  @SuppressWarnings("unchecked") // cast only happens when result comes from the factory
-  @Override
-  public T get() {
-    // to suppress it.
-    Object result = instance;
-    if (result == UNINITIALIZED) {
-      synchronized (this) {
-        result = instance;
-        if (result == UNINITIALIZED) {
-          instance = result = provider.get();
-        }
-      }
-    }
-    return (T) result;
-  }
-
+@Deprecated
+public final class DoubleCheckLazy {
   public static <T> Lazy<T> create(Provider<T> provider) {
-    if (provider == null) {
-      throw new NullPointerException();
-    }
-    return new DoubleCheckLazy<T>(provider);
+    return DoubleCheck.lazy(provider);
   }
+
+  private DoubleCheckLazy() {}
 }
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2014 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.internal;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import javax.inject.Provider;
+
+/**
+ * A {@link Provider} implementation that memoizes the result of a {@link Factory} instance without
+ * taking a monitor.  Exactly one thread invokes the factory; any threads that arrive while it is
+ * running push themselves onto a wait stack and park until the result is published.  This avoids
+ * the monitor inflation that {@link ScopedProvider} suffers when many threads request a cold
+ * binding at once.
+ *
+ * <p>If the factory throws, the provider returns to its uninitialized state, all waiting threads
+ * are woken and one of them retries.  Requesting the binding again from within its own factory
+ * (on the same thread) fails with an {@link IllegalStateException} rather than deadlocking.
+ *
+ * @since 2.1
+ */
+public final class LockFreeScopedProvider<T> implements Provider<T> {
+  private static final Object UNINITIALIZED = new Object();
+
+  @SuppressWarnings("rawtypes") // the updater is shared by all instantiations
+  private static final AtomicReferenceFieldUpdater<LockFreeScopedProvider, Object> STATE =
+      AtomicReferenceFieldUpdater.newUpdater(LockFreeScopedProvider.class, Object.class, "state");
+
+  /** Only read by the thread that claimed initialization, and cleared once it succeeds. */
+  private Factory<T> factory;
+
+  /**
+   * Either {@link #UNINITIALIZED}, the head of the {@link Waiter} stack while the factory is
+   * running, or the memoized instance.
+   */
+  private volatile Object state = UNINITIALIZED;
+
+  private LockFreeScopedProvider(Factory<T> factory) {
+    assert factory != null;
+    this.factory = factory;
+  }
+
+  @SuppressWarnings("unchecked") // cast only happens when result comes from the factory
+  @Override
+  public T get() {
+    Object result = state;
+    if (result == UNINITIALIZED || result instanceof Waiter) {
+      result = initializeOrAwait();
+    }
+    return (T) result;
+  }
+
+  private Object initializeOrAwait() {
+    Thread currentThread = Thread.currentThread();
+    while (true) {
+      Object current = state;
+      if (current == UNINITIALIZED) {
+        Waiter owner = new Waiter(currentThread, null);
+        if (STATE.compareAndSet(this, UNINITIALIZED, owner)) {
+          return initialize(currentThread);
+        }
+      } else if (current instanceof Waiter) {
+        Waiter head = (Waiter) current;
+        if (head.root.thread == currentThread) {
+          throw new IllegalStateException(
+              "Scoped binding was requested while its own instance was being created");
+        }
+        Waiter waiter = new Waiter(currentThread, head);
+        if (STATE.compareAndSet(this, head, waiter)) {
+          awaitRelease(waiter.root);
+        }
+      } else {
+        return current;
+      }
+    }
+  }
+
+  /**
+   * Parks until the initialization attempt identified by {@code root} has finished.  Comparing
+   * roots rather than just checking for a {@link Waiter} ensures that a thread woken by a failed
+   * attempt does not go back to sleep on a newer attempt whose stack it is not part of.
+   *
+   * <p>{@link LockSupport#park} returns immediately while the thread's interrupt flag is set, so the
+   * flag is cleared while waiting, and restored afterwards.
+   */
+  private void awaitRelease(Waiter root) {
+    boolean interrupted = false;
+    while (true) {
+      Object current = state;
+      if (!(current instanceof Waiter) || ((Waiter) current).root != root) {
+        break;
+      }
+      LockSupport.park(this);
+      interrupted |= Thread.interrupted();
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private Object initialize(Thread currentThread) {
+    Object instance;
+    try {
+      instance = factory.get();
+    } catch (RuntimeException e) {
+      release(STATE.getAndSet(this, UNINITIALIZED), currentThread);
+      throw e;
+    } catch (Error e) {
+      release(STATE.getAndSet(this, UNINITIALIZED), currentThread);
+      throw e;
+    }
+    factory = null;
+    release(STATE.getAndSet(this, instance), currentThread);
+    return instance;
+  }
+
+  /** Unparks every thread in the wait stack that was detached from {@link #state}. */
+  private static void release(Object waiters, Thread currentThread) {
+    for (Waiter waiter = (Waiter) waiters; waiter != null; waiter = waiter.next) {
+      if (waiter.thread != currentThread) {
+        LockSupport.unpark(waiter.thread);
+      }
+    }
+  }
+
+  /** Returns a new lock-free scoped provider for the given factory. */
+  public static <T> Provider<T> create(Factory<T> factory) {
+    if (factory == null) {
+      throw new NullPointerException();
+    }
+    return new LockFreeScopedProvider<T>(factory);
+  }
+
+  /** A node in the stack of threads waiting on the thread that is invoking the factory. */
+  private static final class Waiter {
+    final Thread thread;
+    final Waiter next;
+    /** The bottom of the stack, whose thread is the one invoking the factory. */
+    final Waiter root;
+
+    Waiter(Thread thread, Waiter next) {
+      this.thread = thread;
+      this.next = next;
+      this.root = (next == null) ? this : next.root;
+    }
+  }
+}
@@ -15,7 +15,7 @@
  */
 package dagger.internal;
 
-import java.util.LinkedHashMap;
+import java.util.EnumMap;
 import java.util.Map;
 import javax.inject.Provider;
 
@@ -26,6 +26,11 @@ import static java.util.Collections.unmodifiableMap;
  * A {@link Factory} implementation used to implement {@link Map} bindings. This factory returns a
  * {@code Map<K, Provider<V>>} when calling {@link #get} (as specified by {@link Factory}).
  *
+ * <p>The map is stored in one of three representations, chosen by the generated component through
+ * the builder that it uses: an {@link EnumMap} for enum keys ({@link #enumKeyedBuilder}), a compact
+ * array map for small maps ({@link #compactBuilder}), or a {@link java.util.LinkedHashMap}
+ * otherwise ({@link #builder}).
+ *
  * @author Chenying Hou
  * @since 2.0
  *
@@ -37,16 +42,42 @@ public final class MapProviderFactory<K, V> implements Factory<Map<K, Provider<V
    * Returns a new {@link Builder}
    */
   public static <K, V> Builder<K, V> builder(int size) {
-    return new Builder<K, V>(size);
+    return new Builder<K, V>(
+        newLinkedHashMapWithExpectedSize(size), Builder.Representation.UNMODIFIABLE);
+  }
+
+  /**
+   * Returns a new {@link Builder} for a map keyed by the constants of {@code keyType}. The built
+   * map is backed by an {@link EnumMap}, so it iterates in the declaration order of the constants
+   * rather than the order in which they were put. Generated components only use it when the two
+   * orders are the same.
+   *
+   * @since 2.1
+   */
+  public static <K extends Enum<K>, V> Builder<K, V> enumKeyedBuilder(Class<K> keyType) {
+    return new Builder<K, V>(
+        new EnumMap<K, Provider<V>>(keyType), Builder.Representation.UNMODIFIABLE);
+  }
+
+  /**
+   * Returns a new {@link Builder} for a small map. The built map keeps its entries in arrays
+   * rather than in per-entry objects and looks keys up by linear probing.
+   *
+   * @since 2.1
+   */
+  public static <K, V> Builder<K, V> compactBuilder(int size) {
+    return new Builder<K, V>(
+        newLinkedHashMapWithExpectedSize(size), Builder.Representation.COMPACT);
   }
 
-  private MapProviderFactory(LinkedHashMap<K, Provider<V>> contributingMap) {
-    this.contributingMap = unmodifiableMap(contributingMap);
+  private MapProviderFactory(Map<K, Provider<V>> contributingMap) {
+    this.contributingMap = contributingMap;
   }
 
   /**
    * Returns a {@code Map<K, Provider<V>>} whose iteration order is that of the elements
-   * given by each of the providers, which are invoked in the order given at creation.
+   * given by each of the providers, which are invoked in the order given at creation. Maps built
+   * by an {@linkplain #enumKeyedBuilder enum-keyed builder} iterate in key order instead.
    *
    */
   @Override
@@ -58,18 +89,33 @@ public final class MapProviderFactory<K, V> implements Factory<Map<K, Provider<V
    * A builder to help build the {@link MapProviderFactory}
    */
   public static final class Builder<K, V> {
-    private final LinkedHashMap<K, Provider<V>> mapBuilder;
+    private enum Representation {
+      /** An unmodifiable view of the map that the entries were put into. */
+      UNMODIFIABLE,
+      /** A {@link CompactMap} copy of the map that the entries were put into. */
+      COMPACT,
+    }
+
+    private final Map<K, Provider<V>> mapBuilder;
+    private final Representation representation;
 
-    private Builder(int size) {
-      // TODO(user): consider which way to initialize mapBuilder is better
-      this.mapBuilder = newLinkedHashMapWithExpectedSize(size);
+    private Builder(Map<K, Provider<V>> mapBuilder, Representation representation) {
+      this.mapBuilder = mapBuilder;
+      this.representation = representation;
     }
 
     /**
      * Returns a new {@link MapProviderFactory}
      */
     public MapProviderFactory<K, V> build() {
-      return new MapProviderFactory<K, V>(this.mapBuilder);
+      switch (representation) {
+        case UNMODIFIABLE:
+          return new MapProviderFactory<K, V>(unmodifiableMap(this.mapBuilder));
+        case COMPACT:
+          return new MapProviderFactory<K, V>(CompactMap.<K, Provider<V>>copyOf(this.mapBuilder));
+        default:
+          throw new AssertionError(representation);
+      }
     }
 
     /**
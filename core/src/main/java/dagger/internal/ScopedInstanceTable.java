@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2014 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.internal;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.inject.Provider;
+
+/**
+ * Holds every scoped instance of a component in a single array of slots rather than in one
+ * memoizing {@link Provider} per binding.  Generated components subclass this with a
+ * {@link #create} method that switches on the slot number to construct each instance the first
+ * time it is requested.
+ *
+ * <p>Each slot is claimed by the first thread to request it, and only threads requesting that
+ * same slot wait while its instance is created, so a slow constructor doesn't hold up unrelated
+ * scoped bindings.
+ *
+ * @since 2.1
+ */
+public abstract class ScopedInstanceTable {
+  /** Stored in a slot in place of a {@code null} instance so that it is not created again. */
+  private static final Object NULL_INSTANCE = new Object();
+
+  // An AtomicReferenceArray rather than a plain Object[] so that slots can be claimed with a
+  // compare-and-set, and so that the unlocked read in get() has volatile semantics.
+  private final AtomicReferenceArray<Object> instances;
+
+  protected ScopedInstanceTable(int size) {
+    this.instances = new AtomicReferenceArray<Object>(size);
+  }
+
+  /** Creates the instance for {@code slot}.  Only ever invoked once per slot. */
+  protected abstract Object create(int slot);
+
+  /**
+   * Returns a {@link Provider} for the instance held in {@code slot}. Generated components only ask
+   * for one where a {@code Provider} or {@code Lazy} is requested, and otherwise call {@link #get}.
+   */
+  public final <T> Provider<T> provider(int slot) {
+    if (slot < 0 || slot >= instances.length()) {
+      throw new IndexOutOfBoundsException(String.valueOf(slot));
+    }
+    return new SlotProvider<T>(this, slot);
+  }
+
+  /** Returns the instance for {@code slot}, creating it if this is the first request. */
+  @SuppressWarnings("unchecked") // the generated create() method returns a T for this slot
+  public final <T> T get(int slot) {
+    Object result = instances.get(slot);
+    if (result == null || result instanceof Creation) {
+      result = createOrAwait(slot);
+    }
+    return (result == NULL_INSTANCE) ? null : (T) result;
+  }
+
+  private Object createOrAwait(int slot) {
+    Thread currentThread = Thread.currentThread();
+    while (true) {
+      Object current = instances.get(slot);
+      if (current == null) {
+        Creation creation = new Creation(currentThread);
+        if (instances.compareAndSet(slot, null, creation)) {
+          return create(slot, creation);
+        }
+      } else if (current instanceof Creation) {
+        Creation creation = (Creation) current;
+        if (creation.thread == currentThread) {
+          // create() requested its own slot; create it again, and let the outer call check that
+          // both creations agree
+          Object result = wrapNull(create(slot));
+          instances.set(slot, result);
+          return result;
+        }
+        creation.await();
+      } else {
+        return current;
+      }
+    }
+  }
+
+  private Object create(int slot, Creation creation) {
+    boolean created = false;
+    try {
+      Object result = wrapNull(create(slot));
+      Object currentInstance = instances.get(slot);
+      if (currentInstance != creation && currentInstance != result) {
+        throw new IllegalStateException("Scoped instance in slot " + slot
+            + " was created recursively with different results");
+      }
+      instances.set(slot, result);
+      created = true;
+      return result;
+    } finally {
+      if (!created) {
+        // let a later request try again
+        instances.compareAndSet(slot, creation, null);
+      }
+      creation.finish();
+    }
+  }
+
+  private static Object wrapNull(Object instance) {
+    return (instance == null) ? NULL_INSTANCE : instance;
+  }
+
+  /** Stored in a slot while one thread creates its instance, for other threads to wait on. */
+  private static final class Creation {
+    final Thread thread;
+    private boolean finished;
+
+    Creation(Thread thread) {
+      this.thread = thread;
+    }
+
+    synchronized void await() {
+      boolean interrupted = false;
+      while (!finished) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    synchronized void finish() {
+      finished = true;
+      notifyAll();
+    }
+  }
+
+  private static final class SlotProvider<T> implements Provider<T> {
+    private final ScopedInstanceTable table;
+    private final int slot;
+
+    SlotProvider(ScopedInstanceTable table, int slot) {
+      this.table = table;
+      this.slot = slot;
+    }
+
+    @Override
+    public T get() {
+      return table.<T>get(slot);
+    }
+  }
+}
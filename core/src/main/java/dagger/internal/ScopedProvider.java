@@ -18,43 +18,19 @@ package dagger.internal;
 import javax.inject.Provider;
 
 /**
- * A {@link Provider} implementation that memoizes the result of a {@link Factory} instance.
+ * Memoizes the result of a {@link Factory} instance.
  *
  * @author Gregory Kick
  * @since 2.0
+ * @deprecated Use {@link DoubleCheck#provider}.  This class is only retained for components
+ *     generated by earlier versions of Dagger.
  */
-public final class ScopedProvider<T> implements Provider<T> {
-  private static final Object UNINITIALIZED = new Object();
-
-  private final Factory<T> factory;
-  private volatile Object instance = UNINITIALIZED;
-
-  private ScopedProvider(Factory<T> factory) {
-    assert factory != null;
-    this.factory = factory;
-  }
-
-  @SuppressWarnings("unchecked") // cast only happens when result comes from the factory
-  @Override
-  public T get() {
-    // double-check idiom from EJ2: Item 71
-    Object result = instance;
-    if (result == UNINITIALIZED) {
-      synchronized (this) {
-        result = instance;
-        if (result == UNINITIALIZED) {
-          instance = result = factory.get();
-        }
-      }
-    }
-    return (T) result;
-  }
-
+@Deprecated
+public final class ScopedProvider {
   /** Returns a new scoped provider for the given factory. */
   public static <T> Provider<T> create(Factory<T> factory) {
-    if (factory == null) {
-      throw new NullPointerException();
-    }
-    return new ScopedProvider<T>(factory);
+    return DoubleCheck.provider(factory);
   }
+
+  private ScopedProvider() {}
 }
@@ -52,12 +52,12 @@ public final class SetFactory<T> implements Factory<Set<T>> {
       }
       contributingProviders.add(provider);
     }
-    return new SetFactory<T>(contributingProviders);
+    return new SetFactory<T>(new ArrayList<Provider<Set<T>>>(contributingProviders));
   }
 
-  private final Set<Provider<Set<T>>> contributingProviders;
+  private final List<Provider<Set<T>>> contributingProviders;
 
-  private SetFactory(Set<Provider<Set<T>>> contributingProviders) {
+  private SetFactory(List<Provider<Set<T>>> contributingProviders) {
     this.contributingProviders = contributingProviders;
   }
 
@@ -65,26 +65,24 @@ public final class SetFactory<T> implements Factory<Set<T>> {
    * Returns a {@link Set} whose iteration order is that of the elements given by each of the
    * providers, which are invoked in the order given at creation.
    *
+   * <p>Most contributions come from {@code @Provides(type = SET)} methods, each of which provides a
+   * singleton set, so the result is sized for one element per provider and each provided set is
+   * added as soon as it is returned rather than being held until all providers have been invoked.
+   *
    * @throws NullPointerException if any of the delegate {@link Set} instances or elements therein
    *     are {@code null}
    */
   @Override
   public Set<T> get() {
-    List<Set<T>> providedSets = new ArrayList<Set<T>>(contributingProviders.size());
-    for (Provider<Set<T>> provider : contributingProviders) {
+    int providerCount = contributingProviders.size();
+    Set<T> result = newLinkedHashSetWithExpectedSize(providerCount);
+    for (int i = 0; i < providerCount; i++) {
+      Provider<Set<T>> provider = contributingProviders.get(i);
       Set<T> providedSet = provider.get();
       if (providedSet == null) {
         throw new NullPointerException(provider + " returned null");
       }
-      providedSets.add(providedSet);
-    }
-    int size = 0;
-    for (Set<T> providedSet : providedSets) {
-      size += providedSet.size();
-    }
-    Set<T> result = newLinkedHashSetWithExpectedSize(size);
-    for (Set<T> s : providedSets) {
-      for (T element : s) {
+      for (T element : providedSet) {
         if (element == null) {
           throw new NullPointerException("a null element was provided");
         }
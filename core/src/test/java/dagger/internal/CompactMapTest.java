@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2014 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.internal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assert_;
+
+@RunWith(JUnit4.class)
+public class CompactMapTest {
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Test
+  public void empty() {
+    Map<String, Integer> map = CompactMap.copyOf(new LinkedHashMap<String, Integer>());
+    assert_().that(map).isEmpty();
+    assert_().that(map.get("anything")).isNull();
+  }
+
+  @Test
+  public void lookupsAndIterationOrder() {
+    Map<Integer, String> source = new LinkedHashMap<Integer, String>();
+    for (int i = 100; i > 0; i--) {
+      // multiples of 16 collide in the low bits without smearing
+      source.put(i * 16, String.valueOf(i));
+    }
+    Map<Integer, String> map = CompactMap.copyOf(source);
+
+    assert_().that(map).isEqualTo(source);
+    assert_().that(map.hashCode()).isEqualTo(source.hashCode());
+    assert_().that(map.entrySet()).containsExactlyElementsIn(source.entrySet()).inOrder();
+    for (int i = 1; i <= 100; i++) {
+      assert_().that(map.get(i * 16)).isEqualTo(String.valueOf(i));
+    }
+    assert_().that(map.containsKey(17)).isFalse();
+    assert_().that(map.get(null)).isNull();
+  }
+
+  @Test
+  public void nullValue() {
+    Map<String, String> source = new LinkedHashMap<String, String>();
+    source.put("key", null);
+    Map<String, String> map = CompactMap.copyOf(source);
+    assert_().that(map.containsKey("key")).isTrue();
+    assert_().that(map.get("key")).isNull();
+  }
+
+  @Test
+  public void nullKey() {
+    Map<String, String> source = new LinkedHashMap<String, String>();
+    source.put(null, "value");
+    thrown.expect(NullPointerException.class);
+    CompactMap.copyOf(source);
+  }
+
+  @Test
+  public void unmodifiable() {
+    Map<String, String> source = new LinkedHashMap<String, String>();
+    source.put("key", "value");
+    Map<String, String> map = CompactMap.copyOf(source);
+    thrown.expect(UnsupportedOperationException.class);
+    map.remove("key");
+  }
+}
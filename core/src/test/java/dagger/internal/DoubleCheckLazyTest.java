@@ -36,7 +36,12 @@ import org.junit.runners.JUnit4;
 import static com.google.common.truth.Truth.assert_;
 import static org.junit.Assert.fail;
 
+/**
+ * Tests {@link DoubleCheckLazy}, which is deprecated but retained for components generated by
+ * earlier versions of Dagger.
+ */
 @RunWith(JUnit4.class)
+@SuppressWarnings("deprecation")
 public class DoubleCheckLazyTest {
   @Test public void get() throws Exception {
     int numThreads = 10;
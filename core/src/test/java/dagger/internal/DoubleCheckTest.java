@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2014 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.internal;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Uninterruptibles;
+import dagger.Lazy;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.inject.Provider;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assert_;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests {@link DoubleCheck}.
+ */
+@RunWith(JUnit4.class)
+public class DoubleCheckTest {
+  @Test public void provider_nullPointerException() {
+    try {
+      DoubleCheck.provider(null);
+      fail();
+    } catch (NullPointerException expected) { }
+  }
+
+  @Test public void lazy_nullPointerException() {
+    try {
+      DoubleCheck.lazy(null);
+      fail();
+    } catch (NullPointerException expected) { }
+  }
+
+  @Test public void doubleWrapping() {
+    Provider<Object> provider = DoubleCheck.provider(new Factory<Object>() {
+      @Override public Object get() {
+        return new Object();
+      }
+    });
+    assert_().that(DoubleCheck.provider(provider)).isSameAs(provider);
+    assert_().that(DoubleCheck.lazy(provider)).isSameAs(provider);
+  }
+
+  @Test public void get() throws Exception {
+    int numThreads = 10;
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+
+    final CountDownLatch latch = new CountDownLatch(numThreads);
+    final AtomicInteger provisions = new AtomicInteger();
+    final Lazy<Object> lazy = DoubleCheck.lazy(new Provider<Object>() {
+      @Override public Object get() {
+        Uninterruptibles.awaitUninterruptibly(latch);
+        provisions.incrementAndGet();
+        return new Object();
+      }
+    });
+
+    List<Callable<Object>> tasks = Lists.newArrayListWithCapacity(numThreads);
+    for (int i = 0; i < numThreads; i++) {
+      tasks.add(new Callable<Object>() {
+        @Override public Object call() throws Exception {
+          latch.countDown();
+          return lazy.get();
+        }
+      });
+    }
+
+    List<Future<Object>> futures = executor.invokeAll(tasks);
+
+    assert_().that(provisions.get()).isEqualTo(1);
+    Set<Object> results = Sets.newIdentityHashSet();
+    for (Future<Object> future : futures) {
+      results.add(future.get());
+    }
+    assert_().that(results.size()).isEqualTo(1);
+  }
+
+  @Test public void reentranceWithDifferentResults() {
+    final AtomicReference<Provider<Object>> self = new AtomicReference<Provider<Object>>();
+    Provider<Object> provider = DoubleCheck.provider(new Factory<Object>() {
+      int calls = 0;
+
+      @Override public Object get() {
+        if (calls++ == 0) {
+          self.get().get();
+        }
+        return new Object();
+      }
+    });
+    self.set(provider);
+    try {
+      provider.get();
+      fail();
+    } catch (IllegalStateException expected) { }
+  }
+
+  @Test public void reentranceWithSameResult() {
+    final Object instance = new Object();
+    final AtomicReference<Provider<Object>> self = new AtomicReference<Provider<Object>>();
+    Provider<Object> provider = DoubleCheck.provider(new Factory<Object>() {
+      int calls = 0;
+
+      @Override public Object get() {
+        if (calls++ == 0) {
+          self.get().get();
+        }
+        return instance;
+      }
+    });
+    self.set(provider);
+    assert_().that(provider.get()).isSameAs(instance);
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2014 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.internal;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.inject.Provider;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assert_;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests {@link LockFreeScopedProvider}.
+ */
+@RunWith(JUnit4.class)
+public class LockFreeScopedProviderTest {
+  @Test public void create_nullPointerException() {
+    try {
+      LockFreeScopedProvider.create(null);
+      fail();
+    } catch (NullPointerException expected) { }
+  }
+
+  @Test public void get() {
+    Provider<Integer> scopedProvider = LockFreeScopedProvider.create(new Factory<Integer>() {
+      int i = 0;
+
+      @Override public Integer get() {
+        return i++;
+      }
+    });
+    assert_().that(scopedProvider.get()).isEqualTo(0);
+    assert_().that(scopedProvider.get()).isEqualTo(0);
+    assert_().that(scopedProvider.get()).isEqualTo(0);
+  }
+
+  @Test public void get_contended() throws Exception {
+    int numThreads = 20;
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+
+    final CountDownLatch latch = new CountDownLatch(numThreads);
+    final AtomicInteger provisions = new AtomicInteger();
+    final Provider<Object> scopedProvider = LockFreeScopedProvider.create(new Factory<Object>() {
+      @Override public Object get() {
+        Uninterruptibles.sleepUninterruptibly(10, MILLISECONDS);
+        provisions.incrementAndGet();
+        return new Object();
+      }
+    });
+
+    List<Callable<Object>> tasks = Lists.newArrayListWithCapacity(numThreads);
+    for (int i = 0; i < numThreads; i++) {
+      tasks.add(new Callable<Object>() {
+        @Override public Object call() throws Exception {
+          latch.countDown();
+          Uninterruptibles.awaitUninterruptibly(latch);
+          return scopedProvider.get();
+        }
+      });
+    }
+
+    List<Future<Object>> futures = executor.invokeAll(tasks);
+    executor.shutdown();
+
+    assert_().that(provisions.get()).isEqualTo(1);
+    Set<Object> results = Sets.newIdentityHashSet();
+    for (Future<Object> future : futures) {
+      results.add(future.get());
+    }
+    assert_().that(results.size()).isEqualTo(1);
+  }
+
+  @Test public void get_retriesAfterFailure() {
+    final AtomicInteger attempts = new AtomicInteger();
+    Provider<Object> scopedProvider = LockFreeScopedProvider.create(new Factory<Object>() {
+      @Override public Object get() {
+        if (attempts.getAndIncrement() == 0) {
+          throw new UnsupportedOperationException();
+        }
+        return "success";
+      }
+    });
+    try {
+      scopedProvider.get();
+      fail();
+    } catch (UnsupportedOperationException expected) { }
+    assert_().that(scopedProvider.get()).isEqualTo("success");
+    assert_().that(scopedProvider.get()).isEqualTo("success");
+    assert_().that(attempts.get()).isEqualTo(2);
+  }
+
+  @Test public void get_reentrant() {
+    final AtomicReference<Provider<Object>> self = new AtomicReference<Provider<Object>>();
+    Provider<Object> scopedProvider = LockFreeScopedProvider.create(new Factory<Object>() {
+      @Override public Object get() {
+        return self.get().get();
+      }
+    });
+    self.set(scopedProvider);
+    try {
+      scopedProvider.get();
+      fail();
+    } catch (IllegalStateException expected) { }
+  }
+
+  @Test(timeout = 10000) public void get_interruptedWaiterParks() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final Provider<Object> scopedProvider = LockFreeScopedProvider.create(new Factory<Object>() {
+      @Override public Object get() {
+        started.countDown();
+        Uninterruptibles.awaitUninterruptibly(release);
+        return "instance";
+      }
+    });
+    Thread initializer = new Thread(new Runnable() {
+      @Override public void run() {
+        scopedProvider.get();
+      }
+    });
+    initializer.start();
+    started.await();
+
+    final AtomicReference<Object> result = new AtomicReference<Object>();
+    final AtomicBoolean stillInterrupted = new AtomicBoolean();
+    Thread waiter = new Thread(new Runnable() {
+      @Override public void run() {
+        Thread.currentThread().interrupt();
+        result.set(scopedProvider.get());
+        stillInterrupted.set(Thread.currentThread().isInterrupted());
+      }
+    });
+    waiter.start();
+    while (waiter.getState() != Thread.State.WAITING) {
+      Thread.sleep(1);
+    }
+    // a waiter that spun on its interrupt flag would only pass through WAITING
+    for (int i = 0; i < 10; i++) {
+      Thread.sleep(1);
+      assert_().that(waiter.getState()).isEqualTo(Thread.State.WAITING);
+    }
+    release.countDown();
+    waiter.join();
+    initializer.join();
+    assert_().that(result.get()).isEqualTo("instance");
+    assert_().that(stillInterrupted.get()).isTrue();
+  }
+}
@@ -74,6 +74,67 @@ public class MapProviderFactoryTest {
         .inOrder();
   }
 
+  private enum Color { RED, GREEN, BLUE }
+
+  @Test
+  public void enumKeyed_iteratesInKeyOrder() {
+    Provider<Integer> p1 = incrementingIntegerProvider(10);
+    Provider<Integer> p2 = incrementingIntegerProvider(20);
+
+    Map<Color, Provider<Integer>> map = MapProviderFactory
+        .<Color, Integer>enumKeyedBuilder(Color.class)
+        .put(Color.BLUE, p2)
+        .put(Color.RED, p1)
+        .build()
+        .get();
+
+    assert_().that(map.keySet()).containsExactly(Color.RED, Color.BLUE).inOrder();
+    assert_().that(map.get(Color.BLUE)).isSameAs(p2);
+    assert_().that(map.get(Color.GREEN)).isNull();
+  }
+
+  @Test
+  public void enumKeyed_unmodifiable() {
+    Map<Color, Provider<Integer>> map = MapProviderFactory
+        .<Color, Integer>enumKeyedBuilder(Color.class)
+        .put(Color.RED, incrementingIntegerProvider(10))
+        .build()
+        .get();
+    thrown.expect(UnsupportedOperationException.class);
+    map.remove(Color.RED);
+  }
+
+  @Test
+  public void compact_iterationOrder() {
+    Provider<Integer> p1 = incrementingIntegerProvider(10);
+    Provider<Integer> p2 = incrementingIntegerProvider(20);
+    Provider<Integer> p3 = incrementingIntegerProvider(30);
+
+    Map<String, Provider<Integer>> map = MapProviderFactory
+        .<String, Integer>compactBuilder(3)
+        .put("two", p2)
+        .put("one", p1)
+        .put("two", p3)
+        .build()
+        .get();
+
+    Map<String, Provider<Integer>> expectedMap = new LinkedHashMap<String, Provider<Integer>>();
+    expectedMap.put("two", p3);
+    expectedMap.put("one", p1);
+    assert_().that(map).isEqualTo(expectedMap);
+    assert_().that(map.entrySet())
+        .containsExactlyElementsIn(expectedMap.entrySet())
+        .inOrder();
+    assert_().that(map.get("one")).isSameAs(p1);
+    assert_().that(map.get("three")).isNull();
+  }
+
+  @Test
+  public void compact_nullKey() {
+    thrown.expect(NullPointerException.class);
+    MapProviderFactory.<String, Integer>compactBuilder(1).put(null, incrementingIntegerProvider(1));
+  }
+
   private static Provider<Integer> incrementingIntegerProvider(int seed) {
     final AtomicInteger value = new AtomicInteger(seed);
     return new Provider<Integer>() {
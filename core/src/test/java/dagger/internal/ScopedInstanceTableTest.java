@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2014 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.internal;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.inject.Provider;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assert_;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests {@link ScopedInstanceTable}.
+ */
+@RunWith(JUnit4.class)
+public class ScopedInstanceTableTest {
+  @Test public void provider_outOfBounds() {
+    ScopedInstanceTable table = new CountingTable(2);
+    try {
+      table.provider(2);
+      fail();
+    } catch (IndexOutOfBoundsException expected) { }
+    try {
+      table.provider(-1);
+      fail();
+    } catch (IndexOutOfBoundsException expected) { }
+  }
+
+  @Test public void slotsAreIndependent() {
+    CountingTable table = new CountingTable(2);
+    Provider<Object> first = table.provider(0);
+    Provider<Object> second = table.provider(1);
+    assert_().that(first.get()).isSameAs(first.get());
+    assert_().that(second.get()).isSameAs(second.get());
+    assert_().that(first.get()).isNotSameAs(second.get());
+    assert_().that(table.creations.get()).isEqualTo(2);
+  }
+
+  @Test public void getSharesInstanceWithProvider() {
+    CountingTable table = new CountingTable(1);
+    Object instance = table.get(0);
+    Object again = table.get(0);
+    assert_().that(again).isSameAs(instance);
+    assert_().that(table.provider(0).get()).isSameAs(instance);
+    assert_().that(table.creations.get()).isEqualTo(1);
+  }
+
+  @Test public void nullInstance() {
+    final AtomicInteger creations = new AtomicInteger();
+    ScopedInstanceTable table = new ScopedInstanceTable(1) {
+      @Override protected Object create(int slot) {
+        creations.incrementAndGet();
+        return null;
+      }
+    };
+    Provider<Object> provider = table.provider(0);
+    assert_().that(provider.get()).isNull();
+    assert_().that(provider.get()).isNull();
+    assert_().that(creations.get()).isEqualTo(1);
+  }
+
+  @Test public void get() throws Exception {
+    int numThreads = 10;
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+
+    final CountDownLatch latch = new CountDownLatch(numThreads);
+    final CountingTable table = new CountingTable(1) {
+      @Override protected Object create(int slot) {
+        Uninterruptibles.awaitUninterruptibly(latch);
+        return super.create(slot);
+      }
+    };
+
+    List<Callable<Object>> tasks = Lists.newArrayListWithCapacity(numThreads);
+    for (int i = 0; i < numThreads; i++) {
+      tasks.add(new Callable<Object>() {
+        @Override public Object call() throws Exception {
+          latch.countDown();
+          return table.provider(0).get();
+        }
+      });
+    }
+
+    List<Future<Object>> futures = executor.invokeAll(tasks);
+
+    assert_().that(table.creations.get()).isEqualTo(1);
+    Set<Object> results = Sets.newIdentityHashSet();
+    for (Future<Object> future : futures) {
+      results.add(future.get());
+    }
+    assert_().that(results.size()).isEqualTo(1);
+  }
+
+  @Test public void slowSlotDoesNotBlockOtherSlots() throws Exception {
+    final CountDownLatch slowCreationStarted = new CountDownLatch(1);
+    final CountDownLatch otherSlotCreated = new CountDownLatch(1);
+    final CountingTable table = new CountingTable(2) {
+      @Override protected Object create(int slot) {
+        if (slot == 0) {
+          slowCreationStarted.countDown();
+          Uninterruptibles.awaitUninterruptibly(otherSlotCreated);
+        }
+        return super.create(slot);
+      }
+    };
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Future<Object> slow = executor.submit(new Callable<Object>() {
+      @Override public Object call() {
+        return table.provider(0).get();
+      }
+    });
+    slowCreationStarted.await();
+    assert_().that(table.provider(1).get()).isNotNull();
+    otherSlotCreated.countDown();
+    assert_().that(slow.get()).isNotNull();
+    executor.shutdown();
+  }
+
+  @Test public void failedCreationIsRetried() {
+    ScopedInstanceTable table = new ScopedInstanceTable(1) {
+      int calls = 0;
+
+      @Override protected Object create(int slot) {
+        if (calls++ == 0) {
+          throw new IllegalArgumentException();
+        }
+        return "created";
+      }
+    };
+    try {
+      table.provider(0).get();
+      fail();
+    } catch (IllegalArgumentException expected) { }
+    assert_().that(table.provider(0).get()).isEqualTo("created");
+  }
+
+  @Test public void reentranceWithDifferentResults() {
+    ScopedInstanceTable table = new ScopedInstanceTable(1) {
+      int calls = 0;
+
+      @Override protected Object create(int slot) {
+        if (calls++ == 0) {
+          get(slot);
+        }
+        return new Object();
+      }
+    };
+    try {
+      table.provider(0).get();
+      fail();
+    } catch (IllegalStateException expected) { }
+  }
+
+  private static class CountingTable extends ScopedInstanceTable {
+    final AtomicInteger creations = new AtomicInteger();
+
+    CountingTable(int size) {
+      super(size);
+    }
+
+    @Override protected Object create(int slot) {
+      creations.incrementAndGet();
+      return new Object();
+    }
+  }
+}
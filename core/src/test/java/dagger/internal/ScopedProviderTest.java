@@ -25,9 +25,11 @@ import static com.google.common.truth.Truth.assert_;
 import static org.junit.Assert.fail;
 
 /**
- * Tests {@link ScopedProvider}.
+ * Tests {@link ScopedProvider}, which is deprecated but retained for components generated by
+ * earlier versions of Dagger.
  */
 @RunWith(JUnit4.class)
+@SuppressWarnings("deprecation")
 public class ScopedProviderTest {
   @Test public void create_nullPointerException() {
     try {
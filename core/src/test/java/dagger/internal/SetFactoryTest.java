@@ -107,6 +107,16 @@ public class SetFactoryTest {
     assert_().that(factory.get()).containsExactly(5, 6, 7, 8, 9, 3, 4, 0, 1, 2).inOrder();
   }
 
+  @Test
+  public void iterationOrder_singletonAndLargerSets() {
+    Factory<Set<Integer>> factory = SetFactory.create(
+        incrementingIntegerProvider(9),
+        integerSetProvider(Range.closed(3, 6)),
+        incrementingIntegerProvider(4),
+        incrementingIntegerProvider(0));
+    assert_().that(factory.get()).containsExactly(9, 3, 4, 5, 6, 0).inOrder();
+  }
+
   private static Provider<Set<Integer>> incrementingIntegerProvider(int seed) {
     final AtomicInteger value = new AtomicInteger(seed);
     return new Provider<Set<Integer>>() {
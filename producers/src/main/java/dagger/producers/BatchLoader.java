@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.producers;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import dagger.internal.Beta;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+
+/**
+ * Coalesces requests for single values into batched calls to a backend. Subclasses implement
+ * {@link #loadAll}, which fetches the values for a set of keys. {@link Produces} methods then call
+ * {@link #load} with one key each, and every key requested within a short window, from any number
+ * of {@linkplain ProductionComponent production components}, is fetched by a single call:
+ * <pre>   {@code
+ *
+ *   @ProducerModule
+ *   final class UserModule {
+ *     private final BatchLoader<UserId, User> users;  // shared by every component
+ *
+ *     @Produces ListenableFuture<User> user(UserId id) {
+ *       return users.load(id);
+ *     }
+ *   }}</pre>
+ *
+ * <p>A batch is dispatched when it holds {@code maxBatchSize} distinct keys, or else at the end of
+ * its window. The window either lasts until a task submitted to an executor when the batch starts
+ * gets to run, which collects the keys that other producers request in the meantime, or for a
+ * fixed delay.
+ *
+ * <p>Each caller gets a future of its own, so cancelling one, as a {@link Deadline} does, doesn't
+ * affect the other callers that asked for the same key.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @since 2.1
+ */
+@Beta
+public abstract class BatchLoader<K, V> {
+  private final Executor executor;
+  private final ScheduledExecutorService scheduler;
+  private final long delay;
+  private final TimeUnit unit;
+  private final int maxBatchSize;
+  private final ReentrantLock lock = new ReentrantLock();
+  private Batch current;  // guarded by lock
+
+  /**
+   * Creates a loader whose batches collect keys until a task submitted to {@code executor} runs,
+   * and which then calls {@link #loadAll} from that task.
+   */
+  protected BatchLoader(Executor executor, int maxBatchSize) {
+    this(checkNotNull(executor), null, 0, null, maxBatchSize);
+  }
+
+  /**
+   * Creates a loader whose batches collect keys for {@code delay} after their first key, and which
+   * then calls {@link #loadAll} on {@code scheduler}.
+   */
+  protected BatchLoader(
+      ScheduledExecutorService scheduler, long delay, TimeUnit unit, int maxBatchSize) {
+    this(checkNotNull(scheduler), scheduler, delay, checkNotNull(unit), maxBatchSize);
+    checkArgument(delay >= 0, "delay must not be negative: %s", delay);
+  }
+
+  private BatchLoader(Executor executor, ScheduledExecutorService scheduler, long delay,
+      TimeUnit unit, int maxBatchSize) {
+    checkArgument(maxBatchSize > 0, "maxBatchSize must be positive: %s", maxBatchSize);
+    this.executor = executor;
+    this.scheduler = scheduler;
+    this.delay = delay;
+    this.unit = unit;
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  /**
+   * Fetches the values for {@code keys}. Keys missing from the returned map fail their callers'
+   * futures with a {@link NoSuchElementException}.
+   */
+  protected abstract ListenableFuture<Map<K, V>> loadAll(Set<K> keys) throws Exception;
+
+  /** Returns a future of the value for {@code key}, which is fetched with the current batch. */
+  public final ListenableFuture<V> load(K key) {
+    checkNotNull(key);
+    SettableFuture<V> future = SettableFuture.create();
+    final Batch batch;
+    boolean first;
+    boolean full;
+    lock.lock();
+    try {
+      if (current == null) {
+        current = new Batch();
+      }
+      batch = current;
+      first = batch.waiting.isEmpty();
+      batch.waiting.put(key, future);
+      full = batch.waiting.keySet().size() >= maxBatchSize;
+      if (full) {
+        current = null;
+      }
+    } finally {
+      lock.unlock();
+    }
+    try {
+      if (full) {
+        // the scheduled task, if any, will find that the batch has already been dispatched
+        executor.execute(batch);
+      } else if (first) {
+        if (scheduler == null) {
+          executor.execute(batch);
+        } else {
+          scheduler.schedule(batch, delay, unit);
+        }
+      }
+    } catch (RuntimeException e) {
+      // typically a RejectedExecutionException; nothing else would ever dispatch the batch
+      batch.fail(e);
+    }
+    return future;
+  }
+
+  /** The keys requested during one window, and the futures of the callers waiting on them. */
+  private final class Batch implements Runnable {
+    final ListMultimap<K, SettableFuture<V>> waiting = LinkedListMultimap.create();
+    boolean dispatched;  // guarded by lock
+
+    @Override public void run() {
+      lock.lock();
+      try {
+        if (dispatched) {
+          return;
+        }
+        dispatched = true;
+        if (current == this) {
+          current = null;
+        }
+      } finally {
+        lock.unlock();
+      }
+      ListenableFuture<Map<K, V>> values;
+      try {
+        values = loadAll(ImmutableSet.copyOf(waiting.keySet()));
+        if (values == null) {
+          throw new NullPointerException("loadAll returned null");
+        }
+      } catch (Exception e) {
+        values = Futures.immediateFailedFuture(e);
+      }
+      Futures.addCallback(values, new FutureCallback<Map<K, V>>() {
+        @Override public void onSuccess(Map<K, V> result) {
+          for (Map.Entry<K, SettableFuture<V>> entry : waiting.entries()) {
+            V value = result == null ? null : result.get(entry.getKey());
+            if (value == null) {
+              entry.getValue().setException(
+                  new NoSuchElementException("no value was loaded for " + entry.getKey()));
+            } else {
+              entry.getValue().set(value);
+            }
+          }
+        }
+
+        @Override public void onFailure(Throwable t) {
+          failWaiting(t);
+        }
+      }, directExecutor());
+    }
+
+    /** Fails every caller of this batch with {@code t}, unless it has already been dispatched. */
+    void fail(Throwable t) {
+      lock.lock();
+      try {
+        if (dispatched) {
+          return;
+        }
+        dispatched = true;
+        if (current == this) {
+          current = null;
+        }
+      } finally {
+        lock.unlock();
+      }
+      failWaiting(t);
+    }
+
+    private void failWaiting(Throwable t) {
+      for (SettableFuture<V> future : waiting.values()) {
+        future.setException(t);
+      }
+    }
+  }
+}
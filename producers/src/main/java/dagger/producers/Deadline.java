@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.producers;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ListenableFuture;
+import dagger.internal.Beta;
+import dagger.producers.internal.DeadlineAccess;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+
+/**
+ * A point in time after which a {@linkplain ProductionComponent production component} gives up on
+ * its work. Install one by passing it to the generated component builder's {@code deadline}
+ * method; components built without one use {@link #none}.
+ *
+ * <p>When the deadline passes, every producer in the component that has not yet completed is
+ * cancelled. Cancellation travels up through the futures that the component chains together, and
+ * from then on the component hands no more work to its executor: producers whose inputs were not
+ * yet ready never run, and producers that are already running are interrupted. Producers that are
+ * first requested after the deadline has passed are not started at all. In every case, callers see
+ * a {@link java.util.concurrent.CancellationException}.
+ *
+ * <p>A deadline starts counting when it is created, so a new one should be created for each
+ * request, and installed in a new component or passed to
+ * {@link ProductionComponentPool#acquire(Deadline)}. Its timer is only scheduled while it has
+ * outstanding work, and is cancelled as soon as that work completes, so a deadline that is met
+ * leaves nothing behind on the scheduler if the scheduler {@linkplain
+ * java.util.concurrent.ScheduledThreadPoolExecutor#setRemoveOnCancelPolicy removes cancelled
+ * tasks}.
+ *
+ * @since 2.1
+ */
+@Beta
+public final class Deadline {
+  private static final Deadline NONE = new Deadline(null, 0);
+
+  static {
+    Access.installAccess();
+  }
+
+  /** Lets producers track their futures without making that part of this class's API. */
+  private static final class Access extends DeadlineAccess {
+    static void installAccess() {
+      install(new Access());
+    }
+
+    @Override protected void cancelOnExpiry(Deadline deadline, ListenableFuture<?> future) {
+      deadline.cancelOnExpiry(future);
+    }
+  }
+
+  /**
+   * Returns a deadline that passes {@code duration} from now. {@code scheduler} is used to cancel
+   * outstanding work when it does.
+   */
+  public static Deadline after(
+      long duration, TimeUnit unit, ScheduledExecutorService scheduler) {
+    return new Deadline(checkNotNull(scheduler), System.nanoTime() + unit.toNanos(duration));
+  }
+
+  /** Returns a deadline that never passes. */
+  public static Deadline none() {
+    return NONE;
+  }
+
+  private final ScheduledExecutorService scheduler;
+  private final long expiresAtNanos;
+  private volatile boolean expired;
+  // guarded by this
+  private final Set<ListenableFuture<?>> outstanding = Sets.newHashSet();
+  // guarded by this; scheduled only while there is outstanding work
+  private ScheduledFuture<?> timer;
+
+  private Deadline(ScheduledExecutorService scheduler, long expiresAtNanos) {
+    this.scheduler = scheduler;
+    this.expiresAtNanos = expiresAtNanos;
+  }
+
+  /** Returns true if this deadline has passed. */
+  public boolean isExpired() {
+    if (expired) {
+      return true;
+    }
+    if (this == NONE || System.nanoTime() - expiresAtNanos < 0) {
+      return false;
+    }
+    // the timer may not be running, if there was no outstanding work
+    expire();
+    return true;
+  }
+
+  /**
+   * Passes this deadline now, cancelling any outstanding work. This is useful when the caller gives
+   * up before the deadline would otherwise have passed. Has no effect on {@link #none}.
+   */
+  public void expire() {
+    if (this == NONE) {
+      return;
+    }
+    ImmutableList<ListenableFuture<?>> toCancel;
+    synchronized (this) {
+      if (expired) {
+        return;
+      }
+      expired = true;
+      toCancel = ImmutableList.copyOf(outstanding);
+      outstanding.clear();
+      cancelTimer();
+    }
+    // cancel outside the lock, since cancellation runs listeners that may call back in
+    for (ListenableFuture<?> future : toCancel) {
+      future.cancel(true);
+    }
+  }
+
+  /**
+   * Arranges for {@code future} to be cancelled when this deadline passes, or cancels it now if the
+   * deadline has already passed. Producers call this, through {@link DeadlineAccess}, for each
+   * future that they create.
+   */
+  void cancelOnExpiry(final ListenableFuture<?> future) {
+    if (this == NONE) {
+      return;
+    }
+    if (!track(future)) {
+      future.cancel(true);
+      return;
+    }
+    future.addListener(new Runnable() {
+      @Override public void run() {
+        untrack(future);
+      }
+    }, directExecutor());
+  }
+
+  /** Adds {@code future} to the outstanding work, or returns false if this deadline has passed. */
+  private synchronized boolean track(ListenableFuture<?> future) {
+    if (expired) {
+      return false;
+    }
+    if (outstanding.isEmpty()) {
+      long remainingNanos = expiresAtNanos - System.nanoTime();
+      if (remainingNanos <= 0) {
+        expired = true;
+        return false;
+      }
+      timer = scheduler.schedule(new Runnable() {
+        @Override public void run() {
+          expire();
+        }
+      }, remainingNanos, TimeUnit.NANOSECONDS);
+    }
+    outstanding.add(future);
+    return true;
+  }
+
+  private synchronized void untrack(ListenableFuture<?> future) {
+    if (outstanding.remove(future) && outstanding.isEmpty()) {
+      cancelTimer();
+    }
+  }
+
+  private void cancelTimer() {
+    if (timer != null) {
+      timer.cancel(false);
+      timer = null;
+    }
+  }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.producers;
+
+import dagger.internal.Beta;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An executor that runs at most a fixed number of tasks at once on a delegate executor, and that
+ * picks the task with the highest priority whenever one of those slots frees up. Tasks with equal
+ * priorities run in the order that they were submitted.
+ *
+ * <p>When one is passed to the generated builder of a {@linkplain ProductionComponent production
+ * component}, each producer in the component submits its work with the priority that Dagger
+ * computed for it: the length of the longest chain of producers from it to a component method. A
+ * producer on the critical path of the component therefore runs ahead of producers that only feed
+ * short branches, which shortens the component's overall latency when the executor is busy.
+ *
+ * <p>Components that share an instance compete for its slots, so that the critical paths of every
+ * in-flight request are started first. {@link #execute} submits a task with priority 0, below that
+ * of every producer.
+ *
+ * @since 2.1
+ */
+@Beta
+public final class PriorityExecutor implements Executor {
+  private static final Logger logger = Logger.getLogger(PriorityExecutor.class.getName());
+
+  /**
+   * Returns an executor that runs up to {@code parallelism} tasks at once on {@code delegate}.
+   * The delegate should be able to run that many tasks concurrently, a thread pool of at least
+   * that size for example.
+   */
+  public static PriorityExecutor create(Executor delegate, int parallelism) {
+    checkArgument(parallelism > 0, "parallelism must be positive: %s", parallelism);
+    return new PriorityExecutor(checkNotNull(delegate), parallelism);
+  }
+
+  private final Executor delegate;
+  private final int parallelism;
+  private final Runnable worker = new Worker();
+  private final ConcurrentMap<Integer, Executor> views =
+      new ConcurrentHashMap<Integer, Executor>();
+  // guarded by itself, along with running and submitted
+  private final PriorityQueue<Task> queue = new PriorityQueue<Task>();
+  private int running;
+  private long submitted;
+
+  private PriorityExecutor(Executor delegate, int parallelism) {
+    this.delegate = delegate;
+    this.parallelism = parallelism;
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    execute(task, 0);
+  }
+
+  /**
+   * Returns a view of this executor that submits every task with {@code priority}. Views are
+   * cached, so the producers of a component that share a priority share a view.
+   */
+  public Executor withPriority(int priority) {
+    Executor view = views.get(priority);
+    if (view == null) {
+      view = new PriorityView(priority);
+      Executor existing = views.putIfAbsent(priority, view);
+      if (existing != null) {
+        view = existing;
+      }
+    }
+    return view;
+  }
+
+  private final class PriorityView implements Executor {
+    private final int priority;
+
+    PriorityView(int priority) {
+      this.priority = priority;
+    }
+
+    @Override public void execute(Runnable task) {
+      PriorityExecutor.this.execute(task, priority);
+    }
+
+    @Override public String toString() {
+      return PriorityExecutor.this + " at priority " + priority;
+    }
+  }
+
+  private void execute(Runnable runnable, int priority) {
+    Task task;
+    boolean startWorker;
+    synchronized (queue) {
+      task = new Task(checkNotNull(runnable), priority, submitted++);
+      queue.add(task);
+      startWorker = running < parallelism;
+      if (startWorker) {
+        running++;
+      }
+    }
+    if (startWorker) {
+      try {
+        delegate.execute(worker);
+      } catch (RuntimeException e) {
+        synchronized (queue) {
+          running--;
+          queue.remove(task);
+        }
+        throw e;
+      }
+    }
+  }
+
+  /** Runs queued tasks, highest priority first, until there are none left. */
+  private final class Worker implements Runnable {
+    @Override public void run() {
+      boolean drained = false;
+      try {
+        while (true) {
+          Task task;
+          synchronized (queue) {
+            task = queue.poll();
+            if (task == null) {
+              running--;
+              drained = true;
+              return;
+            }
+          }
+          try {
+            task.runnable.run();
+          } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Exception while executing runnable " + task.runnable, e);
+          }
+        }
+      } finally {
+        if (!drained) {
+          // an Error escaped and takes this thread with it, so hand the slot to a new worker if
+          // there are tasks left for it, or else give it up
+          boolean restartWorker;
+          synchronized (queue) {
+            restartWorker = !queue.isEmpty();
+            if (!restartWorker) {
+              running--;
+            }
+          }
+          if (restartWorker) {
+            try {
+              delegate.execute(worker);
+            } catch (RuntimeException e) {
+              synchronized (queue) {
+                running--;
+              }
+              logger.log(Level.SEVERE, "Could not restart a worker on " + delegate, e);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  private static final class Task implements Comparable<Task> {
+    final Runnable runnable;
+    final int priority;
+    final long sequence;
+
+    Task(Runnable runnable, int priority, long sequence) {
+      this.runnable = runnable;
+      this.priority = priority;
+      this.sequence = sequence;
+    }
+
+    @Override public int compareTo(Task other) {
+      if (priority != other.priority) {
+        return priority > other.priority ? -1 : 1;
+      }
+      return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+    }
+  }
+}
@@ -35,6 +35,8 @@ import java.util.concurrent.ExecutionException;
  *     }
  *   }}</pre>
  *
+ * <p>Tests can create instances with {@link Produceds} to call such methods directly.
+ *
  * @author Jesse Beder
  */
 @Beta
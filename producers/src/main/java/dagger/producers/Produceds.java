@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.producers;
+
+import com.google.common.base.Objects;
+import dagger.internal.Beta;
+import java.util.concurrent.ExecutionException;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Static factories for {@link Produced} values. Two values compare equal if both are successful
+ * with equal values, or both are failed with equal exceptions.
+ *
+ * @since 2.1
+ */
+@Beta
+public final class Produceds {
+  /**
+   * Returns a successful {@code Produced}, whose {@link Produced#get} will return the given
+   * value.
+   */
+  public static <T> Produced<T> successful(T value) {
+    return new Successful<T>(value);
+  }
+
+  /**
+   * Returns a failed {@code Produced}, whose {@link Produced#get} will throw an
+   * {@code ExecutionException} with the given cause.
+   */
+  public static <T> Produced<T> failed(Throwable throwable) {
+    return new Failed<T>(checkNotNull(throwable));
+  }
+
+  private static final class Successful<T> implements Produced<T> {
+    private final T value;
+
+    Successful(T value) {
+      this.value = value;
+    }
+
+    @Override public T get() {
+      return value;
+    }
+
+    @Override public boolean equals(Object o) {
+      if (o == this) {
+        return true;
+      } else if (o instanceof Successful) {
+        Successful<?> that = (Successful<?>) o;
+        return Objects.equal(this.value, that.value);
+      } else {
+        return false;
+      }
+    }
+
+    @Override public int hashCode() {
+      return value == null ? 0 : value.hashCode();
+    }
+
+    @Override public String toString() {
+      return "Produced[" + value + "]";
+    }
+  }
+
+  private static final class Failed<T> implements Produced<T> {
+    private final Throwable throwable;
+
+    Failed(Throwable throwable) {
+      this.throwable = throwable;
+    }
+
+    @Override public T get() throws ExecutionException {
+      throw new ExecutionException(throwable);
+    }
+
+    @Override public boolean equals(Object o) {
+      if (o == this) {
+        return true;
+      } else if (o instanceof Failed) {
+        Failed<?> that = (Failed<?>) o;
+        return this.throwable.equals(that.throwable);
+      } else {
+        return false;
+      }
+    }
+
+    @Override public int hashCode() {
+      // the hashCode of a successful Produced with the throwable as its value is the same, but
+      // that's fine, since the two aren't equal
+      return throwable.hashCode();
+    }
+
+    @Override public String toString() {
+      return "Produced[failed with " + throwable.getClass().getCanonicalName() + "]";
+    }
+  }
+
+  private Produceds() {}
+}
@@ -28,6 +28,10 @@ import static java.lang.annotation.ElementType.METHOD;
  * future provides; otherwise, the return type is bound to the returned value. The production
  * component will pass dependencies to the method as parameters.
  *
+ * <p>On Java 8 and later, a method may return a {@code CompletionStage} or
+ * {@code CompletableFuture} instead of a {@code ListenableFuture}, and the stage's value is bound
+ * in the same way.
+ *
  * @author Jesse Beder
  */
 @Documented
@@ -67,4 +71,15 @@ public @interface Produces {
   }
 
   Type type() default Type.UNIQUE;
+
+  /**
+   * Whether the method is cheap enough to run without a hop to the production component's
+   * executor. If {@code true}, the method runs on whichever thread completes the last of its
+   * inputs, or immediately on the requesting thread if its inputs are already complete. Only use
+   * this for methods that neither block nor do significant work, since they can hold up the thread
+   * of an unrelated producer.
+   *
+   * @since 2.1
+   */
+  boolean inline() default false;
 }
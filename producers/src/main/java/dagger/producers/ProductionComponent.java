@@ -51,6 +51,9 @@ import static java.lang.annotation.ElementType.TYPE;
  *   Producer<Set<SomeType>> getSomeTypes();
  *   @Response ListenableFuture<Html> getResponse();}</pre>
  *
+ * <p>On Java 8 and later, a production method may instead return a {@code CompletableFuture} or
+ * {@code CompletionStage}, for callers that compose stages rather than listenable futures.
+ *
  * <h2>Exceptions</h2>
  *
  * <p>When a producer throws an exception, the exception will be propagated to its downstream
@@ -64,6 +67,25 @@ import static java.lang.annotation.ElementType.TYPE;
  * {@link com.google.common.util.concurrent.Futures#transform}.
  * <!-- TODO(user): Explain this more thoroughly, and update the javadocs of those utilities. -->
  *
+ * <h2>Monitoring and deadlines</h2>
+ *
+ * <p>The generated builder accepts an optional
+ * {@link dagger.producers.monitoring.ProductionComponentMonitor}, which is told when each producer
+ * in the component is requested, runs and completes, and an optional {@link Deadline}, after which
+ * the component's outstanding producers are cancelled.
+ *
+ * <p>If the executor passed to the builder is a {@link PriorityExecutor}, each producer submits
+ * its work with the priority that Dagger computed for it from the component's graph, so that
+ * producers on the longest chains run first.
+ *
+ * <h2>Reuse</h2>
+ *
+ * <p>Each generated component implements {@link dagger.producers.internal.ResettableComponent},
+ * whose {@code reset} method forgets every producer's result, so that each {@link Produces} method
+ * will be called again when next requested, and installs the next request's {@link Deadline}. A
+ * {@link ProductionComponentPool} uses this to hand one component to a series of requests instead
+ * of building a new one for each.
+ *
  * @author Jesse Beder
  */
 @Documented
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.producers;
+
+import dagger.internal.Beta;
+import dagger.producers.internal.ResettableComponent;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.inject.Provider;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A pool of {@linkplain ProductionComponent production component} instances, for servers that
+ * would otherwise build a new component, and allocate all of its producers, for every request. A
+ * worker {@linkplain #acquire acquires} a component, requests its outputs, and once every future
+ * it obtained from the component is done, {@linkplain #release releases} it to be reset and
+ * handed to a later request: <pre>   {@code
+ *
+ *   ProductionComponentPool<SearchComponent> pool = ProductionComponentPool.create(
+ *       new Provider<SearchComponent>() {
+ *         public SearchComponent get() {
+ *           return DaggerSearchComponent.builder()
+ *               .searchModule(new SearchModule(requestHolder))
+ *               .executor(executor)
+ *               .build();
+ *         }
+ *       }, 16);
+ *
+ *   SearchComponent component =
+ *       pool.acquire(Deadline.after(100, TimeUnit.MILLISECONDS, scheduler));
+ *   try {
+ *     requestHolder.set(request);
+ *     return component.response().get();
+ *   } finally {
+ *     pool.release(component);
+ *   }}</pre>
+ *
+ * <p>A reset component keeps the modules, executor and monitor that it was built with, as well as
+ * its scoped provisions. Per-request inputs therefore have to reach it through state that the
+ * caller updates before each request, such as a module field as above. A {@link Deadline} covers
+ * one request, so it is passed to {@link #acquire(Deadline)} rather than to the component's
+ * builder, and dropped when the component is released.
+ *
+ * @param <C> the type of the production component
+ * @since 2.1
+ */
+@Beta
+public final class ProductionComponentPool<C> {
+  /**
+   * Returns a pool that builds components with {@code factory} when it has none idle, and keeps
+   * at most {@code maxIdle} released components for reuse.
+   */
+  public static <C> ProductionComponentPool<C> create(Provider<C> factory, int maxIdle) {
+    checkArgument(maxIdle >= 0, "maxIdle must not be negative: %s", maxIdle);
+    return new ProductionComponentPool<C>(checkNotNull(factory), maxIdle);
+  }
+
+  private final Provider<C> factory;
+  private final int maxIdle;
+  private final Queue<C> idle = new ConcurrentLinkedQueue<C>();
+  // tracked separately, since ConcurrentLinkedQueue.size() is linear
+  private final AtomicInteger idleCount = new AtomicInteger();
+
+  private ProductionComponentPool(Provider<C> factory, int maxIdle) {
+    this.factory = factory;
+    this.maxIdle = maxIdle;
+  }
+
+  /** Returns an idle component, or a new one if there are none, with no deadline. */
+  public C acquire() {
+    return acquire(Deadline.none());
+  }
+
+  /**
+   * Returns an idle component, or a new one if there are none, whose producers give up when
+   * {@code deadline} passes.
+   *
+   * @throws IllegalArgumentException if the component was not generated with reset support
+   */
+  public C acquire(Deadline deadline) {
+    checkNotNull(deadline);
+    C component = idle.poll();
+    if (component != null) {
+      idleCount.decrementAndGet();
+    } else {
+      component = factory.get();
+      if (component == null) {
+        throw new NullPointerException(factory + " returned null");
+      }
+    }
+    if (deadline != Deadline.none()) {
+      // released components, and new ones built without a deadline, have none
+      resettable(component).reset(deadline);
+    }
+    return component;
+  }
+
+  /**
+   * Resets {@code component}, dropping its deadline, and keeps it for a later call to
+   * {@link #acquire}, unless the pool already holds {@code maxIdle} components. The caller must not
+   * use the component, or any producer obtained from it, afterwards.
+   *
+   * @throws IllegalArgumentException if {@code component} was not generated with reset support
+   */
+  public void release(C component) {
+    resettable(checkNotNull(component)).reset(Deadline.none());
+    if (idleCount.incrementAndGet() <= maxIdle) {
+      idle.offer(component);
+    } else {
+      idleCount.decrementAndGet();
+    }
+  }
+
+  private static ResettableComponent resettable(Object component) {
+    if (!(component instanceof ResettableComponent)) {
+      throw new IllegalArgumentException(
+          component.getClass().getName() + " is not a generated production component");
+    }
+    return (ResettableComponent) component;
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.producers;
+
+import com.google.common.base.Optional;
+import dagger.internal.Beta;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Executors suited to running {@linkplain ProductionComponent production components}, for passing
+ * to the generated component builder's {@code executor} method.
+ *
+ * @since 2.1
+ */
+@Beta
+public final class ProductionExecutors {
+  private static final Optional<ThreadFactory> VIRTUAL_THREAD_FACTORY = virtualThreadFactory();
+
+  /** Returns true if this runtime can run producers on virtual threads. */
+  public static boolean supportsVirtualThreads() {
+    return VIRTUAL_THREAD_FACTORY.isPresent();
+  }
+
+  /**
+   * Returns an executor that runs each task on a new virtual thread. Producers that block, on I/O
+   * for example, then only tie up a carrier thread while they are actually running, so there is no
+   * pool to size. The executor holds no threads of its own and need not be shut down.
+   *
+   * <p>{@linkplain dagger.producers.Produces#inline Inline} producers run while their producer holds
+   * its monitor, so an inline producer that blocks pins its carrier thread; producers that block
+   * should not be inline. {@code @Produces} methods should likewise prefer
+   * {@link java.util.concurrent.locks.Lock locks} to {@code synchronized} around blocking calls.
+   *
+   * @throws UnsupportedOperationException if this runtime has no virtual threads; see
+   *     {@link #supportsVirtualThreads}
+   */
+  public static Executor virtualThreadPerTask() {
+    if (!VIRTUAL_THREAD_FACTORY.isPresent()) {
+      throw new UnsupportedOperationException("virtual threads require Java 21 or later");
+    }
+    final ThreadFactory threadFactory = VIRTUAL_THREAD_FACTORY.get();
+    return new Executor() {
+      @Override public void execute(Runnable task) {
+        threadFactory.newThread(task).start();
+      }
+    };
+  }
+
+  /**
+   * Looks up {@code Thread.ofVirtual().factory()} reflectively, since dagger is built for runtimes
+   * that predate it.
+   */
+  private static Optional<ThreadFactory> virtualThreadFactory() {
+    try {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+      return Optional.of((ThreadFactory) factory.invoke(builder));
+    } catch (ClassNotFoundException e) {
+      return Optional.absent();
+    } catch (NoSuchMethodException e) {
+      return Optional.absent();
+    } catch (IllegalAccessException e) {
+      return Optional.absent();
+    } catch (InvocationTargetException e) {
+      // preview builds of Java 19 and 20 throw unless preview features are enabled
+      return Optional.absent();
+    }
+  }
+
+  private ProductionExecutors() {}
+}
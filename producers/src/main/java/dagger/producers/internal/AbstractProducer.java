@@ -15,8 +15,25 @@
  */
 package dagger.producers.internal;
 
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import dagger.producers.Deadline;
 import dagger.producers.Producer;
+import dagger.producers.monitoring.ProducerMonitor;
+import dagger.producers.monitoring.ProducerToken;
+import dagger.producers.monitoring.ProductionComponentMonitor;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static com.google.common.util.concurrent.Uninterruptibles.getUninterruptibly;
 
 /**
  * An abstract {@link Producer} implementation that memoizes the result of its compute method.
@@ -25,26 +42,341 @@ import dagger.producers.Producer;
  * @since 2.0
  */
 public abstract class AbstractProducer<T> implements Producer<T> {
+  private static final Logger logger = Logger.getLogger(AbstractProducer.class.getName());
+
+  @SuppressWarnings("rawtypes")
+  private static final AtomicReferenceFieldUpdater<AbstractProducer, ListenableFuture> INSTANCE =
+      AtomicReferenceFieldUpdater.newUpdater(
+          AbstractProducer.class, ListenableFuture.class, "instance");
+
+  /**
+   * Held in {@link #instance} while a caller of {@link #get} computes it. Compared by identity
+   * only, and never returned.
+   */
+  private static final ListenableFuture<Object> COMPUTING = SettableFuture.create();
+
+  private final ProducerMonitor monitor;
+  // replaced on reset, since a deadline covers one request
+  private volatile Deadline deadline;
+  // null, COMPUTING, a Placeholder while callers wait on a computation, or the memoized future
   private volatile ListenableFuture<T> instance = null;
 
+  protected AbstractProducer() {
+    this.monitor = ProducerMonitor.noOp();
+    this.deadline = Deadline.none();
+  }
+
+  /**
+   * Creates a producer that reports its lifecycle to the monitor that {@code componentMonitor}
+   * returns for the {@linkplain ProducerToken token} of {@code producerClass}.
+   *
+   * @since 2.1
+   */
+  protected AbstractProducer(ProductionComponentMonitor componentMonitor, Class<?> producerClass) {
+    this(componentMonitor, producerClass, Deadline.none());
+  }
+
+  /**
+   * Creates a producer that reports to {@code componentMonitor} like
+   * {@link #AbstractProducer(ProductionComponentMonitor, Class)}, and that gives up on its work
+   * when {@code deadline} passes.
+   *
+   * @since 2.1
+   */
+  protected AbstractProducer(
+      ProductionComponentMonitor componentMonitor, Class<?> producerClass, Deadline deadline) {
+    // most components are not monitored, so don't make them pay for a token per producer
+    if (componentMonitor == ProductionComponentMonitor.noOp()) {
+      this.monitor = ProducerMonitor.noOp();
+    } else {
+      ProducerMonitor monitor =
+          componentMonitor.producerMonitorFor(ProducerToken.create(producerClass));
+      if (monitor == null) {
+        throw new NullPointerException(componentMonitor + " returned a null ProducerMonitor");
+      }
+      this.monitor = monitor == ProducerMonitor.noOp() ? monitor : new SafeProducerMonitor(monitor);
+    }
+    if (deadline == null) {
+      throw new NullPointerException("deadline");
+    }
+    this.deadline = deadline;
+  }
+
   /** Computes this producer's future, which is then cached in {@link #get}. */
   protected abstract ListenableFuture<T> compute();
 
   @Override
   public final ListenableFuture<T> get() {
-    // double-check idiom from EJ2: Item 71
     ListenableFuture<T> result = instance;
-    if (result == null) {
-      synchronized (this) {
-        result = instance;
-        if (result == null) {
-          instance = result = compute();
-          if (result == null) {
-            throw new NullPointerException("compute returned null");
-          }
+    if (result != null && result != COMPUTING) {
+      return result;
+    }
+    // claim the computation with a CAS rather than a lock, so that no caller ever blocks on
+    // another thread's call to compute, which for inline producers runs the producer method
+    while (true) {
+      result = instance;
+      if (result == null) {
+        if (INSTANCE.compareAndSet(this, null, COMPUTING)) {
+          return computeAndPublish();
         }
+      } else if (result == COMPUTING) {
+        // only callers that arrive during the computation pay for a future of their own
+        Placeholder<T> placeholder = new Placeholder<T>();
+        if (INSTANCE.compareAndSet(this, COMPUTING, placeholder)) {
+          return placeholder;
+        }
+      } else {
+        return result;
       }
     }
+  }
+
+  private ListenableFuture<T> computeAndPublish() {
+    ListenableFuture<T> result;
+    try {
+      result = computeMonitored();
+    } catch (RuntimeException e) {
+      abandon(e);
+      throw e;
+    } catch (Error e) {
+      abandon(e);
+      throw e;
+    }
+    if (!INSTANCE.compareAndSet(this, COMPUTING, result)) {
+      Placeholder<T> placeholder = claimPlaceholder();
+      instance = result;
+      placeholder.setSource(result);
+    }
     return result;
   }
+
+  private ListenableFuture<T> computeMonitored() {
+    monitor.requested();
+    ListenableFuture<T> result;
+    if (deadline.isExpired()) {
+      // don't start work that nobody will wait for
+      result = Futures.immediateCancelledFuture();
+    } else {
+      result = compute();
+      if (result == null) {
+        throw new NullPointerException("compute returned null");
+      }
+      Producers.cancelOnExpiry(deadline, result);
+    }
+    if (monitor != ProducerMonitor.noOp()) {
+      Futures.addCallback(result, new FutureCallback<T>() {
+        @Override public void onSuccess(T value) {
+          monitor.succeeded(value);
+        }
+
+        @Override public void onFailure(Throwable t) {
+          monitor.failed(t);
+        }
+      }, directExecutor());
+    }
+    return result;
+  }
+
+  /**
+   * Forgets the computation that threw {@code t}, so that the next call to {@link #get} tries
+   * again, and fails the callers that were waiting for it.
+   */
+  private void abandon(Throwable t) {
+    if (!INSTANCE.compareAndSet(this, COMPUTING, null)) {
+      Placeholder<T> placeholder = claimPlaceholder();
+      instance = null;
+      placeholder.fail(t);
+    }
+  }
+
+  /**
+   * Returns the placeholder that replaced {@link #COMPUTING}. Only the computing thread calls this,
+   * and nothing else replaces a placeholder, so it is still there.
+   */
+  @SuppressWarnings("unchecked")
+  private Placeholder<T> claimPlaceholder() {
+    return (Placeholder<T>) instance;
+  }
+
+  /**
+   * Forgets the memoized future, so that the next call to {@link #get} computes a new one that
+   * gives up when {@code deadline} passes. Used by {@link Producers#reset} when a component is
+   * reused for another request. A computation in progress, which only has to create the future,
+   * is allowed to finish first.
+   */
+  final void reset(Deadline deadline) {
+    this.deadline = deadline;
+    while (true) {
+      ListenableFuture<T> current = instance;
+      if (current == COMPUTING || current instanceof Placeholder) {
+        Thread.yield();
+      } else if (INSTANCE.compareAndSet(this, current, null)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Reports to this producer's monitor that its method is starting. Generated producers call this,
+   * and then {@link #methodFinished}, around the call to their method, so that a producer that
+   * never runs because one of its inputs failed or was cancelled reports neither.
+   *
+   * @throws CancellationException if this producer's deadline has passed, in which case its future
+   *     has already been cancelled and the method should not run
+   * @since 2.1
+   */
+  protected final void methodStarting() {
+    if (deadline.isExpired()) {
+      throw new CancellationException("deadline passed");
+    }
+    monitor.methodStarting();
+  }
+
+  /**
+   * Reports to this producer's monitor that its method has returned or thrown.
+   *
+   * @since 2.1
+   */
+  protected final void methodFinished() {
+    monitor.methodFinished();
+  }
+
+  /**
+   * Returns an executor that reports to this producer's monitor that the producer is
+   * {@linkplain ProducerMonitor#ready ready} and then hands the task to {@code executor}, so that
+   * the time spent queued on the executor counts after {@code ready}. Generated producers pass it
+   * to {@link FutureCombiner}, which only hands off once every input has succeeded, so a producer
+   * that never runs doesn't report {@code ready} either. Inline producers pass
+   * {@code directExecutor()}.
+   *
+   * <p>Once this producer's deadline passes, the executor runs tasks on the calling thread instead,
+   * without reporting {@code ready}. By then every producer in the component has been cancelled,
+   * so the remaining tasks only pass that cancellation along, and {@link #methodStarting} keeps
+   * any producer method from running. Generated producers call this each time they compute, since
+   * a reset may have replaced the deadline.
+   *
+   * @since 2.1
+   */
+  protected final Executor dispatchTo(final Executor executor) {
+    final Deadline deadline = this.deadline;
+    if (deadline == Deadline.none() && monitor == ProducerMonitor.noOp()) {
+      return executor;
+    }
+    return new Executor() {
+      @Override public void execute(Runnable task) {
+        if (deadline.isExpired()) {
+          task.run();
+        } else {
+          monitor.ready();
+          executor.execute(task);
+        }
+      }
+    };
+  }
+
+  /**
+   * The future that {@link #get} returns to callers that arrive while another thread computes the
+   * memoized future. It completes as that future does, and cancelling it cancels that future, as
+   * cancelling the memoized future itself would.
+   */
+  private static final class Placeholder<T> extends AbstractFuture<T> implements Runnable {
+    private volatile ListenableFuture<T> source;
+
+    void setSource(ListenableFuture<T> source) {
+      this.source = source;
+      if (isCancelled()) {
+        source.cancel(wasInterrupted());
+      }
+      source.addListener(this, directExecutor());
+    }
+
+    void fail(Throwable t) {
+      setException(t);
+    }
+
+    @Override public void run() {
+      try {
+        set(getUninterruptibly(source));
+      } catch (ExecutionException e) {
+        setException(e.getCause());
+      } catch (CancellationException e) {
+        super.cancel(false);
+      }
+    }
+
+    @Override public boolean cancel(boolean mayInterruptIfRunning) {
+      if (super.cancel(mayInterruptIfRunning)) {
+        ListenableFuture<T> source = this.source;
+        if (source != null) {
+          source.cancel(mayInterruptIfRunning);
+        }
+        return true;
+      }
+      return false;
+    }
+  }
+
+  /**
+   * A monitor that logs and swallows whatever the monitor it wraps throws, so that a broken
+   * monitor can't fail a producer or keep it from running.
+   */
+  private static final class SafeProducerMonitor extends ProducerMonitor {
+    private final ProducerMonitor delegate;
+
+    SafeProducerMonitor(ProducerMonitor delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override public void requested() {
+      try {
+        delegate.requested();
+      } catch (RuntimeException e) {
+        logThrown("requested", e);
+      }
+    }
+
+    @Override public void ready() {
+      try {
+        delegate.ready();
+      } catch (RuntimeException e) {
+        logThrown("ready", e);
+      }
+    }
+
+    @Override public void methodStarting() {
+      try {
+        delegate.methodStarting();
+      } catch (RuntimeException e) {
+        logThrown("methodStarting", e);
+      }
+    }
+
+    @Override public void methodFinished() {
+      try {
+        delegate.methodFinished();
+      } catch (RuntimeException e) {
+        logThrown("methodFinished", e);
+      }
+    }
+
+    @Override public void succeeded(Object o) {
+      try {
+        delegate.succeeded(o);
+      } catch (RuntimeException e) {
+        logThrown("succeeded", e);
+      }
+    }
+
+    @Override public void failed(Throwable t) {
+      try {
+        delegate.failed(t);
+      } catch (RuntimeException e) {
+        logThrown("failed", e);
+      }
+    }
+
+    private void logThrown(String method, RuntimeException e) {
+      logger.log(Level.SEVERE, "RuntimeException thrown by " + delegate + "." + method, e);
+    }
+  }
 }
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.producers.internal;
+
+import com.google.common.util.concurrent.AbstractFuture;
+import java.util.concurrent.CancellationException;
+
+/**
+ * A future that completes when a {@code CompletionStage} returned by a {@code @Produces} method
+ * does. Dagger is built for runtimes that predate {@code CompletionStage}, so generated factories
+ * subclass this with a nested class that also implements {@code BiConsumer<T, Throwable>}, and
+ * pass an instance to the stage's {@code whenComplete}. That keeps the adapter to a single
+ * allocation per producer.
+ *
+ * <p>Cancelling this future doesn't cancel the stage, since cancelling a {@code CompletableFuture}
+ * wouldn't stop the work that completes it anyway.
+ *
+ * @since 2.1
+ */
+public abstract class CompletionStageFuture<T> extends AbstractFuture<T> {
+  private static final String COMPLETION_EXCEPTION = "java.util.concurrent.CompletionException";
+
+  protected CompletionStageFuture() {}
+
+  /**
+   * Completes this future with the outcome of the stage, as passed to {@code whenComplete}.
+   */
+  protected final void complete(T value, Throwable failure) {
+    if (failure == null) {
+      set(value);
+    } else if (failure instanceof CancellationException) {
+      cancel(false);
+    } else if (failure.getClass().getName().equals(COMPLETION_EXCEPTION)
+        && failure.getCause() != null) {
+      // dependent stages wrap the failure that they propagate
+      setException(failure.getCause());
+    } else {
+      setException(failure);
+    }
+  }
+}
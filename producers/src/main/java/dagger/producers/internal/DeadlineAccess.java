@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.producers.internal;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import dagger.producers.Deadline;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Gives this package the parts of {@link Deadline} that only producers use. {@link Deadline}
+ * installs its implementation when it is loaded, which is always before the first call through
+ * {@link Producers}, since the call takes a deadline.
+ *
+ * @since 2.1
+ */
+public abstract class DeadlineAccess {
+  private static volatile DeadlineAccess instance;
+
+  /** Installs the implementation. Only {@link Deadline} calls this, once. */
+  protected static void install(DeadlineAccess access) {
+    checkState(instance == null, "deadline access is already installed");
+    instance = access;
+  }
+
+  static DeadlineAccess get() {
+    return instance;
+  }
+
+  protected DeadlineAccess() {}
+
+  /**
+   * Arranges for {@code future} to be cancelled when {@code deadline} passes, or cancels it now if
+   * the deadline has already passed.
+   */
+  protected abstract void cancelOnExpiry(Deadline deadline, ListenableFuture<?> future);
+}
@@ -0,0 +1,457 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.producers.internal;
+
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static com.google.common.util.concurrent.Uninterruptibles.getUninterruptibly;
+
+/**
+ * A future that waits for a fixed number of input futures and then, on an executor, passes their
+ * values to a callback that computes its own value. Generated producers with asynchronous
+ * dependencies implement the callback interface for their number of inputs ({@link Callback1}
+ * through {@link Callback5}, or {@link CallbackN} for more) and call the matching {@code combine}
+ * method from {@code compute()}, passing themselves as the callback. This replaces
+ * {@code Futures.transform(Futures.allAsList(...), ...)}, which would allocate an aggregate
+ * future, a list of the results, a function that casts each one, and a transform future: a
+ * combination allocates only the combiner itself, which holds the inputs in typed fields, listens
+ * to each of them, and is the task that it hands to the executor.
+ *
+ * <p>As with {@code allAsList}, the combined future fails as soon as any input fails, is cancelled
+ * if any input is cancelled, and cancels its inputs (and the future returned by the callback) when
+ * it is cancelled. The callback is only called if every input succeeds, and the executor is only
+ * used to call it.
+ *
+ * @since 2.1
+ */
+public abstract class FutureCombiner<T> extends AbstractFuture<T> implements Runnable {
+  /** A callback for {@link #combine(ListenableFuture, Callback1, Executor)}. */
+  public interface Callback1<A, T> {
+    ListenableFuture<T> combine(A a) throws Exception;
+  }
+
+  /** A callback for {@link #combine(ListenableFuture, ListenableFuture, Callback2, Executor)}. */
+  public interface Callback2<A, B, T> {
+    ListenableFuture<T> combine(A a, B b) throws Exception;
+  }
+
+  /** A callback for a combination of three inputs. */
+  public interface Callback3<A, B, C, T> {
+    ListenableFuture<T> combine(A a, B b, C c) throws Exception;
+  }
+
+  /** A callback for a combination of four inputs. */
+  public interface Callback4<A, B, C, D, T> {
+    ListenableFuture<T> combine(A a, B b, C c, D d) throws Exception;
+  }
+
+  /** A callback for a combination of five inputs. */
+  public interface Callback5<A, B, C, D, E, T> {
+    ListenableFuture<T> combine(A a, B b, C c, D d, E e) throws Exception;
+  }
+
+  /**
+   * A callback for a combination of any number of inputs, whose values it receives in the order of
+   * the inputs.
+   */
+  public interface CallbackN<T> {
+    ListenableFuture<T> combine(Object[] values) throws Exception;
+  }
+
+  public static <A, T> ListenableFuture<T> combine(
+      ListenableFuture<A> a, Callback1<A, T> callback, Executor executor) {
+    return new Combiner1<A, T>(a, callback, executor).start();
+  }
+
+  public static <A, B, T> ListenableFuture<T> combine(
+      ListenableFuture<A> a, ListenableFuture<B> b,
+      Callback2<A, B, T> callback, Executor executor) {
+    return new Combiner2<A, B, T>(a, b, callback, executor).start();
+  }
+
+  public static <A, B, C, T> ListenableFuture<T> combine(
+      ListenableFuture<A> a, ListenableFuture<B> b, ListenableFuture<C> c,
+      Callback3<A, B, C, T> callback, Executor executor) {
+    return new Combiner3<A, B, C, T>(a, b, c, callback, executor).start();
+  }
+
+  public static <A, B, C, D, T> ListenableFuture<T> combine(
+      ListenableFuture<A> a, ListenableFuture<B> b, ListenableFuture<C> c, ListenableFuture<D> d,
+      Callback4<A, B, C, D, T> callback, Executor executor) {
+    return new Combiner4<A, B, C, D, T>(a, b, c, d, callback, executor).start();
+  }
+
+  public static <A, B, C, D, E, T> ListenableFuture<T> combine(
+      ListenableFuture<A> a, ListenableFuture<B> b, ListenableFuture<C> c, ListenableFuture<D> d,
+      ListenableFuture<E> e, Callback5<A, B, C, D, E, T> callback, Executor executor) {
+    return new Combiner5<A, B, C, D, E, T>(a, b, c, d, e, callback, executor).start();
+  }
+
+  public static <T> ListenableFuture<T> combine(
+      CallbackN<T> callback, Executor executor, ListenableFuture<?>... inputs) {
+    return new CombinerN<T>(inputs, callback, executor).start();
+  }
+
+  @SuppressWarnings("rawtypes")  // the updater is shared by every parameterization
+  private static final AtomicIntegerFieldUpdater<FutureCombiner> REMAINING =
+      AtomicIntegerFieldUpdater.newUpdater(FutureCombiner.class, "remaining");
+
+  private final Executor executor;
+  /**
+   * The number of inputs that have not completed yet. The listener that takes it to zero hands
+   * this combiner to the executor, and running it there takes it to -1.
+   */
+  private volatile int remaining;
+  /** The future returned by the callback, or {@code null} if it has not been called yet. */
+  private volatile ListenableFuture<? extends T> combined;
+
+  FutureCombiner(int inputCount, Executor executor) {
+    this.executor = checkNotNull(executor);
+    this.remaining = inputCount;
+  }
+
+  /** Returns the number of inputs. */
+  abstract int inputCount();
+
+  /** Returns the input at {@code index}. */
+  abstract ListenableFuture<?> input(int index);
+
+  /** Calls the callback with the values of the inputs, all of which have succeeded. */
+  abstract ListenableFuture<T> invokeCallback() throws Exception;
+
+  /** Returns the value of an input that has succeeded. */
+  static <V> V getDone(Future<V> input) {
+    checkState(input.isDone(), "%s is not done", input);
+    return Futures.getUnchecked(input);
+  }
+
+  final ListenableFuture<T> start() {
+    if (inputCount() == 0) {
+      scheduleCombine();
+    }
+    for (int i = 0; i < inputCount(); i++) {
+      input(i).addListener(this, directExecutor());
+    }
+    return this;
+  }
+
+  /**
+   * Runs once as the listener of each input, and then once more on the executor after the last
+   * input has succeeded.
+   */
+  @Override
+  public final void run() {
+    int remaining = REMAINING.decrementAndGet(this);
+    if (remaining < 0) {
+      runCombine();
+    } else if (!isDone() && !failIfAnyInputFailed() && remaining == 0) {
+      scheduleCombine();
+    }
+  }
+
+  @Override
+  public boolean cancel(boolean mayInterruptIfRunning) {
+    if (!super.cancel(mayInterruptIfRunning)) {
+      return false;
+    }
+    for (int i = 0; i < inputCount(); i++) {
+      input(i).cancel(mayInterruptIfRunning);
+    }
+    ListenableFuture<? extends T> combined = this.combined;
+    if (combined != null) {
+      combined.cancel(mayInterruptIfRunning);
+    }
+    return true;
+  }
+
+  /**
+   * Fails or cancels this future if any input that has completed failed or was cancelled. Listeners
+   * don't know which input they were registered on, so each one checks all of them.
+   */
+  private boolean failIfAnyInputFailed() {
+    for (int i = 0; i < inputCount(); i++) {
+      ListenableFuture<?> input = input(i);
+      if (!input.isDone()) {
+        continue;
+      }
+      if (input.isCancelled()) {
+        cancel(false);
+        return true;
+      }
+      try {
+        getUninterruptibly(input);
+      } catch (ExecutionException e) {
+        setException(e.getCause());
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void scheduleCombine() {
+    try {
+      executor.execute(this);
+    } catch (RuntimeException e) {
+      // most likely a RejectedExecutionException, but any failure to hand off must fail this future
+      setException(e);
+    }
+  }
+
+  private void runCombine() {
+    if (isDone()) {
+      return;
+    }
+    final ListenableFuture<? extends T> result;
+    try {
+      result = invokeCallback();
+    } catch (Throwable t) {
+      setException(t);
+      return;
+    }
+    if (result == null) {
+      setException(new NullPointerException("combine returned null"));
+      return;
+    }
+    combined = result;
+    if (isCancelled()) {
+      // cancel() may have run before combined was recorded
+      result.cancel(wasInterrupted());
+    } else if (result.isDone()) {
+      setFrom(result);
+    } else {
+      result.addListener(new Runnable() {
+        @Override public void run() {
+          setFrom(result);
+        }
+      }, directExecutor());
+    }
+  }
+
+  private void setFrom(Future<? extends T> result) {
+    if (result.isCancelled()) {
+      cancel(false);
+      return;
+    }
+    try {
+      set(getUninterruptibly(result));
+    } catch (ExecutionException e) {
+      setException(e.getCause());
+    }
+  }
+
+  private static final class Combiner1<A, T> extends FutureCombiner<T> {
+    private final ListenableFuture<A> a;
+    private final Callback1<A, T> callback;
+
+    Combiner1(ListenableFuture<A> a, Callback1<A, T> callback, Executor executor) {
+      super(1, executor);
+      this.a = a;
+      this.callback = callback;
+    }
+
+    @Override int inputCount() {
+      return 1;
+    }
+
+    @Override ListenableFuture<?> input(int index) {
+      return a;
+    }
+
+    @Override ListenableFuture<T> invokeCallback() throws Exception {
+      return callback.combine(getDone(a));
+    }
+  }
+
+  private static final class Combiner2<A, B, T> extends FutureCombiner<T> {
+    private final ListenableFuture<A> a;
+    private final ListenableFuture<B> b;
+    private final Callback2<A, B, T> callback;
+
+    Combiner2(ListenableFuture<A> a, ListenableFuture<B> b, Callback2<A, B, T> callback,
+        Executor executor) {
+      super(2, executor);
+      this.a = a;
+      this.b = b;
+      this.callback = callback;
+    }
+
+    @Override int inputCount() {
+      return 2;
+    }
+
+    @Override ListenableFuture<?> input(int index) {
+      return index == 0 ? a : b;
+    }
+
+    @Override ListenableFuture<T> invokeCallback() throws Exception {
+      return callback.combine(getDone(a), getDone(b));
+    }
+  }
+
+  private static final class Combiner3<A, B, C, T> extends FutureCombiner<T> {
+    private final ListenableFuture<A> a;
+    private final ListenableFuture<B> b;
+    private final ListenableFuture<C> c;
+    private final Callback3<A, B, C, T> callback;
+
+    Combiner3(ListenableFuture<A> a, ListenableFuture<B> b, ListenableFuture<C> c,
+        Callback3<A, B, C, T> callback, Executor executor) {
+      super(3, executor);
+      this.a = a;
+      this.b = b;
+      this.c = c;
+      this.callback = callback;
+    }
+
+    @Override int inputCount() {
+      return 3;
+    }
+
+    @Override ListenableFuture<?> input(int index) {
+      switch (index) {
+        case 0:
+          return a;
+        case 1:
+          return b;
+        default:
+          return c;
+      }
+    }
+
+    @Override ListenableFuture<T> invokeCallback() throws Exception {
+      return callback.combine(getDone(a), getDone(b), getDone(c));
+    }
+  }
+
+  private static final class Combiner4<A, B, C, D, T> extends FutureCombiner<T> {
+    private final ListenableFuture<A> a;
+    private final ListenableFuture<B> b;
+    private final ListenableFuture<C> c;
+    private final ListenableFuture<D> d;
+    private final Callback4<A, B, C, D, T> callback;
+
+    Combiner4(ListenableFuture<A> a, ListenableFuture<B> b, ListenableFuture<C> c,
+        ListenableFuture<D> d, Callback4<A, B, C, D, T> callback, Executor executor) {
+      super(4, executor);
+      this.a = a;
+      this.b = b;
+      this.c = c;
+      this.d = d;
+      this.callback = callback;
+    }
+
+    @Override int inputCount() {
+      return 4;
+    }
+
+    @Override ListenableFuture<?> input(int index) {
+      switch (index) {
+        case 0:
+          return a;
+        case 1:
+          return b;
+        case 2:
+          return c;
+        default:
+          return d;
+      }
+    }
+
+    @Override ListenableFuture<T> invokeCallback() throws Exception {
+      return callback.combine(getDone(a), getDone(b), getDone(c), getDone(d));
+    }
+  }
+
+  private static final class Combiner5<A, B, C, D, E, T> extends FutureCombiner<T> {
+    private final ListenableFuture<A> a;
+    private final ListenableFuture<B> b;
+    private final ListenableFuture<C> c;
+    private final ListenableFuture<D> d;
+    private final ListenableFuture<E> e;
+    private final Callback5<A, B, C, D, E, T> callback;
+
+    Combiner5(ListenableFuture<A> a, ListenableFuture<B> b, ListenableFuture<C> c,
+        ListenableFuture<D> d, ListenableFuture<E> e, Callback5<A, B, C, D, E, T> callback,
+        Executor executor) {
+      super(5, executor);
+      this.a = a;
+      this.b = b;
+      this.c = c;
+      this.d = d;
+      this.e = e;
+      this.callback = callback;
+    }
+
+    @Override int inputCount() {
+      return 5;
+    }
+
+    @Override ListenableFuture<?> input(int index) {
+      switch (index) {
+        case 0:
+          return a;
+        case 1:
+          return b;
+        case 2:
+          return c;
+        case 3:
+          return d;
+        default:
+          return e;
+      }
+    }
+
+    @Override ListenableFuture<T> invokeCallback() throws Exception {
+      return callback.combine(getDone(a), getDone(b), getDone(c), getDone(d), getDone(e));
+    }
+  }
+
+  private static final class CombinerN<T> extends FutureCombiner<T> {
+    private final ListenableFuture<?>[] inputs;
+    private final CallbackN<T> callback;
+
+    CombinerN(ListenableFuture<?>[] inputs, CallbackN<T> callback, Executor executor) {
+      super(inputs.length, executor);
+      this.inputs = inputs;
+      this.callback = callback;
+    }
+
+    @Override int inputCount() {
+      return inputs.length;
+    }
+
+    @Override ListenableFuture<?> input(int index) {
+      return inputs[index];
+    }
+
+    @Override ListenableFuture<T> invokeCallback() throws Exception {
+      Object[] values = new Object[inputs.length];
+      for (int i = 0; i < inputs.length; i++) {
+        values[i] = getDone(inputs[i]);
+      }
+      return callback.combine(values);
+    }
+  }
+}
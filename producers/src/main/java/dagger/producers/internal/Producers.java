@@ -17,20 +17,26 @@ package dagger.producers.internal;
 
 import com.google.common.base.Function;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.util.concurrent.FutureFallback;
+import com.google.common.util.concurrent.AbstractFuture;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListenableFutureTask;
+import dagger.producers.Deadline;
+import dagger.producers.PriorityExecutor;
 import dagger.producers.Produced;
+import dagger.producers.Produceds;
 import dagger.producers.Producer;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import javax.inject.Provider;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static com.google.common.util.concurrent.Uninterruptibles.getUninterruptibly;
 
 /**
  * Utility methods for use in generated producer code.
@@ -52,34 +58,43 @@ public final class Producers {
   // TODO(user): Document what happens with an InterruptedException after you figure out how to
   // trigger one in a test.
   public static <T> ListenableFuture<Produced<T>> createFutureProduced(ListenableFuture<T> future) {
-    return Futures.withFallback(
-        Futures.transform(future, new Function<T, Produced<T>>() {
-          @Override public Produced<T> apply(final T value) {
-            return new Produced<T>() {
-              @Override public T get() {
-                return value;
-              }
-            };
-          }
-        }), Producers.<T>futureFallbackForProduced());
-
+    ProducedFuture<T> producedFuture = new ProducedFuture<T>(checkNotNull(future));
+    future.addListener(producedFuture, directExecutor());
+    return producedFuture;
   }
 
-  private static final FutureFallback<Produced<Object>> FUTURE_FALLBACK_FOR_PRODUCED =
-      new FutureFallback<Produced<Object>>() {
-    @Override public ListenableFuture<Produced<Object>> create(final Throwable t) {
-      Produced<Object> produced = new Produced<Object>() {
-        @Override public Object get() throws ExecutionException {
-          throw new ExecutionException(t);
-        }
-      };
-      return Futures.immediateFuture(produced);
+  /**
+   * The future returned by {@link #createFutureProduced}. It listens to its input itself, rather
+   * than chaining a transform and a fallback, so each {@code Produced} dependency costs one future
+   * and one {@code Produced} per request.
+   */
+  private static final class ProducedFuture<T> extends AbstractFuture<Produced<T>>
+      implements Runnable {
+    private final ListenableFuture<T> input;
+
+    ProducedFuture(ListenableFuture<T> input) {
+      this.input = input;
+    }
+
+    @Override public void run() {
+      Produced<T> produced;
+      try {
+        produced = Produceds.successful(getUninterruptibly(input));
+      } catch (ExecutionException e) {
+        produced = Produceds.failed(e.getCause());
+      } catch (CancellationException e) {
+        produced = Produceds.failed(e);
+      }
+      set(produced);
     }
-  };
 
-  @SuppressWarnings({"unchecked", "rawtypes"})  // bivariant implementation
-  private static <T> FutureFallback<Produced<T>> futureFallbackForProduced() {
-    return (FutureFallback) FUTURE_FALLBACK_FOR_PRODUCED;
+    @Override public boolean cancel(boolean mayInterruptIfRunning) {
+      if (super.cancel(mayInterruptIfRunning)) {
+        input.cancel(mayInterruptIfRunning);
+        return true;
+      }
+      return false;
+    }
   }
 
   /**
@@ -109,16 +124,52 @@ public final class Producers {
 
   /**
    * Returns a producer that immediately executes the binding logic for the given provider every
-   * time it is called.
+   * time it is called. Generated code gives each producer factory its own instance, and factories
+   * call it at most once per request, so it needs no memo of its own to {@linkplain #reset reset}.
    */
   public static <T> Producer<T> producerFromProvider(final Provider<T> provider) {
     checkNotNull(provider);
-    return new AbstractProducer<T>() {
-      @Override protected ListenableFuture<T> compute() {
+    return new Producer<T>() {
+      @Override public ListenableFuture<T> get() {
         return Futures.immediateFuture(provider.get());
       }
     };
   }
 
+  /**
+   * Returns the executor that a producer with {@code priority} should submit its work to: a view
+   * of {@code executor} at that priority if it is a {@link PriorityExecutor}, or else
+   * {@code executor} itself.
+   *
+   * @since 2.1
+   */
+  public static Executor withPriority(Executor executor, int priority) {
+    return executor instanceof PriorityExecutor
+        ? ((PriorityExecutor) executor).withPriority(priority)
+        : executor;
+  }
+
+  /**
+   * Forgets the future memoized by {@code producer}, if it is one that generated code creates, so
+   * that the next call to {@link Producer#get} runs it again, under {@code deadline}. Tolerates
+   * null, for fields of a component that have not been initialized yet.
+   *
+   * @since 2.1
+   */
+  public static void reset(Producer<?> producer, Deadline deadline) {
+    checkNotNull(deadline);
+    if (producer instanceof AbstractProducer) {
+      ((AbstractProducer<?>) producer).reset(deadline);
+    }
+  }
+
+  /**
+   * Arranges for {@code future} to be cancelled when {@code deadline} passes, or cancels it now if
+   * the deadline has already passed. Kept here rather than on {@link Deadline}, which is API.
+   */
+  static void cancelOnExpiry(Deadline deadline, ListenableFuture<?> future) {
+    DeadlineAccess.get().cancelOnExpiry(deadline, future);
+  }
+
   private Producers() {}
 }
@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.producers.internal;
+
+import dagger.producers.Deadline;
+
+/**
+ * Implemented by generated {@linkplain dagger.producers.ProductionComponent production components}
+ * so that a {@link dagger.producers.ProductionComponentPool} can reuse them across requests.
+ *
+ * @since 2.1
+ */
+public interface ResettableComponent {
+  /**
+   * Forgets the futures memoized by each of the component's producers, so that the next request
+   * runs them again, and gives the producers {@code deadline} in place of the previous request's.
+   * Modules, the executor, the monitor and scoped provisions are kept.
+   */
+  void reset(Deadline deadline);
+}
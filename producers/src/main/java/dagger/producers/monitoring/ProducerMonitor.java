@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.producers.monitoring;
+
+import dagger.internal.Beta;
+
+/**
+ * Receives the lifecycle events of a single producer in a production component, in this order:
+ *
+ * <ol>
+ * <li>{@link #requested}, when a downstream producer or a component method first asks for the
+ *     producer's value;
+ * <li>{@link #ready}, when the producer's last input succeeds (or right away, if it has none),
+ *     just before the producer hands its method to the component's executor;
+ * <li>{@link #methodStarting} and {@link #methodFinished}, on the executor's thread, around the
+ *     call to the {@link dagger.producers.Produces} method;
+ * <li>{@link #succeeded} or {@link #failed}, when the producer's future completes.
+ * </ol>
+ *
+ * <p>The time between {@code requested} and {@code ready} is spent waiting for the producer's
+ * inputs, the time between {@code ready} and {@code methodStarting} is spent waiting for a thread
+ * of the executor, and the time between {@code methodFinished} and {@code succeeded} is spent
+ * waiting on the future that the method returned, if any. If the method returns a plain value, the
+ * producer completes while the method is still on the stack, so {@code succeeded} may come just
+ * before {@code methodFinished}. A producer whose inputs fail or are cancelled never runs, so it
+ * only reports {@code requested} and {@code failed}.
+ * {@linkplain dagger.producers.Produces#inline Inline} producers report the same events, but run
+ * their method right after {@code ready}, on the thread that completed their last input or, if
+ * they have none, on the requesting thread.
+ *
+ * <p>All methods do nothing by default. They are called on whatever thread the event happens on,
+ * so implementations must be thread-safe and should return quickly. Anything they throw is logged
+ * and otherwise ignored, so that a broken monitor can't fail the producer.
+ *
+ * @since 2.1
+ */
+@Beta
+public abstract class ProducerMonitor {
+  /** Called when the producer's value is first requested. */
+  public void requested() {}
+
+  /**
+   * Called when the producer's inputs are complete, on the thread that completed the last one, just
+   * before the producer hands its method to the executor.
+   */
+  public void ready() {}
+
+  /** Called on the executor's thread just before the producer's method is called. */
+  public void methodStarting() {}
+
+  /** Called on the executor's thread just after the producer's method returns or throws. */
+  public void methodFinished() {}
+
+  /** Called when the producer's future succeeds with {@code o}. */
+  public void succeeded(Object o) {}
+
+  /** Called when the producer's future fails with {@code t}, including by cancellation. */
+  public void failed(Throwable t) {}
+
+  private static final ProducerMonitor NO_OP = new ProducerMonitor() {};
+
+  /** Returns a monitor that does nothing. */
+  public static ProducerMonitor noOp() {
+    return NO_OP;
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.producers.monitoring;
+
+import dagger.internal.Beta;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Identifies a producer in a production component, so that monitors can attribute events to the
+ * {@link dagger.producers.Produces} method that they belong to. Tokens for the same producer are
+ * equal across component instances.
+ *
+ * @since 2.1
+ */
+@Beta
+public final class ProducerToken {
+  private final Class<?> producerClass;
+
+  /** Returns the token for the producer implemented by {@code producerClass}. */
+  public static ProducerToken create(Class<?> producerClass) {
+    return new ProducerToken(producerClass);
+  }
+
+  private ProducerToken(Class<?> producerClass) {
+    this.producerClass = checkNotNull(producerClass);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof ProducerToken
+        && producerClass.equals(((ProducerToken) o).producerClass);
+  }
+
+  @Override
+  public int hashCode() {
+    return producerClass.hashCode();
+  }
+
+  /** Returns the canonical name of the class that implements the producer. */
+  @Override
+  public String toString() {
+    return producerClass.getCanonicalName();
+  }
+}
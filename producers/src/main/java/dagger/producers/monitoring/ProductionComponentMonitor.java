@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.producers.monitoring;
+
+import dagger.internal.Beta;
+
+/**
+ * A hook for monitoring the execution of {@linkplain dagger.producers.ProductionComponent
+ * production components}. Install one by passing it to the generated component builder's
+ * {@code productionComponentMonitor} method; components built without one use {@link #noOp}.
+ *
+ * <p>A component asks its monitor for a {@link ProducerMonitor} once for each producer that it
+ * creates, so a monitor that keeps per-execution state (a trace, say) should be installed in a
+ * fresh component for each execution, while one that only aggregates by {@link ProducerToken}
+ * (into histograms, say) can be shared.
+ *
+ * <p>Implementations must be thread-safe, and should return quickly and never throw.
+ *
+ * @since 2.1
+ */
+@Beta
+public abstract class ProductionComponentMonitor {
+  /** Returns the monitor for the producer identified by {@code token}. */
+  public abstract ProducerMonitor producerMonitorFor(ProducerToken token);
+
+  private static final ProductionComponentMonitor NO_OP = new ProductionComponentMonitor() {
+    @Override
+    public ProducerMonitor producerMonitorFor(ProducerToken token) {
+      return ProducerMonitor.noOp();
+    }
+  };
+
+  /** Returns a monitor that does nothing. */
+  public static ProductionComponentMonitor noOp() {
+    return NO_OP;
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.producers;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests {@link BatchLoader}.
+ */
+@RunWith(JUnit4.class)
+public class BatchLoaderTest {
+  /** An executor that holds tasks until the test runs them. */
+  private static class QueueingExecutor implements Executor {
+    final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+
+    @Override public void execute(Runnable task) {
+      tasks.add(task);
+    }
+
+    void runAll() {
+      while (!tasks.isEmpty()) {
+        tasks.remove().run();
+      }
+    }
+  }
+
+  /** Doubles each key, except for 0, for which it loads nothing. */
+  private static class DoublingLoader extends BatchLoader<Integer, Integer> {
+    final List<Set<Integer>> batches = new ArrayList<Set<Integer>>();
+
+    DoublingLoader(Executor executor, int maxBatchSize) {
+      super(executor, maxBatchSize);
+    }
+
+    @Override protected ListenableFuture<Map<Integer, Integer>> loadAll(Set<Integer> keys) {
+      batches.add(keys);
+      ImmutableMap.Builder<Integer, Integer> values = ImmutableMap.builder();
+      for (int key : keys) {
+        if (key != 0) {
+          values.put(key, key * 2);
+        }
+      }
+      return Futures.<Map<Integer, Integer>>immediateFuture(values.build());
+    }
+  }
+
+  @Test public void coalescesWithinTick() throws Exception {
+    QueueingExecutor executor = new QueueingExecutor();
+    DoublingLoader loader = new DoublingLoader(executor, 10);
+    ListenableFuture<Integer> one = loader.load(1);
+    ListenableFuture<Integer> two = loader.load(2);
+    ListenableFuture<Integer> anotherOne = loader.load(1);
+    assertThat(one.isDone()).isFalse();
+    executor.runAll();
+    assertThat(loader.batches).containsExactly(ImmutableSet.of(1, 2));
+    assertThat(one.get()).isEqualTo(2);
+    assertThat(two.get()).isEqualTo(4);
+    assertThat(anotherOne.get()).isEqualTo(2);
+
+    ListenableFuture<Integer> three = loader.load(3);
+    executor.runAll();
+    assertThat(loader.batches).containsExactly(ImmutableSet.of(1, 2), ImmutableSet.of(3))
+        .inOrder();
+    assertThat(three.get()).isEqualTo(6);
+  }
+
+  @Test public void dispatchesFullBatches() throws Exception {
+    QueueingExecutor executor = new QueueingExecutor();
+    DoublingLoader loader = new DoublingLoader(executor, 2);
+    loader.load(1);
+    loader.load(1);
+    loader.load(2);
+    loader.load(3);
+    executor.runAll();
+    assertThat(loader.batches).containsExactly(ImmutableSet.of(1, 2), ImmutableSet.of(3))
+        .inOrder();
+  }
+
+  @Test public void missingValue() throws Exception {
+    QueueingExecutor executor = new QueueingExecutor();
+    DoublingLoader loader = new DoublingLoader(executor, 10);
+    ListenableFuture<Integer> zero = loader.load(0);
+    ListenableFuture<Integer> one = loader.load(1);
+    executor.runAll();
+    assertThat(one.get()).isEqualTo(2);
+    try {
+      zero.get();
+      fail();
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(NoSuchElementException.class);
+    }
+  }
+
+  @Test public void cancellingOneCallerLeavesOthers() throws Exception {
+    QueueingExecutor executor = new QueueingExecutor();
+    DoublingLoader loader = new DoublingLoader(executor, 10);
+    ListenableFuture<Integer> cancelled = loader.load(1);
+    ListenableFuture<Integer> other = loader.load(1);
+    cancelled.cancel(true);
+    executor.runAll();
+    assertThat(other.get()).isEqualTo(2);
+  }
+
+  @Test public void failingLoadAll() throws Exception {
+    QueueingExecutor executor = new QueueingExecutor();
+    BatchLoader<Integer, Integer> loader = new BatchLoader<Integer, Integer>(executor, 10) {
+      @Override protected ListenableFuture<Map<Integer, Integer>> loadAll(Set<Integer> keys) {
+        throw new IllegalStateException("backend down");
+      }
+    };
+    ListenableFuture<Integer> one = loader.load(1);
+    ListenableFuture<Integer> two = loader.load(2);
+    executor.runAll();
+    for (ListenableFuture<Integer> future : ImmutableSet.of(one, two)) {
+      try {
+        future.get();
+        fail();
+      } catch (ExecutionException e) {
+        assertThat(e.getCause()).hasMessage("backend down");
+      }
+    }
+  }
+
+  @Test public void rejectedBatchFailsItsCallers() throws Exception {
+    final RejectedExecutionException rejection = new RejectedExecutionException();
+    QueueingExecutor executor = new QueueingExecutor() {
+      boolean rejected;
+
+      @Override public void execute(Runnable task) {
+        if (!rejected) {
+          rejected = true;
+          throw rejection;
+        }
+        super.execute(task);
+      }
+    };
+    DoublingLoader loader = new DoublingLoader(executor, 10);
+    ListenableFuture<Integer> one = loader.load(1);
+    assertThat(one.isDone()).isTrue();
+    try {
+      one.get();
+      fail();
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isSameAs(rejection);
+    }
+
+    // the rejected batch is no longer current, so the next key starts a batch of its own
+    ListenableFuture<Integer> two = loader.load(2);
+    executor.runAll();
+    assertThat(loader.batches).containsExactly(ImmutableSet.of(2));
+    assertThat(two.get()).isEqualTo(4);
+  }
+}
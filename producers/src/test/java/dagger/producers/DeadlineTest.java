@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.producers;
+
+import com.google.common.util.concurrent.SettableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests {@link Deadline}.
+ */
+@RunWith(JUnit4.class)
+public class DeadlineTest {
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+  @After public void shutDownScheduler() {
+    scheduler.shutdownNow();
+  }
+
+  @Test public void none() {
+    Deadline deadline = Deadline.none();
+    SettableFuture<String> future = SettableFuture.create();
+    deadline.cancelOnExpiry(future);
+    deadline.expire();
+    assertThat(deadline.isExpired()).isFalse();
+    assertThat(future.isDone()).isFalse();
+  }
+
+  @Test public void expire_cancelsOutstandingFutures() {
+    Deadline deadline = Deadline.after(1, TimeUnit.DAYS, scheduler);
+    SettableFuture<String> outstanding = SettableFuture.create();
+    SettableFuture<String> completed = SettableFuture.create();
+    deadline.cancelOnExpiry(outstanding);
+    deadline.cancelOnExpiry(completed);
+    completed.set("done");
+    assertThat(deadline.isExpired()).isFalse();
+
+    deadline.expire();
+    assertThat(deadline.isExpired()).isTrue();
+    assertThat(outstanding.isCancelled()).isTrue();
+    assertThat(completed.isCancelled()).isFalse();
+  }
+
+  @Test public void cancelOnExpiry_afterExpiry() {
+    Deadline deadline = Deadline.after(1, TimeUnit.DAYS, scheduler);
+    deadline.expire();
+    SettableFuture<String> future = SettableFuture.create();
+    deadline.cancelOnExpiry(future);
+    assertThat(future.isCancelled()).isTrue();
+  }
+
+  @Test public void after_expiresOnSchedule() throws Exception {
+    Deadline deadline = Deadline.after(0, TimeUnit.MILLISECONDS, scheduler);
+    SettableFuture<String> future = SettableFuture.create();
+    deadline.cancelOnExpiry(future);
+    try {
+      future.get();
+      fail();
+    } catch (CancellationException expected) {
+    }
+    assertThat(deadline.isExpired()).isTrue();
+  }
+
+  @Test public void timerOnlyScheduledWhileWorkIsOutstanding() {
+    ScheduledThreadPoolExecutor timers = new ScheduledThreadPoolExecutor(1);
+    timers.setRemoveOnCancelPolicy(true);
+    try {
+      Deadline deadline = Deadline.after(1, TimeUnit.DAYS, timers);
+      assertThat(timers.getQueue()).isEmpty();
+
+      SettableFuture<String> first = SettableFuture.create();
+      SettableFuture<String> second = SettableFuture.create();
+      deadline.cancelOnExpiry(first);
+      deadline.cancelOnExpiry(second);
+      assertThat(timers.getQueue().size()).isEqualTo(1);
+      first.set("first");
+      assertThat(timers.getQueue().size()).isEqualTo(1);
+      second.set("second");
+      assertThat(timers.getQueue()).isEmpty();
+
+      SettableFuture<String> third = SettableFuture.create();
+      deadline.cancelOnExpiry(third);
+      assertThat(timers.getQueue().size()).isEqualTo(1);
+      deadline.expire();
+      assertThat(third.isCancelled()).isTrue();
+      assertThat(timers.getQueue()).isEmpty();
+    } finally {
+      timers.shutdownNow();
+    }
+  }
+
+  @Test public void isExpired_withoutOutstandingWork() throws Exception {
+    Deadline deadline = Deadline.after(1, TimeUnit.MILLISECONDS, scheduler);
+    Thread.sleep(10);
+    assertThat(deadline.isExpired()).isTrue();
+    SettableFuture<String> future = SettableFuture.create();
+    deadline.cancelOnExpiry(future);
+    assertThat(future.isCancelled()).isTrue();
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.producers;
+
+import dagger.producers.internal.Producers;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests {@link PriorityExecutor}.
+ */
+@RunWith(JUnit4.class)
+public class PriorityExecutorTest {
+  /** An executor that holds tasks until the test runs them. */
+  private static final class QueueingExecutor implements Executor {
+    final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+
+    @Override public void execute(Runnable task) {
+      tasks.add(task);
+    }
+
+    void runNext() {
+      tasks.remove().run();
+    }
+  }
+
+  private static Runnable record(final List<String> log, final String name) {
+    return new Runnable() {
+      @Override public void run() {
+        log.add(name);
+      }
+    };
+  }
+
+  @Test public void highestPriorityFirst() {
+    QueueingExecutor delegate = new QueueingExecutor();
+    PriorityExecutor executor = PriorityExecutor.create(delegate, 1);
+    List<String> log = new ArrayList<String>();
+    executor.withPriority(1).execute(record(log, "a1"));
+    executor.execute(record(log, "b0"));
+    executor.withPriority(3).execute(record(log, "c3"));
+    executor.withPriority(1).execute(record(log, "d1"));
+    assertThat(delegate.tasks).hasSize(1);
+    delegate.runNext();
+    assertThat(log).containsExactly("c3", "a1", "d1", "b0").inOrder();
+    assertThat(delegate.tasks).isEmpty();
+  }
+
+  @Test public void limitsParallelism() {
+    QueueingExecutor delegate = new QueueingExecutor();
+    PriorityExecutor executor = PriorityExecutor.create(delegate, 2);
+    List<String> log = new ArrayList<String>();
+    executor.execute(record(log, "a"));
+    executor.execute(record(log, "b"));
+    executor.execute(record(log, "c"));
+    assertThat(delegate.tasks).hasSize(2);
+    delegate.runNext();
+    assertThat(log).containsExactly("a", "b", "c").inOrder();
+    // the other worker finds nothing left to run
+    delegate.runNext();
+    assertThat(log).hasSize(3);
+    executor.execute(record(log, "d"));
+    assertThat(delegate.tasks).hasSize(1);
+  }
+
+  @Test public void failingTaskDoesNotStopWorker() {
+    PriorityExecutor executor = PriorityExecutor.create(directExecutor(), 1);
+    List<String> log = new ArrayList<String>();
+    executor.execute(new Runnable() {
+      @Override public void run() {
+        throw new IllegalStateException("expected");
+      }
+    });
+    executor.execute(record(log, "a"));
+    assertThat(log).containsExactly("a");
+  }
+
+  @Test public void errorRestartsWorkerForRemainingTasks() {
+    QueueingExecutor delegate = new QueueingExecutor();
+    PriorityExecutor executor = PriorityExecutor.create(delegate, 1);
+    List<String> log = new ArrayList<String>();
+    executor.execute(new Runnable() {
+      @Override public void run() {
+        throw new AssertionError("expected");
+      }
+    });
+    executor.execute(record(log, "a"));
+    assertThat(delegate.tasks).hasSize(1);
+    try {
+      delegate.runNext();
+      fail();
+    } catch (AssertionError expected) {
+    }
+    // the slot went to a new worker, which runs the task that was left behind
+    assertThat(delegate.tasks).hasSize(1);
+    delegate.runNext();
+    assertThat(log).containsExactly("a");
+    executor.execute(record(log, "b"));
+    assertThat(delegate.tasks).hasSize(1);
+  }
+
+  @Test public void rejectedByDelegate() {
+    PriorityExecutor executor = PriorityExecutor.create(new Executor() {
+      @Override public void execute(Runnable task) {
+        throw new RejectedExecutionException();
+      }
+    }, 1);
+    try {
+      executor.execute(record(new ArrayList<String>(), "a"));
+      fail();
+    } catch (RejectedExecutionException expected) {
+    }
+  }
+
+  @Test public void producersWithPriority() {
+    PriorityExecutor executor = PriorityExecutor.create(directExecutor(), 1);
+    assertThat(Producers.withPriority(executor, 2)).isNotSameAs(executor);
+    assertThat(Producers.withPriority(executor, 2)).isSameAs(Producers.withPriority(executor, 2));
+    assertThat(Producers.withPriority(directExecutor(), 2)).isSameAs(directExecutor());
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.producers;
+
+import java.util.concurrent.ExecutionException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests {@link Produceds}.
+ */
+@RunWith(JUnit4.class)
+public class ProducedsTest {
+  @Test public void successfulProduced() throws ExecutionException {
+    Object o = new Object();
+    assertThat(Produceds.successful(5).get()).isEqualTo(5);
+    assertThat(Produceds.successful("monkey").get()).isEqualTo("monkey");
+    assertThat(Produceds.successful(o).get()).isSameAs(o);
+    assertThat(Produceds.successful(null).get()).isNull();
+  }
+
+  @Test public void failedProduced() {
+    RuntimeException cause = new RuntimeException("monkey");
+    try {
+      Produceds.failed(cause).get();
+      fail();
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isSameAs(cause);
+    }
+  }
+
+  @Test public void failedProduced_nullCause() {
+    try {
+      Produceds.failed(null);
+      fail();
+    } catch (NullPointerException expected) {
+    }
+  }
+
+  @Test public void equality() {
+    RuntimeException e1 = new RuntimeException("monkey");
+    RuntimeException e2 = new RuntimeException("monkey");
+    assertThat(Produceds.successful(1)).isEqualTo(Produceds.successful(1));
+    assertThat(Produceds.successful(1).hashCode()).isEqualTo(Produceds.successful(1).hashCode());
+    assertThat(Produceds.successful(null)).isEqualTo(Produceds.successful(null));
+    assertThat(Produceds.successful(1)).isNotEqualTo(Produceds.successful(2));
+    assertThat(Produceds.failed(e1)).isEqualTo(Produceds.failed(e1));
+    assertThat(Produceds.failed(e1).hashCode()).isEqualTo(Produceds.failed(e1).hashCode());
+    assertThat(Produceds.failed(e1)).isNotEqualTo(Produceds.failed(e2));
+    assertThat(Produceds.<Object>successful(e1)).isNotEqualTo(Produceds.failed(e1));
+  }
+}
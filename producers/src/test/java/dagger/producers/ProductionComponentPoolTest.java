@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.producers;
+
+import dagger.producers.internal.ResettableComponent;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Provider;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests {@link ProductionComponentPool}.
+ */
+@RunWith(JUnit4.class)
+public class ProductionComponentPoolTest {
+  private static final class FakeComponent implements ResettableComponent {
+    int resets;
+    Deadline deadline = Deadline.none();
+
+    @Override public void reset(Deadline deadline) {
+      resets++;
+      this.deadline = deadline;
+    }
+  }
+
+  private static final class FakeComponentFactory implements Provider<FakeComponent> {
+    int created;
+
+    @Override public FakeComponent get() {
+      created++;
+      return new FakeComponent();
+    }
+  }
+
+  @Test public void acquire_reusesReleasedComponents() {
+    FakeComponentFactory factory = new FakeComponentFactory();
+    ProductionComponentPool<FakeComponent> pool = ProductionComponentPool.create(factory, 1);
+    FakeComponent component = pool.acquire();
+    assertThat(component.resets).isEqualTo(0);
+    pool.release(component);
+    assertThat(component.resets).isEqualTo(1);
+    assertThat(pool.acquire()).isSameAs(component);
+    assertThat(factory.created).isEqualTo(1);
+  }
+
+  @Test public void release_keepsAtMostMaxIdle() {
+    FakeComponentFactory factory = new FakeComponentFactory();
+    ProductionComponentPool<FakeComponent> pool = ProductionComponentPool.create(factory, 1);
+    FakeComponent first = pool.acquire();
+    FakeComponent second = pool.acquire();
+    pool.release(first);
+    pool.release(second);
+    assertThat(second.resets).isEqualTo(1);
+    assertThat(pool.acquire()).isSameAs(first);
+    assertThat(pool.acquire()).isNotSameAs(second);
+    assertThat(factory.created).isEqualTo(3);
+  }
+
+  @Test public void release_notResettable() {
+    ProductionComponentPool<Object> pool = ProductionComponentPool.create(
+        new Provider<Object>() {
+          @Override public Object get() {
+            return new Object();
+          }
+        }, 1);
+    try {
+      pool.release(pool.acquire());
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @Test public void acquire_installsDeadline() {
+    FakeComponentFactory factory = new FakeComponentFactory();
+    ProductionComponentPool<FakeComponent> pool = ProductionComponentPool.create(factory, 1);
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    try {
+      Deadline deadline = Deadline.after(1, TimeUnit.DAYS, scheduler);
+      FakeComponent component = pool.acquire(deadline);
+      assertThat(component.deadline).isSameAs(deadline);
+      deadline.expire();
+      pool.release(component);
+      assertThat(component.deadline).isSameAs(Deadline.none());
+
+      Deadline next = Deadline.after(1, TimeUnit.DAYS, scheduler);
+      assertThat(pool.acquire(next)).isSameAs(component);
+      assertThat(component.deadline).isSameAs(next);
+    } finally {
+      scheduler.shutdownNow();
+    }
+  }
+
+  @Test public void create_negativeMaxIdle() {
+    try {
+      ProductionComponentPool.create(new FakeComponentFactory(), -1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.producers;
+
+import com.google.common.util.concurrent.ListenableFutureTask;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests {@link ProductionExecutors}.
+ */
+@RunWith(JUnit4.class)
+public class ProductionExecutorsTest {
+  @Test public void virtualThreadPerTask() throws Exception {
+    if (!ProductionExecutors.supportsVirtualThreads()) {
+      try {
+        ProductionExecutors.virtualThreadPerTask();
+        fail();
+      } catch (UnsupportedOperationException expected) {
+      }
+      return;
+    }
+    Executor executor = ProductionExecutors.virtualThreadPerTask();
+    ListenableFutureTask<Boolean> isVirtual = ListenableFutureTask.create(new Callable<Boolean>() {
+      @Override public Boolean call() throws Exception {
+        return (Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread());
+      }
+    });
+    executor.execute(isVirtual);
+    assertThat(isVirtual.get()).isTrue();
+  }
+}
@@ -15,14 +15,33 @@
  */
 package dagger.producers.internal;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.AsyncFunction;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import dagger.producers.Deadline;
 import dagger.producers.Producer;
+import dagger.producers.monitoring.ProducerMonitor;
+import dagger.producers.monitoring.ProducerToken;
+import dagger.producers.monitoring.ProductionComponentMonitor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static org.junit.Assert.fail;
 
 /**
@@ -30,6 +49,12 @@ import static org.junit.Assert.fail;
  */
 @RunWith(JUnit4.class)
 public class AbstractProducerTest {
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+  @After public void shutDownScheduler() {
+    scheduler.shutdownNow();
+  }
+
   @Test public void get_nullPointerException() {
     Producer<Object> producer = new AbstractProducer<Object>() {
       @Override public ListenableFuture<Object> compute() {
@@ -55,4 +80,372 @@ public class AbstractProducerTest {
     assertThat(producer.get().get()).isEqualTo(0);
     assertThat(producer.get().get()).isEqualTo(0);
   }
+
+  @Test public void get_callerDuringComputeSharesResult() throws Exception {
+    final SettableFuture<Integer> computed = SettableFuture.create();
+    final List<ListenableFuture<Integer>> concurrent = new ArrayList<ListenableFuture<Integer>>();
+    final AtomicInteger computations = new AtomicInteger();
+    final Producer<Integer> producer = new AbstractProducer<Integer>() {
+      @Override public ListenableFuture<Integer> compute() {
+        computations.incrementAndGet();
+        // stands in for a caller on another thread that arrives while this one computes
+        concurrent.add(get());
+        return computed;
+      }
+    };
+    ListenableFuture<Integer> first = producer.get();
+    assertThat(first).isSameAs(computed);
+    assertThat(concurrent.get(0).isDone()).isFalse();
+    computed.set(1);
+    assertThat(concurrent.get(0).get()).isEqualTo(1);
+    assertThat(producer.get()).isSameAs(computed);
+    assertThat(computations.get()).isEqualTo(1);
+  }
+
+  @Test public void get_callerDuringComputeSeesCancellation() throws Exception {
+    final SettableFuture<Integer> computed = SettableFuture.create();
+    final List<ListenableFuture<Integer>> concurrent = new ArrayList<ListenableFuture<Integer>>();
+    Producer<Integer> producer = new AbstractProducer<Integer>() {
+      @Override public ListenableFuture<Integer> compute() {
+        concurrent.add(get());
+        return computed;
+      }
+    };
+    producer.get();
+    concurrent.get(0).cancel(true);
+    assertThat(computed.isCancelled()).isTrue();
+  }
+
+  @Test public void get_failedComputeFailsWaitingCallersAndRetries() throws Exception {
+    final List<ListenableFuture<Integer>> concurrent = new ArrayList<ListenableFuture<Integer>>();
+    Producer<Integer> producer = new AbstractProducer<Integer>() {
+      boolean failed;
+
+      @Override public ListenableFuture<Integer> compute() {
+        if (!failed) {
+          failed = true;
+          concurrent.add(get());
+          throw new IllegalStateException("expected");
+        }
+        return immediateFuture(2);
+      }
+    };
+    try {
+      producer.get();
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+    try {
+      concurrent.get(0).get();
+      fail();
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).hasMessage("expected");
+    }
+    assertThat(producer.get().get()).isEqualTo(2);
+  }
+
+  @Test public void reset() throws Exception {
+    Producer<Integer> producer = new AbstractProducer<Integer>() {
+      int i = 0;
+
+      @Override public ListenableFuture<Integer> compute() {
+        return Futures.immediateFuture(i++);
+      }
+    };
+    assertThat(producer.get().get()).isEqualTo(0);
+    Producers.reset(producer, Deadline.none());
+    assertThat(producer.get().get()).isEqualTo(1);
+    assertThat(producer.get().get()).isEqualTo(1);
+  }
+
+  @Test public void reset_beforeRequest() throws Exception {
+    RecordingMonitor monitor = new RecordingMonitor();
+    Producer<String> producer = new MonitoredProducer(monitor, immediateFuture("a"));
+    Producers.reset(producer, Deadline.none());
+    assertThat(monitor.events).isEmpty();
+    assertThat(producer.get().get()).isEqualTo("a");
+  }
+
+  @Test public void monitor_success() throws Exception {
+    RecordingMonitor monitor = new RecordingMonitor();
+    MonitoredProducer producer = new MonitoredProducer(monitor, immediateFuture("a"));
+    assertThat(monitor.events).isEmpty();
+    assertThat(producer.get().get()).isEqualTo("a");
+    assertThat(monitor.events).isEqualTo(ImmutableList.of(
+        "requested", "ready", "methodStarting", "methodFinished", "succeeded a"));
+    producer.get();
+    assertThat(monitor.events.size()).isEqualTo(5);
+  }
+
+  @Test public void monitor_failure() throws Exception {
+    RecordingMonitor monitor = new RecordingMonitor();
+    MonitoredProducer producer = new MonitoredProducer(monitor, immediateFuture(""));
+    producer.get();
+    assertThat(monitor.events).isEqualTo(ImmutableList.of(
+        "requested", "ready", "methodStarting", "methodFinished",
+        "failed IllegalStateException"));
+  }
+
+  @Test public void monitor_inputFailure() throws Exception {
+    RecordingMonitor monitor = new RecordingMonitor();
+    MonitoredProducer producer = new MonitoredProducer(
+        monitor, Futures.<String>immediateFailedFuture(new IllegalArgumentException()));
+    producer.get();
+    assertThat(monitor.events).isEqualTo(ImmutableList.of(
+        "requested", "failed IllegalArgumentException"));
+  }
+
+  @Test public void monitor_waitsForReturnedFuture() throws Exception {
+    RecordingMonitor monitor = new RecordingMonitor();
+    final SettableFuture<String> returned = SettableFuture.create();
+    Producer<String> producer = new AbstractProducer<String>(monitor, AbstractProducerTest.class) {
+      @Override protected ListenableFuture<String> compute() {
+        return returned;
+      }
+    };
+    producer.get();
+    assertThat(monitor.events).isEqualTo(ImmutableList.of("requested"));
+    returned.set("b");
+    assertThat(monitor.events).isEqualTo(ImmutableList.of("requested", "succeeded b"));
+  }
+
+  @Test public void monitor_readyBeforeHandOff() throws Exception {
+    RecordingMonitor monitor = new RecordingMonitor();
+    final List<Runnable> handedOff = new ArrayList<Runnable>();
+    Executor executor = new Executor() {
+      @Override public void execute(Runnable task) {
+        handedOff.add(task);
+      }
+    };
+    SettableFuture<String> input = SettableFuture.create();
+    Producer<String> producer = new MonitoredProducer(monitor, input, executor);
+    ListenableFuture<String> result = producer.get();
+    assertThat(monitor.events).isEqualTo(ImmutableList.of("requested"));
+    input.set("a");
+    assertThat(monitor.events).isEqualTo(ImmutableList.of("requested", "ready"));
+    assertThat(handedOff.size()).isEqualTo(1);
+    handedOff.get(0).run();
+    assertThat(result.get()).isEqualTo("a");
+    assertThat(monitor.events).isEqualTo(ImmutableList.of(
+        "requested", "ready", "methodStarting", "methodFinished", "succeeded a"));
+  }
+
+  @Test public void monitor_throwingMonitorDoesNotFailProducer() throws Exception {
+    ProductionComponentMonitor componentMonitor = new ProductionComponentMonitor() {
+      @Override public ProducerMonitor producerMonitorFor(ProducerToken token) {
+        return new ProducerMonitor() {
+          @Override public void requested() {
+            throw new IllegalStateException("requested");
+          }
+
+          @Override public void ready() {
+            throw new IllegalStateException("ready");
+          }
+
+          @Override public void methodStarting() {
+            throw new IllegalStateException("methodStarting");
+          }
+
+          @Override public void methodFinished() {
+            throw new IllegalStateException("methodFinished");
+          }
+
+          @Override public void succeeded(Object o) {
+            throw new IllegalStateException("succeeded");
+          }
+        };
+      }
+    };
+    Producer<String> producer = new MonitoredProducer(componentMonitor, immediateFuture("a"));
+    assertThat(producer.get().get()).isEqualTo("a");
+  }
+
+  @Test public void monitor_nullProducerMonitor() {
+    ProductionComponentMonitor componentMonitor = new ProductionComponentMonitor() {
+      @Override public ProducerMonitor producerMonitorFor(ProducerToken token) {
+        return null;
+      }
+    };
+    try {
+      new MonitoredProducer(componentMonitor, immediateFuture("a"));
+      fail();
+    } catch (NullPointerException expected) {
+    }
+  }
+
+  @Test public void deadline_expiredBeforeRequest() {
+    Deadline deadline = Deadline.after(1, TimeUnit.DAYS, scheduler);
+    deadline.expire();
+    Producer<String> producer =
+        new AbstractProducer<String>(
+            ProductionComponentMonitor.noOp(), AbstractProducerTest.class, deadline) {
+          @Override protected ListenableFuture<String> compute() {
+            throw new AssertionError("expired producers should not be started");
+          }
+        };
+    assertThat(producer.get().isCancelled()).isTrue();
+  }
+
+  @Test public void deadline_cascadesToInputs() {
+    Deadline deadline = Deadline.after(1, TimeUnit.DAYS, scheduler);
+    final SettableFuture<String> input = SettableFuture.create();
+    final Producer<String> upstream = new AbstractProducer<String>() {
+      @Override protected ListenableFuture<String> compute() {
+        return input;
+      }
+    };
+    Producer<String> downstream =
+        new AbstractProducer<String>(
+            ProductionComponentMonitor.noOp(), AbstractProducerTest.class, deadline) {
+          @Override protected ListenableFuture<String> compute() {
+            return Futures.transform(upstream.get(), new AsyncFunction<String, String>() {
+              @Override public ListenableFuture<String> apply(String value) {
+                throw new AssertionError("cancelled producers should not run");
+              }
+            }, directExecutor());
+          }
+        };
+    ListenableFuture<String> result = downstream.get();
+    deadline.expire();
+    assertThat(result.isCancelled()).isTrue();
+    assertThat(input.isCancelled()).isTrue();
+  }
+
+  @Test public void deadline_dispatchStopsHandingOffAfterExpiry() {
+    Deadline deadline = Deadline.after(1, TimeUnit.DAYS, scheduler);
+    final List<Runnable> handedOff = new ArrayList<Runnable>();
+    final Executor executor = new Executor() {
+      @Override public void execute(Runnable task) {
+        handedOff.add(task);
+      }
+    };
+    AbstractProducer<String> producer =
+        new AbstractProducer<String>(
+            ProductionComponentMonitor.noOp(), AbstractProducerTest.class, deadline) {
+          @Override protected ListenableFuture<String> compute() {
+            throw new AssertionError();
+          }
+        };
+    Executor dispatch = producer.dispatchTo(executor);
+    final List<String> ran = new ArrayList<String>();
+    Runnable task = new Runnable() {
+      @Override public void run() {
+        ran.add("ran");
+      }
+    };
+    dispatch.execute(task);
+    assertThat(handedOff.size()).isEqualTo(1);
+    assertThat(ran).isEmpty();
+
+    deadline.expire();
+    dispatch.execute(task);
+    assertThat(handedOff.size()).isEqualTo(1);
+    assertThat(ran.size()).isEqualTo(1);
+  }
+
+  @Test public void deadline_methodDoesNotStartAfterExpiry() {
+    Deadline deadline = Deadline.after(1, TimeUnit.DAYS, scheduler);
+    AbstractProducer<String> producer =
+        new AbstractProducer<String>(
+            ProductionComponentMonitor.noOp(), AbstractProducerTest.class, deadline) {
+          @Override protected ListenableFuture<String> compute() {
+            throw new AssertionError();
+          }
+        };
+    producer.methodStarting();
+    producer.methodFinished();
+    deadline.expire();
+    try {
+      producer.methodStarting();
+      fail();
+    } catch (CancellationException expected) {
+    }
+  }
+
+  @Test public void reset_replacesDeadline() throws Exception {
+    Deadline first = Deadline.after(1, TimeUnit.DAYS, scheduler);
+    Producer<String> producer =
+        new AbstractProducer<String>(
+            ProductionComponentMonitor.noOp(), AbstractProducerTest.class, first) {
+          @Override protected ListenableFuture<String> compute() {
+            return immediateFuture("a");
+          }
+        };
+    first.expire();
+    assertThat(producer.get().isCancelled()).isTrue();
+    Producers.reset(producer, Deadline.after(1, TimeUnit.DAYS, scheduler));
+    assertThat(producer.get().get()).isEqualTo("a");
+  }
+
+  private static final ProducerToken TOKEN = ProducerToken.create(AbstractProducerTest.class);
+
+  /**
+   * Mimics a generated producer: it combines its input, reporting to its monitor around the method,
+   * which fails for an empty input.
+   */
+  private static final class MonitoredProducer extends AbstractProducer<String>
+      implements FutureCombiner.Callback1<String, String> {
+    final ListenableFuture<String> input;
+    final Executor executor;
+
+    MonitoredProducer(ProductionComponentMonitor monitor, ListenableFuture<String> input) {
+      this(monitor, input, directExecutor());
+    }
+
+    MonitoredProducer(
+        ProductionComponentMonitor monitor, ListenableFuture<String> input, Executor executor) {
+      super(monitor, AbstractProducerTest.class);
+      this.input = input;
+      this.executor = executor;
+    }
+
+    @Override protected ListenableFuture<String> compute() {
+      return FutureCombiner.combine(input, this, dispatchTo(executor));
+    }
+
+    @Override public ListenableFuture<String> combine(String value) {
+      methodStarting();
+      try {
+        if (value.isEmpty()) {
+          throw new IllegalStateException();
+        }
+        return immediateFuture(value);
+      } finally {
+        methodFinished();
+      }
+    }
+  }
+
+  private static final class RecordingMonitor extends ProductionComponentMonitor {
+    final List<String> events = new ArrayList<String>();
+
+    @Override public ProducerMonitor producerMonitorFor(ProducerToken token) {
+      assertThat(token).isEqualTo(TOKEN);
+      return new ProducerMonitor() {
+        @Override public void requested() {
+          events.add("requested");
+        }
+
+        @Override public void ready() {
+          events.add("ready");
+        }
+
+        @Override public void methodStarting() {
+          events.add("methodStarting");
+        }
+
+        @Override public void methodFinished() {
+          events.add("methodFinished");
+        }
+
+        @Override public void succeeded(Object o) {
+          events.add("succeeded " + o);
+        }
+
+        @Override public void failed(Throwable t) {
+          events.add("failed " + t.getClass().getSimpleName());
+        }
+      };
+    }
+  }
 }
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.producers.internal;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Tests {@link CompletionStageFuture}.
+ */
+@RunWith(JUnit4.class)
+public class CompletionStageFutureTest {
+  /** Stands in for the nested class that generated factories pass to {@code whenComplete}. */
+  private static final class TestFuture extends CompletionStageFuture<String> {
+    void accept(String value, Throwable failure) {
+      complete(value, failure);
+    }
+  }
+
+  @Test public void completeWithValue() throws Exception {
+    TestFuture future = new TestFuture();
+    future.accept("a", null);
+    assertThat(future.get()).isEqualTo("a");
+  }
+
+  @Test public void completeWithFailure() throws Exception {
+    TestFuture future = new TestFuture();
+    RuntimeException failure = new RuntimeException();
+    future.accept(null, failure);
+    try {
+      future.get();
+      fail();
+    } catch (ExecutionException expected) {
+      assertThat(expected.getCause()).isSameAs(failure);
+    }
+  }
+
+  @Test public void completeWithCancellation() {
+    TestFuture future = new TestFuture();
+    future.accept(null, new CancellationException());
+    assertThat(future.isCancelled()).isTrue();
+  }
+
+  @Test public void completeWithCompletionException() throws Exception {
+    Class<?> completionException;
+    try {
+      completionException = Class.forName("java.util.concurrent.CompletionException");
+    } catch (ClassNotFoundException e) {
+      completionException = null;
+    }
+    assumeTrue(completionException != null);
+    RuntimeException failure = new RuntimeException();
+    Throwable wrapped = (Throwable) completionException
+        .getConstructor(Throwable.class)
+        .newInstance(failure);
+    TestFuture future = new TestFuture();
+    future.accept(null, wrapped);
+    try {
+      future.get();
+      fail();
+    } catch (ExecutionException expected) {
+      assertThat(expected.getCause()).isSameAs(failure);
+    }
+  }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2015 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dagger.producers.internal;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests {@link FutureCombiner}.
+ */
+@RunWith(JUnit4.class)
+public class FutureCombinerTest {
+  private static final FutureCombiner.Callback2<String, Integer, String> CONCAT =
+      new FutureCombiner.Callback2<String, Integer, String>() {
+        @Override public ListenableFuture<String> combine(String a, Integer b) {
+          return Futures.immediateFuture(a + b);
+        }
+      };
+
+  private static ListenableFuture<String> concat(Executor executor,
+      ListenableFuture<String> a, ListenableFuture<Integer> b) {
+    return FutureCombiner.combine(a, b, CONCAT, executor);
+  }
+
+  private static ListenableFuture<String> combineWith(
+      FutureCombiner.Callback2<String, Integer, String> callback) {
+    return FutureCombiner.combine(Futures.immediateFuture("monkey"), Futures.immediateFuture(42),
+        callback, directExecutor());
+  }
+
+  @Test public void inputsAlreadyDone() throws Exception {
+    ListenableFuture<String> future = concat(directExecutor(),
+        Futures.immediateFuture("monkey"), Futures.immediateFuture(42));
+    assertThat(future.isDone()).isTrue();
+    assertThat(future.get()).isEqualTo("monkey42");
+  }
+
+  @Test public void combinesOnceLastInputArrives() throws Exception {
+    SettableFuture<String> a = SettableFuture.create();
+    SettableFuture<Integer> b = SettableFuture.create();
+    ListenableFuture<String> future = concat(directExecutor(), a, b);
+    b.set(42);
+    assertThat(future.isDone()).isFalse();
+    a.set("monkey");
+    assertThat(future.get()).isEqualTo("monkey42");
+  }
+
+  @Test public void inputFailureFailsImmediately() throws Exception {
+    SettableFuture<String> a = SettableFuture.create();
+    SettableFuture<Integer> b = SettableFuture.create();
+    ListenableFuture<String> future = concat(directExecutor(), a, b);
+    b.setException(new RuntimeException("monkey"));
+    assertThat(future.isDone()).isTrue();
+    try {
+      future.get();
+      fail();
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).hasMessage("monkey");
+    }
+  }
+
+  @Test public void inputCancellationCancels() throws Exception {
+    SettableFuture<String> a = SettableFuture.create();
+    SettableFuture<Integer> b = SettableFuture.create();
+    ListenableFuture<String> future = concat(directExecutor(), a, b);
+    b.cancel(false);
+    assertThat(future.isCancelled()).isTrue();
+    assertThat(a.isCancelled()).isTrue();
+  }
+
+  @Test public void cancellationPropagatesToInputs() throws Exception {
+    SettableFuture<String> a = SettableFuture.create();
+    SettableFuture<Integer> b = SettableFuture.create();
+    ListenableFuture<String> future = concat(directExecutor(), a, b);
+    future.cancel(true);
+    assertThat(a.isCancelled()).isTrue();
+    assertThat(b.isCancelled()).isTrue();
+  }
+
+  @Test public void cancellationPropagatesToCombinedFuture() throws Exception {
+    final SettableFuture<String> combined = SettableFuture.create();
+    ListenableFuture<String> future =
+        combineWith(new FutureCombiner.Callback2<String, Integer, String>() {
+          @Override public ListenableFuture<String> combine(String a, Integer b) {
+            return combined;
+          }
+        });
+    assertThat(future.isDone()).isFalse();
+    future.cancel(false);
+    assertThat(combined.isCancelled()).isTrue();
+  }
+
+  @Test public void combineThrows() throws Exception {
+    ListenableFuture<String> future =
+        combineWith(new FutureCombiner.Callback2<String, Integer, String>() {
+          @Override public ListenableFuture<String> combine(String a, Integer b)
+              throws Exception {
+            throw new Exception("monkey");
+          }
+        });
+    try {
+      future.get();
+      fail();
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).hasMessage("monkey");
+    }
+  }
+
+  @Test public void combinesOnExecutor() throws Exception {
+    final Runnable[] scheduled = new Runnable[1];
+    Executor executor = new Executor() {
+      @Override public void execute(Runnable command) {
+        scheduled[0] = command;
+      }
+    };
+    ListenableFuture<String> future = concat(executor,
+        Futures.immediateFuture("monkey"), Futures.immediateFuture(42));
+    assertThat(future.isDone()).isFalse();
+    scheduled[0].run();
+    assertThat(future.get()).isEqualTo("monkey42");
+  }
+
+  @Test public void rejectedExecution() throws Exception {
+    Executor executor = new Executor() {
+      @Override public void execute(Runnable command) {
+        throw new RejectedExecutionException();
+      }
+    };
+    ListenableFuture<String> future = concat(executor,
+        Futures.immediateFuture("monkey"), Futures.immediateFuture(42));
+    try {
+      future.get();
+      fail();
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(RejectedExecutionException.class);
+    }
+  }
+
+  @Test public void executorThrows() throws Exception {
+    Executor executor = new Executor() {
+      @Override public void execute(Runnable command) {
+        throw new IllegalStateException();
+      }
+    };
+    ListenableFuture<String> future = concat(executor,
+        Futures.immediateFuture("monkey"), Futures.immediateFuture(42));
+    try {
+      future.get();
+      fail();
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(IllegalStateException.class);
+    }
+  }
+
+  @Test public void singleInput() throws Exception {
+    SettableFuture<Integer> a = SettableFuture.create();
+    ListenableFuture<String> future = FutureCombiner.combine(a,
+        new FutureCombiner.Callback1<Integer, String>() {
+          @Override public ListenableFuture<String> combine(Integer value) {
+            return Futures.immediateFuture("monkey" + value);
+          }
+        }, directExecutor());
+    assertThat(future.isDone()).isFalse();
+    a.set(42);
+    assertThat(future.get()).isEqualTo("monkey42");
+  }
+
+  @Test public void anyNumberOfInputs() throws Exception {
+    SettableFuture<Integer> last = SettableFuture.create();
+    ListenableFuture<String> future = FutureCombiner.combine(
+        new FutureCombiner.CallbackN<String>() {
+          @Override public ListenableFuture<String> combine(Object[] values) {
+            StringBuilder builder = new StringBuilder();
+            for (Object value : values) {
+              builder.append(value);
+            }
+            return Futures.immediateFuture(builder.toString());
+          }
+        },
+        directExecutor(),
+        Futures.immediateFuture("a"), Futures.immediateFuture(1), Futures.immediateFuture("b"),
+        Futures.immediateFuture(2), Futures.immediateFuture("c"), last);
+    assertThat(future.isDone()).isFalse();
+    last.set(3);
+    assertThat(future.get()).isEqualTo("a1b2c3");
+  }
+}
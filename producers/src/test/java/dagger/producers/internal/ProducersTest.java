@@ -19,6 +19,7 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.SettableFuture;
+import dagger.producers.Deadline;
 import dagger.producers.Produced;
 import dagger.producers.Producer;
 import java.util.Set;
@@ -117,7 +118,18 @@ public class ProducersTest {
       }
     });
     assertThat(producer.get().get()).isEqualTo(0);
-    assertThat(producer.get().get()).isEqualTo(0);
-    assertThat(producer.get().get()).isEqualTo(0);
+    assertThat(producer.get().get()).isEqualTo(1);
+    assertThat(producer.get().get()).isEqualTo(2);
+  }
+
+  @Test public void reset_otherProducers() throws Exception {
+    Producers.reset(null, Deadline.none());
+    Producer<Integer> producer = Producers.producerFromProvider(new Provider<Integer>() {
+      @Override public Integer get() {
+        return 1;
+      }
+    });
+    Producers.reset(producer, Deadline.none());
+    assertThat(producer.get().get()).isEqualTo(1);
   }
 }